@@ -0,0 +1,25 @@
+package net.sprocketgames.mctelemetry.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic player lists shared by the benchmarks.
+ */
+public final class SyntheticPlayers {
+    private SyntheticPlayers() {
+    }
+
+    public static List<PlayerSnapshot> create(int count) {
+        Random random = new Random(count);
+        List<PlayerSnapshot> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID uuid = new UUID(random.nextLong(), random.nextLong());
+            players.add(new PlayerSnapshot("Player_" + i, PlayerSnapshot.uuidHex(uuid)));
+        }
+
+        return List.copyOf(players);
+    }
+}
@@ -0,0 +1,64 @@
+package net.sprocketgames.mctelemetry.common;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of the binary payload against JSON for the same snapshot, as seen by an aggregator that
+ * parses every poll. The relative wire size of the two encodings is asserted by {@code TelemetryBinaryPayloadTest}
+ * rather than measured here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TelemetryBinaryPayloadBenchmark {
+    @Param({"0", "100", "1000"})
+    public int players;
+
+    private TelemetrySnapshot snapshot;
+    private Utf8JsonWriter writer;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() {
+        snapshot = TelemetrySnapshot.of("1.20.1", "forge", SyntheticPlayers.create(players), 12.3, 20.0,
+                new TickStats(200, 11.9, 30.2, 48.0, 212.5, 3));
+        writer = new Utf8JsonWriter();
+        json = TelemetryPayload.write(writer, snapshot).toByteArray();
+        binary = TelemetryBinaryPayload.encode(snapshot);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return TelemetryPayload.write(writer, snapshot).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return TelemetryBinaryPayload.encode(snapshot);
+    }
+
+    @Benchmark
+    public JsonElement decodeJson() {
+        return JsonParser.parseReader(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public TelemetrySnapshot decodeBinary() {
+        return TelemetryBinaryPayload.decode(binary);
+    }
+}
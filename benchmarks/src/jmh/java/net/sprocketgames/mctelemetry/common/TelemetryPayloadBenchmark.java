@@ -0,0 +1,76 @@
+package net.sprocketgames.mctelemetry.common;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payload serialization cost across player counts. {@code gsonTree} reproduces the original JsonObject-based builder
+ * as a baseline for the streaming writer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TelemetryPayloadBenchmark {
+    private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+
+    @Param({"0", "100", "1000", "10000"})
+    public int players;
+
+    private TelemetrySnapshot snapshot;
+    private Utf8JsonWriter writer;
+
+    @Setup
+    public void setUp() {
+        snapshot = TelemetrySnapshot.of("1.20.1", "forge", SyntheticPlayers.create(players), 12.3, 20.0,
+                new TickStats(200, 11.9, 30.2, 48.0, 212.5, 3));
+        writer = new Utf8JsonWriter();
+    }
+
+    @Benchmark
+    public Utf8JsonWriter streamingReusedWriter() {
+        return TelemetryPayload.write(writer, snapshot);
+    }
+
+    @Benchmark
+    public byte[] streamingPublishedBytes() {
+        return TelemetryPayload.write(writer, snapshot).toByteArray();
+    }
+
+    @Benchmark
+    public String streamingString() {
+        return TelemetryPayload.build(snapshot);
+    }
+
+    @Benchmark
+    public byte[] gsonTree() {
+        JsonObject root = new JsonObject();
+        root.addProperty("mc", snapshot.minecraftVersion());
+        root.addProperty("loader", snapshot.loader());
+        root.addProperty("mspt", snapshot.mspt());
+        root.addProperty("tps", snapshot.tps());
+
+        JsonArray playersArray = new JsonArray();
+        for (PlayerSnapshot player : snapshot.players()) {
+            JsonObject playerObj = new JsonObject();
+            playerObj.addProperty("name", player.name());
+            playerObj.addProperty("uuid", player.uuid());
+            playersArray.add(playerObj);
+        }
+
+        root.add("players", playersArray);
+        return GSON.toJson(root).getBytes(StandardCharsets.UTF_8);
+    }
+}
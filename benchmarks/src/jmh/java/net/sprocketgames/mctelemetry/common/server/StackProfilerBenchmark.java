@@ -0,0 +1,117 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cost of the {@link StackProfiler}. {@code tick} is a synthetic tick of a few milliseconds run {@value #DEPTH} frames
+ * deep while the profiler samples the benchmark thread, so the difference between rates is what the server thread
+ * loses; on a single core that includes the sampler competing for the CPU. {@code sample} is the cost of one sample of
+ * a thread parked {@value #DEPTH} frames deep: the stack walk and the trie update.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class StackProfilerBenchmark {
+    static final int DEPTH = 64;
+    static final int WORK = 400_000;
+
+    @Param({"0", "100", "1000"})
+    public int rateHz;
+
+    StackProfiler profiler;
+    double sink;
+
+    @Setup(Level.Iteration)
+    public void start() throws IOException {
+        if (rateHz == 0) {
+            return;
+        }
+
+        Thread measured = Thread.currentThread();
+        profiler = new StackProfiler(NOPLogger.NOP_LOGGER, () -> measured);
+        if (!profiler.start(rateHz, StackProfiler.MAX_DURATION_SECONDS)) {
+            throw new IOException("Profiler failed to start");
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() {
+        if (profiler != null) {
+            profiler.stop();
+            profiler = null;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ParkedThread {
+        final CountDownLatch done = new CountDownLatch(1);
+        final ProfileTrie trie = new ProfileTrie(StackProfiler.MAX_NODES);
+        Thread thread;
+
+        @Setup(Level.Trial)
+        public void start() {
+            thread = new Thread(() -> park(DEPTH), "parked");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            done.countDown();
+            LockSupport.unpark(thread);
+        }
+
+        private int park(int depth) {
+            if (depth > 0) {
+                return park(depth - 1) + 1;
+            }
+            while (done.getCount() > 0) {
+                LockSupport.park(this);
+            }
+            return 0;
+        }
+    }
+
+    @Benchmark
+    public long sample(ParkedThread parked) {
+        parked.trie.record(parked.thread.getStackTrace());
+        return parked.trie.samples();
+    }
+
+    @Benchmark
+    public double tick() {
+        return recurse(DEPTH);
+    }
+
+    private double recurse(int depth) {
+        if (depth == 0) {
+            return work();
+        }
+        return recurse(depth - 1) + depth;
+    }
+
+    private double work() {
+        // A fixed amount of work rather than a deadline, so time lost to stack walks shows up in the score.
+        double value = sink;
+        for (int i = 0; i < WORK; i++) {
+            value += Math.sqrt(i + value);
+        }
+        sink = value;
+        return value;
+    }
+}
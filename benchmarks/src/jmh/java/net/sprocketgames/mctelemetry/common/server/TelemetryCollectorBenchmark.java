@@ -0,0 +1,103 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import net.sprocketgames.mctelemetry.common.SyntheticPlayers;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collection cost against a synthetic {@link TelemetryCollector.TelemetrySource}: the full synchronous
+ * {@code collect}, the server-thread capture alone (copying the players or holding a shared list), and the off-thread
+ * snapshot step.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TelemetryCollectorBenchmark {
+    private static final Logger LOGGER = NOPLogger.NOP_LOGGER;
+
+    @Param({"0", "100", "1000"})
+    public int players;
+
+    private TelemetryCollector.TelemetrySource source;
+    private TelemetryCollector.TelemetrySource sharedSource;
+    private TelemetryCapture capture;
+    private TelemetryCapture filledCapture;
+
+    @Setup
+    public void setUp() {
+        List<PlayerSnapshot> online = SyntheticPlayers.create(players);
+        source = new TelemetryCollector.TelemetrySource() {
+            @Override
+            public OptionalDouble averageTickTimeMs() {
+                return OptionalDouble.of(12.34);
+            }
+
+            @Override
+            public List<PlayerSnapshot> onlinePlayers() {
+                return online;
+            }
+
+            @Override
+            public void appendOnlinePlayers(List<PlayerSnapshot> sink) {
+                for (int i = 0; i < online.size(); i++) {
+                    sink.add(online.get(i));
+                }
+            }
+        };
+        sharedSource = new TelemetryCollector.TelemetrySource() {
+            @Override
+            public OptionalDouble averageTickTimeMs() {
+                return OptionalDouble.of(12.34);
+            }
+
+            @Override
+            public List<PlayerSnapshot> onlinePlayers() {
+                return online;
+            }
+
+            @Override
+            public List<PlayerSnapshot> sharedOnlinePlayers() {
+                return online;
+            }
+        };
+        capture = new TelemetryCapture(256);
+        filledCapture = new TelemetryCapture(256);
+        TelemetryCollector.capture(source, filledCapture, false, LOGGER);
+    }
+
+    @Benchmark
+    public TelemetrySnapshot collect() {
+        return TelemetryCollector.collect(source, false, LOGGER, "1.20.1", "forge");
+    }
+
+    @Benchmark
+    public TelemetryCapture captureOnServerThread() {
+        TelemetryCollector.capture(source, capture, false, LOGGER);
+        return capture;
+    }
+
+    @Benchmark
+    public TelemetryCapture captureSharedPlayersOnServerThread() {
+        TelemetryCollector.capture(sharedSource, capture, false, LOGGER);
+        return capture;
+    }
+
+    @Benchmark
+    public TelemetrySnapshot snapshotOnPublisherThread() {
+        return TelemetryCollector.toSnapshot(filledCapture, LOGGER, "1.20.1", "forge");
+    }
+}
@@ -0,0 +1,108 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.SyntheticPlayers;
+import net.sprocketgames.mctelemetry.common.TelemetryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.Utf8JsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request throughput and latency of the {@code /telemetry} endpoint with eight concurrent loopback clients, for each
+ * {@linkplain TelemetryHttpServer.Engine engine}. Run with the default {@code gc} profiler to see allocations per request
+ * (client and server share the JVM).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class TelemetryHttpServerBenchmark {
+    @State(Scope.Benchmark)
+    public static class ServerState {
+        @Param({"0", "150", "1000"})
+        public int players;
+
+        @Param({"JDK", "NIO"})
+        public TelemetryHttpServer.Engine engine;
+
+        TelemetryHttpServer server;
+        URI telemetryUri;
+        String etag;
+
+        @Setup(Level.Trial)
+        public void start() throws Exception {
+            TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge", SyntheticPlayers.create(players), 12.3, 20.0);
+            byte[] payload = TelemetryPayload.write(new Utf8JsonWriter(), snapshot).toByteArray();
+
+            int port;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+
+            // Eight clients share one loopback address; measure serving, not the per-client limiter.
+            System.setProperty(RequestLimiter.RATE_LIMIT_PROPERTY, "0");
+            server = new TelemetryHttpServer(NOPLogger.NOP_LOGGER, payload, port, "127.0.0.1", null, null, engine);
+            if (!server.start()) {
+                throw new IOException("Telemetry HTTP server failed to start on port " + port);
+            }
+
+            telemetryUri = URI.create("http://127.0.0.1:" + port + "/telemetry");
+            etag = HttpClient.newHttpClient()
+                    .send(HttpRequest.newBuilder(telemetryUri).build(), HttpResponse.BodyHandlers.discarding())
+                    .headers().firstValue("ETag").orElseThrow();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            server.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        HttpClient client;
+        HttpRequest identity;
+        HttpRequest gzip;
+        HttpRequest conditional;
+
+        @Setup(Level.Trial)
+        public void setUp(ServerState serverState) {
+            client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            identity = HttpRequest.newBuilder(serverState.telemetryUri).GET().build();
+            gzip = HttpRequest.newBuilder(serverState.telemetryUri).header("Accept-Encoding", "gzip").GET().build();
+            conditional = HttpRequest.newBuilder(serverState.telemetryUri).header("If-None-Match", serverState.etag).GET().build();
+        }
+    }
+
+    @Benchmark
+    public int fullBody(ServerState server, ClientState client) throws Exception {
+        return client.client.send(client.identity, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+
+    @Benchmark
+    public int gzipBody(ServerState server, ClientState client) throws Exception {
+        return client.client.send(client.gzip, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+
+    @Benchmark
+    public int notModified(ServerState server, ClientState client) throws Exception {
+        return client.client.send(client.conditional, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
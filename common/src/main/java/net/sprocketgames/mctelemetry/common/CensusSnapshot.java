@@ -0,0 +1,28 @@
+package net.sprocketgames.mctelemetry.common;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Result of one complete entity and block-entity census across every loaded chunk.
+ *
+ * @param completedMillis wall-clock time the census finished
+ * @param ticks           server ticks the census was spread over
+ * @param workMillis      time spent counting, summed over those ticks
+ * @param chunks          chunks visited
+ * @param entities        entity counts by type, largest first
+ * @param blockEntities   block-entity counts by type, largest first
+ */
+public record CensusSnapshot(long completedMillis, int ticks, double workMillis, int chunks, List<TypeCount> entities,
+                             List<TypeCount> blockEntities) {
+    public CensusSnapshot {
+        Objects.requireNonNull(entities, "entities");
+        Objects.requireNonNull(blockEntities, "blockEntities");
+    }
+
+    public record TypeCount(String type, int count) {
+        public TypeCount {
+            Objects.requireNonNull(type, "type");
+        }
+    }
+}
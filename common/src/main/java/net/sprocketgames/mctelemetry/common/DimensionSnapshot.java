@@ -0,0 +1,18 @@
+package net.sprocketgames.mctelemetry.common;
+
+import java.util.Objects;
+
+/**
+ * Load of a single server level (dimension) over one refresh window.
+ *
+ * @param id           dimension id, e.g. {@code minecraft:the_nether}
+ * @param mspt         average milliseconds spent ticking this level, or {@code null} when not recorded
+ * @param loadedChunks chunks loaded in the level when captured
+ * @param entities     entities the latest complete entity census counted in the level, or {@code -1} when unknown
+ * @param players      players in the level when captured
+ */
+public record DimensionSnapshot(String id, Double mspt, int loadedChunks, int entities, int players) {
+    public DimensionSnapshot {
+        Objects.requireNonNull(id, "id");
+    }
+}
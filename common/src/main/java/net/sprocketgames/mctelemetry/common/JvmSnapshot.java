@@ -0,0 +1,48 @@
+package net.sprocketgames.mctelemetry.common;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * JVM heap and garbage collection state when a snapshot was published.
+ *
+ * @param heapMaxBytes               maximum heap size, or {@code -1} when undefined
+ * @param oldGenAfterGcBytes         old generation occupancy right after the latest collection, or {@code -1} before the
+ *                                   first one or when the collector has no recognizable old generation
+ * @param oldGenGrowthBytesPerMinute trend of {@code oldGenAfterGcBytes} over the recent collections, or {@code null} with
+ *                                   fewer than two of them
+ * @param allocatedBytesPerTick      average bytes the server thread allocated per tick since the previous refresh, or
+ *                                   {@code null} when the JVM does not measure it
+ * @param gcPauses                   collections since the server started
+ */
+public record JvmSnapshot(long heapUsedBytes, long heapCommittedBytes, long heapMaxBytes, long oldGenAfterGcBytes,
+                          Double oldGenGrowthBytesPerMinute, Double allocatedBytesPerTick, GcPauses gcPauses) {
+    /**
+     * Upper bounds of the GC pause histogram buckets, in milliseconds.
+     */
+    public static final List<Long> PAUSE_BUCKETS_MS = List.of(1L, 5L, 10L, 25L, 50L, 100L, 250L, 500L, 1000L);
+
+    public JvmSnapshot {
+        Objects.requireNonNull(gcPauses, "gcPauses");
+    }
+
+    /**
+     * Durations are those reported by the collectors' notifications, which for concurrent collectors cover the whole
+     * cycle rather than only its stop-the-world part.
+     *
+     * @param buckets cumulative counts of collections no longer than each of {@link #PAUSE_BUCKETS_MS}
+     * @param causes  collections by cause, most frequent first
+     */
+    public record GcPauses(long count, double totalMs, double maxMs, List<Long> buckets, List<CauseCount> causes) {
+        public GcPauses {
+            Objects.requireNonNull(buckets, "buckets");
+            Objects.requireNonNull(causes, "causes");
+        }
+    }
+
+    public record CauseCount(String cause, long count) {
+        public CauseCount {
+            Objects.requireNonNull(cause, "cause");
+        }
+    }
+}
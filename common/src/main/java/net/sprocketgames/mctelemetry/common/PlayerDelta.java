@@ -0,0 +1,21 @@
+package net.sprocketgames.mctelemetry.common;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Player membership changes between two registry versions.
+ *
+ * @param epoch   identifies the registry instance; versions are only comparable within one epoch
+ * @param version registry version the delta brings the caller up to
+ * @param full    {@code true} when {@code joined} is the complete online list because the requested version was too
+ *                old, from another epoch, or absent
+ * @param joined  players that joined (or were updated) since the requested version, or everyone when {@code full}
+ * @param left    UUIDs of players that left since the requested version; always empty when {@code full}
+ */
+public record PlayerDelta(long epoch, long version, boolean full, List<PlayerSnapshot> joined, List<String> left) {
+    public PlayerDelta {
+        Objects.requireNonNull(joined, "joined");
+        Objects.requireNonNull(left, "left");
+    }
+}
@@ -1,13 +1,53 @@
 package net.sprocketgames.mctelemetry.common;
 
 import java.util.Objects;
+import java.util.UUID;
 
 /**
  * Simple carrier for player identity used by telemetry payloads.
+ *
+ * @param connection network statistics since the previous refresh, or {@code null} when they are not tracked
  */
-public record PlayerSnapshot(String name, String uuid) {
+public record PlayerSnapshot(String name, String uuid, Connection connection) {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     public PlayerSnapshot {
         Objects.requireNonNull(name, "name");
         Objects.requireNonNull(uuid, "uuid");
     }
+
+    public PlayerSnapshot(String name, String uuid) {
+        this(name, uuid, null);
+    }
+
+    public PlayerSnapshot withConnection(Connection connection) {
+        return new PlayerSnapshot(name, uuid, connection);
+    }
+
+    /**
+     * Renders {@code id} as the 32 lowercase hex digits used in payloads, without building the dashed form first.
+     */
+    public static String uuidHex(UUID id) {
+        char[] digits = new char[32];
+        writeHex(id.getMostSignificantBits(), digits, 0);
+        writeHex(id.getLeastSignificantBits(), digits, 16);
+        return new String(digits);
+    }
+
+    private static void writeHex(long bits, char[] out, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            out[offset + i] = HEX_DIGITS[(int) (bits & 0xF)];
+            bits >>>= 4;
+        }
+    }
+
+    /**
+     * Rates are per second over the interval since the previous refresh, rounded to a tenth; bytes are as sent on the
+     * wire, after compression and encryption.
+     *
+     * @param latencyMs the server's keep-alive round trip estimate
+     */
+    public record Connection(int latencyMs, double packetsInPerSecond, double packetsOutPerSecond, double bytesInPerSecond,
+                             double bytesOutPerSecond) {
+    }
 }
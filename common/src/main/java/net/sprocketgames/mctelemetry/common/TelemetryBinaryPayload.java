@@ -0,0 +1,414 @@
+package net.sprocketgames.mctelemetry.common;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compact binary encoding of a {@link TelemetrySnapshot}, served for {@code Accept: application/vnd.mctelemetry+binary}.
+ * <p>
+ * Format version 2. Integers are unsigned LEB128 varints (7 bits per byte, lowest group first), doubles are 8-byte
+ * big-endian IEEE 754 and strings are a varint byte length followed by UTF-8. Fields appear in this order:
+ * <pre>
+ *   'M' 'C' 'T' 'B' version(byte = 2)
+ *   mc(string) loader(string)
+ *   flags(byte): 0x01 mspt, 0x02 tps, 0x04 tickTime, 0x08 census, 0x10 jvm present
+ *   [mspt(double)] [tps(double)]
+ *   [tickTime: samples(varint) p50 p95 p99 max(double) overBudget(varint)]
+ *   dimensionCount(varint) { id(string) hasMspt(byte) [mspt(double)] loadedChunks entities+1 players
+ *                            (varint, entities+1 = 0 when unknown) }
+ *   [census: completedAt(varint) ticks(varint) workMs(double) chunks(varint)
+ *            entityTypes(varint) { type(string) count(varint) } blockEntityTypes(varint) { type(string) count(varint) }]
+ *   [jvm: heapUsed heapCommitted (varint) heapMax+1 oldGenAfterGc+1 (varint, 0 = unknown)
+ *         jvmFlags(byte): 0x01 oldGenGrowthPerMinute, 0x02 allocatedPerTick present
+ *         [oldGenGrowthPerMinute(double)] [allocatedPerTick(double)]
+ *         gcCount(varint) gcTotalMs gcMaxMs(double) bucketCount(varint) { cumulativeCount(varint) }
+ *         causeCount(varint) { cause(string) count(varint) }]
+ *   playerCount(varint) { name(string) playerFlags(byte) uuid
+ *                         [connection: latencyMs(varint) packetsIn packetsOut bytesIn bytesOut(varint, tenths per second)] }
+ * </pre>
+ * Without {@code 0x01} in {@code playerFlags} the UUID was 32 lowercase hex digits and follows as two big-endian longs
+ * (most significant first); with it, the UUID follows as a string. {@code 0x02} means connection statistics follow.
+ * Decoders must reject other versions and unknown bits in any flags byte. Version 2 added the {@code jvm} block and
+ * the connection flag in {@code playerFlags}; version 1 payloads are rejected rather than misread.
+ */
+public final class TelemetryBinaryPayload {
+    public static final String CONTENT_TYPE = "application/vnd.mctelemetry+binary";
+    public static final byte VERSION = 2;
+
+    private static final byte[] MAGIC = {'M', 'C', 'T', 'B'};
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int FLAG_MSPT = 0x01;
+    private static final int FLAG_TPS = 0x02;
+    private static final int FLAG_TICK_TIME = 0x04;
+    private static final int FLAG_CENSUS = 0x08;
+    private static final int FLAG_JVM = 0x10;
+    private static final int KNOWN_FLAGS = FLAG_MSPT | FLAG_TPS | FLAG_TICK_TIME | FLAG_CENSUS | FLAG_JVM;
+    private static final int JVM_FLAG_GROWTH = 0x01;
+    private static final int JVM_FLAG_ALLOCATED = 0x02;
+    private static final int KNOWN_JVM_FLAGS = JVM_FLAG_GROWTH | JVM_FLAG_ALLOCATED;
+    private static final int PLAYER_UUID_STRING = 0x01;
+    private static final int PLAYER_CONNECTION = 0x02;
+    private static final int KNOWN_PLAYER_FLAGS = PLAYER_UUID_STRING | PLAYER_CONNECTION;
+
+    private TelemetryBinaryPayload() {
+    }
+
+    public static byte[] encode(TelemetrySnapshot snapshot) {
+        Objects.requireNonNull(snapshot, "snapshot");
+        Output output = new Output(64 + snapshot.players().size() * 28);
+        output.bytes(MAGIC);
+        output.put(VERSION);
+        output.string(snapshot.minecraftVersion());
+        output.string(snapshot.loader());
+
+        TickStats tickStats = snapshot.tickStats();
+        CensusSnapshot census = snapshot.census();
+        JvmSnapshot jvm = snapshot.jvm();
+        int flags = (snapshot.mspt() != null ? FLAG_MSPT : 0) | (snapshot.tps() != null ? FLAG_TPS : 0)
+                | (tickStats != null ? FLAG_TICK_TIME : 0) | (census != null ? FLAG_CENSUS : 0) | (jvm != null ? FLAG_JVM : 0);
+        output.put(flags);
+        if (snapshot.mspt() != null) {
+            output.doubleValue(snapshot.mspt());
+        }
+        if (snapshot.tps() != null) {
+            output.doubleValue(snapshot.tps());
+        }
+        if (tickStats != null) {
+            output.varint(tickStats.samples());
+            output.doubleValue(tickStats.p50Ms());
+            output.doubleValue(tickStats.p95Ms());
+            output.doubleValue(tickStats.p99Ms());
+            output.doubleValue(tickStats.maxMs());
+            output.varint(tickStats.overBudget());
+        }
+
+        output.varint(snapshot.dimensions().size());
+        for (DimensionSnapshot dimension : snapshot.dimensions()) {
+            output.string(dimension.id());
+            output.put(dimension.mspt() != null ? 1 : 0);
+            if (dimension.mspt() != null) {
+                output.doubleValue(dimension.mspt());
+            }
+            output.varint(dimension.loadedChunks());
+            output.varint(dimension.entities() + 1);
+            output.varint(dimension.players());
+        }
+
+        if (census != null) {
+            output.varint(census.completedMillis());
+            output.varint(census.ticks());
+            output.doubleValue(census.workMillis());
+            output.varint(census.chunks());
+            writeTypeCounts(output, census.entities());
+            writeTypeCounts(output, census.blockEntities());
+        }
+        if (jvm != null) {
+            writeJvm(output, jvm);
+        }
+
+        output.varint(snapshot.players().size());
+        for (PlayerSnapshot player : snapshot.players()) {
+            writePlayer(output, player);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException when {@code payload} is truncated, malformed, of another format version or sets
+     *                                  flags this version does not define
+     */
+    public static TelemetrySnapshot decode(byte[] payload) {
+        Objects.requireNonNull(payload, "payload");
+        ByteBuffer input = ByteBuffer.wrap(payload);
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            input.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException("Not a telemetry binary payload");
+            }
+            byte version = input.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported telemetry binary payload version " + version);
+            }
+
+            String minecraftVersion = readString(input);
+            String loader = readString(input);
+            int flags = readFlags(input, KNOWN_FLAGS, "payload");
+            Double mspt = (flags & FLAG_MSPT) != 0 ? input.getDouble() : null;
+            Double tps = (flags & FLAG_TPS) != 0 ? input.getDouble() : null;
+            TickStats tickStats = null;
+            if ((flags & FLAG_TICK_TIME) != 0) {
+                tickStats = new TickStats(readVarint(input), input.getDouble(), input.getDouble(), input.getDouble(), input.getDouble(),
+                        readVarint(input));
+            }
+
+            int dimensionCount = readCount(input);
+            List<DimensionSnapshot> dimensions = new ArrayList<>(dimensionCount);
+            for (int i = 0; i < dimensionCount; i++) {
+                String id = readString(input);
+                Double dimensionMspt = input.get() != 0 ? input.getDouble() : null;
+                dimensions.add(new DimensionSnapshot(id, dimensionMspt, (int) readVarint(input), (int) readVarint(input) - 1, (int) readVarint(input)));
+            }
+
+            CensusSnapshot census = null;
+            if ((flags & FLAG_CENSUS) != 0) {
+                census = new CensusSnapshot(readVarint(input), (int) readVarint(input), input.getDouble(), (int) readVarint(input),
+                        readTypeCounts(input), readTypeCounts(input));
+            }
+            JvmSnapshot jvm = (flags & FLAG_JVM) != 0 ? readJvm(input) : null;
+
+            int playerCount = readCount(input);
+            List<PlayerSnapshot> players = new ArrayList<>(playerCount);
+            for (int i = 0; i < playerCount; i++) {
+                players.add(readPlayer(input));
+            }
+
+            if (input.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes after telemetry binary payload");
+            }
+            return new TelemetrySnapshot(minecraftVersion, loader, List.copyOf(players), mspt, tps, tickStats, List.copyOf(dimensions), census, jvm);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated telemetry binary payload", e);
+        }
+    }
+
+    private static void writeTypeCounts(Output output, List<CensusSnapshot.TypeCount> counts) {
+        output.varint(counts.size());
+        for (CensusSnapshot.TypeCount count : counts) {
+            output.string(count.type());
+            output.varint(count.count());
+        }
+    }
+
+    private static List<CensusSnapshot.TypeCount> readTypeCounts(ByteBuffer input) {
+        int size = readCount(input);
+        List<CensusSnapshot.TypeCount> counts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            counts.add(new CensusSnapshot.TypeCount(readString(input), (int) readVarint(input)));
+        }
+        return List.copyOf(counts);
+    }
+
+    private static void writeJvm(Output output, JvmSnapshot jvm) {
+        output.varint(jvm.heapUsedBytes());
+        output.varint(jvm.heapCommittedBytes());
+        output.varint(jvm.heapMaxBytes() + 1);
+        output.varint(jvm.oldGenAfterGcBytes() + 1);
+        output.put((jvm.oldGenGrowthBytesPerMinute() != null ? JVM_FLAG_GROWTH : 0) | (jvm.allocatedBytesPerTick() != null ? JVM_FLAG_ALLOCATED : 0));
+        if (jvm.oldGenGrowthBytesPerMinute() != null) {
+            output.doubleValue(jvm.oldGenGrowthBytesPerMinute());
+        }
+        if (jvm.allocatedBytesPerTick() != null) {
+            output.doubleValue(jvm.allocatedBytesPerTick());
+        }
+
+        JvmSnapshot.GcPauses pauses = jvm.gcPauses();
+        output.varint(pauses.count());
+        output.doubleValue(pauses.totalMs());
+        output.doubleValue(pauses.maxMs());
+        output.varint(pauses.buckets().size());
+        for (long bucket : pauses.buckets()) {
+            output.varint(bucket);
+        }
+        output.varint(pauses.causes().size());
+        for (JvmSnapshot.CauseCount cause : pauses.causes()) {
+            output.string(cause.cause());
+            output.varint(cause.count());
+        }
+    }
+
+    private static JvmSnapshot readJvm(ByteBuffer input) {
+        long heapUsed = readVarint(input);
+        long heapCommitted = readVarint(input);
+        long heapMax = readVarint(input) - 1;
+        long oldGenAfterGc = readVarint(input) - 1;
+        int jvmFlags = readFlags(input, KNOWN_JVM_FLAGS, "jvm");
+        Double growth = (jvmFlags & JVM_FLAG_GROWTH) != 0 ? input.getDouble() : null;
+        Double allocated = (jvmFlags & JVM_FLAG_ALLOCATED) != 0 ? input.getDouble() : null;
+
+        long count = readVarint(input);
+        double totalMs = input.getDouble();
+        double maxMs = input.getDouble();
+        int bucketCount = readCount(input);
+        List<Long> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(readVarint(input));
+        }
+        int causeCount = readCount(input);
+        List<JvmSnapshot.CauseCount> causes = new ArrayList<>(causeCount);
+        for (int i = 0; i < causeCount; i++) {
+            causes.add(new JvmSnapshot.CauseCount(readString(input), readVarint(input)));
+        }
+
+        return new JvmSnapshot(heapUsed, heapCommitted, heapMax, oldGenAfterGc, growth, allocated,
+                new JvmSnapshot.GcPauses(count, totalMs, maxMs, List.copyOf(buckets), List.copyOf(causes)));
+    }
+
+    private static void writePlayer(Output output, PlayerSnapshot player) {
+        output.string(player.name());
+        String uuid = player.uuid();
+        long most = 0L;
+        long least = 0L;
+        boolean hex = uuid.length() == 32;
+        for (int i = 0; hex && i < 32; i++) {
+            int digit = lowerHexDigit(uuid.charAt(i));
+            hex = digit >= 0;
+            if (i < 16) {
+                most = most << 4 | digit;
+            } else {
+                least = least << 4 | digit;
+            }
+        }
+
+        PlayerSnapshot.Connection connection = player.connection();
+        output.put((hex ? 0 : PLAYER_UUID_STRING) | (connection != null ? PLAYER_CONNECTION : 0));
+        if (hex) {
+            output.longValue(most);
+            output.longValue(least);
+        } else {
+            output.string(uuid);
+        }
+
+        if (connection != null) {
+            output.varint(Math.max(0, connection.latencyMs()));
+            output.varint(Math.round(connection.packetsInPerSecond() * 10.0));
+            output.varint(Math.round(connection.packetsOutPerSecond() * 10.0));
+            output.varint(Math.round(connection.bytesInPerSecond() * 10.0));
+            output.varint(Math.round(connection.bytesOutPerSecond() * 10.0));
+        }
+    }
+
+    private static PlayerSnapshot readPlayer(ByteBuffer input) {
+        String name = readString(input);
+        int playerFlags = readFlags(input, KNOWN_PLAYER_FLAGS, "player");
+
+        String uuid;
+        if ((playerFlags & PLAYER_UUID_STRING) != 0) {
+            uuid = readString(input);
+        } else {
+            char[] hex = new char[32];
+            writeHex(hex, 0, input.getLong());
+            writeHex(hex, 16, input.getLong());
+            uuid = new String(hex);
+        }
+
+        if ((playerFlags & PLAYER_CONNECTION) == 0) {
+            return new PlayerSnapshot(name, uuid);
+        }
+        return new PlayerSnapshot(name, uuid, new PlayerSnapshot.Connection((int) readVarint(input), readVarint(input) / 10.0,
+                readVarint(input) / 10.0, readVarint(input) / 10.0, readVarint(input) / 10.0));
+    }
+
+    private static int readFlags(ByteBuffer input, int known, String block) {
+        int flags = input.get() & 0xFF;
+        if ((flags & ~known) != 0) {
+            throw new IllegalArgumentException("Unknown " + block + " flags 0x" + Integer.toHexString(flags) + " in telemetry binary payload");
+        }
+        return flags;
+    }
+
+    private static int lowerHexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        return c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+    }
+
+    private static void writeHex(char[] target, int offset, long value) {
+        for (int i = 15; i >= 0; i--) {
+            target[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    private static String readString(ByteBuffer input) {
+        int length = readCount(input);
+        String value = new String(input.array(), input.arrayOffset() + input.position(), length, StandardCharsets.UTF_8);
+        input.position(input.position() + length);
+        return value;
+    }
+
+    /**
+     * Reads a length or element count, which can never exceed the bytes left in the payload.
+     */
+    private static int readCount(ByteBuffer input) {
+        long count = readVarint(input);
+        if (count < 0 || count > input.remaining()) {
+            throw new IllegalArgumentException("Invalid length " + count + " in telemetry binary payload");
+        }
+        return (int) count;
+    }
+
+    private static long readVarint(ByteBuffer input) {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = input.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long in telemetry binary payload");
+    }
+
+    private static final class Output {
+        private byte[] buffer;
+        private int size;
+
+        private Output(int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+
+        private void put(int b) {
+            ensure(1);
+            buffer[size++] = (byte) b;
+        }
+
+        private void bytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0L) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void longValue(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void doubleValue(double value) {
+            longValue(Double.doubleToRawLongBits(value));
+        }
+
+        private void string(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length);
+            bytes(utf8);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
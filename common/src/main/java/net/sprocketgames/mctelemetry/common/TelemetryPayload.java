@@ -1,25 +1,93 @@
 package net.sprocketgames.mctelemetry.common;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonNull;
-import com.google.gson.JsonObject;
-
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
 public final class TelemetryPayload {
-    private static final Gson GSON = new GsonBuilder()
-            .serializeNulls()
-            .create();
+    /**
+     * Top-level payload fields, in the order they are written. Used as bits of a field mask for projections.
+     */
+    public enum Field {
+        MC("mc"),
+        LOADER("loader"),
+        MSPT("mspt"),
+        TPS("tps"),
+        TICK_TIME("tickTime"),
+        DIMENSIONS("dimensions"),
+        CENSUS("census"),
+        JVM("jvm"),
+        /**
+         * Number of online players; only written when requested, never part of the full payload.
+         */
+        PLAYER_COUNT("playerCount"),
+        PLAYERS("players");
+
+        private final String jsonName;
+
+        Field(String jsonName) {
+            this.jsonName = jsonName;
+        }
+
+        public String jsonName() {
+            return jsonName;
+        }
+
+        public int bit() {
+            return 1 << ordinal();
+        }
+
+        /**
+         * Parses a comma-separated list of field names, e.g. {@code mspt,tps,players}.
+         *
+         * @return the field mask, or {@code -1} when a name is unknown or the list is empty
+         */
+        public static int parseMask(String names) {
+            if (names == null) {
+                return -1;
+            }
+
+            int mask = 0;
+            for (String name : names.split(",")) {
+                String trimmed = name.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+
+                Field match = null;
+                for (Field field : values()) {
+                    if (field.jsonName.equals(trimmed)) {
+                        match = field;
+                        break;
+                    }
+                }
+                if (match == null) {
+                    return -1;
+                }
+                mask |= match.bit();
+            }
+            return mask == 0 ? -1 : mask;
+        }
+    }
+
+    /**
+     * Every field of the full payload.
+     */
+    public static final int FULL_FIELDS = Field.MC.bit() | Field.LOADER.bit() | Field.MSPT.bit() | Field.TPS.bit() | Field.TICK_TIME.bit()
+            | Field.DIMENSIONS.bit() | Field.CENSUS.bit() | Field.JVM.bit() | Field.PLAYERS.bit();
+    /**
+     * Server health without per-player or per-type detail.
+     */
+    public static final int SUMMARY_FIELDS = Field.MC.bit() | Field.LOADER.bit() | Field.MSPT.bit() | Field.TPS.bit() | Field.TICK_TIME.bit()
+            | Field.PLAYER_COUNT.bit();
 
     private TelemetryPayload() {
     }
 
     public static String build(TelemetrySnapshot snapshot) {
-        Objects.requireNonNull(snapshot, "snapshot");
-        return build(snapshot.minecraftVersion(), snapshot.loader(), snapshot.players(), snapshot.mspt(), snapshot.tps());
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        write(writer, snapshot);
+        return writer.toString();
     }
 
     public static String build(String minecraftVersion, String loader, Collection<PlayerSnapshot> players) {
@@ -27,35 +95,232 @@ public final class TelemetryPayload {
     }
 
     public static String build(String minecraftVersion, String loader, Collection<PlayerSnapshot> players, Double mspt, Double tps) {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        write(writer, minecraftVersion, loader, players, mspt, tps);
+        return writer.toString();
+    }
+
+    /**
+     * Streams the payload for {@code snapshot} into {@code writer}, which is reset first. Reusing the writer across
+     * refreshes keeps serialization allocation-free once its buffer has grown to the payload size.
+     */
+    public static Utf8JsonWriter write(Utf8JsonWriter writer, TelemetrySnapshot snapshot) {
+        Objects.requireNonNull(snapshot, "snapshot");
+        return write(writer, snapshot, FULL_FIELDS);
+    }
+
+    /**
+     * Streams only the {@code fields} (a mask of {@link Field#bit()}s) of the payload for {@code snapshot} into
+     * {@code writer}, which is reset first.
+     */
+    public static Utf8JsonWriter write(Utf8JsonWriter writer, TelemetrySnapshot snapshot, int fields) {
+        Objects.requireNonNull(snapshot, "snapshot");
+        return write(writer, snapshot.minecraftVersion(), snapshot.loader(), snapshot.players(), snapshot.mspt(), snapshot.tps(),
+                snapshot.tickStats(), snapshot.dimensions(), snapshot.census(), snapshot.jvm(), fields);
+    }
+
+    public static Utf8JsonWriter write(Utf8JsonWriter writer, String minecraftVersion, String loader, Collection<PlayerSnapshot> players,
+                                       Double mspt, Double tps) {
+        return write(writer, minecraftVersion, loader, players, mspt, tps, null);
+    }
+
+    public static Utf8JsonWriter write(Utf8JsonWriter writer, String minecraftVersion, String loader, Collection<PlayerSnapshot> players,
+                                       Double mspt, Double tps, TickStats tickStats) {
+        return write(writer, minecraftVersion, loader, players, mspt, tps, tickStats, List.of(), null);
+    }
+
+    public static Utf8JsonWriter write(Utf8JsonWriter writer, String minecraftVersion, String loader, Collection<PlayerSnapshot> players,
+                                       Double mspt, Double tps, TickStats tickStats, Collection<DimensionSnapshot> dimensions,
+                                       CensusSnapshot census) {
+        return write(writer, minecraftVersion, loader, players, mspt, tps, tickStats, dimensions, census, null, FULL_FIELDS);
+    }
+
+    private static Utf8JsonWriter write(Utf8JsonWriter writer, String minecraftVersion, String loader, Collection<PlayerSnapshot> players,
+                                        Double mspt, Double tps, TickStats tickStats, Collection<DimensionSnapshot> dimensions,
+                                        CensusSnapshot census, JvmSnapshot jvm, int fields) {
+        Objects.requireNonNull(writer, "writer");
         Objects.requireNonNull(minecraftVersion, "minecraftVersion");
         Objects.requireNonNull(loader, "loader");
         Objects.requireNonNull(players, "players");
+        Objects.requireNonNull(dimensions, "dimensions");
+
+        writer.reset().beginObject();
+        if (has(fields, Field.MC)) {
+            writer.name("mc").value(minecraftVersion);
+        }
+        if (has(fields, Field.LOADER)) {
+            writer.name("loader").value(loader);
+        }
+        if (has(fields, Field.MSPT)) {
+            writer.name("mspt").value(mspt);
+        }
+        if (has(fields, Field.TPS)) {
+            writer.name("tps").value(tps);
+        }
+        if (has(fields, Field.TICK_TIME)) {
+            writeTickStats(writer.name("tickTime"), tickStats);
+        }
+        if (has(fields, Field.DIMENSIONS)) {
+            writeDimensions(writer.name("dimensions"), dimensions);
+        }
+        if (has(fields, Field.CENSUS)) {
+            writeCensus(writer.name("census"), census);
+        }
+        if (has(fields, Field.JVM)) {
+            writeJvm(writer.name("jvm"), jvm);
+        }
+        if (has(fields, Field.PLAYER_COUNT)) {
+            writer.name("playerCount").value(players.size());
+        }
 
-        JsonObject root = new JsonObject();
-        root.addProperty("mc", minecraftVersion);
-        root.addProperty("loader", loader);
+        if (has(fields, Field.PLAYERS)) {
+            writePlayers(writer.name("players"), players);
+        }
+        return writer.endObject();
+    }
 
-        addNullableNumber(root, "mspt", mspt);
-        addNullableNumber(root, "tps", tps);
+    /**
+     * Streams a player membership delta into {@code writer}, which is reset first. Full deltas list everyone under
+     * {@code players}; incremental ones use {@code joined} and {@code left}.
+     */
+    public static Utf8JsonWriter writePlayerDelta(Utf8JsonWriter writer, PlayerDelta delta) {
+        Objects.requireNonNull(writer, "writer");
+        Objects.requireNonNull(delta, "delta");
 
-        JsonArray playersArray = new JsonArray();
+        writer.reset().beginObject();
+        writer.name("epoch").value(delta.epoch());
+        writer.name("version").value(delta.version());
+        writer.name("full").value(delta.full());
+        if (delta.full()) {
+            writePlayers(writer.name("players"), delta.joined());
+        } else {
+            writePlayers(writer.name("joined"), delta.joined());
+            writer.name("left").beginArray();
+            for (String uuid : delta.left()) {
+                writer.value(uuid);
+            }
+            writer.endArray();
+        }
+
+        return writer.endObject();
+    }
+
+    private static boolean has(int fields, Field field) {
+        return (fields & field.bit()) != 0;
+    }
+
+    private static void writePlayers(Utf8JsonWriter writer, Collection<PlayerSnapshot> players) {
+        writer.beginArray();
         for (PlayerSnapshot player : players) {
-            JsonObject playerObj = new JsonObject();
-            playerObj.addProperty("name", player.name());
-            playerObj.addProperty("uuid", player.uuid());
-            playersArray.add(playerObj);
+            writer.beginObject();
+            writer.name("name").value(player.name());
+            writer.name("uuid").value(player.uuid());
+            PlayerSnapshot.Connection connection = player.connection();
+            if (connection != null) {
+                writer.name("connection").beginObject();
+                writer.name("latencyMs").value(connection.latencyMs());
+                writer.name("packetsInPerSecond").value(connection.packetsInPerSecond());
+                writer.name("packetsOutPerSecond").value(connection.packetsOutPerSecond());
+                writer.name("bytesInPerSecond").value(connection.bytesInPerSecond());
+                writer.name("bytesOutPerSecond").value(connection.bytesOutPerSecond());
+                writer.endObject();
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+    }
+
+    private static void writeDimensions(Utf8JsonWriter writer, Collection<DimensionSnapshot> dimensions) {
+        writer.beginArray();
+        for (DimensionSnapshot dimension : dimensions) {
+            writer.beginObject();
+            writer.name("id").value(dimension.id());
+            writer.name("mspt").value(dimension.mspt());
+            writer.name("loadedChunks").value(dimension.loadedChunks());
+            writer.name("entities");
+            if (dimension.entities() >= 0) {
+                writer.value(dimension.entities());
+            } else {
+                writer.nullValue();
+            }
+            writer.name("players").value(dimension.players());
+            writer.endObject();
+        }
+        writer.endArray();
+    }
+
+    private static void writeCensus(Utf8JsonWriter writer, CensusSnapshot census) {
+        if (census == null) {
+            writer.nullValue();
+            return;
+        }
+
+        writer.beginObject();
+        writer.name("completedAt").value(census.completedMillis());
+        writer.name("ticks").value(census.ticks());
+        writer.name("workMs").value(census.workMillis());
+        writer.name("chunks").value(census.chunks());
+        writeTypeCounts(writer.name("entities"), census.entities());
+        writeTypeCounts(writer.name("blockEntities"), census.blockEntities());
+        writer.endObject();
+    }
+
+    private static void writeTypeCounts(Utf8JsonWriter writer, Collection<CensusSnapshot.TypeCount> counts) {
+        writer.beginObject();
+        for (CensusSnapshot.TypeCount count : counts) {
+            writer.name(count.type()).value(count.count());
+        }
+        writer.endObject();
+    }
+
+    private static void writeJvm(Utf8JsonWriter writer, JvmSnapshot jvm) {
+        if (jvm == null) {
+            writer.nullValue();
+            return;
+        }
+
+        writer.beginObject();
+        writer.name("heapUsed").value(jvm.heapUsedBytes());
+        writer.name("heapCommitted").value(jvm.heapCommittedBytes());
+        writer.name("heapMax").value(jvm.heapMaxBytes());
+        writer.name("oldGenAfterGc").value(jvm.oldGenAfterGcBytes());
+        writer.name("oldGenGrowthPerMinute").value(jvm.oldGenGrowthBytesPerMinute());
+        writer.name("allocatedPerTick").value(jvm.allocatedBytesPerTick());
+
+        JvmSnapshot.GcPauses pauses = jvm.gcPauses();
+        writer.name("gcPauses").beginObject();
+        writer.name("count").value(pauses.count());
+        writer.name("totalMs").value(pauses.totalMs());
+        writer.name("maxMs").value(pauses.maxMs());
+        writer.name("buckets").beginObject();
+        for (int i = 0; i < pauses.buckets().size(); i++) {
+            writer.name(JvmSnapshot.PAUSE_BUCKETS_MS.get(i).toString()).value(pauses.buckets().get(i).longValue());
+        }
+        writer.name("+Inf").value(pauses.count());
+        writer.endObject();
+        writer.name("causes").beginObject();
+        for (JvmSnapshot.CauseCount cause : pauses.causes()) {
+            writer.name(cause.cause()).value(cause.count());
         }
+        writer.endObject();
+        writer.endObject();
 
-        root.add("players", playersArray);
-        return GSON.toJson(root);
+        writer.endObject();
     }
 
-    private static void addNullableNumber(JsonObject root, String key, Double value) {
-        if (value == null || value.isNaN() || value.isInfinite()) {
-            root.add(key, JsonNull.INSTANCE);
+    private static void writeTickStats(Utf8JsonWriter writer, TickStats tickStats) {
+        if (tickStats == null) {
+            writer.nullValue();
             return;
         }
 
-        root.addProperty(key, value);
+        writer.beginObject();
+        writer.name("samples").value(tickStats.samples());
+        writer.name("p50").value(tickStats.p50Ms());
+        writer.name("p95").value(tickStats.p95Ms());
+        writer.name("p99").value(tickStats.p99Ms());
+        writer.name("max").value(tickStats.maxMs());
+        writer.name("overBudget").value(tickStats.overBudget());
+        writer.endObject();
     }
 }
@@ -6,16 +6,58 @@ import java.util.Objects;
 
 /**
  * Immutable snapshot of telemetry data at a moment in time.
+ *
+ * @param tickStats  per-tick duration distribution since the previous refresh, or {@code null} when not recorded
+ * @param dimensions per-level load, empty when the loader does not report it
+ * @param census     latest completed entity census, or {@code null} before the first one finishes
+ * @param jvm        heap and GC state, or {@code null} when JVM metrics are disabled
  */
-public record TelemetrySnapshot(String minecraftVersion, String loader, List<PlayerSnapshot> players, Double mspt, Double tps) {
+public record TelemetrySnapshot(String minecraftVersion, String loader, List<PlayerSnapshot> players, Double mspt, Double tps,
+                                TickStats tickStats, List<DimensionSnapshot> dimensions, CensusSnapshot census, JvmSnapshot jvm) {
     public TelemetrySnapshot {
         Objects.requireNonNull(minecraftVersion, "minecraftVersion");
         Objects.requireNonNull(loader, "loader");
         Objects.requireNonNull(players, "players");
+        Objects.requireNonNull(dimensions, "dimensions");
+    }
+
+    public TelemetrySnapshot(String minecraftVersion, String loader, List<PlayerSnapshot> players, Double mspt, Double tps) {
+        this(minecraftVersion, loader, players, mspt, tps, null);
+    }
+
+    public TelemetrySnapshot(String minecraftVersion, String loader, List<PlayerSnapshot> players, Double mspt, Double tps,
+                             TickStats tickStats) {
+        this(minecraftVersion, loader, players, mspt, tps, tickStats, List.of(), null);
+    }
+
+    public TelemetrySnapshot(String minecraftVersion, String loader, List<PlayerSnapshot> players, Double mspt, Double tps,
+                             TickStats tickStats, List<DimensionSnapshot> dimensions, CensusSnapshot census) {
+        this(minecraftVersion, loader, players, mspt, tps, tickStats, dimensions, census, null);
     }
 
     public static TelemetrySnapshot of(String minecraftVersion, String loader, Collection<PlayerSnapshot> players, Double mspt, Double tps) {
+        return of(minecraftVersion, loader, players, mspt, tps, null);
+    }
+
+    public static TelemetrySnapshot of(String minecraftVersion, String loader, Collection<PlayerSnapshot> players, Double mspt, Double tps,
+                                       TickStats tickStats) {
+        return of(minecraftVersion, loader, players, mspt, tps, tickStats, List.of());
+    }
+
+    public static TelemetrySnapshot of(String minecraftVersion, String loader, Collection<PlayerSnapshot> players, Double mspt, Double tps,
+                                       TickStats tickStats, Collection<DimensionSnapshot> dimensions) {
+        return of(minecraftVersion, loader, players, mspt, tps, tickStats, dimensions, null);
+    }
+
+    public static TelemetrySnapshot of(String minecraftVersion, String loader, Collection<PlayerSnapshot> players, Double mspt, Double tps,
+                                       TickStats tickStats, Collection<DimensionSnapshot> dimensions, CensusSnapshot census) {
+        return of(minecraftVersion, loader, players, mspt, tps, tickStats, dimensions, census, null);
+    }
+
+    public static TelemetrySnapshot of(String minecraftVersion, String loader, Collection<PlayerSnapshot> players, Double mspt, Double tps,
+                                       TickStats tickStats, Collection<DimensionSnapshot> dimensions, CensusSnapshot census, JvmSnapshot jvm) {
         Objects.requireNonNull(players, "players");
-        return new TelemetrySnapshot(minecraftVersion, loader, List.copyOf(players), mspt, tps);
+        Objects.requireNonNull(dimensions, "dimensions");
+        return new TelemetrySnapshot(minecraftVersion, loader, List.copyOf(players), mspt, tps, tickStats, List.copyOf(dimensions), census, jvm);
     }
 }
@@ -0,0 +1,10 @@
+package net.sprocketgames.mctelemetry.common;
+
+/**
+ * Tick duration distribution for one refresh window, in milliseconds rounded to a tenth.
+ *
+ * @param samples    number of ticks recorded in the window
+ * @param overBudget ticks that took longer than the tick budget (50 ms by default)
+ */
+public record TickStats(long samples, double p50Ms, double p95Ms, double p99Ms, double maxMs, long overBudget) {
+}
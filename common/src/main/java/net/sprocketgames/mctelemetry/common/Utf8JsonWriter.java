@@ -0,0 +1,347 @@
+package net.sprocketgames.mctelemetry.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Minimal streaming JSON writer that encodes straight into a reusable, growable UTF-8 byte buffer.
+ * <p>
+ * Output matches what Gson produces for the same tree with its default (HTML-safe) escaping, so payloads stay
+ * byte-for-byte identical to the previous {@code JsonObject}-based implementation. Call {@link #reset()} to reuse the
+ * buffer for the next document; steady-state writes do not allocate.
+ */
+public final class Utf8JsonWriter {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int MAX_DEPTH = 64;
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[][] ESCAPES = new byte[128][];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = new byte[]{'\\', 'u', '0', '0', HEX[c >> 4], HEX[c & 0xF]};
+        }
+        ESCAPES['"'] = new byte[]{'\\', '"'};
+        ESCAPES['\\'] = new byte[]{'\\', '\\'};
+        ESCAPES['\t'] = new byte[]{'\\', 't'};
+        ESCAPES['\b'] = new byte[]{'\\', 'b'};
+        ESCAPES['\n'] = new byte[]{'\\', 'n'};
+        ESCAPES['\r'] = new byte[]{'\\', 'r'};
+        ESCAPES['\f'] = new byte[]{'\\', 'f'};
+        // Gson escapes these by default so payloads can be embedded in HTML safely.
+        ESCAPES['<'] = new byte[]{'\\', 'u', '0', '0', '3', 'c'};
+        ESCAPES['>'] = new byte[]{'\\', 'u', '0', '0', '3', 'e'};
+        ESCAPES['&'] = new byte[]{'\\', 'u', '0', '0', '2', '6'};
+        ESCAPES['='] = new byte[]{'\\', 'u', '0', '0', '3', 'd'};
+        ESCAPES['\''] = new byte[]{'\\', 'u', '0', '0', '2', '7'};
+    }
+
+    private final boolean[] needsComma = new boolean[MAX_DEPTH];
+    private byte[] buffer;
+    private int size;
+    private int depth;
+    private boolean afterName;
+
+    public Utf8JsonWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public Utf8JsonWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public Utf8JsonWriter reset() {
+        size = 0;
+        depth = 0;
+        afterName = false;
+        return this;
+    }
+
+    public Utf8JsonWriter beginObject() {
+        beforeValue();
+        return push('{');
+    }
+
+    public Utf8JsonWriter endObject() {
+        return pop('}');
+    }
+
+    public Utf8JsonWriter beginArray() {
+        beforeValue();
+        return push('[');
+    }
+
+    public Utf8JsonWriter endArray() {
+        return pop(']');
+    }
+
+    public Utf8JsonWriter name(String name) {
+        Objects.requireNonNull(name, "name");
+        if (afterName || depth == 0) {
+            throw new IllegalStateException("Property name not expected here");
+        }
+
+        separate();
+        writeString(name);
+        writeByte(':');
+        afterName = true;
+        return this;
+    }
+
+    public Utf8JsonWriter value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    public Utf8JsonWriter value(long value) {
+        beforeValue();
+        writeLong(value);
+        return this;
+    }
+
+    public Utf8JsonWriter value(boolean value) {
+        beforeValue();
+        writeBytes(value ? TRUE : FALSE);
+        return this;
+    }
+
+    /**
+     * Writes {@code value} the way Gson formats a boxed {@link Double}; NaN and infinities become {@code null}.
+     */
+    public Utf8JsonWriter value(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return nullValue();
+        }
+
+        beforeValue();
+        writeDouble(value);
+        return this;
+    }
+
+    /**
+     * Writes a nullable number, mapping {@code null}, NaN and infinities to JSON {@code null}.
+     */
+    public Utf8JsonWriter value(Double value) {
+        return value == null ? nullValue() : value(value.doubleValue());
+    }
+
+    public Utf8JsonWriter nullValue() {
+        beforeValue();
+        writeBytes(NULL);
+        return this;
+    }
+
+    /**
+     * Appends pre-encoded JSON verbatim as the next value. The caller is responsible for its validity.
+     */
+    public Utf8JsonWriter rawValue(byte[] json) {
+        beforeValue();
+        writeBytes(json);
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Exposes the backing array; only the first {@link #size()} bytes are valid and the array is reused on reset.
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    public void writeTo(OutputStream output) throws IOException {
+        output.write(buffer, 0, size);
+    }
+
+    /**
+     * Writes the bytes produced so far and empties the buffer while keeping the nesting state, so large documents can
+     * be streamed in chunks without holding the whole output.
+     */
+    public void drainTo(OutputStream output) throws IOException {
+        output.write(buffer, 0, size);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private Utf8JsonWriter push(char open) {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("JSON nesting deeper than " + MAX_DEPTH);
+        }
+
+        writeByte(open);
+        needsComma[depth++] = false;
+        return this;
+    }
+
+    private Utf8JsonWriter pop(char close) {
+        if (depth == 0 || afterName) {
+            throw new IllegalStateException("Unbalanced JSON close '" + close + "'");
+        }
+
+        depth--;
+        writeByte(close);
+        return this;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+
+        separate();
+    }
+
+    private void separate() {
+        if (depth == 0) {
+            return;
+        }
+
+        if (needsComma[depth - 1]) {
+            writeByte(',');
+        } else {
+            needsComma[depth - 1] = true;
+        }
+    }
+
+    private void writeString(String value) {
+        int length = value.length();
+        ensureCapacity(length + 2);
+        writeByte('"');
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte[] escape = ESCAPES[c];
+                if (escape == null) {
+                    writeByte(c);
+                } else {
+                    writeBytes(escape);
+                }
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[size++] = (byte) (0xC0 | (c >> 6));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+                ensureCapacity(6);
+                buffer[size++] = '\\';
+                buffer[size++] = 'u';
+                buffer[size++] = '2';
+                buffer[size++] = '0';
+                buffer[size++] = '2';
+                buffer[size++] = (byte) (c == LINE_SEPARATOR ? '8' : '9');
+            } else if (Character.isSurrogate(c)) {
+                char low = i + 1 < length ? value.charAt(i + 1) : 0;
+                if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+                    int codePoint = Character.toCodePoint(c, low);
+                    ensureCapacity(4);
+                    buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                    i++;
+                } else {
+                    // Same replacement String.getBytes(UTF_8) applies to unpaired surrogates.
+                    writeByte('?');
+                }
+            } else {
+                ensureCapacity(3);
+                buffer[size++] = (byte) (0xE0 | (c >> 12));
+                buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeDouble(double value) {
+        // Telemetry metrics are rounded to tenths, which Double.toString renders as "<integer>.<digit>". Writing those
+        // directly avoids a String per value; anything else falls back to Double.toString for identical output.
+        long tenths = Math.round(value * 10.0);
+        if (Math.abs(value) < 1.0e6 && tenths / 10.0 == value && Double.doubleToRawLongBits(value) != Long.MIN_VALUE) {
+            if (tenths < 0) {
+                writeByte('-');
+                tenths = -tenths;
+            }
+
+            writeLong(tenths / 10);
+            writeByte('.');
+            writeByte((char) ('0' + tenths % 10));
+            return;
+        }
+
+        String text = Double.toString(value);
+        ensureCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[size++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            String text = Long.toString(value);
+            ensureCapacity(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                buffer[size++] = (byte) text.charAt(i);
+            }
+            return;
+        }
+
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+
+        int start = size;
+        do {
+            buffer[size++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) c;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = size + additional;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+}
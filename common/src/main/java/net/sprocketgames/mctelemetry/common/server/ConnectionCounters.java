@@ -0,0 +1,79 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Packet and byte counters for one player connection.
+ * <p>
+ * The record methods are called from the network threads for every packet, so they only add to {@link LongAdder}s:
+ * no locks and, once a contended adder has grown its cells, no allocation. A connection's handlers normally all run on
+ * its event loop, so the adders rarely leave their uncontended fast path. Rates are derived by the publisher thread
+ * from the difference between two {@linkplain #sample samples}.
+ */
+public final class ConnectionCounters {
+    private final IntSupplier latencyMs;
+    private final LongAdder packetsIn = new LongAdder();
+    private final LongAdder packetsOut = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    // Rate window, touched only by the publisher thread.
+    private long lastNanos;
+    private long lastPacketsIn;
+    private long lastPacketsOut;
+    private long lastBytesIn;
+    private long lastBytesOut;
+
+    /**
+     * @param latencyMs reads the connection's latency; called on the publisher thread
+     */
+    public ConnectionCounters(IntSupplier latencyMs, long nowNanos) {
+        this.latencyMs = Objects.requireNonNull(latencyMs, "latencyMs");
+        this.lastNanos = nowNanos;
+    }
+
+    public void packetReceived() {
+        packetsIn.increment();
+    }
+
+    public void packetSent() {
+        packetsOut.increment();
+    }
+
+    public void bytesReceived(long bytes) {
+        bytesIn.add(bytes);
+    }
+
+    public void bytesSent(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    /**
+     * Returns the rates since the previous sample and starts a new window. Publisher thread only.
+     */
+    PlayerSnapshot.Connection sample(long nowNanos) {
+        long packetsInTotal = packetsIn.sum();
+        long packetsOutTotal = packetsOut.sum();
+        long bytesInTotal = bytesIn.sum();
+        long bytesOutTotal = bytesOut.sum();
+        double seconds = Math.max(1L, nowNanos - lastNanos) / 1_000_000_000.0;
+
+        PlayerSnapshot.Connection connection = new PlayerSnapshot.Connection(latencyMs.getAsInt(),
+                perSecond(packetsInTotal - lastPacketsIn, seconds), perSecond(packetsOutTotal - lastPacketsOut, seconds),
+                perSecond(bytesInTotal - lastBytesIn, seconds), perSecond(bytesOutTotal - lastBytesOut, seconds));
+        lastNanos = nowNanos;
+        lastPacketsIn = packetsInTotal;
+        lastPacketsOut = packetsOutTotal;
+        lastBytesIn = bytesInTotal;
+        lastBytesOut = bytesOutTotal;
+        return connection;
+    }
+
+    private static double perSecond(long delta, double seconds) {
+        return Math.round(delta / seconds * 10.0) / 10.0;
+    }
+}
@@ -0,0 +1,59 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+/**
+ * {@link ConnectionCounters} of the online players by UUID. Loaders open counters when a player logs in, hand them to
+ * their network handlers and close them on logout; each publish attaches the counters' rates to the captured players.
+ */
+public final class ConnectionTracker {
+    private final Map<String, ConnectionCounters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Starts tracking a connection, replacing any counters left for the same player.
+     */
+    public ConnectionCounters open(String uuid, IntSupplier latencyMs) {
+        ConnectionCounters opened = new ConnectionCounters(latencyMs, System.nanoTime());
+        counters.put(uuid, opened);
+        return opened;
+    }
+
+    public void close(String uuid) {
+        if (uuid != null) {
+            counters.remove(uuid);
+        }
+    }
+
+    public void clear() {
+        counters.clear();
+    }
+
+    /**
+     * Returns {@code players} with every tracked player replaced by a copy carrying its connection rates, or
+     * {@code players} itself when none is tracked. The input is never modified, so it may be a shared immutable list.
+     * Publisher thread only.
+     */
+    List<PlayerSnapshot> attach(List<PlayerSnapshot> players, long nowNanos) {
+        if (counters.isEmpty() || players.isEmpty()) {
+            return players;
+        }
+
+        PlayerSnapshot[] attached = null;
+        for (int i = 0; i < players.size(); i++) {
+            PlayerSnapshot player = players.get(i);
+            ConnectionCounters connection = counters.get(player.uuid());
+            if (connection != null) {
+                if (attached == null) {
+                    attached = players.toArray(new PlayerSnapshot[0]);
+                }
+                attached[i] = player.withConnection(connection.sample(nowNanos));
+            }
+        }
+        return attached == null ? players : List.of(attached);
+    }
+}
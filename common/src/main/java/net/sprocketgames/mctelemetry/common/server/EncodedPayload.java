@@ -0,0 +1,135 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable, pre-encoded representation of one published payload.
+ * <p>
+ * Everything a request needs (identity bytes, gzip bytes and validators) is computed once when the payload is
+ * published, so serving a poll is a header comparison plus a write of shared bytes.
+ */
+final class EncodedPayload {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int ETAG_HASH_BYTES = 12;
+
+    private final long version;
+    private final byte[] identity;
+    private final byte[] gzip;
+    private final String etag;
+    private final String gzipEtag;
+    private final String contentType;
+
+    private EncodedPayload(long version, byte[] identity, byte[] gzip, String etag, String contentType) {
+        this.version = version;
+        this.identity = identity;
+        this.gzip = gzip;
+        this.etag = etag;
+        this.gzipEtag = gzip == null ? null : etag.substring(0, etag.length() - 1) + "-gz\"";
+        this.contentType = contentType;
+    }
+
+    /**
+     * Encodes {@code identity}, which must not be modified afterwards. The gzip variant is only kept when it is
+     * actually smaller than the identity bytes.
+     */
+    static EncodedPayload encode(long version, byte[] identity, String contentType) {
+        Objects.requireNonNull(identity, "identity");
+        Objects.requireNonNull(contentType, "contentType");
+        byte[] gzip = gzip(identity);
+        return new EncodedPayload(version, identity, gzip.length < identity.length ? gzip : null, strongEtag(identity), contentType);
+    }
+
+    long version() {
+        return version;
+    }
+
+    byte[] identity() {
+        return identity;
+    }
+
+    /**
+     * @return the gzip bytes, or {@code null} when compression would not shrink the payload
+     */
+    byte[] gzip() {
+        return gzip;
+    }
+
+    String etag() {
+        return etag;
+    }
+
+    String etag(boolean gzipVariant) {
+        return gzipVariant && gzip != null ? gzipEtag : etag;
+    }
+
+    String contentType() {
+        return contentType;
+    }
+
+    boolean sameContent(byte[] candidate) {
+        return Arrays.equals(identity, candidate);
+    }
+
+    /**
+     * Evaluates an {@code If-None-Match} header against either representation's validator. Uses the weak comparison
+     * the header calls for, so {@code W/} prefixes are ignored.
+     */
+    boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+
+            if (tag.equals(etag) || tag.equals(gzipEtag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static byte[] gzip(byte[] identity) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, identity.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(identity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to gzip telemetry payload", e);
+        }
+
+        return output.toByteArray();
+    }
+
+    private static String strongEtag(byte[] identity) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(identity);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+
+        char[] tag = new char[ETAG_HASH_BYTES * 2 + 2];
+        tag[0] = '"';
+        for (int i = 0; i < ETAG_HASH_BYTES; i++) {
+            tag[1 + i * 2] = HEX[(digest[i] >> 4) & 0xF];
+            tag[2 + i * 2] = HEX[digest[i] & 0xF];
+        }
+        tag[tag.length - 1] = '"';
+        return new String(tag);
+    }
+}
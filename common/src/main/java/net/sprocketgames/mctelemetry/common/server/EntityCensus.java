@@ -0,0 +1,187 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.CensusSnapshot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Incremental census of entities and block entities by type, driven from the end of each server tick.
+ * <p>
+ * Each {@link #tick()} asks the {@link Source} to count chunks one at a time until the per-tick budget is spent, so a
+ * census of a large world is spread over many ticks instead of stalling one. Counts are kept in primitive
+ * {@code int}-keyed maps indexed by registry id; type names are only resolved once a pass completes, when the result is
+ * published as an immutable {@link CensusSnapshot}. Readers only ever see complete passes. A new pass starts at most
+ * once every {@link #PASS_INTERVAL_NANOS}. Entity totals per dimension are kept alongside, so refreshes can report a
+ * dimension's entity count without walking its entities again.
+ * <p>
+ * {@link #tick()} runs on the server thread; {@link #latest()} may be read from any thread.
+ */
+public final class EntityCensus {
+    static final long PASS_INTERVAL_NANOS = 10_000_000_000L;
+
+    /**
+     * Loader view of the loaded chunks. Only called from {@link #tick()}, on the server thread.
+     */
+    public interface Source {
+        /**
+         * Starts a new pass over every currently loaded chunk.
+         */
+        void begin();
+
+        /**
+         * Counts the entities and block entities of the next chunk of the pass into {@code counts}.
+         *
+         * @return {@code false} once the pass has no chunks left
+         */
+        boolean countNext(Counts counts);
+
+        String entityTypeName(int typeId);
+
+        String blockEntityTypeName(int typeId);
+    }
+
+    /**
+     * Per-pass tallies the {@link Source} counts into.
+     */
+    public static final class Counts {
+        private final IntCountMap entities = new IntCountMap();
+        private final IntCountMap blockEntities = new IntCountMap();
+        private final Map<String, int[]> dimensionEntities = new HashMap<>();
+        private int[] dimensionTotal;
+        private int chunks;
+
+        /**
+         * Attributes the entities counted from now on to {@code dimension}.
+         */
+        public void dimension(String dimension) {
+            dimensionTotal = dimensionEntities.computeIfAbsent(dimension, ignored -> new int[1]);
+        }
+
+        public void entity(int typeId) {
+            entities.increment(typeId);
+            if (dimensionTotal != null) {
+                dimensionTotal[0]++;
+            }
+        }
+
+        public void blockEntity(int typeId) {
+            blockEntities.increment(typeId);
+        }
+
+        public void chunk() {
+            chunks++;
+        }
+
+        void clear() {
+            entities.clear();
+            blockEntities.clear();
+            dimensionEntities.clear();
+            dimensionTotal = null;
+            chunks = 0;
+        }
+    }
+
+    private final Source source;
+    private final long budgetNanos;
+    private final Counts counts = new Counts();
+
+    private boolean inPass;
+    private long passStartNanos;
+    private long workNanos;
+    private int passTicks;
+    private volatile CensusSnapshot latest;
+    private volatile Map<String, Integer> dimensionEntities = Map.of();
+
+    /**
+     * @param budgetNanos time each {@link #tick()} may spend counting; at least one chunk is counted per tick
+     */
+    public EntityCensus(Source source, long budgetNanos) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.budgetNanos = Math.max(0L, budgetNanos);
+    }
+
+    public void tick() {
+        tick(Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #tick()}, but stops after {@code limitNanos} when that is less than the configured budget, so callers
+     * can hand the census only what is left of a larger per-tick budget.
+     */
+    public void tick(long limitNanos) {
+        long budgetNanos = Math.min(this.budgetNanos, limitNanos);
+        long start = System.nanoTime();
+        if (!inPass) {
+            if (latest != null && start - passStartNanos < PASS_INTERVAL_NANOS) {
+                return;
+            }
+
+            counts.clear();
+            source.begin();
+            inPass = true;
+            passStartNanos = start;
+            workNanos = 0L;
+            passTicks = 0;
+        }
+
+        passTicks++;
+        long now;
+        boolean more;
+        do {
+            more = source.countNext(counts);
+            now = System.nanoTime();
+        } while (more && now - start < budgetNanos);
+
+        workNanos += now - start;
+        if (!more) {
+            inPass = false;
+            Map<String, Integer> totals = new HashMap<>();
+            counts.dimensionEntities.forEach((dimension, total) -> totals.put(dimension, total[0]));
+            dimensionEntities = Map.copyOf(totals);
+            latest = new CensusSnapshot(
+                    System.currentTimeMillis(),
+                    passTicks,
+                    Math.round(workNanos / 100_000.0) / 10.0,
+                    counts.chunks,
+                    sorted(counts.entities, true),
+                    sorted(counts.blockEntities, false));
+        }
+    }
+
+    /**
+     * @return the most recent complete census, or {@code null} before the first pass finishes
+     */
+    public CensusSnapshot latest() {
+        return latest;
+    }
+
+    /**
+     * @return the entities counted in {@code dimension} by the most recent complete census, or {@code -1} when that
+     * census did not visit it
+     */
+    public int entities(String dimension) {
+        return dimensionEntities.getOrDefault(dimension, -1);
+    }
+
+    private List<CensusSnapshot.TypeCount> sorted(IntCountMap map, boolean entities) {
+        List<CensusSnapshot.TypeCount> result = new ArrayList<>(map.size());
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            int count = map.countAt(slot);
+            if (count == 0) {
+                continue;
+            }
+
+            int typeId = map.keyAt(slot);
+            String name = entities ? source.entityTypeName(typeId) : source.blockEntityTypeName(typeId);
+            result.add(new CensusSnapshot.TypeCount(name == null ? "unknown:" + typeId : name, count));
+        }
+
+        result.sort(Comparator.comparingInt(CensusSnapshot.TypeCount::count).reversed().thenComparing(CensusSnapshot.TypeCount::type));
+        return List.copyOf(result);
+    }
+}
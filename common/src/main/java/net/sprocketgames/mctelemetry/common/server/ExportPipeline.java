@@ -0,0 +1,259 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ships published snapshots to {@link TelemetryExporter}s on a dedicated {@code MCTelemetry-Exporter} thread.
+ * <p>
+ * The publisher hands samples over through a bounded lock-free ring and never waits: when the ring is full the oldest
+ * sample is dropped and counted. The exporter thread sends whatever is queued, up to {@code batchSize} samples, to
+ * every sink in turn, then lingers for {@code lingerMillis} unless a full batch is already waiting, so a slow or
+ * unreachable collector only grows the drop count. Per-sink batch, failure and latency figures are exposed through
+ * {@link #stats()}.
+ */
+final class ExportPipeline {
+    static final int DEFAULT_CAPACITY = 256;
+    static final int DEFAULT_BATCH_SIZE = 32;
+    static final long DEFAULT_LINGER_MILLIS = 1_000L;
+    private static final long STOP_TIMEOUT_MILLIS = 2_000L;
+
+    private final Logger logger;
+    private final List<SinkState> sinks;
+    private final Ring ring;
+    private final int batchSize;
+    private final long lingerNanos;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    ExportPipeline(Logger logger, List<TelemetryExporter> exporters, int capacity, int batchSize, long lingerMillis) {
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.sinks = new ArrayList<>(exporters.size());
+        for (TelemetryExporter exporter : exporters) {
+            sinks.add(new SinkState(exporter));
+        }
+        this.ring = new Ring(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, lingerMillis));
+    }
+
+    synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+
+        running = true;
+        thread = new Thread(this::run, "MCTelemetry-Exporter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the exporter thread after one last attempt to ship what is queued, then closes the sinks.
+     */
+    void stop() {
+        Thread current;
+        synchronized (this) {
+            current = thread;
+            thread = null;
+            running = false;
+        }
+
+        if (current != null) {
+            LockSupport.unpark(current);
+            try {
+                current.join(STOP_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (SinkState sink : sinks) {
+            try {
+                sink.exporter.close();
+            } catch (RuntimeException e) {
+                logger.debug("Failed to close exporter {}", sink.exporter.name(), e);
+            }
+        }
+    }
+
+    /**
+     * Queues a sample without blocking. Publisher thread only.
+     */
+    void offer(long timeMillis, TelemetrySnapshot snapshot) {
+        ring.offer(new TelemetryExporter.Sample(timeMillis, snapshot));
+        Thread current = thread;
+        if (current != null && ring.size() >= batchSize) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    Stats stats() {
+        List<SinkStats> sinkStats = new ArrayList<>(sinks.size());
+        for (SinkState sink : sinks) {
+            sinkStats.add(sink.stats());
+        }
+        return new Stats(ring.size(), ring.dropped(), List.copyOf(sinkStats));
+    }
+
+    private void run() {
+        List<TelemetryExporter.Sample> batch = new ArrayList<>(batchSize);
+        long lastFlush = System.nanoTime() - lingerNanos;
+        while (running) {
+            int queued = ring.size();
+            long wait = lingerNanos - (System.nanoTime() - lastFlush);
+            if (queued == 0 || queued < batchSize && wait > 0) {
+                LockSupport.parkNanos(this, queued == 0 ? Math.max(wait, lingerNanos) : wait);
+                continue;
+            }
+
+            flush(batch);
+            lastFlush = System.nanoTime();
+        }
+
+        flush(batch);
+    }
+
+    private void flush(List<TelemetryExporter.Sample> batch) {
+        batch.clear();
+        for (TelemetryExporter.Sample sample; batch.size() < batchSize && (sample = ring.poll()) != null; ) {
+            batch.add(sample);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<TelemetryExporter.Sample> shipped = List.copyOf(batch);
+        for (SinkState sink : sinks) {
+            sink.export(shipped, logger);
+        }
+    }
+
+    /**
+     * Bounded multi-consumer ring for a single producer. The producer claims a slot by advancing {@code tail}; when the
+     * ring is full it first advances {@code head} past the oldest sample. A consumer only keeps a sample if its CAS on
+     * {@code head} wins, so a sample the producer dropped and overwrote is never returned.
+     */
+    static final class Ring {
+        private final AtomicReferenceArray<TelemetryExporter.Sample> slots;
+        private final int capacity;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        Ring(int capacity) {
+            this.capacity = Math.max(1, capacity);
+            this.slots = new AtomicReferenceArray<>(this.capacity);
+        }
+
+        void offer(TelemetryExporter.Sample sample) {
+            long t = tail.get();
+            long h;
+            while (t - (h = head.get()) >= capacity) {
+                if (head.compareAndSet(h, h + 1)) {
+                    dropped.incrementAndGet();
+                }
+            }
+            slots.set((int) (t % capacity), sample);
+            tail.set(t + 1);
+        }
+
+        TelemetryExporter.Sample poll() {
+            while (true) {
+                long h = head.get();
+                if (h >= tail.get()) {
+                    return null;
+                }
+
+                TelemetryExporter.Sample sample = slots.get((int) (h % capacity));
+                if (head.compareAndSet(h, h + 1)) {
+                    return sample;
+                }
+            }
+        }
+
+        int size() {
+            return (int) Math.max(0L, tail.get() - head.get());
+        }
+
+        long dropped() {
+            return dropped.get();
+        }
+    }
+
+    /**
+     * Export figures of one sink. Written by the exporter thread, read by the publisher.
+     */
+    private static final class SinkState {
+        private final TelemetryExporter exporter;
+        private long batches;
+        private long samples;
+        private long failures;
+        private double lastLatencyMs = Double.NaN;
+        private double maxLatencyMs;
+        private boolean failing;
+
+        private SinkState(TelemetryExporter exporter) {
+            this.exporter = exporter;
+        }
+
+        void export(List<TelemetryExporter.Sample> batch, Logger logger) {
+            long started = System.nanoTime();
+            Exception failure = null;
+            try {
+                exporter.export(batch);
+            } catch (Exception e) {
+                failure = e;
+            }
+            double latencyMs = (System.nanoTime() - started) / 1_000_000.0;
+
+            boolean wasFailing;
+            synchronized (this) {
+                batches++;
+                lastLatencyMs = latencyMs;
+                maxLatencyMs = Math.max(maxLatencyMs, latencyMs);
+                if (failure == null) {
+                    samples += batch.size();
+                } else {
+                    failures++;
+                }
+                wasFailing = failing;
+                failing = failure != null;
+            }
+
+            // Log transitions only, so a collector that stays down does not flood the log.
+            if (failure != null && !wasFailing) {
+                logger.warn("Telemetry export to {} failed; dropping batches until it recovers: {}", exporter.name(), failure.toString());
+            } else if (failure == null && wasFailing) {
+                logger.info("Telemetry export to {} recovered", exporter.name());
+            }
+        }
+
+        synchronized SinkStats stats() {
+            return new SinkStats(exporter.name(), batches, samples, failures, lastLatencyMs, maxLatencyMs);
+        }
+    }
+
+    /**
+     * @param queued  samples waiting for the exporter thread
+     * @param dropped samples discarded because the queue was full
+     */
+    record Stats(int queued, long dropped, List<SinkStats> sinks) {
+    }
+
+    /**
+     * @param samples       samples delivered in successful batches
+     * @param lastLatencyMs duration of the latest export call, or {@code NaN} before the first
+     */
+    record SinkStats(String sink, long batches, long samples, long failures, double lastLatencyMs, double maxLatencyMs) {
+    }
+}
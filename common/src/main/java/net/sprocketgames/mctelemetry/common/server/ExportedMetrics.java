@@ -0,0 +1,65 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.DimensionSnapshot;
+import net.sprocketgames.mctelemetry.common.JvmSnapshot;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.TickStats;
+
+/**
+ * The gauges push exporters send for a snapshot. Names, units and labels match the {@code /metrics} series without the
+ * {@code mctelemetry_} prefix, so dashboards can use either source; counters are pushed as gauges of their current value.
+ */
+final class ExportedMetrics {
+    private ExportedMetrics() {
+    }
+
+    @FunctionalInterface
+    interface Visitor {
+        /**
+         * @param label      attribute name, or {@code null} for an unlabelled gauge
+         * @param labelValue attribute value when {@code label} is set
+         */
+        void gauge(String name, String unit, double value, String label, String labelValue);
+    }
+
+    static void visit(TelemetrySnapshot snapshot, Visitor visitor) {
+        if (snapshot.mspt() != null) {
+            visitor.gauge("mspt", "ms", snapshot.mspt(), null, null);
+        }
+        if (snapshot.tps() != null) {
+            visitor.gauge("tps", "1/s", snapshot.tps(), null, null);
+        }
+        visitor.gauge("players_online", "1", snapshot.players().size(), null, null);
+
+        TickStats tickStats = snapshot.tickStats();
+        if (tickStats != null) {
+            visitor.gauge("tick_time_seconds", "s", TelemetryMetricsRenderer.seconds(tickStats.p50Ms()), "stat", "p50");
+            visitor.gauge("tick_time_seconds", "s", TelemetryMetricsRenderer.seconds(tickStats.p95Ms()), "stat", "p95");
+            visitor.gauge("tick_time_seconds", "s", TelemetryMetricsRenderer.seconds(tickStats.p99Ms()), "stat", "p99");
+            visitor.gauge("tick_time_seconds", "s", TelemetryMetricsRenderer.seconds(tickStats.maxMs()), "stat", "max");
+        }
+
+        for (DimensionSnapshot dimension : snapshot.dimensions()) {
+            if (dimension.mspt() != null) {
+                visitor.gauge("dimension_mspt", "ms", dimension.mspt(), "dimension", dimension.id());
+            }
+            visitor.gauge("dimension_loaded_chunks", "1", dimension.loadedChunks(), "dimension", dimension.id());
+            if (dimension.entities() >= 0) {
+                visitor.gauge("dimension_entities", "1", dimension.entities(), "dimension", dimension.id());
+            }
+        }
+
+        JvmSnapshot jvm = snapshot.jvm();
+        if (jvm != null) {
+            visitor.gauge("jvm_heap_used_bytes", "By", jvm.heapUsedBytes(), null, null);
+            if (jvm.allocatedBytesPerTick() != null) {
+                visitor.gauge("jvm_allocated_bytes_per_tick", "By", jvm.allocatedBytesPerTick(), null, null);
+            }
+            visitor.gauge("jvm_gc_pause_ms_count", "1", jvm.gcPauses().count(), null, null);
+            visitor.gauge("jvm_gc_pause_ms_sum", "ms", jvm.gcPauses().totalMs(), null, null);
+            for (JvmSnapshot.CauseCount cause : jvm.gcPauses().causes()) {
+                visitor.gauge("jvm_gc_collections_total", "1", cause.count(), "cause", cause.cause());
+            }
+        }
+    }
+}
@@ -0,0 +1,517 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import net.sprocketgames.mctelemetry.common.TelemetryBinaryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Standalone aggregator that polls many MCTelemetry endpoints and serves one merged fleet view.
+ * <p>
+ * Every target is polled concurrently with the non-blocking {@link HttpClient}, asking for the
+ * {@linkplain TelemetryBinaryPayload binary payload} with {@code If-None-Match}, so an unchanged server answers with a
+ * bodyless {@code 304}. Bodies larger than {@link #MAX_BODY_BYTES} are cancelled and count as a failed poll. Each
+ * request has its target's timeout; a failing target is retried with exponential backoff up
+ * to {@link #MAX_BACKOFF} and keeps its last snapshot, marked down. When a round completes the {@link FleetView} is
+ * rendered once and swapped in, and every request is served from it:
+ * <ul>
+ *   <li>{@code /fleet}: servers ranked worst MSPT first, each with its summary telemetry</li>
+ *   <li>{@code /fleet/players}: every online player with their server; {@code ?name=} searches by name prefix and
+ *   {@code ?uuid=} by UUID</li>
+ *   <li>{@code /health}</li>
+ * </ul>
+ * Run it with:
+ * <pre>
+ * java -cp mctelemetry-common.jar:gson.jar:slf4j-api.jar net.sprocketgames.mctelemetry.common.server.FleetAggregator \
+ *     [--port 8780] [--bind 127.0.0.1] [--interval seconds] [--timeout millis] [--targets file] [name=]http://host:8765 ...
+ * </pre>
+ */
+public final class FleetAggregator {
+    public static final int DEFAULT_PORT = 8780;
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(2);
+    static final Duration MAX_BACKOFF = Duration.ofMinutes(2);
+    /**
+     * Far above the binary payload of a full server with a large census.
+     */
+    static final int MAX_BODY_BYTES = 8 << 20;
+
+    private static final byte[] MISSING_QUERY_JSON = "{\"error\":\"name or uuid required\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final Logger logger;
+    private final List<TargetState> targets;
+    private final Duration interval;
+    private final int maxBodyBytes;
+    private final HttpClient client;
+    private final AtomicReference<FleetView> view = new AtomicReference<>(FleetView.empty());
+    private final AtomicLong renders = new AtomicLong();
+    private final AtomicLong notModifiedPolls = new AtomicLong();
+    private final RequestLimiter requestLimiter = new RequestLimiter();
+
+    private ScheduledExecutorService scheduler;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FleetAggregator(Logger logger, List<Target> targets, Duration interval) {
+        this(logger, targets, interval, MAX_BODY_BYTES);
+    }
+
+    FleetAggregator(Logger logger, List<Target> targets, Duration interval, int maxBodyBytes) {
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.interval = Objects.requireNonNull(interval, "interval");
+        this.maxBodyBytes = maxBodyBytes;
+        this.targets = new ArrayList<>(targets.size());
+        for (Target target : targets) {
+            this.targets.add(new TargetState(target));
+        }
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(DEFAULT_TIMEOUT)
+                .build();
+    }
+
+    /**
+     * Starts polling and serving. Port {@code 0} picks a free port; see {@link #port()}.
+     */
+    public synchronized void start(String bindAddress, int port) throws IOException {
+        if (server != null) {
+            return;
+        }
+
+        server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        createContext("/fleet", new FleetHandler());
+        createContext("/fleet/players", new PlayersHandler());
+        createContext("/health", new HealthHandler());
+        executor = TelemetryHttpExecutor.create(logger, RequestLimiter.DEFAULT_MAX_CONCURRENT_REQUESTS);
+        server.setExecutor(executor);
+        server.start();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MCTelemetry-Aggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollRound, 0L, interval.toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("MCTelemetry fleet aggregator on {}:{} polling {} target(s) every {} s", bindAddress, port(), targets.size(),
+                interval.toSeconds());
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public synchronized int port() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    private void createContext(String path, HttpHandler handler) {
+        server.createContext(path, handler).getFilters().add(requestLimiter.filter(true));
+    }
+
+    private void pollRound() {
+        try {
+            pollNow().join();
+        } catch (RuntimeException e) {
+            logger.warn("Fleet polling round failed", e);
+        }
+    }
+
+    /**
+     * Polls every target that is due and not already in flight, then renders the view once all of them have answered
+     * or timed out.
+     */
+    CompletableFuture<Void> pollNow() {
+        long now = System.nanoTime();
+        List<CompletableFuture<Void>> polls = new ArrayList<>(targets.size());
+        for (TargetState target : targets) {
+            if (target.claim(now)) {
+                polls.add(poll(target));
+            }
+        }
+
+        return CompletableFuture.allOf(polls.toArray(new CompletableFuture<?>[0])).thenRun(this::render);
+    }
+
+    private CompletableFuture<Void> poll(TargetState target) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(target.target.telemetryUri())
+                .timeout(target.target.timeout())
+                .header("Accept", TelemetryBinaryPayload.CONTENT_TYPE)
+                .GET();
+        String etag = target.etag();
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+
+        // The request timeout only covers the response headers; also bound the body so one stalled target cannot hold up
+        // the round.
+        return client.sendAsync(request.build(), info -> new CappedBody(maxBodyBytes))
+                .orTimeout(target.target.timeout().toMillis() * 2, TimeUnit.MILLISECONDS)
+                .handle((response, failure) -> {
+                    if (failure != null) {
+                        target.failed(describe(failure), interval);
+                    } else {
+                        accept(target, response);
+                    }
+                    return null;
+                });
+    }
+
+    private void accept(TargetState target, HttpResponse<byte[]> response) {
+        int status = response.statusCode();
+        if (status == 304) {
+            notModifiedPolls.incrementAndGet();
+            target.unchanged();
+            return;
+        }
+
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        if (status != 200 || !contentType.startsWith(TelemetryBinaryPayload.CONTENT_TYPE)) {
+            target.failed("HTTP " + status + (status == 200 ? " " + contentType : ""), interval);
+            return;
+        }
+
+        try {
+            target.updated(TelemetryBinaryPayload.decode(response.body()), response.headers().firstValue("ETag").orElse(null));
+        } catch (IllegalArgumentException e) {
+            target.failed(e.getMessage(), interval);
+        }
+    }
+
+    private void render() {
+        List<FleetView.Server> servers = new ArrayList<>(targets.size());
+        for (TargetState target : targets) {
+            servers.add(target.status());
+        }
+        view.set(FleetView.render(renders.incrementAndGet(), System.currentTimeMillis(), servers));
+    }
+
+    FleetView view() {
+        return view.get();
+    }
+
+    long notModifiedPolls() {
+        return notModifiedPolls.get();
+    }
+
+    private static String describe(Throwable failure) {
+        Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+        return cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getClass().getSimpleName() + ": " + cause.getMessage();
+    }
+
+    private final class FleetHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().add("Allow", "GET");
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+
+                TelemetryHttpServer.sendEncoded(exchange, view.get().fleet());
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private final class PlayersHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().add("Allow", "GET");
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+
+                FleetView current = view.get();
+                String rawQuery = exchange.getRequestURI().getRawQuery();
+                if (rawQuery == null || rawQuery.isEmpty()) {
+                    TelemetryHttpServer.sendEncoded(exchange, current.players());
+                    return;
+                }
+
+                Map<String, String> query = TelemetryHttpServer.parseQuery(rawQuery);
+                String name = query.get("name");
+                String uuid = query.get("uuid");
+                boolean valid = uuid != null && !uuid.isBlank() || name != null && !name.isBlank();
+                byte[] body = valid ? current.search(name, uuid == null || uuid.isBlank() ? null : uuid) : MISSING_QUERY_JSON;
+                exchange.getResponseHeaders().set("Content-Type", TelemetryHttpServer.JSON_CONTENT_TYPE);
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                exchange.sendResponseHeaders(valid ? 200 : 400, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private static final class HealthHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                byte[] payload = "ok".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, payload.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(payload);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * One MCTelemetry endpoint to poll.
+     *
+     * @param url base URL of the server's HTTP endpoint, e.g. {@code http://10.0.0.5:8765}; a URL with a path is used
+     *            as is
+     */
+    public record Target(String name, URI url, Duration timeout) {
+        public Target {
+            Objects.requireNonNull(name, "name");
+            Objects.requireNonNull(url, "url");
+            Objects.requireNonNull(timeout, "timeout");
+        }
+
+        /**
+         * Parses {@code [name=]url}; without a name the URL's {@code host:port} is used.
+         *
+         * @throws IllegalArgumentException when the URL is not an absolute http(s) URL
+         */
+        public static Target parse(String spec, Duration timeout) {
+            int separator = spec.indexOf('=');
+            boolean named = separator > 0 && !spec.substring(0, separator).contains("://");
+            URI url = URI.create((named ? spec.substring(separator + 1) : spec).trim());
+            if (url.getHost() == null || !("http".equals(url.getScheme()) || "https".equals(url.getScheme()))) {
+                throw new IllegalArgumentException("Not an http(s) URL: " + spec);
+            }
+            int port = url.getPort() != -1 ? url.getPort() : "https".equals(url.getScheme()) ? 443 : 80;
+            String name = named ? spec.substring(0, separator).trim() : url.getHost() + ":" + port;
+            return new Target(name, url, timeout);
+        }
+
+        URI telemetryUri() {
+            String path = url.getPath();
+            return path == null || path.isEmpty() || path.equals("/") ? url.resolve("/telemetry") : url;
+        }
+    }
+
+    /**
+     * Collects a response body of at most {@code limit} bytes. Past the limit it cancels the exchange, which closes the
+     * connection, and fails the body, so a misbehaving target cannot make the aggregator buffer without bound.
+     */
+    static final class CappedBody implements HttpResponse.BodySubscriber<byte[]> {
+        private final int limit;
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private int size;
+
+        CappedBody(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public CompletableFuture<byte[]> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (body.isDone()) {
+                return;
+            }
+
+            for (ByteBuffer item : items) {
+                size += item.remaining();
+                if (size < 0 || size > limit) {
+                    subscription.cancel();
+                    buffers.clear();
+                    body.completeExceptionally(new IOException("Response body exceeds " + limit + " bytes"));
+                    return;
+                }
+                buffers.add(item);
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable failure) {
+            buffers.clear();
+            body.completeExceptionally(failure);
+        }
+
+        @Override
+        public void onComplete() {
+            byte[] result = new byte[size];
+            int offset = 0;
+            for (ByteBuffer buffer : buffers) {
+                int length = buffer.remaining();
+                buffer.get(result, offset, length);
+                offset += length;
+            }
+            buffers.clear();
+            body.complete(result);
+        }
+    }
+
+    /**
+     * Polling state of one target. Claimed by the scheduler thread and completed on an {@link HttpClient} thread.
+     */
+    private static final class TargetState {
+        private final Target target;
+        private boolean inFlight;
+        private long nextAttemptNanos;
+        private String etag;
+        private TelemetrySnapshot snapshot;
+        private boolean up;
+        private long lastSuccessMillis;
+        private int failures;
+        private String error = "not polled yet";
+
+        private TargetState(Target target) {
+            this.target = target;
+        }
+
+        synchronized boolean claim(long nowNanos) {
+            if (inFlight || nowNanos - nextAttemptNanos < 0) {
+                return false;
+            }
+            inFlight = true;
+            return true;
+        }
+
+        synchronized String etag() {
+            return etag;
+        }
+
+        synchronized void updated(TelemetrySnapshot snapshot, String etag) {
+            this.snapshot = snapshot;
+            this.etag = etag;
+            succeeded();
+        }
+
+        synchronized void unchanged() {
+            succeeded();
+        }
+
+        private void succeeded() {
+            inFlight = false;
+            up = true;
+            failures = 0;
+            error = null;
+            lastSuccessMillis = System.currentTimeMillis();
+            nextAttemptNanos = System.nanoTime();
+        }
+
+        /**
+         * Backs off for {@code interval * 2^(failures - 1)}, capped at {@link #MAX_BACKOFF}, before the next attempt.
+         */
+        synchronized void failed(String reason, Duration interval) {
+            inFlight = false;
+            up = false;
+            failures++;
+            error = reason;
+            long backoff = Math.min(MAX_BACKOFF.toNanos(), interval.toNanos() << Math.min(failures - 1, 20));
+            nextAttemptNanos = System.nanoTime() + backoff - interval.toNanos();
+        }
+
+        synchronized FleetView.Server status() {
+            return new FleetView.Server(target.name(), target.url().toString(), up, snapshot, lastSuccessMillis, failures, error);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String bind = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        Duration interval = DEFAULT_INTERVAL;
+        Duration timeout = DEFAULT_TIMEOUT;
+        List<String> specs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--bind" -> bind = args[++i];
+                    case "--port" -> port = Integer.parseInt(args[++i]);
+                    case "--interval" -> interval = Duration.ofSeconds(Math.max(1, Long.parseLong(args[++i])));
+                    case "--timeout" -> timeout = Duration.ofMillis(Math.max(1, Long.parseLong(args[++i])));
+                    case "--targets" -> Files.readAllLines(Paths.get(args[++i])).stream()
+                            .map(String::trim)
+                            .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                            .forEach(specs::add);
+                    default -> specs.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            specs.clear();
+        }
+
+        List<Target> targets = new ArrayList<>(specs.size());
+        try {
+            for (String spec : specs) {
+                targets.add(Target.parse(spec, timeout));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            targets.clear();
+        }
+
+        if (targets.isEmpty()) {
+            System.err.println("Usage: FleetAggregator [--port port] [--bind address] [--interval seconds] [--timeout millis]"
+                    + " [--targets file] [name=]http://host:port ...");
+            System.exit(2);
+            return;
+        }
+
+        new FleetAggregator(LoggerFactory.getLogger(FleetAggregator.class), targets, interval).start(bind, port);
+    }
+}
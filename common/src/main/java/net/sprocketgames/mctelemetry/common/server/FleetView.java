@@ -0,0 +1,182 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import net.sprocketgames.mctelemetry.common.TelemetryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.Utf8JsonWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable merged view of every {@link FleetAggregator} target, rendered once per polling round.
+ * <p>
+ * The server ranking and the full player list are encoded up front, and player search runs against a name index
+ * sorted at render time, so requests never touch the targets' snapshots.
+ */
+final class FleetView {
+    static final int MAX_SEARCH_RESULTS = 100;
+
+    private static final Comparator<Server> WORST_MSPT_FIRST = Comparator
+            .comparing((Server server) -> mspt(server) == null)
+            .thenComparing(server -> mspt(server) == null ? 0.0 : -mspt(server))
+            .thenComparing(Server::name);
+
+    private final EncodedPayload fleet;
+    private final EncodedPayload players;
+    private final String[] sortedNames;
+    private final Entry[] entries;
+    private final Map<String, List<Entry>> byUuid;
+
+    private FleetView(EncodedPayload fleet, EncodedPayload players, Entry[] entries) {
+        this.fleet = fleet;
+        this.players = players;
+        this.entries = entries;
+        this.sortedNames = new String[entries.length];
+        this.byUuid = new HashMap<>(entries.length * 2);
+        for (int i = 0; i < entries.length; i++) {
+            sortedNames[i] = entries[i].lowerName();
+            byUuid.computeIfAbsent(entries[i].player().uuid(), ignored -> new ArrayList<>(1)).add(entries[i]);
+        }
+    }
+
+    static FleetView render(long version, long nowMillis, List<Server> servers) {
+        List<Server> ranking = new ArrayList<>(servers);
+        ranking.sort(WORST_MSPT_FIRST);
+
+        List<Entry> entries = new ArrayList<>();
+        int up = 0;
+        for (Server server : ranking) {
+            if (server.up()) {
+                up++;
+            }
+            if (server.snapshot() != null) {
+                for (PlayerSnapshot player : server.snapshot().players()) {
+                    entries.add(new Entry(player.name().toLowerCase(Locale.ROOT), player, server.name()));
+                }
+            }
+        }
+        Entry[] sorted = entries.toArray(new Entry[0]);
+        Arrays.sort(sorted, Comparator.comparing(Entry::lowerName).thenComparing(Entry::server));
+
+        Utf8JsonWriter writer = new Utf8JsonWriter(256 + servers.size() * 256);
+        Utf8JsonWriter summary = new Utf8JsonWriter(256);
+        writer.reset().beginObject();
+        writer.name("generatedAt").value(nowMillis);
+        writer.name("servers").value(servers.size());
+        writer.name("up").value(up);
+        writer.name("players").value(sorted.length);
+        writer.name("ranking").beginArray();
+        for (Server server : ranking) {
+            writer.beginObject();
+            writer.name("name").value(server.name());
+            writer.name("url").value(server.url());
+            writer.name("up").value(server.up());
+            writer.name("lastSuccess");
+            if (server.lastSuccessMillis() == 0L) {
+                writer.nullValue();
+            } else {
+                writer.value(server.lastSuccessMillis());
+            }
+            writer.name("failures").value(server.consecutiveFailures());
+            writer.name("error").value(server.error());
+            writer.name("telemetry");
+            if (server.snapshot() == null) {
+                writer.nullValue();
+            } else {
+                writer.rawValue(TelemetryPayload.write(summary, server.snapshot(), TelemetryPayload.SUMMARY_FIELDS).toByteArray());
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+        EncodedPayload fleet = EncodedPayload.encode(version, writer.toByteArray(), TelemetryHttpServer.JSON_CONTENT_TYPE);
+
+        EncodedPayload players = EncodedPayload.encode(version, writeEntries(writer, null, Arrays.asList(sorted)),
+                TelemetryHttpServer.JSON_CONTENT_TYPE);
+        return new FleetView(fleet, players, sorted);
+    }
+
+    static FleetView empty() {
+        return render(0L, System.currentTimeMillis(), List.of());
+    }
+
+    EncodedPayload fleet() {
+        return fleet;
+    }
+
+    EncodedPayload players() {
+        return players;
+    }
+
+    /**
+     * Finds online players whose name starts with {@code namePrefix} (case-insensitive) or whose UUID is exactly
+     * {@code uuid}, across every server, up to {@link #MAX_SEARCH_RESULTS}.
+     */
+    byte[] search(String namePrefix, String uuid) {
+        List<Entry> matches;
+        String query;
+        if (uuid != null) {
+            query = uuid;
+            // Payload UUIDs are undashed lowercase hex; accept the dashed form too.
+            matches = byUuid.getOrDefault(uuid.replace("-", "").toLowerCase(Locale.ROOT), List.of());
+        } else {
+            query = namePrefix;
+            String prefix = namePrefix.toLowerCase(Locale.ROOT);
+            int index = Arrays.binarySearch(sortedNames, prefix);
+            // Equal names may sit on either side of the hit; walk back to the first one.
+            int first = index >= 0 ? index : -index - 1;
+            while (first > 0 && sortedNames[first - 1].startsWith(prefix)) {
+                first--;
+            }
+
+            matches = new ArrayList<>();
+            for (int i = first; i < entries.length && matches.size() < MAX_SEARCH_RESULTS && sortedNames[i].startsWith(prefix); i++) {
+                matches.add(entries[i]);
+            }
+        }
+
+        return writeEntries(new Utf8JsonWriter(128 + matches.size() * 96), query, matches);
+    }
+
+    private static byte[] writeEntries(Utf8JsonWriter writer, String query, List<Entry> entries) {
+        writer.reset().beginObject();
+        if (query != null) {
+            writer.name("query").value(query);
+        }
+        writer.name("players").beginArray();
+        for (Entry entry : entries) {
+            writer.beginObject();
+            writer.name("name").value(entry.player().name());
+            writer.name("uuid").value(entry.player().uuid());
+            writer.name("server").value(entry.server());
+            writer.endObject();
+        }
+        writer.endArray();
+        return writer.endObject().toByteArray();
+    }
+
+    private static Double mspt(Server server) {
+        return server.snapshot() == null ? null : server.snapshot().mspt();
+    }
+
+    /**
+     * Latest known state of one target.
+     *
+     * @param snapshot            last successfully fetched telemetry, kept while the target is down, or {@code null}
+     * @param lastSuccessMillis   wall-clock time of the last successful poll, or {@code 0}
+     * @param consecutiveFailures failed polls since the last success
+     * @param error               why the last poll failed, or {@code null} when it succeeded
+     */
+    record Server(String name, String url, boolean up, TelemetrySnapshot snapshot, long lastSuccessMillis, int consecutiveFailures,
+                  String error) {
+    }
+
+    private record Entry(String lowerName, PlayerSnapshot player, String server) {
+    }
+}
@@ -0,0 +1,261 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import net.sprocketgames.mctelemetry.common.JvmSnapshot;
+import org.slf4j.Logger;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Heap, garbage collection and server-thread allocation metrics.
+ * <p>
+ * Collections are recorded from the JVM's GC notifications, which arrive on the JMX notification thread, and heap
+ * usage is read when a snapshot is published, so the server thread only pays for {@link #tickEnded()}: one read of its
+ * own allocation counter per tick.
+ */
+final class JvmMetrics implements NotificationListener {
+    /**
+     * Collections kept for the old generation growth trend.
+     */
+    static final int GROWTH_SAMPLES = 16;
+    /**
+     * Notification actions of stop-the-world collections. Concurrent collectors also notify for their cycles ("end of
+     * GC cycle" from "ZGC Cycles" and "Shenandoah Cycles", the "G1 Concurrent GC" collector on JDK 20+), whose
+     * duration is mostly concurrent work and must not be counted as a pause.
+     */
+    private static final Set<String> PAUSE_ACTIONS = Set.of("end of minor GC", "end of major GC", "end of GC pause");
+    private static final Set<String> CONCURRENT_COLLECTORS = Set.of("ZGC Cycles", "Shenandoah Cycles", "G1 Concurrent GC");
+
+    private final Logger logger;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final com.sun.management.ThreadMXBean threads;
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+    private final long[] buckets = new long[JvmSnapshot.PAUSE_BUCKETS_MS.size()];
+    private final Map<String, long[]> causes = new HashMap<>();
+    private final long[] growthMillis = new long[GROWTH_SAMPLES];
+    private final long[] growthBytes = new long[GROWTH_SAMPLES];
+    private long pauseCount;
+    private long pauseTotalMs;
+    private long pauseMaxMs;
+    private long oldGenAfterGcBytes = -1L;
+    private int growthSize;
+    private int growthNext;
+
+    private long lastAllocatedBytes = -1L;
+    private long windowAllocatedBytes;
+    private int windowTicks;
+
+    JvmMetrics(Logger logger) {
+        this.logger = logger;
+        this.threads = allocationCounter(ManagementFactory.getThreadMXBean());
+    }
+
+    /**
+     * Subscribes to GC notifications from every collector that publishes them.
+     */
+    void start() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+
+        if (emitters.isEmpty()) {
+            logger.info("JVM publishes no GC notifications; GC pause metrics will stay empty");
+        }
+    }
+
+    void stop() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException ignored) {
+                // already removed
+            }
+        }
+        emitters.clear();
+    }
+
+    /**
+     * Reads the server thread's allocation counter. Server thread only, once per tick.
+     */
+    void tickEnded() {
+        if (threads == null) {
+            return;
+        }
+
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        if (allocated < 0L) {
+            return;
+        }
+
+        if (lastAllocatedBytes >= 0L) {
+            windowAllocatedBytes += allocated - lastAllocatedBytes;
+            windowTicks++;
+        }
+        lastAllocatedBytes = allocated;
+    }
+
+    /**
+     * Returns the average bytes allocated per tick since the previous call and starts a new window. Server thread only.
+     *
+     * @return the average, or {@code NaN} when no tick was measured
+     */
+    double drainAllocatedBytesPerTick() {
+        if (windowTicks == 0) {
+            return Double.NaN;
+        }
+
+        double average = windowAllocatedBytes / (double) windowTicks;
+        windowAllocatedBytes = 0L;
+        windowTicks = 0;
+        return average;
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        recordNotification(info.getGcName(), info.getGcAction(), info.getGcCause(), info.getGcInfo().getDuration(),
+                oldGenBytes(info.getGcInfo().getMemoryUsageAfterGc()), System.currentTimeMillis());
+    }
+
+    /**
+     * Records a pause for stop-the-world collections; a concurrent cycle only updates the old generation occupancy.
+     */
+    void recordNotification(String collector, String action, String cause, long durationMs, long oldGenBytes, long timeMillis) {
+        if (isPause(collector, action)) {
+            recordCollection(cause, durationMs, oldGenBytes, timeMillis);
+        } else {
+            recordOldGen(oldGenBytes, timeMillis);
+        }
+    }
+
+    static boolean isPause(String collector, String action) {
+        return PAUSE_ACTIONS.contains(action) && !CONCURRENT_COLLECTORS.contains(collector);
+    }
+
+    /**
+     * @param oldGenBytes old generation occupancy after the collection, or {@code -1} when unknown
+     */
+    synchronized void recordCollection(String cause, long durationMs, long oldGenBytes, long timeMillis) {
+        pauseCount++;
+        pauseTotalMs += durationMs;
+        pauseMaxMs = Math.max(pauseMaxMs, durationMs);
+        for (int i = 0; i < buckets.length; i++) {
+            if (durationMs <= JvmSnapshot.PAUSE_BUCKETS_MS.get(i)) {
+                buckets[i]++;
+            }
+        }
+        causes.computeIfAbsent(cause == null ? "unknown" : cause, ignored -> new long[1])[0]++;
+        recordOldGen(oldGenBytes, timeMillis);
+    }
+
+    private synchronized void recordOldGen(long oldGenBytes, long timeMillis) {
+        if (oldGenBytes >= 0L) {
+            oldGenAfterGcBytes = oldGenBytes;
+            growthMillis[growthNext] = timeMillis;
+            growthBytes[growthNext] = oldGenBytes;
+            growthNext = (growthNext + 1) % GROWTH_SAMPLES;
+            growthSize = Math.min(growthSize + 1, GROWTH_SAMPLES);
+        }
+    }
+
+    /**
+     * Reads the heap and copies the collection statistics. Safe to call from any thread.
+     *
+     * @param allocatedBytesPerTick value from {@link #drainAllocatedBytesPerTick()}
+     */
+    JvmSnapshot snapshot(double allocatedBytesPerTick) {
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        Double allocated = Double.isNaN(allocatedBytesPerTick) ? null : (double) Math.round(allocatedBytesPerTick);
+        synchronized (this) {
+            List<Long> bucketCounts = new ArrayList<>(buckets.length);
+            for (long bucket : buckets) {
+                bucketCounts.add(bucket);
+            }
+
+            List<JvmSnapshot.CauseCount> causeCounts = new ArrayList<>(causes.size());
+            causes.forEach((cause, count) -> causeCounts.add(new JvmSnapshot.CauseCount(cause, count[0])));
+            causeCounts.sort((a, b) -> Long.compare(b.count(), a.count()));
+
+            return new JvmSnapshot(heap.getUsed(), heap.getCommitted(), heap.getMax(), oldGenAfterGcBytes, growthBytesPerMinute(), allocated,
+                    new JvmSnapshot.GcPauses(pauseCount, pauseTotalMs, pauseMaxMs, List.copyOf(bucketCounts), List.copyOf(causeCounts)));
+        }
+    }
+
+    /**
+     * Least-squares slope of the recent after-GC old generation occupancy, so one collection that happens to free a
+     * lot does not hide a steady leak.
+     */
+    private Double growthBytesPerMinute() {
+        if (growthSize < 2) {
+            return null;
+        }
+
+        long origin = growthMillis[(growthNext - growthSize + GROWTH_SAMPLES) % GROWTH_SAMPLES];
+        double meanX = 0.0;
+        double meanY = 0.0;
+        for (int i = 0; i < growthSize; i++) {
+            meanX += (growthMillis[i] - origin) / 60_000.0;
+            meanY += growthBytes[i];
+        }
+        meanX /= growthSize;
+        meanY /= growthSize;
+
+        double covariance = 0.0;
+        double variance = 0.0;
+        for (int i = 0; i < growthSize; i++) {
+            double dx = (growthMillis[i] - origin) / 60_000.0 - meanX;
+            covariance += dx * (growthBytes[i] - meanY);
+            variance += dx * dx;
+        }
+        return variance == 0.0 ? null : (double) Math.round(covariance / variance);
+    }
+
+    /**
+     * Picks the old generation pool out of a collection's after-GC usage. Single-generation collectors (ZGC before
+     * JDK 21, Shenandoah) report their whole heap, which is the closest equivalent.
+     */
+    private static long oldGenBytes(Map<String, MemoryUsage> afterGc) {
+        for (Map.Entry<String, MemoryUsage> pool : afterGc.entrySet()) {
+            String name = pool.getKey().toLowerCase(Locale.ROOT);
+            if (name.contains("old") || name.contains("tenured") || name.equals("zheap") || name.equals("shenandoah")) {
+                return pool.getValue().getUsed();
+            }
+        }
+        return -1L;
+    }
+
+    private com.sun.management.ThreadMXBean allocationCounter(ThreadMXBean bean) {
+        if (!(bean instanceof com.sun.management.ThreadMXBean counter) || !counter.isThreadAllocatedMemorySupported()) {
+            logger.info("JVM does not measure per-thread allocation; allocatedPerTick will be null");
+            return null;
+        }
+
+        if (!counter.isThreadAllocatedMemoryEnabled()) {
+            counter.setThreadAllocatedMemoryEnabled(true);
+        }
+        return counter;
+    }
+}
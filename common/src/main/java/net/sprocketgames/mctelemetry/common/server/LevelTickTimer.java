@@ -0,0 +1,63 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * Accumulates how long each server level takes to tick, fed from the loaders' per-level tick start and end events.
+ * <p>
+ * Levels are keyed by identity, so recording a tick is a hash lookup and a {@link System#nanoTime()} call with no
+ * allocation once a level has been seen. Server thread only.
+ */
+public final class LevelTickTimer {
+    private final Map<Object, Window> windows = new IdentityHashMap<>();
+
+    public void started(Object level) {
+        Window window = windows.get(level);
+        if (window == null) {
+            window = new Window();
+            windows.put(level, window);
+        }
+        window.startNanos = System.nanoTime();
+    }
+
+    public void ended(Object level) {
+        Window window = windows.get(level);
+        if (window == null || window.startNanos == 0L) {
+            return;
+        }
+
+        window.totalNanos += System.nanoTime() - window.startNanos;
+        window.ticks++;
+        window.startNanos = 0L;
+    }
+
+    /**
+     * Returns the average tick time of {@code level} since the previous call for it and starts a new window.
+     */
+    public OptionalDouble drainAverageMs(Object level) {
+        Window window = windows.get(level);
+        if (window == null || window.ticks == 0) {
+            return OptionalDouble.empty();
+        }
+
+        double averageMs = window.totalNanos / (double) window.ticks / 1_000_000.0;
+        window.totalNanos = 0L;
+        window.ticks = 0;
+        return OptionalDouble.of(averageMs);
+    }
+
+    /**
+     * Forgets every level, e.g. when the server stops and its levels are discarded.
+     */
+    public void clear() {
+        windows.clear();
+    }
+
+    private static final class Window {
+        private long startNanos;
+        private long totalNanos;
+        private int ticks;
+    }
+}
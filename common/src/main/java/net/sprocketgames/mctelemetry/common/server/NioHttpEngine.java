@@ -0,0 +1,573 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.PlayerDelta;
+import net.sprocketgames.mctelemetry.common.TelemetryPayload;
+import net.sprocketgames.mctelemetry.common.Utf8JsonWriter;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Single-threaded, non-blocking HTTP/1.1 engine for the cached telemetry endpoints.
+ * <p>
+ * One selector thread accepts, parses and answers every request. Connections are kept alive and pipelined requests
+ * are answered in order. Every cached payload is turned into complete responses (status line, headers and body)
+ * once per publish and held in read-only direct buffers. A poll then writes a {@link ByteBuffer#duplicate() duplicate}
+ * of one of them, so the bytes are never copied per request. The SSE stream needs a blocking handler per subscriber
+ * and is only offered by the JDK engine.
+ */
+final class NioHttpEngine {
+    private static final String THREAD_NAME = "MCTelemetry-NIO";
+    private static final long STOP_TIMEOUT_MILLIS = 1000L;
+    private static final long SELECT_TIMEOUT_MILLIS = 1000L;
+    private static final long IDLE_TIMEOUT_NANOS = 30_000_000_000L;
+    private static final int BACKLOG = 128;
+    private static final int MAX_CONNECTIONS = 256;
+    private static final int MAX_REQUEST_HEAD_BYTES = 8192;
+    private static final int MAX_PIPELINED_RESPONSES = 16;
+
+    private static final ByteBuffer HEALTH = prepare("200 OK", "Content-Type: text/plain; charset=utf-8\r\n", "ok".getBytes(StandardCharsets.UTF_8));
+    private static final ByteBuffer NOT_FOUND = prepare("404 Not Found", "", new byte[0]);
+    private static final ByteBuffer METHOD_NOT_ALLOWED = prepare("405 Method Not Allowed", "Allow: GET\r\n", new byte[0]);
+    private static final ByteBuffer BAD_REQUEST = prepare("400 Bad Request", "Connection: close\r\n", new byte[0]);
+    private static final ByteBuffer HEAD_TOO_LARGE = prepare("431 Request Header Fields Too Large", "Connection: close\r\n", new byte[0]);
+
+    private final Logger logger;
+    private final TelemetryHttpServer routes;
+    private final InetSocketAddress address;
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_PIPELINED_RESPONSES];
+    /**
+     * Prepared responses for {@code view}/{@code fields} projections of the current payload, dropped on each publish.
+     */
+    private final Map<EncodedPayload, PreparedPayload> viewResponses = new IdentityHashMap<>();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread worker;
+    private volatile boolean running;
+    private int connections;
+    private long lastIdleSweepNanos;
+
+    private PreparedPayload telemetryResponses;
+    private PreparedPayload metricsResponses;
+    private PreparedPayload playerListResponses;
+    private long viewResponsesVersion;
+
+    NioHttpEngine(Logger logger, TelemetryHttpServer routes, InetSocketAddress address) {
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.routes = Objects.requireNonNull(routes, "routes");
+        this.address = Objects.requireNonNull(address, "address");
+    }
+
+    void start() throws IOException {
+        selector = Selector.open();
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(address, BACKLOG);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            closeQuietly();
+            throw e;
+        }
+
+        running = true;
+        worker = new Thread(this::run, THREAD_NAME);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    void stop() {
+        Thread thread = worker;
+        if (thread == null) {
+            return;
+        }
+
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        worker = null;
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(connection);
+                        } else if (key.isWritable()) {
+                            flush(connection);
+                        }
+                    } catch (IOException e) {
+                        close(connection);
+                    }
+                }
+
+                sweepIdleConnections();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                logger.error("Telemetry NIO engine stopped unexpectedly", e);
+            }
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            if (connections >= MAX_CONNECTIONS) {
+                channel.close();
+                continue;
+            }
+
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            InetSocketAddress remote = (InetSocketAddress) channel.getRemoteAddress();
+            Connection connection = new Connection(channel, remote == null ? null : remote.getAddress());
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections++;
+        }
+    }
+
+    private void read(Connection connection) throws IOException {
+        int read = connection.channel.read(connection.input);
+        if (read < 0) {
+            close(connection);
+            return;
+        }
+
+        connection.lastActiveNanos = System.nanoTime();
+        process(connection);
+        flush(connection);
+    }
+
+    /**
+     * Parses every complete request head in the input buffer, queueing one response per request.
+     */
+    private void process(Connection connection) {
+        ByteBuffer input = connection.input;
+        input.flip();
+        while (!connection.closeAfterWrite && connection.output.size() < MAX_PIPELINED_RESPONSES) {
+            int headEnd = indexOfHeadEnd(input);
+            if (headEnd < 0) {
+                if (input.remaining() >= MAX_REQUEST_HEAD_BYTES) {
+                    connection.respond(HEAD_TOO_LARGE.duplicate(), true);
+                }
+                break;
+            }
+
+            String head = new String(input.array(), input.arrayOffset() + input.position(), headEnd - input.position(), StandardCharsets.ISO_8859_1);
+            input.position(headEnd + 4);
+            SelfMetrics metrics = routes.selfMetrics();
+            if (metrics == null) {
+                handle(connection, head);
+            } else {
+                long started = System.nanoTime();
+                handle(connection, head);
+                // Responses are pre-built, so handling time is the latency this engine adds; bytes include the head.
+                metrics.recordRequest(System.nanoTime() - started, connection.output.peekLast().remaining());
+            }
+        }
+        input.compact();
+    }
+
+    private void handle(Connection connection, String head) {
+        Request request = Request.parse(head);
+        if (request == null || request.hasBody) {
+            connection.respond(BAD_REQUEST.duplicate(), true);
+            return;
+        }
+
+        boolean close = !request.keepAlive;
+        long retryAfterSeconds = routes.requestLimiter().tryConsume(connection.remoteAddress);
+        if (retryAfterSeconds > 0) {
+            connection.respond(response("429 Too Many Requests", "Retry-After: " + retryAfterSeconds + "\r\n", new byte[0]), close);
+            return;
+        }
+
+        String path = request.path;
+        boolean known = path.equals("/telemetry") || path.equals("/metrics") || path.equals("/health")
+                || path.equals("/telemetry/self") && routes.selfMetrics() != null
+                || path.equals("/telemetry/players") && routes.playerRegistry() != null
+                || path.equals("/telemetry/history") && routes.history() != null;
+        if (!known) {
+            connection.respond(NOT_FOUND.duplicate(), close);
+            return;
+        }
+
+        if (!request.method.equals("GET")) {
+            connection.respond(METHOD_NOT_ALLOWED.duplicate(), close);
+            return;
+        }
+
+        if (!path.equals("/health") && !path.equals("/telemetry/self")) {
+            routes.markDemand();
+        }
+
+        switch (path) {
+            case "/telemetry" -> connection.respond(telemetry(request), close);
+            case "/metrics" -> {
+                metricsResponses = PreparedPayload.refresh(metricsResponses, routes.metricsPayload());
+                connection.respond(metricsResponses.select(request), close);
+            }
+            case "/health" -> connection.respond(HEALTH.duplicate(), close);
+            case "/telemetry/history" -> connection.respond(history(request), close);
+            case "/telemetry/self" -> connection.respond(response("200 OK", "Content-Type: " + TelemetryHttpServer.JSON_CONTENT_TYPE
+                    + "\r\nCache-Control: no-store\r\n", routes.selfMetrics().render()), close);
+            default -> connection.respond(players(request), close);
+        }
+    }
+
+    private ByteBuffer telemetry(Request request) {
+        EncodedPayload payload = routes.telemetryPayload(request.query, TelemetryHttpServer.acceptsBinary(request.accept));
+        if (payload == null) {
+            return response("400 Bad Request", "Content-Type: " + TelemetryHttpServer.JSON_CONTENT_TYPE + "\r\n",
+                    TelemetryHttpServer.UNKNOWN_FIELD_JSON);
+        }
+
+        if (payload == routes.telemetryPayload()) {
+            telemetryResponses = PreparedPayload.refresh(telemetryResponses, payload, TelemetryHttpServer.TELEMETRY_VARY);
+            return telemetryResponses.select(request);
+        }
+
+        if (payload.version() != viewResponsesVersion || viewResponses.size() > TelemetryViews.MAX_CACHED_PROJECTIONS) {
+            viewResponses.clear();
+            viewResponsesVersion = payload.version();
+        }
+
+        PreparedPayload prepared = viewResponses.get(payload);
+        if (prepared == null) {
+            prepared = PreparedPayload.refresh(null, payload, TelemetryHttpServer.TELEMETRY_VARY);
+            viewResponses.put(payload, prepared);
+        }
+        return prepared.select(request);
+    }
+
+    private ByteBuffer players(Request request) {
+        PlayerRegistry registry = routes.playerRegistry();
+        Map<String, String> query = TelemetryHttpServer.parseQuery(request.query);
+        long since = TelemetryHttpServer.parseLong(query.get("since"), -1L);
+        long epoch = TelemetryHttpServer.parseLong(query.get("epoch"), registry.epoch());
+        PlayerDelta delta = since < 0 ? null : registry.changesSince(epoch, since);
+        if (delta == null || delta.full()) {
+            playerListResponses = PreparedPayload.refresh(playerListResponses, routes.currentPlayerList());
+            return playerListResponses.select(request);
+        }
+
+        byte[] body = TelemetryPayload.writePlayerDelta(new Utf8JsonWriter(256), delta).toByteArray();
+        return response("200 OK", "Content-Type: " + TelemetryHttpServer.JSON_CONTENT_TYPE + "\r\nCache-Control: no-cache\r\n", body);
+    }
+
+    private ByteBuffer history(Request request) {
+        String headers = "Content-Type: " + TelemetryHttpServer.JSON_CONTENT_TYPE + "\r\nCache-Control: no-cache\r\n";
+        TelemetryHistory.Range range = routes.queryHistory(request.query);
+        if (range == null) {
+            return response("400 Bad Request", headers, TelemetryHttpServer.UNKNOWN_METRIC_JSON);
+        }
+
+        Utf8JsonWriter writer = new Utf8JsonWriter(Math.max(256, range.size() * 96));
+        try {
+            range.write(writer, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return response("200 OK", headers, writer.toByteArray());
+    }
+
+    private void flush(Connection connection) throws IOException {
+        ArrayDeque<ByteBuffer> output = connection.output;
+        while (!output.isEmpty()) {
+            int count = 0;
+            for (ByteBuffer buffer : output) {
+                gather[count++] = buffer;
+            }
+
+            connection.channel.write(gather, 0, count);
+            while (!output.isEmpty() && !output.peekFirst().hasRemaining()) {
+                output.removeFirst();
+            }
+
+            if (!output.isEmpty()) {
+                // Socket buffer is full; stop reading until the client drains it.
+                connection.key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+
+        if (connection.closeAfterWrite) {
+            close(connection);
+            return;
+        }
+
+        connection.key.interestOps(SelectionKey.OP_READ);
+        if (connection.input.position() > 0 && connection.pendingInput) {
+            // Pipelined requests that did not fit in the previous round.
+            connection.pendingInput = false;
+            process(connection);
+            flush(connection);
+        }
+    }
+
+    private void sweepIdleConnections() {
+        long now = System.nanoTime();
+        if (now - lastIdleSweepNanos < SELECT_TIMEOUT_MILLIS * 1_000_000L) {
+            return;
+        }
+
+        lastIdleSweepNanos = now;
+        List<Connection> idle = new ArrayList<>();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection && now - connection.lastActiveNanos > IDLE_TIMEOUT_NANOS) {
+                idle.add(connection);
+            }
+        }
+        idle.forEach(this::close);
+    }
+
+    private void close(Connection connection) {
+        if (connection.key.isValid()) {
+            connection.key.cancel();
+            connections--;
+        }
+
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+            // already closing
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (selector.isOpen()) {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            }
+        } catch (IOException | ClosedSelectorException ignored) {
+            // shutting down
+        }
+
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException ignored) {
+            // shutting down
+        }
+    }
+
+    static int indexOfHeadEnd(ByteBuffer buffer) {
+        int limit = buffer.limit() - 3;
+        for (int i = buffer.position(); i < limit; i++) {
+            if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n' && buffer.get(i + 2) == '\r' && buffer.get(i + 3) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds a one-off response on the heap.
+     */
+    static ByteBuffer response(String status, String headers, byte[] body) {
+        byte[] head = ("HTTP/1.1 " + status + "\r\n" + headers + "Content-Length: " + body.length + "\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        return ByteBuffer.allocate(head.length + body.length).put(head).put(body).flip();
+    }
+
+    /**
+     * Builds a reusable response in a read-only direct buffer. Callers hand out {@link ByteBuffer#duplicate()
+     * duplicates} so each connection has its own position over the shared bytes.
+     */
+    static ByteBuffer prepare(String status, String headers, byte[] body) {
+        ByteBuffer response = response(status, headers, body);
+        return ByteBuffer.allocateDirect(response.remaining()).put(response).flip().asReadOnlyBuffer();
+    }
+
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final InetAddress remoteAddress;
+        private final ByteBuffer input = ByteBuffer.allocate(MAX_REQUEST_HEAD_BYTES);
+        private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>(4);
+        private SelectionKey key;
+        private long lastActiveNanos = System.nanoTime();
+        private boolean closeAfterWrite;
+        private boolean pendingInput;
+
+        private Connection(SocketChannel channel, InetAddress remoteAddress) {
+            this.channel = channel;
+            this.remoteAddress = remoteAddress;
+        }
+
+        private void respond(ByteBuffer response, boolean close) {
+            output.addLast(response);
+            closeAfterWrite |= close;
+            pendingInput = output.size() >= MAX_PIPELINED_RESPONSES;
+        }
+    }
+
+    /**
+     * The four complete responses for one published payload: identity and gzip, each as 200 and 304.
+     */
+    private record PreparedPayload(EncodedPayload payload, ByteBuffer identity, ByteBuffer gzip, ByteBuffer identityNotModified, ByteBuffer gzipNotModified) {
+        static PreparedPayload refresh(PreparedPayload current, EncodedPayload payload) {
+            return refresh(current, payload, "Accept-Encoding");
+        }
+
+        static PreparedPayload refresh(PreparedPayload current, EncodedPayload payload, String vary) {
+            if (current != null && current.payload == payload) {
+                return current;
+            }
+
+            String validators = "Cache-Control: no-cache\r\nVary: " + vary + "\r\n";
+            String identityHead = "Content-Type: " + payload.contentType() + "\r\nETag: " + payload.etag(false) + "\r\n" + validators;
+            ByteBuffer identity = prepare("200 OK", identityHead, payload.identity());
+            ByteBuffer identityNotModified = notModified(payload.etag(false), validators);
+            if (payload.gzip() == null) {
+                return new PreparedPayload(payload, identity, identity, identityNotModified, identityNotModified);
+            }
+
+            String gzipHead = "Content-Type: " + payload.contentType() + "\r\nContent-Encoding: gzip\r\nETag: " + payload.etag(true) + "\r\n" + validators;
+            return new PreparedPayload(
+                    payload,
+                    identity,
+                    prepare("200 OK", gzipHead, payload.gzip()),
+                    identityNotModified,
+                    notModified(payload.etag(true), validators));
+        }
+
+        ByteBuffer select(Request request) {
+            boolean gzip = request.acceptEncoding != null && TelemetryHttpServer.acceptsGzip(request.acceptEncoding);
+            if (payload.matches(request.ifNoneMatch)) {
+                return (gzip ? gzipNotModified : identityNotModified).duplicate();
+            }
+            return (gzip ? this.gzip : identity).duplicate();
+        }
+
+        private static ByteBuffer notModified(String etag, String validators) {
+            byte[] head = ("HTTP/1.1 304 Not Modified\r\nETag: " + etag + "\r\n" + validators + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            return ByteBuffer.allocateDirect(head.length).put(head).flip().asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * The parts of a request head the cached endpoints care about.
+     */
+    static final class Request {
+        final String method;
+        final String path;
+        final String query;
+        final boolean keepAlive;
+        final boolean hasBody;
+        final String ifNoneMatch;
+        final List<String> acceptEncoding;
+        final List<String> accept;
+
+        private Request(String method, String path, String query, boolean keepAlive, boolean hasBody, String ifNoneMatch, List<String> acceptEncoding,
+                        List<String> accept) {
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.keepAlive = keepAlive;
+            this.hasBody = hasBody;
+            this.ifNoneMatch = ifNoneMatch;
+            this.acceptEncoding = acceptEncoding;
+            this.accept = accept;
+        }
+
+        /**
+         * @return the parsed head, or {@code null} when the request line is malformed
+         */
+        static Request parse(String head) {
+            // Clients may send stray line breaks between pipelined requests.
+            String[] lines = head.stripLeading().split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+                return null;
+            }
+
+            boolean http10 = requestLine[2].equals("HTTP/1.0");
+            boolean keepAlive = !http10;
+            boolean hasBody = false;
+            String ifNoneMatch = null;
+            List<String> acceptEncoding = null;
+            List<String> accept = null;
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) {
+                    return null;
+                }
+
+                String name = lines[i].substring(0, colon).trim();
+                String value = lines[i].substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Connection")) {
+                    keepAlive = http10 ? value.equalsIgnoreCase("keep-alive") : !value.equalsIgnoreCase("close");
+                } else if (name.equalsIgnoreCase("If-None-Match")) {
+                    ifNoneMatch = ifNoneMatch == null ? value : ifNoneMatch + "," + value;
+                } else if (name.equalsIgnoreCase("Accept-Encoding")) {
+                    if (acceptEncoding == null) {
+                        acceptEncoding = new ArrayList<>(1);
+                    }
+                    acceptEncoding.add(value);
+                } else if (name.equalsIgnoreCase("Accept")) {
+                    if (accept == null) {
+                        accept = new ArrayList<>(1);
+                    }
+                    accept.add(value);
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")
+                        || name.equalsIgnoreCase("Content-Length") && TelemetryHttpServer.parseLong(value, 1L) != 0L) {
+                    hasBody = true;
+                }
+            }
+
+            String target = requestLine[1];
+            int queryStart = target.indexOf('?');
+            String path = queryStart < 0 ? target : target.substring(0, queryStart);
+            String query = queryStart < 0 ? null : target.substring(queryStart + 1);
+            return new Request(requestLine[0], path, query, keepAlive, hasBody, ifNoneMatch, acceptEncoding, accept);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.Utf8JsonWriter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Pushes gauges to an OpenTelemetry collector with OTLP/HTTP in its JSON encoding.
+ * <p>
+ * A batch becomes one {@code POST /v1/metrics} request holding every sample as a data point of its metric, so a
+ * collector that was briefly slow still receives the samples that queued up meanwhile. Each request is bounded by the
+ * configured timeout; any status other than 2xx fails the batch.
+ */
+public final class OtlpHttpExporter implements TelemetryExporter {
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+    static final String METRICS_PATH = "/v1/metrics";
+    private static final String SCOPE = "mctelemetry";
+
+    private final URI uri;
+    private final Duration timeout;
+    private final HttpClient client;
+    private final Utf8JsonWriter writer = new Utf8JsonWriter(4096);
+
+    /**
+     * @param endpoint collector base URL such as {@code http://localhost:4318}; {@value #METRICS_PATH} is appended
+     *                 unless the URL already ends with it
+     */
+    public OtlpHttpExporter(URI endpoint, Duration timeout) {
+        this.uri = metricsUri(Objects.requireNonNull(endpoint, "endpoint"));
+        this.timeout = Objects.requireNonNull(timeout, "timeout");
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    static URI metricsUri(URI endpoint) {
+        String text = endpoint.toString();
+        if (text.endsWith(METRICS_PATH)) {
+            return endpoint;
+        }
+        return URI.create((text.endsWith("/") ? text.substring(0, text.length() - 1) : text) + METRICS_PATH);
+    }
+
+    @Override
+    public String name() {
+        return "otlp";
+    }
+
+    @Override
+    public void export(List<Sample> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(encode(batch)))
+                .build();
+        HttpResponse<Void> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting to " + uri, e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Collector at " + uri + " answered HTTP " + response.statusCode());
+        }
+    }
+
+    /**
+     * Renders an {@code ExportMetricsServiceRequest} with one gauge per metric name across the whole batch.
+     */
+    byte[] encode(List<Sample> batch) {
+        Map<String, Metric> metrics = new LinkedHashMap<>();
+        for (Sample sample : batch) {
+            String timeNanos = Long.toString(sample.timeMillis() * 1_000_000L);
+            ExportedMetrics.visit(sample.snapshot(), (name, unit, value, label, labelValue) -> {
+                if (Double.isFinite(value)) {
+                    metrics.computeIfAbsent(name, ignored -> new Metric(unit, new ArrayList<>()))
+                            .points().add(new Point(timeNanos, value, label, labelValue));
+                }
+            });
+        }
+
+        TelemetrySnapshot latest = batch.get(batch.size() - 1).snapshot();
+        writer.reset().beginObject();
+        writer.name("resourceMetrics").beginArray().beginObject();
+        writer.name("resource").beginObject();
+        writer.name("attributes").beginArray();
+        writeAttribute("service.name", SCOPE);
+        writeAttribute("minecraft.version", latest.minecraftVersion());
+        writeAttribute("minecraft.loader", latest.loader());
+        writer.endArray();
+        writer.endObject();
+
+        writer.name("scopeMetrics").beginArray().beginObject();
+        writer.name("scope").beginObject().name("name").value(SCOPE).endObject();
+        writer.name("metrics").beginArray();
+        for (Map.Entry<String, Metric> metric : metrics.entrySet()) {
+            writer.beginObject();
+            writer.name("name").value(SCOPE + "." + metric.getKey());
+            writer.name("unit").value(metric.getValue().unit());
+            writer.name("gauge").beginObject();
+            writer.name("dataPoints").beginArray();
+            for (Point point : metric.getValue().points()) {
+                writer.beginObject();
+                // OTLP JSON carries 64-bit integers as strings.
+                writer.name("timeUnixNano").value(point.timeNanos());
+                writer.name("asDouble").value(point.value());
+                if (point.label() != null) {
+                    writer.name("attributes").beginArray();
+                    writeAttribute(point.label(), point.labelValue());
+                    writer.endArray();
+                }
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject().endArray();
+        writer.endObject().endArray();
+        return writer.endObject().toByteArray();
+    }
+
+    private void writeAttribute(String key, String value) {
+        writer.beginObject();
+        writer.name("key").value(key);
+        writer.name("value").beginObject().name("stringValue").value(value).endObject();
+        writer.endObject();
+    }
+
+    private record Metric(String unit, List<Point> points) {
+    }
+
+    private record Point(String timeNanos, double value, String label, String labelValue) {
+    }
+}
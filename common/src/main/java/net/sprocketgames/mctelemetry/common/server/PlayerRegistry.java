@@ -0,0 +1,186 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.PlayerDelta;
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Online player list maintained from loader login/logout events rather than rebuilt on every refresh.
+ * <p>
+ * Every membership change bumps a monotonically increasing version and is kept in a bounded change log, so consumers
+ * can ask for only the joins and leaves since a version they already hold. Between changes {@link #players()} keeps
+ * returning the same immutable list, so a consumer can tell that nothing changed from the reference alone. Loaders
+ * join by profile id, which builds each player's snapshot once per session. Mutations come from the server thread;
+ * {@link #players()} and {@link #version()} are lock-free reads of immutable state for any thread.
+ */
+public final class PlayerRegistry {
+    private static final int DEFAULT_HISTORY_CAPACITY = 1024;
+
+    private final long epoch;
+    private final Map<String, PlayerSnapshot> online = new LinkedHashMap<>();
+    private final Map<UUID, PlayerSnapshot> sessions = new HashMap<>();
+    private final Change[] history;
+    private int historyStart;
+    private int historySize;
+
+    private volatile List<PlayerSnapshot> players = Collections.emptyList();
+    private volatile long version;
+
+    public PlayerRegistry() {
+        this(DEFAULT_HISTORY_CAPACITY);
+    }
+
+    public PlayerRegistry(int historyCapacity) {
+        this.epoch = System.currentTimeMillis();
+        this.history = new Change[Math.max(1, historyCapacity)];
+    }
+
+    /**
+     * Records a login, or replaces the entry for a player that is already online. Joining again with an identical
+     * snapshot changes nothing.
+     */
+    public synchronized void join(PlayerSnapshot player) {
+        Objects.requireNonNull(player, "player");
+        if (player.equals(online.get(player.uuid()))) {
+            return;
+        }
+
+        online.put(player.uuid(), player);
+        record(new Change(version + 1, player.uuid(), player));
+    }
+
+    /**
+     * Records the login of the player with profile {@code id} and returns its snapshot for the session. The hex UUID
+     * is rendered on the first join only; joining again under the same name returns the cached snapshot without a
+     * change, while a rename replaces it.
+     *
+     * @param id   profile id; {@code null} is recorded under an empty UUID
+     * @param name profile name; {@code null} is recorded as {@code unknown}
+     */
+    public synchronized PlayerSnapshot join(UUID id, String name) {
+        String resolvedName = name == null ? "unknown" : name;
+        if (id == null) {
+            PlayerSnapshot anonymous = new PlayerSnapshot(resolvedName, "");
+            join(anonymous);
+            return anonymous;
+        }
+
+        PlayerSnapshot session = sessions.get(id);
+        if (session == null || !session.name().equals(resolvedName)) {
+            session = new PlayerSnapshot(resolvedName, session == null ? PlayerSnapshot.uuidHex(id) : session.uuid());
+            sessions.put(id, session);
+        }
+        join(session);
+        return session;
+    }
+
+    public synchronized void leave(String uuid) {
+        PlayerSnapshot removed = uuid == null ? null : online.remove(uuid);
+        if (removed == null) {
+            return;
+        }
+
+        sessions.values().remove(removed);
+        record(new Change(version + 1, uuid, null));
+    }
+
+    /**
+     * Records the logout of the player with profile {@code id}, ending its session.
+     *
+     * @return the snapshot the player was online with, or {@code null} when it was not online
+     */
+    public synchronized PlayerSnapshot leave(UUID id) {
+        if (id == null) {
+            PlayerSnapshot anonymous = online.get("");
+            leave("");
+            return anonymous;
+        }
+
+        PlayerSnapshot session = sessions.remove(id);
+        if (session == null || online.remove(session.uuid()) == null) {
+            return null;
+        }
+
+        record(new Change(version + 1, session.uuid(), null));
+        return session;
+    }
+
+    /**
+     * Removes every player, e.g. when the server stops. Each removal is recorded so delta consumers see the leaves.
+     */
+    public synchronized void clear() {
+        for (String uuid : List.copyOf(online.keySet())) {
+            leave(uuid);
+        }
+        sessions.clear();
+    }
+
+    public List<PlayerSnapshot> players() {
+        return players;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the net changes after {@code sinceVersion}, or the full list when that version is not covered by the
+     * change log. A negative version or a different {@code sinceEpoch} always yields the full list.
+     */
+    public synchronized PlayerDelta changesSince(long sinceEpoch, long sinceVersion) {
+        long oldestCovered = version - historySize;
+        if (sinceEpoch != epoch || sinceVersion < oldestCovered || sinceVersion > version) {
+            return new PlayerDelta(epoch, version, true, players, Collections.emptyList());
+        }
+
+        Map<String, PlayerSnapshot> latest = new LinkedHashMap<>();
+        for (int i = (int) (sinceVersion - oldestCovered); i < historySize; i++) {
+            Change change = history[(historyStart + i) % history.length];
+            latest.remove(change.uuid());
+            latest.put(change.uuid(), change.player());
+        }
+
+        List<PlayerSnapshot> joined = new ArrayList<>();
+        List<String> left = new ArrayList<>();
+        for (Map.Entry<String, PlayerSnapshot> entry : latest.entrySet()) {
+            if (entry.getValue() == null) {
+                left.add(entry.getKey());
+            } else {
+                joined.add(entry.getValue());
+            }
+        }
+
+        return new PlayerDelta(epoch, version, false, List.copyOf(joined), List.copyOf(left));
+    }
+
+    private void record(Change change) {
+        if (historySize == history.length) {
+            history[historyStart] = change;
+            historyStart = (historyStart + 1) % history.length;
+        } else {
+            history[(historyStart + historySize) % history.length] = change;
+            historySize++;
+        }
+
+        players = List.copyOf(online.values());
+        version = change.version();
+    }
+
+    /**
+     * A join (non-null {@code player}) or leave (null {@code player}) at {@code version}.
+     */
+    private record Change(long version, String uuid, PlayerSnapshot player) {
+    }
+}
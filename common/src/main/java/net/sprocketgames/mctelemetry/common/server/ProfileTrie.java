@@ -0,0 +1,209 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Call tree of sampled stacks with interned frames, bounded to a fixed number of nodes.
+ * <p>
+ * Each distinct {@code class.method} is stored once and every node is three ints plus one slot in an open-addressing
+ * child index, so a node costs about 36 bytes plus its share of the interned names. Once {@link #maxNodes()} nodes or
+ * frames exist nothing more is added: a sample whose path leaves the existing tree is charged to the deepest node it
+ * reached and counted as {@linkplain #truncatedSamples() truncated}. Not thread-safe.
+ */
+final class ProfileTrie {
+    private static final int ROOT = 0;
+    private static final long EMPTY = -1L;
+
+    private final int maxNodes;
+    private final Map<StackTraceElement, Integer> frameIds = new HashMap<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<String> frameNames = new ArrayList<>();
+    private int[] frames;
+    private int[] parents;
+    private int[] selfSamples;
+    private long[] childKeys;
+    private int[] childNodes;
+    private int size = 1;
+    private long samples;
+    private long truncatedSamples;
+
+    ProfileTrie(int maxNodes) {
+        this.maxNodes = Math.max(2, maxNodes);
+        int initial = Math.min(this.maxNodes, 1024);
+        frames = new int[initial];
+        parents = new int[initial];
+        selfSamples = new int[initial];
+        frames[ROOT] = -1;
+        parents[ROOT] = -1;
+        childKeys = new long[tableSize(initial)];
+        childNodes = new int[childKeys.length];
+        Arrays.fill(childKeys, EMPTY);
+    }
+
+    /**
+     * Adds one sample.
+     *
+     * @param stack frames as returned by {@link Thread#getStackTrace()}, innermost first
+     */
+    void record(StackTraceElement[] stack) {
+        samples++;
+        int node = ROOT;
+        for (int i = stack.length - 1; i >= 0; i--) {
+            int frame = frameId(stack[i]);
+            int child = frame < 0 ? -1 : child(node, frame);
+            if (child < 0) {
+                truncatedSamples++;
+                break;
+            }
+            node = child;
+        }
+        selfSamples[node]++;
+    }
+
+    long samples() {
+        return samples;
+    }
+
+    long truncatedSamples() {
+        return truncatedSamples;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int maxNodes() {
+        return maxNodes;
+    }
+
+    void clear() {
+        frameIds.clear();
+        nameIds.clear();
+        frameNames.clear();
+        Arrays.fill(selfSamples, 0, size, 0);
+        Arrays.fill(childKeys, EMPTY);
+        size = 1;
+        samples = 0L;
+        truncatedSamples = 0L;
+    }
+
+    /**
+     * Renders the tree in the collapsed-stack format read by flame graph tools: one {@code root;...;leaf count} line per
+     * distinct stack, outermost frame first.
+     */
+    byte[] collapsed() {
+        StringBuilder text = new StringBuilder(size * 64);
+        int[] path = new int[64];
+        for (int node = 1; node < size; node++) {
+            if (selfSamples[node] == 0) {
+                continue;
+            }
+
+            int depth = 0;
+            for (int current = node; current != ROOT; current = parents[current]) {
+                if (depth == path.length) {
+                    path = Arrays.copyOf(path, depth * 2);
+                }
+                path[depth++] = frames[current];
+            }
+            for (int i = depth - 1; i >= 0; i--) {
+                text.append(frameNames.get(path[i]));
+                text.append(i == 0 ? ' ' : ';');
+            }
+            text.append(selfSamples[node]).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the interned id of the element's {@code class.method}, or {@code -1} once {@link #maxNodes()} distinct
+     * frames have been seen
+     */
+    private int frameId(StackTraceElement element) {
+        Integer id = frameIds.get(element);
+        if (id != null) {
+            return id;
+        }
+
+        // Elements differing only by line share a name and therefore a node.
+        String name = element.getClassName() + '.' + element.getMethodName();
+        Integer named = nameIds.get(name);
+        if (named == null) {
+            if (frameNames.size() >= maxNodes) {
+                return -1;
+            }
+            named = frameNames.size();
+            frameNames.add(name);
+            nameIds.put(name, named);
+        }
+        if (frameIds.size() < maxNodes) {
+            frameIds.put(element, named);
+        }
+        return named;
+    }
+
+    /**
+     * @return the child of {@code parent} for {@code frame}, creating it while below the cap, or {@code -1}
+     */
+    private int child(int parent, int frame) {
+        long key = (long) parent << 32 | (frame & 0xFFFFFFFFL);
+        int mask = childKeys.length - 1;
+        int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (childKeys[slot] != EMPTY) {
+            if (childKeys[slot] == key) {
+                return childNodes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size >= maxNodes) {
+            return -1;
+        }
+
+        int node = size++;
+        if (node == frames.length) {
+            int capacity = Math.min(maxNodes, frames.length * 2);
+            frames = Arrays.copyOf(frames, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            selfSamples = Arrays.copyOf(selfSamples, capacity);
+        }
+        frames[node] = frame;
+        parents[node] = parent;
+        selfSamples[node] = 0;
+        childKeys[slot] = key;
+        childNodes[slot] = node;
+        if (size * 2 > childKeys.length) {
+            rehash();
+        }
+        return node;
+    }
+
+    private void rehash() {
+        long[] oldKeys = childKeys;
+        int[] oldNodes = childNodes;
+        childKeys = new long[oldKeys.length * 2];
+        childNodes = new int[childKeys.length];
+        Arrays.fill(childKeys, EMPTY);
+        int mask = childKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) {
+                continue;
+            }
+            int slot = Long.hashCode(oldKeys[i] * 0x9E3779B97F4A7C15L) & mask;
+            while (childKeys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            childKeys[slot] = oldKeys[i];
+            childNodes[slot] = oldNodes[i];
+        }
+    }
+
+    private static int tableSize(int nodes) {
+        return Integer.highestOneBit(Math.max(4, nodes * 2 - 1)) << 1;
+    }
+}
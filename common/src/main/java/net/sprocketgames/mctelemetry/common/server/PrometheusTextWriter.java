@@ -0,0 +1,99 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds Prometheus text exposition format (version 0.0.4) into a reusable buffer.
+ */
+final class PrometheusTextWriter {
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final StringBuilder text = new StringBuilder(2048);
+
+    PrometheusTextWriter reset() {
+        text.setLength(0);
+        return this;
+    }
+
+    /**
+     * Starts a metric family with its {@code HELP} and {@code TYPE} lines.
+     */
+    PrometheusTextWriter family(String name, String type, String help) {
+        text.append("# HELP ").append(name).append(' ');
+        appendEscaped(help, false);
+        text.append('\n').append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    PrometheusTextWriter sample(String name, double value) {
+        text.append(name).append(' ');
+        appendValue(value);
+        return this;
+    }
+
+    /**
+     * Writes a sample with labels given as alternating name/value pairs.
+     */
+    PrometheusTextWriter sample(String name, double value, String... labels) {
+        text.append(name).append('{');
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(labels[i]).append("=\"");
+            appendEscaped(labels[i + 1], true);
+            text.append('"');
+        }
+        text.append("} ");
+        appendValue(value);
+        return this;
+    }
+
+    /**
+     * Convenience for a single-sample gauge family, skipped entirely when the value is unavailable.
+     */
+    PrometheusTextWriter gauge(String name, String help, Double value) {
+        if (value == null) {
+            return this;
+        }
+
+        return family(name, "gauge", help).sample(name, value);
+    }
+
+    byte[] toByteArray() {
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+
+    private void appendValue(double value) {
+        if (Double.isNaN(value)) {
+            text.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            text.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1.0e15) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+
+    private void appendEscaped(String value, boolean escapeQuotes) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                text.append("\\\\");
+            } else if (c == '\n') {
+                text.append("\\n");
+            } else if (c == '"' && escapeQuotes) {
+                text.append("\\\"");
+            } else {
+                text.append(c);
+            }
+        }
+    }
+}
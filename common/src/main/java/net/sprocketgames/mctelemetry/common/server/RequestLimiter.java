@@ -0,0 +1,186 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control in front of every telemetry handler.
+ * <p>
+ * Each remote address gets a token bucket; requests beyond it are answered with {@code 429} and a {@code Retry-After}
+ * hint before any handler runs. At most {@value #MAX_TRACKED_CLIENTS} buckets are kept and the least recently used one
+ * is dropped first, so a scan from many addresses costs constant time per request and bounded memory. Short requests
+ * additionally need one of a fixed number of concurrency permits and are shed with {@code 503} when none is free.
+ * Long-lived streams skip the permit because they have their own subscriber cap. Exchanges the executor could not
+ * queue arrive on its overflow thread and are shed with {@code 503} as well.
+ */
+final class RequestLimiter {
+    static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 16;
+    static final double DEFAULT_REQUESTS_PER_SECOND = 20.0;
+    static final int DEFAULT_BURST = 40;
+    static final String RATE_LIMIT_PROPERTY = "MCTELEMETRY_RATE_LIMIT";
+
+    static final int MAX_TRACKED_CLIENTS = 1024;
+
+    private final Semaphore permits;
+    private final double tokensPerNano;
+    private final int burst;
+    private final LongSupplier clock;
+    // Access-ordered, guarded by itself.
+    private final Map<InetAddress, TokenBucket> buckets = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<InetAddress, TokenBucket> eldest) {
+            return size() > MAX_TRACKED_CLIENTS;
+        }
+    };
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+
+    RequestLimiter() {
+        this(DEFAULT_MAX_CONCURRENT_REQUESTS, resolveRequestsPerSecond(), DEFAULT_BURST, System::nanoTime);
+    }
+
+    /**
+     * @param requestsPerSecond sustained rate per remote address; zero or less disables rate limiting
+     */
+    RequestLimiter(int maxConcurrentRequests, double requestsPerSecond, int burst, LongSupplier clock) {
+        this.permits = new Semaphore(Math.max(1, maxConcurrentRequests));
+        this.tokensPerNano = requestsPerSecond > 0 ? requestsPerSecond / 1_000_000_000.0 : 0.0;
+        this.burst = Math.max(1, burst);
+        this.clock = clock;
+    }
+
+    /**
+     * @param holdPermit whether the request occupies a concurrency permit while its handler runs
+     */
+    Filter filter(boolean holdPermit) {
+        return new Filter() {
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                if (TelemetryHttpExecutor.overflowing()) {
+                    shed.incrementAndGet();
+                    reject(exchange, 503, 1L);
+                    return;
+                }
+
+                long retryAfterSeconds = tryConsume(remoteAddress(exchange));
+                if (retryAfterSeconds > 0) {
+                    rateLimited.incrementAndGet();
+                    reject(exchange, 429, retryAfterSeconds);
+                    return;
+                }
+
+                if (!holdPermit) {
+                    chain.doFilter(exchange);
+                    return;
+                }
+
+                if (!permits.tryAcquire()) {
+                    shed.incrementAndGet();
+                    reject(exchange, 503, 1L);
+                    return;
+                }
+
+                try {
+                    chain.doFilter(exchange);
+                } finally {
+                    permits.release();
+                }
+            }
+
+            @Override
+            public String description() {
+                return "MCTelemetry rate limiting and load shedding";
+            }
+        };
+    }
+
+    /**
+     * Takes one token for {@code address}.
+     *
+     * @return {@code 0} when the request may proceed, otherwise the number of seconds until a token is available
+     */
+    long tryConsume(InetAddress address) {
+        if (tokensPerNano == 0.0 || address == null) {
+            return 0L;
+        }
+
+        long now = clock.getAsLong();
+        TokenBucket bucket;
+        synchronized (buckets) {
+            bucket = buckets.computeIfAbsent(address, ignored -> new TokenBucket(burst, now));
+        }
+        return bucket.tryConsume(now, tokensPerNano, burst);
+    }
+
+    int trackedClients() {
+        synchronized (buckets) {
+            return buckets.size();
+        }
+    }
+
+    long rateLimitedRequests() {
+        return rateLimited.get();
+    }
+
+    long shedRequests() {
+        return shed.get();
+    }
+
+    private static double resolveRequestsPerSecond() {
+        String property = System.getProperty(RATE_LIMIT_PROPERTY);
+        if (property == null || property.isBlank()) {
+            return DEFAULT_REQUESTS_PER_SECOND;
+        }
+
+        try {
+            return Double.parseDouble(property.trim());
+        } catch (NumberFormatException ignored) {
+            return DEFAULT_REQUESTS_PER_SECOND;
+        }
+    }
+
+    private static InetAddress remoteAddress(HttpExchange exchange) {
+        InetSocketAddress remote = exchange.getRemoteAddress();
+        return remote == null ? null : remote.getAddress();
+    }
+
+    private static void reject(HttpExchange exchange, int status, long retryAfterSeconds) throws IOException {
+        try {
+            exchange.getResponseHeaders().set("Retry-After", Long.toString(retryAfterSeconds));
+            exchange.sendResponseHeaders(status, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static final class TokenBucket {
+        private double tokens;
+        private long updatedNanos;
+
+        private TokenBucket(int burst, long now) {
+            this.tokens = burst;
+            this.updatedNanos = now;
+        }
+
+        synchronized long tryConsume(long now, double tokensPerNano, int burst) {
+            tokens = Math.min(burst, tokens + (now - updatedNanos) * tokensPerNano);
+            updatedNanos = now;
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return 0L;
+            }
+
+            double nanosUntilToken = (1.0 - tokens) / tokensPerNano;
+            return Math.max(1L, (long) Math.ceil(nanosUntilToken / 1_000_000_000.0));
+        }
+    }
+}
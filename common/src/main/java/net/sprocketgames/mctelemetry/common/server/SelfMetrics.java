@@ -0,0 +1,241 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.Utf8JsonWriter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What the telemetry mod itself costs, served at {@code /telemetry/self}.
+ * <p>
+ * Server-thread figures cover everything the service does in its tick hook and the time spent capturing a refresh;
+ * publisher-thread figures cover turning a capture into the served payloads. Each {@link Cost} has a single writer
+ * thread, so its fields are plain volatile longs. HTTP figures are recorded by the request threads into
+ * {@link LongAdder}s. Bytes allocated are read from the writer thread's allocation counter where the JVM provides one.
+ */
+final class SelfMetrics {
+    /**
+     * Upper bounds of the HTTP latency histogram buckets, in milliseconds.
+     */
+    static final List<Double> LATENCY_BUCKETS_MS = List.of(0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0, 25.0, 100.0);
+    private static final long[] LATENCY_BOUNDS_NANOS = new long[LATENCY_BUCKETS_MS.size()];
+
+    static {
+        for (int i = 0; i < LATENCY_BOUNDS_NANOS.length; i++) {
+            LATENCY_BOUNDS_NANOS[i] = Math.round(LATENCY_BUCKETS_MS.get(i) * 1_000_000.0);
+        }
+    }
+
+    private final com.sun.management.ThreadMXBean allocation = allocationCounter();
+    private final Cost tick = new Cost();
+    private final Cost capture = new Cost();
+    private final Cost publish = new Cost();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder[] latencyBuckets = new LongAdder[LATENCY_BOUNDS_NANOS.length + 1];
+    private volatile long tickBudgetNanos;
+    private volatile long ticksOverBudget;
+    private volatile long censusDeferrals;
+    private volatile long dimensionSkips;
+
+    SelfMetrics() {
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            latencyBuckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return the calling thread's allocated bytes so far, or {@code -1} when the JVM does not count them
+     */
+    long allocatedBytes() {
+        return allocation == null ? -1L : allocation.getCurrentThreadAllocatedBytes();
+    }
+
+    Cost tick() {
+        return tick;
+    }
+
+    Cost capture() {
+        return capture;
+    }
+
+    Cost publish() {
+        return publish;
+    }
+
+    void tickBudgetNanos(long budgetNanos) {
+        tickBudgetNanos = budgetNanos;
+    }
+
+    /**
+     * Server thread only.
+     */
+    void recordTick(long nanos) {
+        tick.record(nanos, -1L);
+        long budget = tickBudgetNanos;
+        if (budget > 0 && nanos > budget) {
+            ticksOverBudget++;
+        }
+    }
+
+    /**
+     * Server thread only: a census slice was skipped because the tick budget was spent.
+     */
+    void censusDeferred() {
+        censusDeferrals++;
+    }
+
+    /**
+     * Server thread only: a refresh was captured without per-dimension load to stay within the tick budget.
+     */
+    void dimensionsSkipped() {
+        dimensionSkips++;
+    }
+
+    void recordRequest(long nanos, long bytes) {
+        requests.increment();
+        bytesServed.add(Math.max(0L, bytes));
+        latencyNanos.add(nanos);
+        int bucket = 0;
+        while (bucket < LATENCY_BOUNDS_NANOS.length && nanos > LATENCY_BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        latencyBuckets[bucket].increment();
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    long censusDeferrals() {
+        return censusDeferrals;
+    }
+
+    long dimensionSkips() {
+        return dimensionSkips;
+    }
+
+    byte[] render() {
+        Utf8JsonWriter writer = new Utf8JsonWriter(1024);
+        writer.beginObject();
+
+        long budget = tickBudgetNanos;
+        writer.name("budget").beginObject();
+        writer.name("tickMicros");
+        if (budget > 0) {
+            writer.value(budget / 1_000L);
+        } else {
+            writer.nullValue();
+        }
+        writer.name("ticksOverBudget").value(ticksOverBudget);
+        writer.name("censusDeferrals").value(censusDeferrals);
+        writer.name("dimensionSkips").value(dimensionSkips);
+        writer.endObject();
+
+        tick.write(writer.name("serverTick"), false);
+        capture.write(writer.name("capture"), allocation != null);
+        publish.write(writer.name("publish"), allocation != null);
+
+        long count = requests.sum();
+        writer.name("http").beginObject();
+        writer.name("requests").value(count);
+        writer.name("bytesServed").value(bytesServed.sum());
+        writer.name("latencyMs").beginObject();
+        writer.name("sum").value(round(latencyNanos.sum() / 1_000_000.0));
+        writer.name("count").value(count);
+        writer.name("buckets").beginArray();
+        long cumulative = 0L;
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            cumulative += latencyBuckets[i].sum();
+            writer.beginObject();
+            writer.name("le");
+            if (i < LATENCY_BUCKETS_MS.size()) {
+                writer.value(LATENCY_BUCKETS_MS.get(i));
+            } else {
+                writer.value("+Inf");
+            }
+            writer.name("count").value(cumulative);
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.endObject();
+
+        return writer.endObject().toByteArray();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean counter && counter.isThreadAllocatedMemorySupported()
+                    && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter;
+            }
+        } catch (LinkageError | RuntimeException ignored) {
+            // Not a HotSpot-compatible JVM; allocation is reported as null.
+        }
+        return null;
+    }
+
+    /**
+     * Running cost of one kind of work, written by a single thread.
+     */
+    static final class Cost {
+        private volatile long count;
+        private volatile long totalNanos;
+        private volatile long lastNanos;
+        private volatile long maxNanos;
+        private volatile long totalBytes;
+        private volatile long lastBytes = -1L;
+
+        /**
+         * @param allocatedBytes bytes allocated by the work, or {@code -1} when unknown
+         */
+        void record(long nanos, long allocatedBytes) {
+            count++;
+            totalNanos += nanos;
+            lastNanos = nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+            if (allocatedBytes >= 0) {
+                totalBytes += allocatedBytes;
+                lastBytes = allocatedBytes;
+            }
+        }
+
+        long count() {
+            return count;
+        }
+
+        long totalNanos() {
+            return totalNanos;
+        }
+
+        long maxNanos() {
+            return maxNanos;
+        }
+
+        private void write(Utf8JsonWriter writer, boolean allocation) {
+            long n = count;
+            writer.beginObject();
+            writer.name("count").value(n);
+            writer.name("totalMs").value(round(totalNanos / 1_000_000.0));
+            writer.name("avgMicros").value(n == 0 ? 0.0 : round(totalNanos / 1_000.0 / n));
+            writer.name("lastMicros").value(round(lastNanos / 1_000.0));
+            writer.name("maxMicros").value(round(maxNanos / 1_000.0));
+            if (allocation) {
+                writer.name("avgAllocatedBytes").value(n == 0 ? 0L : totalBytes / n);
+                writer.name("lastAllocatedBytes").value(Math.max(0L, lastBytes));
+            }
+            writer.endObject();
+        }
+    }
+}
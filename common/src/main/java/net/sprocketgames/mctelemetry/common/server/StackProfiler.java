@@ -0,0 +1,150 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import org.slf4j.Logger;
+
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * On-demand sampling profiler for the server thread.
+ * <p>
+ * A daemon thread takes the server thread's stack at a fixed rate with {@link Thread#getStackTrace()} and folds it into
+ * a {@link ProfileTrie}. The server thread does no profiling work itself; the cost it sees is the brief safepoint each
+ * stack walk needs. A profile stops on its own after its duration, and the trie never grows past
+ * {@link #MAX_NODES} nodes, so a forgotten profile cannot run or grow indefinitely. The result stays readable until the
+ * next profile starts.
+ */
+public final class StackProfiler {
+    public static final int DEFAULT_RATE_HZ = 100;
+    public static final int MAX_RATE_HZ = 1000;
+    public static final int DEFAULT_DURATION_SECONDS = 30;
+    public static final int MAX_DURATION_SECONDS = 300;
+    /**
+     * Roughly 2.5 MiB of trie plus the interned frame names.
+     */
+    static final int MAX_NODES = 65_536;
+
+    private final Logger logger;
+    private final Supplier<Thread> target;
+    private final ProfileTrie trie;
+
+    private Thread sampler;
+    private volatile boolean stopRequested;
+    private long startedMillis;
+    private long stoppedMillis;
+    private int rateHz;
+
+    /**
+     * @param target supplies the thread to sample, or {@code null} while it is unknown
+     */
+    public StackProfiler(Logger logger, Supplier<Thread> target) {
+        this(logger, target, MAX_NODES);
+    }
+
+    StackProfiler(Logger logger, Supplier<Thread> target, int maxNodes) {
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.target = Objects.requireNonNull(target, "target");
+        this.trie = new ProfileTrie(maxNodes);
+    }
+
+    /**
+     * Discards the previous profile and starts sampling. Rate and duration are clamped to {@link #MAX_RATE_HZ} and
+     * {@link #MAX_DURATION_SECONDS}.
+     *
+     * @return {@code false} when a profile is already running or the target thread is unknown
+     */
+    public synchronized boolean start(int rateHz, int durationSeconds) {
+        Thread thread = target.get();
+        if (running() || thread == null || !thread.isAlive()) {
+            return false;
+        }
+
+        int rate = Math.max(1, Math.min(MAX_RATE_HZ, rateHz));
+        long durationNanos = Math.max(1, Math.min(MAX_DURATION_SECONDS, durationSeconds)) * 1_000_000_000L;
+        trie.clear();
+        this.rateHz = rate;
+        startedMillis = System.currentTimeMillis();
+        stoppedMillis = 0L;
+        stopRequested = false;
+
+        sampler = new Thread(() -> sample(thread, 1_000_000_000L / rate, durationNanos), "MCTelemetry-Profiler");
+        sampler.setDaemon(true);
+        sampler.start();
+        logger.info("Profiling {} at {} Hz for up to {} s", thread.getName(), rate, durationNanos / 1_000_000_000L);
+        return true;
+    }
+
+    /**
+     * Stops the running profile, if any, and waits briefly for the sampler to finish its current sample.
+     */
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            current = sampler;
+            stopRequested = true;
+        }
+
+        if (current != null) {
+            LockSupport.unpark(current);
+            try {
+                current.join(1_000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public synchronized boolean running() {
+        return sampler != null && sampler.isAlive();
+    }
+
+    /**
+     * @return the current or last profile as collapsed stacks, empty before the first one
+     */
+    public synchronized byte[] collapsed() {
+        return trie.collapsed();
+    }
+
+    public synchronized Status status() {
+        return new Status(running(), rateHz, startedMillis, stoppedMillis, trie.samples(), trie.truncatedSamples(), trie.size() - 1);
+    }
+
+    private void sample(Thread thread, long intervalNanos, long durationNanos) {
+        long start = System.nanoTime();
+        long next = start;
+        try {
+            while (!stopRequested && thread.isAlive() && System.nanoTime() - start < durationNanos) {
+                StackTraceElement[] stack = thread.getStackTrace();
+                synchronized (this) {
+                    trie.record(stack);
+                }
+
+                next += intervalNanos;
+                long delay = next - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                } else {
+                    // Fell behind (e.g. a long safepoint); skip the missed samples instead of bursting.
+                    next = System.nanoTime();
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Profiler sampling failed; stopping the profile", e);
+        } finally {
+            synchronized (this) {
+                stoppedMillis = System.currentTimeMillis();
+                sampler = null;
+                logger.info("Profile finished: {} samples, {} nodes, {} truncated", trie.samples(), trie.size() - 1, trie.truncatedSamples());
+            }
+        }
+    }
+
+    /**
+     * @param stoppedMillis wall-clock time the last profile ended, or {@code 0} while it runs
+     * @param nodes         distinct call-tree nodes, capped at {@link #MAX_NODES}
+     * @param truncated     samples whose stacks were cut short because the cap was reached
+     */
+    public record Status(boolean running, int rateHz, long startedMillis, long stoppedMillis, long samples, long truncated, int nodes) {
+    }
+}
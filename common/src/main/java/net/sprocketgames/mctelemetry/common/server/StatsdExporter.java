@@ -0,0 +1,202 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes gauges to a StatsD daemon over UDP as {@code prefix.name[.label]:value|g} lines.
+ * <p>
+ * Gauges are point-in-time, so only the newest sample of a batch is sent. Lines are packed into datagrams of at most
+ * {@link #MAX_DATAGRAM_BYTES}, which fits a typical Ethernet MTU without fragmentation. Sending never waits for the
+ * daemon; an unreachable one simply loses the datagrams. The daemon's host is resolved again after a failed export
+ * and every {@link #RESOLVE_INTERVAL_NANOS}, so a name that did not resolve at startup, or that moved, is picked up
+ * without a restart; the {@link ExportPipeline} logs the failure once until it recovers.
+ */
+public final class StatsdExporter implements TelemetryExporter {
+    public static final String DEFAULT_PREFIX = "mctelemetry";
+    static final int MAX_DATAGRAM_BYTES = 1432;
+    static final long RESOLVE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final String host;
+    private final int port;
+    private final String prefix;
+    private final ByteBuffer datagram = ByteBuffer.allocate(MAX_DATAGRAM_BYTES);
+    private final StringBuilder line = new StringBuilder(128);
+    private DatagramChannel channel;
+    private InetSocketAddress target;
+    private long resolvedNanos;
+    private boolean resolveAgain;
+
+    /**
+     * @param prefix first path segment(s) of every metric, e.g. {@code mctelemetry.survival}; blank for
+     *               {@value #DEFAULT_PREFIX}
+     */
+    public StatsdExporter(InetSocketAddress target, String prefix) {
+        Objects.requireNonNull(target, "target");
+        this.host = target.getHostString();
+        this.port = target.getPort();
+        this.target = target;
+        this.resolvedNanos = System.nanoTime();
+        this.prefix = prefix == null || prefix.isBlank() ? DEFAULT_PREFIX : prefix.trim();
+    }
+
+    /**
+     * Parses {@code host:port}.
+     *
+     * @throws IllegalArgumentException when the address is malformed
+     */
+    public static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0 || colon == address.length() - 1) {
+            throw new IllegalArgumentException("Expected host:port but got '" + address + "'");
+        }
+
+        int port;
+        try {
+            port = Integer.parseInt(address.substring(colon + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid StatsD port in '" + address + "'");
+        }
+        if (port < 1 || port > 65_535) {
+            throw new IllegalArgumentException("StatsD port out of range in '" + address + "'");
+        }
+        return new InetSocketAddress(address.substring(0, colon).trim(), port);
+    }
+
+    @Override
+    public String name() {
+        return "statsd";
+    }
+
+    @Override
+    public void export(List<Sample> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        resolve();
+        if (channel == null) {
+            channel = DatagramChannel.open();
+        }
+
+        try {
+            send(batch.get(batch.size() - 1));
+        } catch (IOException e) {
+            resolveAgain = true;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to release.
+            }
+            channel = null;
+        }
+    }
+
+    private void resolve() throws IOException {
+        long now = System.nanoTime();
+        if (!target.isUnresolved() && !resolveAgain && now - resolvedNanos < RESOLVE_INTERVAL_NANOS) {
+            return;
+        }
+
+        InetSocketAddress resolved = new InetSocketAddress(host, port);
+        resolvedNanos = now;
+        if (resolved.isUnresolved()) {
+            // Keep sending to the last known address, if there is one, until the name resolves again.
+            resolveAgain = true;
+            if (target.isUnresolved()) {
+                throw new IOException("Cannot resolve StatsD host " + host);
+            }
+            return;
+        }
+        target = resolved;
+        resolveAgain = false;
+    }
+
+    private void send(Sample sample) throws IOException {
+        datagram.clear();
+        IOException[] failure = new IOException[1];
+        ExportedMetrics.visit(sample.snapshot(), (name, unit, value, label, labelValue) -> {
+            if (failure[0] != null || !Double.isFinite(value)) {
+                return;
+            }
+
+            line.setLength(0);
+            line.append(prefix).append('.').append(name);
+            if (label != null) {
+                line.append('.').append(sanitize(labelValue));
+            }
+            line.append(':');
+            appendValue(line, value);
+            line.append("|g");
+            try {
+                append(line.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        flush();
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        int needed = datagram.position() == 0 ? bytes.length : bytes.length + 1;
+        if (datagram.remaining() < needed) {
+            flush();
+        }
+        if (bytes.length > datagram.capacity()) {
+            return;
+        }
+
+        if (datagram.position() > 0) {
+            datagram.put((byte) '\n');
+        }
+        datagram.put(bytes);
+    }
+
+    private void flush() throws IOException {
+        if (datagram.position() == 0) {
+            return;
+        }
+
+        datagram.flip();
+        channel.send(datagram, target);
+        datagram.clear();
+    }
+
+    private static void appendValue(StringBuilder out, double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    /**
+     * Keeps metric path segments to characters every StatsD implementation accepts: {@code minecraft:overworld}
+     * becomes {@code minecraft_overworld} and {@code 0.95} becomes {@code 0_95}.
+     */
+    static String sanitize(String segment) {
+        StringBuilder out = new StringBuilder(segment.length());
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            out.append(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == '-' ? c : '_');
+        }
+        return out.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,143 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.CensusSnapshot;
+import net.sprocketgames.mctelemetry.common.DimensionSnapshot;
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reusable buffer holding the raw values captured on the server thread for a single telemetry refresh.
+ * <p>
+ * Captures are recycled between refreshes, so only the minimum raw data is stored here; rounding and serialization
+ * happen later on the publisher thread.
+ */
+final class TelemetryCapture {
+    private final ArrayList<PlayerSnapshot> players;
+    private List<PlayerSnapshot> sharedPlayers;
+    private final ArrayList<DimensionSnapshot> dimensions = new ArrayList<>();
+    private final TickTimeHistogram tickTimes = new TickTimeHistogram();
+
+    private double averageTickTimeMs;
+    private double allocatedBytesPerTick;
+    private CensusSnapshot census;
+    private boolean detailedLogging;
+    private boolean failed;
+    private boolean fresh;
+    private long sequence;
+
+    TelemetryCapture(int playerCapacity) {
+        this.players = new ArrayList<>(Math.max(0, playerCapacity));
+        reset(false);
+    }
+
+    void reset(boolean detailedLogging) {
+        players.clear();
+        sharedPlayers = null;
+        dimensions.clear();
+        averageTickTimeMs = Double.NaN;
+        allocatedBytesPerTick = Double.NaN;
+        census = null;
+        this.detailedLogging = detailedLogging;
+        failed = false;
+    }
+
+    /**
+     * The captured players: the list given to {@link #usePlayers} when there is one, otherwise {@link #playerBuffer}.
+     */
+    List<PlayerSnapshot> players() {
+        return sharedPlayers != null ? sharedPlayers : players;
+    }
+
+    /**
+     * Buffer for sources that append their players rather than share a list.
+     */
+    List<PlayerSnapshot> playerBuffer() {
+        return players;
+    }
+
+    /**
+     * Captures {@code players} by reference instead of copying it into the buffer. The list must stay unmodified until
+     * the next {@link #reset}.
+     */
+    void usePlayers(List<PlayerSnapshot> players) {
+        this.sharedPlayers = players;
+    }
+
+    /**
+     * Per-level load with unrounded tick times.
+     */
+    List<DimensionSnapshot> dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Tick durations recorded since the previous capture; filled by {@link TickTimeHistogram#transferTo}.
+     */
+    TickTimeHistogram tickTimes() {
+        return tickTimes;
+    }
+
+    double averageTickTimeMs() {
+        return averageTickTimeMs;
+    }
+
+    void setAverageTickTimeMs(double averageTickTimeMs) {
+        this.averageTickTimeMs = averageTickTimeMs;
+    }
+
+    /**
+     * Server-thread allocation since the previous capture, or {@code NaN} when JVM metrics are off.
+     */
+    double allocatedBytesPerTick() {
+        return allocatedBytesPerTick;
+    }
+
+    void setAllocatedBytesPerTick(double allocatedBytesPerTick) {
+        this.allocatedBytesPerTick = allocatedBytesPerTick;
+    }
+
+    CensusSnapshot census() {
+        return census;
+    }
+
+    void setCensus(CensusSnapshot census) {
+        this.census = census;
+    }
+
+    boolean detailedLogging() {
+        return detailedLogging;
+    }
+
+    boolean failed() {
+        return failed;
+    }
+
+    void markFailed() {
+        players.clear();
+        sharedPlayers = null;
+        dimensions.clear();
+        averageTickTimeMs = Double.NaN;
+        failed = true;
+    }
+
+    boolean fresh() {
+        return fresh;
+    }
+
+    void setFresh(boolean fresh) {
+        this.fresh = fresh;
+    }
+
+    /**
+     * Position of this capture among the service's refreshes, so callers can wait for it to be published.
+     */
+    long sequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+}
@@ -1,9 +1,12 @@
 package net.sprocketgames.mctelemetry.common.server;
 
+import net.sprocketgames.mctelemetry.common.DimensionSnapshot;
+import net.sprocketgames.mctelemetry.common.JvmSnapshot;
 import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
 import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -21,43 +24,122 @@ public final class TelemetryCollector {
         Objects.requireNonNull(source, "source");
         Objects.requireNonNull(logger, "logger");
 
-        List<PlayerSnapshot> players = safePlayers(source, detailedLogging, logger);
-        TickMetrics metrics = readTickMetrics(source, detailedLogging, logger);
+        TelemetryCapture capture = new TelemetryCapture(0);
+        capture(source, capture, detailedLogging, logger);
+        return toSnapshot(capture, logger, mcVersion, loaderId);
+    }
+
+    /**
+     * Copies the raw values needed for a refresh into {@code capture}. Intended to run on the server thread, so it does
+     * no rounding or serialization.
+     */
+    static void capture(TelemetrySource source, TelemetryCapture capture, boolean detailedLogging, Logger logger) {
+        capture(source, capture, true, detailedLogging, logger);
+    }
+
+    /**
+     * @param dimensions whether to capture per-dimension load too; without it {@link #captureDimensions} can add it
+     *                   to the same capture later
+     */
+    static void capture(TelemetrySource source, TelemetryCapture capture, boolean dimensions, boolean detailedLogging, Logger logger) {
+        capture.reset(detailedLogging);
+        capturePlayers(source, capture, detailedLogging, logger);
+        capture.setAverageTickTimeMs(captureAverageTickTime(source, detailedLogging, logger));
+        if (dimensions) {
+            captureDimensions(source, capture, logger);
+        }
+    }
+
+    /**
+     * Adds per-dimension load to a capture taken without it. Server thread only.
+     */
+    static void captureDimensions(TelemetrySource source, TelemetryCapture capture, Logger logger) {
+        captureDimensions(source, capture.dimensions(), capture.detailedLogging(), logger);
+    }
 
-        return TelemetrySnapshot.of(mcVersion, loaderId, players, metrics.mspt(), metrics.tps());
+    /**
+     * Turns a raw capture into an immutable snapshot. Safe to call off the server thread.
+     */
+    static TelemetrySnapshot toSnapshot(TelemetryCapture capture, Logger logger, String mcVersion, String loaderId) {
+        return toSnapshot(capture, null, logger, mcVersion, loaderId);
     }
 
-    private static List<PlayerSnapshot> safePlayers(TelemetrySource source, boolean detailedLogging, Logger logger) {
+    /**
+     * @param jvm JVM state read on the calling thread, or {@code null} when JVM metrics are off
+     */
+    static TelemetrySnapshot toSnapshot(TelemetryCapture capture, JvmSnapshot jvm, Logger logger, String mcVersion, String loaderId) {
+        // A shared immutable list passes through List.copyOf as-is.
+        List<PlayerSnapshot> players = capture.players().isEmpty() ? Collections.emptyList() : List.copyOf(capture.players());
+        TickMetrics metrics = tickMetrics(capture.averageTickTimeMs(), capture.detailedLogging(), logger);
+
+        return TelemetrySnapshot.of(mcVersion, loaderId, players, metrics.mspt(), metrics.tps(), capture.tickTimes().toStats(),
+                roundDimensions(capture.dimensions()), capture.census(), jvm);
+    }
+
+    private static List<DimensionSnapshot> roundDimensions(List<DimensionSnapshot> captured) {
+        if (captured.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<DimensionSnapshot> dimensions = new ArrayList<>(captured.size());
+        for (DimensionSnapshot dimension : captured) {
+            Double mspt = dimension.mspt() == null || dimension.mspt().isNaN() ? null : roundToTenth(dimension.mspt());
+            dimensions.add(new DimensionSnapshot(dimension.id(), mspt, dimension.loadedChunks(), dimension.entities(), dimension.players()));
+        }
+        return dimensions;
+    }
+
+    private static void capturePlayers(TelemetrySource source, TelemetryCapture capture, boolean detailedLogging, Logger logger) {
         try {
-            List<PlayerSnapshot> players = source.onlinePlayers();
-            if (players == null || players.isEmpty()) {
+            List<PlayerSnapshot> shared = source.sharedOnlinePlayers();
+            if (shared != null) {
+                capture.usePlayers(shared);
+            } else {
+                source.appendOnlinePlayers(capture.playerBuffer());
+            }
+
+            int online = capture.players().size();
+            if (online == 0) {
                 logDetailed(detailedLogging, logger, "No online players detected; telemetry payload will contain an empty player list");
-                return Collections.emptyList();
+                return;
             }
 
-            logDetailed(detailedLogging, logger, "Snapshotting {} online player(s) for telemetry", players.size());
-            return List.copyOf(players);
+            logDetailed(detailedLogging, logger, "Snapshotting {} online player(s) for telemetry", online);
         } catch (Exception e) {
+            capture.usePlayers(null);
+            capture.playerBuffer().clear();
             logDetailed(detailedLogging, logger, "Failed to fetch online players; proceeding with empty list", e);
-            return Collections.emptyList();
         }
     }
 
-    private static TickMetrics readTickMetrics(TelemetrySource source, boolean detailedLogging, Logger logger) {
+    private static void captureDimensions(TelemetrySource source, List<DimensionSnapshot> sink, boolean detailedLogging, Logger logger) {
         try {
-            OptionalDouble averageMspt = source.averageTickTimeMs();
-            if (averageMspt == null || averageMspt.isEmpty()) {
-                logDetailed(detailedLogging, logger, "Average tick time unavailable or invalid; mspt/tps will be null");
-                return TickMetrics.empty();
-            }
+            source.appendDimensions(sink);
+        } catch (Exception e) {
+            sink.clear();
+            logDetailed(detailedLogging, logger, "Failed to read per-dimension load; proceeding without it", e);
+        }
+    }
 
-            double mspt = roundToTenth(averageMspt.getAsDouble());
-            double tps = mspt > 0 ? roundToTenth(Math.min(20.0, 1000.0 / mspt)) : 20.0;
-            return new TickMetrics(mspt, tps);
+    private static double captureAverageTickTime(TelemetrySource source, boolean detailedLogging, Logger logger) {
+        try {
+            OptionalDouble averageMspt = source.averageTickTimeMs();
+            return averageMspt == null || averageMspt.isEmpty() ? Double.NaN : averageMspt.getAsDouble();
         } catch (Exception e) {
             logDetailed(detailedLogging, logger, "Failed reading tick timing data", e);
+            return Double.NaN;
+        }
+    }
+
+    private static TickMetrics tickMetrics(double averageMspt, boolean detailedLogging, Logger logger) {
+        if (Double.isNaN(averageMspt)) {
+            logDetailed(detailedLogging, logger, "Average tick time unavailable or invalid; mspt/tps will be null");
             return TickMetrics.empty();
         }
+
+        double mspt = roundToTenth(averageMspt);
+        double tps = mspt > 0 ? roundToTenth(Math.min(20.0, 1000.0 / mspt)) : 20.0;
+        return new TickMetrics(mspt, tps);
     }
 
     private static double roundToTenth(double value) {
@@ -74,6 +156,33 @@ public final class TelemetryCollector {
         OptionalDouble averageTickTimeMs();
 
         List<PlayerSnapshot> onlinePlayers();
+
+        /**
+         * Appends the online players to {@code sink}. Loaders should override this to avoid building an intermediate
+         * list on the server thread.
+         */
+        default void appendOnlinePlayers(List<PlayerSnapshot> sink) {
+            List<PlayerSnapshot> players = onlinePlayers();
+            if (players != null) {
+                sink.addAll(players);
+            }
+        }
+
+        /**
+         * Returns the online players as an immutable list that the source reuses for as long as membership is
+         * unchanged, or {@code null} when it keeps none. Captures hold such a list by reference instead of calling
+         * {@link #appendOnlinePlayers}, so an unchanged player list costs a single read.
+         */
+        default List<PlayerSnapshot> sharedOnlinePlayers() {
+            return null;
+        }
+
+        /**
+         * Appends the load of every server level to {@code sink}, with unrounded tick times. Sources that cannot
+         * report per-level load leave it empty.
+         */
+        default void appendDimensions(List<DimensionSnapshot> sink) {
+        }
     }
 
     private record TickMetrics(Double mspt, Double tps) {
@@ -0,0 +1,293 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events fan-out for {@code /telemetry/stream}.
+ * <p>
+ * Each published payload is framed once and offered to every subscriber's bounded queue. A subscriber whose queue is
+ * full is evicted instead of growing without bound. Eviction interrupts its handler thread, which closes the
+ * connection's channel even when the thread is blocked writing to a client that stopped reading. The most
+ * recent frames are kept for {@code Last-Event-ID} resume; since every event is a full snapshot, a client that is too
+ * far behind simply receives the latest one.
+ */
+final class TelemetryEventStream implements HttpHandler {
+    static final String CONTENT_TYPE = "text/event-stream; charset=utf-8";
+    static final int DEFAULT_MAX_SUBSCRIBERS = 32;
+    static final int DEFAULT_BUFFERED_EVENTS = 8;
+
+    private static final long HEARTBEAT_MILLIS = 15_000L;
+    private static final byte[] PREAMBLE = "retry: 5000\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEARTBEAT = ": keep-alive\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ID_PREFIX = "id: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DATA_PREFIX = "\nevent: telemetry\ndata: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FRAME_SUFFIX = "\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final Event CLOSE = new Event(Long.MIN_VALUE, new byte[0]);
+
+    private final Logger logger;
+    private final int maxSubscribers;
+    private final int bufferedEvents;
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ArrayDeque<Event> replay;
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile boolean closed;
+
+    TelemetryEventStream(Logger logger) {
+        this(logger, DEFAULT_MAX_SUBSCRIBERS, DEFAULT_BUFFERED_EVENTS);
+    }
+
+    TelemetryEventStream(Logger logger, int maxSubscribers, int bufferedEvents) {
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.maxSubscribers = Math.max(1, maxSubscribers);
+        this.bufferedEvents = Math.max(1, bufferedEvents);
+        this.replay = new ArrayDeque<>(this.bufferedEvents);
+    }
+
+    /**
+     * Frames {@code json} once and queues it for every subscriber. {@code json} must be a single line, which the
+     * compact JSON writer guarantees.
+     */
+    void publish(long id, byte[] json) {
+        Event event = new Event(id, frame(id, json));
+        synchronized (replay) {
+            if (replay.size() == bufferedEvents) {
+                replay.removeFirst();
+            }
+            replay.addLast(event);
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.queue.offer(event)) {
+                evict(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Registers a subscriber and pre-queues the events it missed, or returns {@code null} when the stream is full or
+     * closed.
+     *
+     * @param lastEventId the client's {@code Last-Event-ID}, or a negative value for a fresh connection
+     */
+    Subscriber subscribe(long lastEventId) {
+        if (closed || subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+
+        Subscriber subscriber = new Subscriber(bufferedEvents);
+        subscribers.add(subscriber);
+        synchronized (replay) {
+            Event latest = replay.peekLast();
+            // An id from a previous server run is ahead of everything we have; treat it as a fresh connection.
+            subscriber.lastSent = latest == null || lastEventId > latest.id() ? -1L : lastEventId;
+            for (Event event : backlog(subscriber.lastSent)) {
+                subscriber.queue.offer(event);
+            }
+        }
+        return subscriber;
+    }
+
+    void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    void close() {
+        closed = true;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+        subscribers.clear();
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    long evictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().add("Allow", "GET");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            long lastEventId = TelemetryHttpServer.parseLong(exchange.getRequestHeaders().getFirst("Last-Event-ID"), -1L);
+            Subscriber subscriber = subscribe(lastEventId);
+            if (subscriber == null) {
+                exchange.getResponseHeaders().set("Retry-After", "5");
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            try {
+                stream(exchange, subscriber);
+            } finally {
+                unsubscribe(subscriber);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void stream(HttpExchange exchange, Subscriber subscriber) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().set("X-Accel-Buffering", "no");
+        exchange.sendResponseHeaders(200, 0);
+
+        OutputStream output = exchange.getResponseBody();
+        if (!subscriber.attach(Thread.currentThread())) {
+            return;
+        }
+        try {
+            output.write(PREAMBLE);
+            output.flush();
+            while (true) {
+                Event event = subscriber.queue.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == CLOSE || subscriber.closed) {
+                    return;
+                }
+
+                if (event == null) {
+                    output.write(HEARTBEAT);
+                } else if (event.id() > subscriber.lastSent) {
+                    // Subscribing races with publish, so the backlog and the live queue can overlap.
+                    output.write(event.frame());
+                    subscriber.lastSent = event.id();
+                } else {
+                    continue;
+                }
+                output.flush();
+            }
+        } catch (InterruptedException e) {
+            if (!subscriber.closed) {
+                Thread.currentThread().interrupt();
+            }
+        } catch (IOException e) {
+            logger.debug("Telemetry stream subscriber disconnected: {}", e.getMessage());
+        } finally {
+            subscriber.detach();
+            if (subscriber.closed) {
+                // The eviction interrupt must not leak into the next exchange handled by this pool thread.
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Must be called while holding the {@code replay} lock.
+     */
+    private List<Event> backlog(long lastEventId) {
+        if (replay.isEmpty()) {
+            return List.of();
+        }
+
+        Event latest = replay.peekLast();
+        if (lastEventId >= latest.id()) {
+            return List.of();
+        }
+
+        if (lastEventId < 0 || replay.peekFirst().id() > lastEventId + 1) {
+            return List.of(latest);
+        }
+
+        List<Event> missed = new ArrayList<>(replay.size());
+        for (Event event : replay) {
+            if (event.id() > lastEventId) {
+                missed.add(event);
+            }
+        }
+        return missed;
+    }
+
+    private void evict(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.close();
+            long evicted = evictions.incrementAndGet();
+            logger.debug("Evicted slow telemetry stream subscriber ({} evicted so far)", evicted);
+        }
+    }
+
+    static byte[] frame(long id, byte[] json) {
+        byte[] idText = Long.toString(id).getBytes(StandardCharsets.US_ASCII);
+        byte[] frame = new byte[ID_PREFIX.length + idText.length + DATA_PREFIX.length + json.length + FRAME_SUFFIX.length];
+        int offset = 0;
+        for (byte[] part : new byte[][] {ID_PREFIX, idText, DATA_PREFIX, json, FRAME_SUFFIX}) {
+            System.arraycopy(part, 0, frame, offset, part.length);
+            offset += part.length;
+        }
+        return frame;
+    }
+
+    record Event(long id, byte[] frame) {
+    }
+
+    static final class Subscriber {
+        private final ArrayBlockingQueue<Event> queue;
+        private volatile boolean closed;
+        private long lastSent;
+        private Thread writer;
+
+        private Subscriber(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        int pending() {
+            return queue.size();
+        }
+
+        boolean closed() {
+            return closed;
+        }
+
+        /**
+         * Registers the handler thread writing to this subscriber, or returns {@code false} when it is already closed.
+         */
+        private synchronized boolean attach(Thread thread) {
+            if (closed) {
+                return false;
+            }
+            writer = thread;
+            return true;
+        }
+
+        private synchronized void detach() {
+            writer = null;
+        }
+
+        /**
+         * The marker only wakes a waiting handler; a racing publish may take its slot, which is fine because the
+         * handler checks {@link #closed} after every poll. A handler blocked in a write is interrupted instead: the
+         * exchange's channel is interruptible, so the write fails and the channel is closed.
+         */
+        private void close() {
+            closed = true;
+            queue.clear();
+            queue.offer(CLOSE);
+            synchronized (this) {
+                if (writer != null) {
+                    writer.interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for published snapshots, fed by the {@link ExportPipeline} on its own thread.
+ * <p>
+ * Implementations may block (the pipeline drops the oldest queued samples while they do) but should bound every
+ * network call with a timeout, since a sink that never returns stalls all sinks behind it.
+ */
+public interface TelemetryExporter {
+    /**
+     * Short identifier used as the {@code sink} label of the export metrics.
+     */
+    String name();
+
+    /**
+     * Ships a batch of samples, oldest first.
+     *
+     * @throws IOException when the collector could not be reached or rejected the batch; the batch is not retried
+     */
+    void export(List<Sample> batch) throws IOException;
+
+    default void close() {
+    }
+
+    /**
+     * @param timeMillis wall-clock time the snapshot was published
+     */
+    record Sample(long timeMillis, TelemetrySnapshot snapshot) {
+    }
+}
@@ -0,0 +1,503 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.TickStats;
+import net.sprocketgames.mctelemetry.common.Utf8JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Bounded, in-memory history of published telemetry with automatic rollups.
+ * <p>
+ * Every published snapshot adds one raw sample per {@link Metric}. Raw samples are kept in a primitive ring buffer,
+ * and three rollup tiers keep min, max, average and p99 per bucket: 10&nbsp;s buckets for an hour, 1&nbsp;min for a
+ * day and 10&nbsp;min for a week. All storage is allocated up front (about 170&nbsp;KiB per metric), so memory does
+ * not grow with uptime. The publisher thread records and HTTP threads query; each metric's series is guarded by its
+ * own monitor, and queries copy the selected range out before anything is written to a socket.
+ */
+public final class TelemetryHistory {
+    static final int RAW_CAPACITY = 2048;
+    static final int MAX_POINTS = 10_000;
+
+    private static final long SECOND = 1000L;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long[] TIER_WIDTHS = {10 * SECOND, MINUTE, 10 * MINUTE};
+    private static final int[] TIER_CAPACITIES = {360, 1440, 1008};
+    private static final int P99_RESERVOIR = 256;
+    private static final int DRAIN_THRESHOLD_BYTES = 8192;
+
+    /**
+     * Metrics tracked per published snapshot.
+     */
+    public enum Metric {
+        MSPT("mspt"),
+        TPS("tps"),
+        PLAYERS("players"),
+        TICK_P99("tickP99");
+
+        private final String key;
+
+        Metric(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        /**
+         * @return the metric with the given query key (case-insensitive), or {@code null}
+         */
+        public static Metric byKey(String key) {
+            if (key == null) {
+                return null;
+            }
+
+            for (Metric metric : values()) {
+                if (metric.key.equalsIgnoreCase(key.trim())) {
+                    return metric;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Series[] series = new Series[Metric.values().length];
+
+    public TelemetryHistory() {
+        for (int i = 0; i < series.length; i++) {
+            series[i] = new Series();
+        }
+    }
+
+    /**
+     * Adds one sample per available metric. Called on the publisher thread with the snapshot's publish time.
+     */
+    public void record(long timeMillis, TelemetrySnapshot snapshot) {
+        if (snapshot.mspt() != null) {
+            series(Metric.MSPT).record(timeMillis, snapshot.mspt());
+        }
+        if (snapshot.tps() != null) {
+            series(Metric.TPS).record(timeMillis, snapshot.tps());
+        }
+        series(Metric.PLAYERS).record(timeMillis, snapshot.players().size());
+        TickStats tickStats = snapshot.tickStats();
+        if (tickStats != null) {
+            series(Metric.TICK_P99).record(timeMillis, tickStats.p99Ms());
+        }
+    }
+
+    /**
+     * Selects the coarsest stored resolution that is no coarser than {@code stepMillis} and still reaches back to
+     * {@code fromMillis}, then merges buckets into {@code stepMillis}-wide points.
+     *
+     * @param stepMillis requested point spacing; {@code 0} or less uses the selected resolution as-is
+     */
+    public Range query(Metric metric, long fromMillis, long toMillis, long stepMillis) {
+        return series(metric).query(metric, fromMillis, toMillis, stepMillis);
+    }
+
+    /**
+     * Parses a step such as {@code 30}, {@code 30s}, {@code 5m} or {@code 1h} into milliseconds. A bare number is
+     * taken as seconds.
+     *
+     * @return the step in milliseconds, or {@code fallback} when the value is missing or malformed
+     */
+    public static long parseStepMillis(String value, long fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+
+        String trimmed = value.trim().toLowerCase(Locale.ROOT);
+        long unit = SECOND;
+        if (trimmed.endsWith("ms")) {
+            unit = 1L;
+            trimmed = trimmed.substring(0, trimmed.length() - 2);
+        } else if (trimmed.endsWith("s")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        } else if (trimmed.endsWith("m")) {
+            unit = MINUTE;
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        } else if (trimmed.endsWith("h")) {
+            unit = 60 * MINUTE;
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+
+        try {
+            long parsed = Long.parseLong(trimmed);
+            return parsed < 0 ? fallback : parsed * unit;
+        } catch (NumberFormatException ignored) {
+            return fallback;
+        }
+    }
+
+    private Series series(Metric metric) {
+        return series[metric.ordinal()];
+    }
+
+    /**
+     * A query result copied out of the history, ready to be written without holding any lock.
+     */
+    public static final class Range {
+        private final Metric metric;
+        private final long fromMillis;
+        private final long toMillis;
+        private final long stepMillis;
+        private final long resolutionMillis;
+        private final int size;
+        private final long[] times;
+        private final double[] min;
+        private final double[] max;
+        private final double[] avg;
+        private final double[] p99;
+        private final long[] samples;
+
+        private Range(Metric metric, long fromMillis, long toMillis, long stepMillis, long resolutionMillis, Points points) {
+            this.metric = metric;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            this.stepMillis = stepMillis;
+            this.resolutionMillis = resolutionMillis;
+            this.size = points.size;
+            this.times = points.times;
+            this.min = points.min;
+            this.max = points.max;
+            this.avg = points.avg;
+            this.p99 = points.p99;
+            this.samples = points.samples;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long resolutionMillis() {
+            return resolutionMillis;
+        }
+
+        public long stepMillis() {
+            return stepMillis;
+        }
+
+        public long time(int index) {
+            return times[index];
+        }
+
+        public double min(int index) {
+            return min[index];
+        }
+
+        public double max(int index) {
+            return max[index];
+        }
+
+        public double avg(int index) {
+            return avg[index];
+        }
+
+        public double p99(int index) {
+            return p99[index];
+        }
+
+        public long samples(int index) {
+            return samples[index];
+        }
+
+        /**
+         * Writes the range as JSON. When {@code output} is non-null the writer is drained into it every few KiB, so
+         * large ranges are streamed rather than buffered.
+         */
+        public void write(Utf8JsonWriter writer, OutputStream output) throws IOException {
+            writer.beginObject()
+                    .name("metric").value(metric.key())
+                    .name("from").value(fromMillis)
+                    .name("to").value(toMillis)
+                    .name("step").value(stepMillis)
+                    .name("resolution").value(resolutionMillis)
+                    .name("points").beginArray();
+            for (int i = 0; i < size; i++) {
+                writer.beginObject()
+                        .name("t").value(times[i])
+                        .name("min").value(round(min[i]))
+                        .name("max").value(round(max[i]))
+                        .name("avg").value(round(avg[i]))
+                        .name("p99").value(round(p99[i]))
+                        .name("n").value(samples[i])
+                        .endObject();
+                if (output != null && writer.size() >= DRAIN_THRESHOLD_BYTES) {
+                    writer.drainTo(output);
+                }
+            }
+            writer.endArray().endObject();
+            if (output != null) {
+                writer.drainTo(output);
+            }
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100.0) / 100.0;
+        }
+    }
+
+    /**
+     * Growable parallel arrays used while building a {@link Range}; merges consecutive buckets into steps.
+     */
+    private static final class Points {
+        private final long step;
+        private long[] times = new long[16];
+        private double[] min = new double[16];
+        private double[] max = new double[16];
+        private double[] avg = new double[16];
+        private double[] p99 = new double[16];
+        private long[] samples = new long[16];
+        private int size;
+
+        private Points(long step) {
+            this.step = step;
+        }
+
+        void add(long time, double bucketMin, double bucketMax, double bucketAvg, double bucketP99, long bucketSamples) {
+            long start = Math.floorDiv(time, step) * step;
+            int last = size - 1;
+            if (last >= 0 && times[last] == start) {
+                long merged = samples[last] + bucketSamples;
+                avg[last] = (avg[last] * samples[last] + bucketAvg * bucketSamples) / merged;
+                min[last] = Math.min(min[last], bucketMin);
+                max[last] = Math.max(max[last], bucketMax);
+                // Exact percentiles cannot be merged; the largest bucket p99 is a conservative bound.
+                p99[last] = Math.max(p99[last], bucketP99);
+                samples[last] = merged;
+                return;
+            }
+
+            if (size == times.length) {
+                int capacity = size * 2;
+                times = Arrays.copyOf(times, capacity);
+                min = Arrays.copyOf(min, capacity);
+                max = Arrays.copyOf(max, capacity);
+                avg = Arrays.copyOf(avg, capacity);
+                p99 = Arrays.copyOf(p99, capacity);
+                samples = Arrays.copyOf(samples, capacity);
+            }
+
+            times[size] = start;
+            min[size] = bucketMin;
+            max[size] = bucketMax;
+            avg[size] = bucketAvg;
+            p99[size] = bucketP99;
+            samples[size] = bucketSamples;
+            size++;
+        }
+    }
+
+    private static final class Series {
+        private final long[] rawTimes = new long[RAW_CAPACITY];
+        private final double[] rawValues = new double[RAW_CAPACITY];
+        private final Tier[] tiers = new Tier[TIER_WIDTHS.length];
+        private int rawStart;
+        private int rawSize;
+
+        private Series() {
+            for (int i = 0; i < tiers.length; i++) {
+                tiers[i] = new Tier(TIER_WIDTHS[i], TIER_CAPACITIES[i]);
+            }
+        }
+
+        synchronized void record(long time, double value) {
+            if (Double.isNaN(value)) {
+                return;
+            }
+
+            int slot = (rawStart + rawSize) % RAW_CAPACITY;
+            rawTimes[slot] = time;
+            rawValues[slot] = value;
+            if (rawSize < RAW_CAPACITY) {
+                rawSize++;
+            } else {
+                rawStart = (rawStart + 1) % RAW_CAPACITY;
+            }
+
+            for (Tier tier : tiers) {
+                tier.record(time, value);
+            }
+        }
+
+        synchronized Range query(Metric metric, long from, long to, long step) {
+            int level = selectLevel(from, step);
+            long resolution = level < 0 ? 0L : tiers[level].width;
+            long effectiveStep = Math.max(resolution, step);
+            long span = Math.max(0L, to - from);
+            if (effectiveStep > 0 && span / effectiveStep > MAX_POINTS) {
+                effectiveStep = span / MAX_POINTS + 1;
+            }
+
+            // Unstepped raw queries keep each sample's own timestamp; the raw ring is smaller than MAX_POINTS.
+            Points points = new Points(Math.max(1L, effectiveStep));
+            if (level < 0) {
+                for (int i = 0; i < rawSize; i++) {
+                    int slot = (rawStart + i) % RAW_CAPACITY;
+                    long time = rawTimes[slot];
+                    if (time >= from && time <= to) {
+                        double value = rawValues[slot];
+                        points.add(time, value, value, value, value, 1L);
+                    }
+                }
+            } else {
+                tiers[level].collect(from, to, points);
+            }
+
+            return new Range(metric, from, to, effectiveStep, resolution, points);
+        }
+
+        /**
+         * @return {@code -1} for raw samples, otherwise the tier index
+         */
+        private int selectLevel(long from, long step) {
+            int chosen = rawCovers(from) ? -1 : Integer.MIN_VALUE;
+            for (int i = 0; i < tiers.length; i++) {
+                if (tiers[i].covers(from) && tiers[i].width <= step) {
+                    chosen = i;
+                }
+            }
+            if (chosen != Integer.MIN_VALUE) {
+                return chosen;
+            }
+
+            for (int i = 0; i < tiers.length; i++) {
+                if (tiers[i].covers(from)) {
+                    return i;
+                }
+            }
+            return tiers.length - 1;
+        }
+
+        private boolean rawCovers(long from) {
+            return rawSize < RAW_CAPACITY || rawTimes[rawStart] <= from;
+        }
+    }
+
+    /**
+     * One rollup resolution: a ring of closed buckets plus the bucket currently being filled.
+     */
+    private static final class Tier {
+        private final long width;
+        private final int capacity;
+        private final long[] starts;
+        private final double[] min;
+        private final double[] max;
+        private final double[] avg;
+        private final double[] p99;
+        private final long[] samples;
+        private long oldestStart = Long.MAX_VALUE;
+        private boolean wrapped;
+
+        private long openStart = Long.MIN_VALUE;
+        private double openMin;
+        private double openMax;
+        private double openSum;
+        private long openSamples;
+        private final double[] reservoir = new double[P99_RESERVOIR];
+        private final double[] sortScratch = new double[P99_RESERVOIR];
+        private long randomState = 0x9E3779B97F4A7C15L;
+
+        private Tier(long width, int capacity) {
+            this.width = width;
+            this.capacity = capacity;
+            this.starts = new long[capacity];
+            this.min = new double[capacity];
+            this.max = new double[capacity];
+            this.avg = new double[capacity];
+            this.p99 = new double[capacity];
+            this.samples = new long[capacity];
+            Arrays.fill(starts, Long.MIN_VALUE);
+        }
+
+        void record(long time, double value) {
+            long start = Math.floorDiv(time, width) * width;
+            if (start != openStart) {
+                if (openSamples > 0 && start < openStart) {
+                    // Clock stepped backwards; fold the sample into the open bucket rather than rewriting history.
+                    start = openStart;
+                } else {
+                    close();
+                    openStart = start;
+                    openMin = Double.POSITIVE_INFINITY;
+                    openMax = Double.NEGATIVE_INFINITY;
+                    openSum = 0.0;
+                    openSamples = 0;
+                }
+            }
+
+            openMin = Math.min(openMin, value);
+            openMax = Math.max(openMax, value);
+            openSum += value;
+            if (openSamples < P99_RESERVOIR) {
+                reservoir[(int) openSamples] = value;
+            } else {
+                long candidate = Math.floorMod(nextRandom(), openSamples + 1);
+                if (candidate < P99_RESERVOIR) {
+                    reservoir[(int) candidate] = value;
+                }
+            }
+            openSamples++;
+        }
+
+        boolean covers(long from) {
+            return !wrapped || oldestStart <= from;
+        }
+
+        void collect(long from, long to, Points points) {
+            long first = Math.floorDiv(from, width);
+            long last = Math.floorDiv(to, width);
+            first = Math.max(first, last - capacity + 1);
+            for (long index = first; index <= last; index++) {
+                long start = index * width;
+                if (start == openStart && openSamples > 0) {
+                    points.add(start, openMin, openMax, openSum / openSamples, openP99(), openSamples);
+                    continue;
+                }
+
+                int slot = (int) Math.floorMod(index, (long) capacity);
+                if (starts[slot] == start) {
+                    points.add(start, min[slot], max[slot], avg[slot], p99[slot], samples[slot]);
+                }
+            }
+        }
+
+        private void close() {
+            if (openSamples == 0) {
+                return;
+            }
+
+            int slot = (int) Math.floorMod(Math.floorDiv(openStart, width), (long) capacity);
+            if (starts[slot] != Long.MIN_VALUE) {
+                wrapped = true;
+            }
+            starts[slot] = openStart;
+            min[slot] = openMin;
+            max[slot] = openMax;
+            avg[slot] = openSum / openSamples;
+            p99[slot] = openP99();
+            samples[slot] = openSamples;
+            oldestStart = wrapped ? openStart - (long) (capacity - 1) * width : Math.min(oldestStart, openStart);
+        }
+
+        private double openP99() {
+            int count = (int) Math.min(openSamples, P99_RESERVOIR);
+            System.arraycopy(reservoir, 0, sortScratch, 0, count);
+            Arrays.sort(sortScratch, 0, count);
+            int rank = (int) Math.ceil(0.99 * count) - 1;
+            return sortScratch[Math.max(0, rank)];
+        }
+
+        private long nextRandom() {
+            randomState ^= randomState << 13;
+            randomState ^= randomState >>> 7;
+            randomState ^= randomState << 17;
+            return randomState;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import org.slf4j.Logger;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the request executor for the telemetry HTTP server.
+ * <p>
+ * On Java 21+ every exchange gets its own virtual thread; concurrency is bounded by {@link RequestLimiter} and the
+ * stream subscriber cap rather than by the executor. On older runtimes a fixed set of daemon platform threads is used
+ * with a short queue. Exchanges rejected because that queue is full never run on the HTTP dispatcher: they go to a
+ * single overflow thread on which {@link RequestLimiter} answers {@code 503} with {@code Retry-After} before any
+ * handler runs. When the overflow queue is full too, the dispatcher drops the connection.
+ */
+final class TelemetryHttpExecutor {
+    private static final String THREAD_PREFIX = "MCTelemetry-HTTP-";
+    private static final int QUEUE_CAPACITY = 64;
+    private static final int OVERFLOW_QUEUE_CAPACITY = 16;
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+    private static final ThreadLocal<Boolean> OVERFLOW = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private TelemetryHttpExecutor() {
+    }
+
+    static ExecutorService create(Logger logger, int maxThreads) {
+        ExecutorService virtual = virtualThreadExecutor();
+        if (virtual != null) {
+            logger.debug("Telemetry HTTP endpoint using virtual threads");
+            return virtual;
+        }
+
+        return platform(maxThreads, QUEUE_CAPACITY);
+    }
+
+    /**
+     * Whether the calling thread is the overflow thread, whose exchanges must be rejected rather than handled.
+     */
+    static boolean overflowing() {
+        return OVERFLOW.get();
+    }
+
+    static ThreadPoolExecutor platform(int maxThreads, int queueCapacity) {
+        ThreadPoolExecutor overflow = new ThreadPoolExecutor(
+                1,
+                1,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(OVERFLOW_QUEUE_CAPACITY),
+                daemonThreads(THREAD_PREFIX + "Overflow-", true),
+                new ThreadPoolExecutor.AbortPolicy());
+        overflow.allowCoreThreadTimeOut(true);
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maxThreads,
+                maxThreads,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                daemonThreads(THREAD_PREFIX, false),
+                (rejected, pool) -> overflow.execute(rejected)) {
+            @Override
+            protected void terminated() {
+                overflow.shutdownNow();
+            }
+        };
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Looks up {@code Thread.ofVirtual()} reflectively so the common module still targets Java 17.
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Class<?> virtualBuilderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            Object builder = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(virtualBuilderClass)).invoke();
+            builder = lookup.findVirtual(builderClass, "name", MethodType.methodType(builderClass, String.class, long.class))
+                    .invoke(builder, THREAD_PREFIX, 0L);
+            ThreadFactory factory = (ThreadFactory) lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class))
+                    .invoke(builder);
+            MethodHandle perTask = lookup.findStatic(
+                    java.util.concurrent.Executors.class,
+                    "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+            return (ExecutorService) perTask.invoke(factory);
+        } catch (Throwable unavailable) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix, boolean overflow) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Runnable body = overflow ? () -> {
+                OVERFLOW.set(Boolean.TRUE);
+                runnable.run();
+            } : runnable;
+            Thread thread = new Thread(body, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,18 +1,32 @@
 package net.sprocketgames.mctelemetry.common.server;
 
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import net.sprocketgames.mctelemetry.common.PlayerDelta;
+import net.sprocketgames.mctelemetry.common.TelemetryBinaryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.Utf8JsonWriter;
 import org.slf4j.Logger;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -22,26 +36,92 @@ public class TelemetryHttpServer {
     private static final int DEFAULT_PORT = 8765;
     private static final String DEFAULT_BIND_ADDRESS = "127.0.0.1";
     private static final String BIND_OVERRIDE_PROPERTY = "MCTELEMETRY_BIND";
+    private static final byte[] EMPTY_JSON = "{}".getBytes(StandardCharsets.UTF_8);
+    private static final String ENGINE_OVERRIDE_PROPERTY = "MCTELEMETRY_HTTP_ENGINE";
+    static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    static final byte[] UNKNOWN_METRIC_JSON = "{\"error\":\"unknown or missing metric\"}".getBytes(StandardCharsets.UTF_8);
+    static final String TELEMETRY_VARY = "Accept, Accept-Encoding";
+    static final byte[] UNKNOWN_FIELD_JSON = "{\"error\":\"unknown view or field\"}".getBytes(StandardCharsets.UTF_8);
+    private static final long DEFAULT_HISTORY_WINDOW_MILLIS = 3_600_000L;
+
+    /**
+     * Request handling backend. {@link #JDK} uses {@code com.sun.net.httpserver} and serves every endpoint;
+     * {@link #NIO} is a single selector thread with keep-alive and pipelining that serves the cached endpoints but not
+     * {@code /telemetry/stream}.
+     */
+    public enum Engine {
+        JDK,
+        NIO;
+
+        /**
+         * Resolves the configured engine name, letting system property {@code MCTELEMETRY_HTTP_ENGINE} override it.
+         * Unknown names fall back to {@link #JDK}.
+         */
+        public static Engine resolve(String configured) {
+            String override = System.getProperty(ENGINE_OVERRIDE_PROPERTY);
+            String desired = override != null && !override.isBlank() ? override : configured;
+            if (desired != null && desired.trim().equalsIgnoreCase("nio")) {
+                return NIO;
+            }
+            return JDK;
+        }
+    }
 
     private final Logger logger;
-    private final AtomicReference<String> lastTelemetryJson;
+    private final AtomicReference<TelemetryViews> lastTelemetry;
+    private final PlayerRegistry playerRegistry;
+    private final AtomicReference<EncodedPayload> lastPlayerList = new AtomicReference<>();
+    private final TelemetryHistory history;
+    private final AtomicReference<EncodedPayload> lastMetrics;
+    private final TelemetryEventStream eventStream;
+    private final RequestLimiter requestLimiter = new RequestLimiter();
     private final int port;
     private final InetAddress bindAddress;
     private final String bindAddressText;
+    private final Engine engine;
+
+    private volatile long lastDemandNanos;
+    private StackProfiler profiler;
+    private boolean profilerControl;
+    private SelfMetrics selfMetrics;
 
     private HttpServer server;
+    private ExecutorService executor;
+    private NioHttpEngine nioEngine;
 
-    public TelemetryHttpServer(Logger logger, String initialTelemetry) {
+    public TelemetryHttpServer(Logger logger, byte[] initialTelemetry) {
         this(logger, initialTelemetry, resolvePort(DEFAULT_PORT), DEFAULT_BIND_ADDRESS);
     }
 
-    public TelemetryHttpServer(Logger logger, String initialTelemetry, int port, String bindAddress) {
+    public TelemetryHttpServer(Logger logger, byte[] initialTelemetry, int port, String bindAddress) {
+        this(logger, initialTelemetry, port, bindAddress, null);
+    }
+
+    /**
+     * @param playerRegistry registry backing {@code /telemetry/players}; the endpoint is not exposed when {@code null}
+     */
+    public TelemetryHttpServer(Logger logger, byte[] initialTelemetry, int port, String bindAddress, PlayerRegistry playerRegistry) {
+        this(logger, initialTelemetry, port, bindAddress, playerRegistry, null, Engine.JDK);
+    }
+
+    /**
+     * @param history store backing {@code /telemetry/history}; the endpoint is not exposed when {@code null}
+     */
+    public TelemetryHttpServer(Logger logger, byte[] initialTelemetry, int port, String bindAddress, PlayerRegistry playerRegistry,
+            TelemetryHistory history, Engine engine) {
         this.logger = Objects.requireNonNull(logger, "logger");
-        this.lastTelemetryJson = new AtomicReference<>(initialTelemetry == null ? "{}" : initialTelemetry);
+        this.playerRegistry = playerRegistry;
+        this.history = history;
+        byte[] initial = initialTelemetry == null || initialTelemetry.length == 0 ? EMPTY_JSON : initialTelemetry;
+        this.lastTelemetry = new AtomicReference<>(TelemetryViews.of(null, EncodedPayload.encode(1L, initial, JSON_CONTENT_TYPE)));
+        this.lastMetrics = new AtomicReference<>(EncodedPayload.encode(1L, new byte[0], PrometheusTextWriter.CONTENT_TYPE));
+        this.eventStream = new TelemetryEventStream(logger);
+        eventStream.publish(1L, initial);
         this.port = port > 0 ? port : DEFAULT_PORT;
         InetAddress resolved = resolveBindAddress(logger, bindAddress);
         this.bindAddress = resolved;
         this.bindAddressText = resolved.getHostAddress();
+        this.engine = Objects.requireNonNull(engine, "engine");
     }
 
     static int resolvePort(int configuredPort) {
@@ -86,39 +166,307 @@ public class TelemetryHttpServer {
     }
 
     boolean start() {
-        if (server != null) {
+        if (server != null || nioEngine != null) {
             return true;
         }
 
+        InetSocketAddress address = new InetSocketAddress(bindAddress, port);
+        if (engine == Engine.NIO) {
+            try {
+                nioEngine = new NioHttpEngine(logger, this, address);
+                nioEngine.start();
+                return true;
+            } catch (IOException e) {
+                logger.error("Failed to start telemetry HTTP endpoint", e);
+                nioEngine = null;
+                return false;
+            }
+        }
+
         try {
-            InetSocketAddress address = new InetSocketAddress(bindAddress, port);
             server = HttpServer.create(address, 0);
-            server.createContext("/telemetry", new TelemetryHandler());
-            server.createContext("/health", new HealthHandler());
-            server.setExecutor(Executors.newCachedThreadPool());
+            createContext("/telemetry", new TelemetryHandler(), true);
+            if (playerRegistry != null) {
+                createContext("/telemetry/players", new PlayersHandler(), true);
+            }
+            if (history != null) {
+                createContext("/telemetry/history", new HistoryHandler(), true);
+            }
+            createContext("/telemetry/stream", eventStream, false);
+            if (profiler != null) {
+                createContext("/telemetry/profile", new ProfileHandler(profiler, profilerControl), true);
+            }
+            if (selfMetrics != null) {
+                createContext("/telemetry/self", new SelfHandler(), true);
+            }
+            createContext("/metrics", new MetricsHandler(), true);
+            createContext("/health", new HealthHandler(), true);
+            executor = TelemetryHttpExecutor.create(logger, RequestLimiter.DEFAULT_MAX_CONCURRENT_REQUESTS + TelemetryEventStream.DEFAULT_MAX_SUBSCRIBERS);
+            server.setExecutor(executor);
             server.start();
             return true;
         } catch (IOException e) {
             logger.error("Failed to start telemetry HTTP endpoint", e);
             server = null;
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
             return false;
         }
     }
 
+    /**
+     * Exposes {@code profiler} at {@code /telemetry/profile} once the server starts. JDK engine only.
+     *
+     * @param control whether loopback clients may also start and stop profiles; other clients only ever read them
+     */
+    void enableProfiler(StackProfiler profiler, boolean control) {
+        this.profiler = profiler;
+        this.profilerControl = control;
+    }
+
+    /**
+     * Exposes {@code metrics} at {@code /telemetry/self} and records every request into it once the server starts.
+     */
+    void enableSelfMetrics(SelfMetrics metrics) {
+        this.selfMetrics = metrics;
+    }
+
+    SelfMetrics selfMetrics() {
+        return selfMetrics;
+    }
+
+    private void createContext(String path, HttpHandler handler, boolean holdPermit) {
+        List<Filter> filters = server.createContext(path, handler).getFilters();
+        // A stream's duration is its subscription, not a request latency.
+        if (selfMetrics != null && holdPermit) {
+            filters.add(new SelfMetricsFilter(selfMetrics));
+        }
+        filters.add(requestLimiter.filter(holdPermit));
+    }
+
     void stop() {
+        if (nioEngine != null) {
+            nioEngine.stop();
+            nioEngine = null;
+            logger.info("Stopped telemetry HTTP endpoint");
+        }
+
         if (server != null) {
+            eventStream.close();
             server.stop(0);
             server = null;
+            executor.shutdownNow();
+            executor = null;
             logger.info("Stopped telemetry HTTP endpoint");
         }
     }
 
-    void updateTelemetry(String telemetryJson) {
-        if (telemetryJson != null && !telemetryJson.isBlank()) {
-            lastTelemetryJson.set(telemetryJson);
+    /**
+     * Replaces the cached payload, pre-encoding its gzip variant and ETag. The array is served as-is and must not be
+     * modified afterwards. Publishing identical bytes keeps the current version so clients keep getting 304s.
+     */
+    void updateTelemetry(byte[] telemetryJson) {
+        updateTelemetry(telemetryJson, null);
+    }
+
+    /**
+     * Replaces the cached payload and pre-renders the named views of {@code snapshot}, which {@code telemetryJson} must
+     * be the full serialization of. Without a snapshot, views and field projections fall back to the full payload.
+     */
+    void updateTelemetry(byte[] telemetryJson, TelemetrySnapshot snapshot) {
+        if (telemetryJson == null || telemetryJson.length == 0) {
+            return;
+        }
+
+        synchronized (this) {
+            EncodedPayload current = lastTelemetry.get().full();
+            updateTelemetry(current.sameContent(telemetryJson) ? current.version() : current.version() + 1, telemetryJson, snapshot);
+        }
+    }
+
+    /**
+     * Serves a {@link TelemetrySnapshotCache} entry under its own version, so the ETag version, the SSE event id and
+     * the command's {@code snapshotVersion} agree.
+     */
+    void updateTelemetry(TelemetrySnapshotCache.Entry entry) {
+        updateTelemetry(entry.version(), entry.json(), entry.snapshot());
+    }
+
+    private synchronized void updateTelemetry(long version, byte[] telemetryJson, TelemetrySnapshot snapshot) {
+        if (telemetryJson == null || telemetryJson.length == 0) {
+            return;
+        }
+
+        TelemetryViews currentViews = lastTelemetry.get();
+        EncodedPayload current = currentViews.full();
+        if (version < current.version()) {
+            // A newer payload was published from another thread in the meantime.
+            return;
+        }
+        if (version == current.version()) {
+            if (snapshot != null && !currentViews.hasSnapshot()) {
+                lastTelemetry.set(views(snapshot, current));
+            }
+            return;
+        }
+
+        EncodedPayload encoded = EncodedPayload.encode(version, telemetryJson, JSON_CONTENT_TYPE);
+        lastTelemetry.set(views(snapshot, encoded));
+        eventStream.publish(encoded.version(), telemetryJson);
+    }
+
+    private TelemetryViews views(TelemetrySnapshot snapshot, EncodedPayload full) {
+        try {
+            return TelemetryViews.of(snapshot, full);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to render telemetry views; serving the full payload for every view", e);
+            return TelemetryViews.of(null, full);
+        }
+    }
+
+    /**
+     * Replaces the cached Prometheus exposition, rendered once per publish.
+     */
+    void updateMetrics(byte[] exposition) {
+        if (exposition == null) {
+            return;
+        }
+
+        EncodedPayload current = lastMetrics.get();
+        if (!current.sameContent(exposition)) {
+            lastMetrics.set(EncodedPayload.encode(current.version() + 1, exposition, PrometheusTextWriter.CONTENT_TYPE));
+        }
+    }
+
+    long telemetryVersion() {
+        return lastTelemetry.get().full().version();
+    }
+
+    EncodedPayload telemetryPayload() {
+        return lastTelemetry.get().full();
+    }
+
+    /**
+     * Resolves {@code ?view=} or {@code ?fields=} against the latest snapshot.
+     *
+     * @return the matching payload, the full payload without either parameter, or {@code null} for an unknown view or
+     * field
+     */
+    EncodedPayload telemetryPayload(String rawQuery) {
+        return telemetryPayload(rawQuery, false);
+    }
+
+    /**
+     * @param binary whether the client accepts {@link TelemetryBinaryPayload#CONTENT_TYPE}; only the full payload has a
+     *               binary encoding, so views and projections are always JSON
+     */
+    EncodedPayload telemetryPayload(String rawQuery, boolean binary) {
+        TelemetryViews views = lastTelemetry.get();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return binary ? views.binary() : views.full();
+        }
+
+        Map<String, String> query = parseQuery(rawQuery);
+        String view = query.get("view");
+        if (view != null) {
+            EncodedPayload payload = views.view(view);
+            return binary && payload == views.full() ? views.binary() : payload;
+        }
+
+        String fields = query.get("fields");
+        if (fields != null) {
+            int mask = TelemetryPayload.Field.parseMask(fields);
+            return mask < 0 ? null : views.project(mask);
+        }
+        return binary ? views.binary() : views.full();
+    }
+
+    EncodedPayload metricsPayload() {
+        return lastMetrics.get();
+    }
+
+    PlayerRegistry playerRegistry() {
+        return playerRegistry;
+    }
+
+    TelemetryHistory history() {
+        return history;
+    }
+
+    /**
+     * Resolves {@code metric}, {@code from}, {@code to} and {@code step} query parameters. {@code from} and {@code to}
+     * are epoch milliseconds and default to the last hour.
+     *
+     * @return the range, or {@code null} when the metric is missing or unknown
+     */
+    TelemetryHistory.Range queryHistory(String rawQuery) {
+        Map<String, String> query = parseQuery(rawQuery);
+        TelemetryHistory.Metric metric = TelemetryHistory.Metric.byKey(query.get("metric"));
+        if (metric == null) {
+            return null;
+        }
+
+        long to = parseLong(query.get("to"), System.currentTimeMillis());
+        long from = parseLong(query.get("from"), to - DEFAULT_HISTORY_WINDOW_MILLIS);
+        long step = TelemetryHistory.parseStepMillis(query.get("step"), 0L);
+        return history.query(metric, Math.min(from, to), to, step);
+    }
+
+    /**
+     * The full list is rendered at most once per registry version and shared by every caller.
+     */
+    EncodedPayload currentPlayerList() {
+        long version = playerRegistry.version();
+        EncodedPayload cached = lastPlayerList.get();
+        if (cached != null && cached.version() == version) {
+            return cached;
+        }
+
+        PlayerDelta full = playerRegistry.changesSince(playerRegistry.epoch(), -1L);
+        byte[] body = TelemetryPayload.writePlayerDelta(new Utf8JsonWriter(), full).toByteArray();
+        EncodedPayload encoded = EncodedPayload.encode(full.version(), body, JSON_CONTENT_TYPE);
+        lastPlayerList.set(encoded);
+        return encoded;
+    }
+
+    Engine engine() {
+        return engine;
+    }
+
+    RequestLimiter requestLimiter() {
+        return requestLimiter;
+    }
+
+    TelemetryEventStream eventStream() {
+        return eventStream;
+    }
+
+    /**
+     * Records that a consumer fetched telemetry data. {@code /health} does not count, so liveness probes do not keep an
+     * idle server refreshing.
+     */
+    void markDemand() {
+        long now = System.nanoTime();
+        // Skip the volatile write when another request already marked this millisecond.
+        if (now - lastDemandNanos > 1_000_000L) {
+            lastDemandNanos = now;
         }
     }
 
+    /**
+     * @return whether a consumer fetched data within {@code windowNanos} or an event stream is open
+     */
+    boolean demandedWithin(long windowNanos) {
+        long last = lastDemandNanos;
+        return last != 0L && System.nanoTime() - last < windowNanos || eventStream.subscriberCount() > 0;
+    }
+
+    int port() {
+        return port;
+    }
+
     String bindAddress() {
         return bindAddressText;
     }
@@ -133,11 +481,74 @@ public class TelemetryHttpServer {
                     return;
                 }
 
-                byte[] payload = lastTelemetryJson.get().getBytes(StandardCharsets.UTF_8);
-                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
-                exchange.sendResponseHeaders(200, payload.length);
+                markDemand();
+                EncodedPayload payload = telemetryPayload(exchange.getRequestURI().getRawQuery(),
+                        acceptsBinary(exchange.getRequestHeaders().get("Accept")));
+                if (payload == null) {
+                    exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+                    exchange.sendResponseHeaders(400, UNKNOWN_FIELD_JSON.length);
+                    try (OutputStream output = exchange.getResponseBody()) {
+                        output.write(UNKNOWN_FIELD_JSON);
+                    }
+                    return;
+                }
+
+                sendEncoded(exchange, payload, TELEMETRY_VARY);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private final class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().add("Allow", "GET");
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+
+                markDemand();
+                sendEncoded(exchange, lastMetrics.get());
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private final class PlayersHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().add("Allow", "GET");
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+
+                markDemand();
+                Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+                long since = parseLong(query.get("since"), -1L);
+                long epoch = parseLong(query.get("epoch"), playerRegistry.epoch());
+                if (since < 0) {
+                    sendEncoded(exchange, currentPlayerList());
+                    return;
+                }
+
+                PlayerDelta delta = playerRegistry.changesSince(epoch, since);
+                if (delta.full()) {
+                    sendEncoded(exchange, currentPlayerList());
+                    return;
+                }
+
+                byte[] body = TelemetryPayload.writePlayerDelta(new Utf8JsonWriter(256), delta).toByteArray();
+                exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                exchange.sendResponseHeaders(200, body.length);
                 try (OutputStream output = exchange.getResponseBody()) {
-                    output.write(payload);
+                    output.write(body);
                 }
             } finally {
                 exchange.close();
@@ -145,6 +556,324 @@ public class TelemetryHttpServer {
         }
     }
 
+    private final class HistoryHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().add("Allow", "GET");
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+
+                markDemand();
+                exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                TelemetryHistory.Range range = queryHistory(exchange.getRequestURI().getRawQuery());
+                if (range == null) {
+                    exchange.sendResponseHeaders(400, UNKNOWN_METRIC_JSON.length);
+                    try (OutputStream output = exchange.getResponseBody()) {
+                        output.write(UNKNOWN_METRIC_JSON);
+                    }
+                    return;
+                }
+
+                // Chunked: points are drained to the socket as they are written instead of buffering the document.
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    range.write(new Utf8JsonWriter(), output);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            try {
+                parameters.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException ignored) {
+                // skip malformed percent-encoding
+            }
+        }
+
+        return parameters;
+    }
+
+    static long parseLong(String value, long fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ignored) {
+            return fallback;
+        }
+    }
+
+    static void sendEncoded(HttpExchange exchange, EncodedPayload payload) throws IOException {
+        sendEncoded(exchange, payload, "Accept-Encoding");
+    }
+
+    static void sendEncoded(HttpExchange exchange, EncodedPayload payload, String vary) throws IOException {
+        Headers requestHeaders = exchange.getRequestHeaders();
+        boolean gzip = payload.gzip() != null && acceptsGzip(requestHeaders.get("Accept-Encoding"));
+
+        Headers responseHeaders = exchange.getResponseHeaders();
+        responseHeaders.set("ETag", payload.etag(gzip));
+        responseHeaders.set("Cache-Control", "no-cache");
+        responseHeaders.set("Vary", vary);
+
+        if (payload.matches(requestHeaders.getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        byte[] body = gzip ? payload.gzip() : payload.identity();
+        responseHeaders.set("Content-Type", payload.contentType());
+        if (gzip) {
+            responseHeaders.set("Content-Encoding", "gzip");
+        }
+
+        // A zero length would switch the JDK server to chunked encoding; -1 means "no body".
+        exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    static boolean acceptsGzip(List<String> acceptEncodingHeaders) {
+        if (acceptEncodingHeaders == null) {
+            return false;
+        }
+
+        for (String header : acceptEncodingHeaders) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim();
+                if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                    continue;
+                }
+
+                return !hasZeroQuality(parts);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return whether an {@code Accept} header explicitly lists {@link TelemetryBinaryPayload#CONTENT_TYPE}; wildcards
+     * keep getting JSON
+     */
+    static boolean acceptsBinary(List<String> acceptHeaders) {
+        if (acceptHeaders == null) {
+            return false;
+        }
+
+        for (String header : acceptHeaders) {
+            for (String range : header.split(",")) {
+                String[] parts = range.split(";");
+                if (parts[0].trim().equalsIgnoreCase(TelemetryBinaryPayload.CONTENT_TYPE)) {
+                    return !hasZeroQuality(parts);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean hasZeroQuality(String[] codingParts) {
+        for (int i = 1; i < codingParts.length; i++) {
+            String parameter = codingParts[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim()) <= 0.0;
+                } catch (NumberFormatException ignored) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * {@code GET} returns the current or last profile as collapsed stacks, {@code POST ?rate=&seconds=} starts one and
+     * {@code DELETE} stops it. Every sample pauses the server thread, so starting and stopping is refused with
+     * {@code 403} unless control is enabled and the client connects from a loopback address.
+     */
+    private static final class ProfileHandler implements HttpHandler {
+        private final StackProfiler profiler;
+        private final boolean control;
+
+        private ProfileHandler(StackProfiler profiler, boolean control) {
+            this.profiler = profiler;
+            this.control = control;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+                switch (method) {
+                    case "GET" -> sendProfile(exchange);
+                    case "POST", "DELETE" -> {
+                        if (!mayControl(exchange)) {
+                            exchange.sendResponseHeaders(403, -1);
+                        } else if (method.equals("POST")) {
+                            start(exchange);
+                        } else {
+                            profiler.stop();
+                            sendStatus(exchange, 200);
+                        }
+                    }
+                    default -> {
+                        exchange.getResponseHeaders().add("Allow", "GET, POST, DELETE");
+                        exchange.sendResponseHeaders(405, -1);
+                    }
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private boolean mayControl(HttpExchange exchange) {
+            InetSocketAddress remote = exchange.getRemoteAddress();
+            return control && remote != null && remote.getAddress() != null && remote.getAddress().isLoopbackAddress();
+        }
+
+        private void start(HttpExchange exchange) throws IOException {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            boolean started = profiler.start(
+                    (int) parseLong(query.get("rate"), StackProfiler.DEFAULT_RATE_HZ),
+                    (int) parseLong(query.get("seconds"), StackProfiler.DEFAULT_DURATION_SECONDS));
+            sendStatus(exchange, started ? 202 : profiler.running() ? 409 : 503);
+        }
+
+        private void sendProfile(HttpExchange exchange) throws IOException {
+            StackProfiler.Status status = profiler.status();
+            byte[] body = profiler.collapsed();
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("Content-Type", "text/plain; charset=utf-8");
+            headers.set("Cache-Control", "no-store");
+            headers.set("X-Profile-Running", Boolean.toString(status.running()));
+            headers.set("X-Profile-Samples", Long.toString(status.samples()));
+            headers.set("X-Profile-Truncated", Long.toString(status.truncated()));
+            exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+
+        private void sendStatus(HttpExchange exchange, int code) throws IOException {
+            StackProfiler.Status status = profiler.status();
+            byte[] body = new Utf8JsonWriter(128).beginObject()
+                    .name("running").value(status.running())
+                    .name("rateHz").value(status.rateHz())
+                    .name("startedAt").value(status.startedMillis())
+                    .name("stoppedAt").value(status.stoppedMillis())
+                    .name("samples").value(status.samples())
+                    .name("truncated").value(status.truncated())
+                    .name("nodes").value(status.nodes())
+                    .endObject().toByteArray();
+            exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            exchange.sendResponseHeaders(code, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+
+    /**
+     * Serves {@code /telemetry/self}, rendered per request from live counters.
+     */
+    private final class SelfHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().add("Allow", "GET");
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+
+                byte[] body = selfMetrics.render();
+                exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+                exchange.getResponseHeaders().set("Cache-Control", "no-store");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Times each request through its handler and counts the response body bytes written.
+     */
+    private static final class SelfMetricsFilter extends Filter {
+        private final SelfMetrics metrics;
+
+        private SelfMetricsFilter(SelfMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            long started = System.nanoTime();
+            CountingOutputStream body = new CountingOutputStream(exchange.getResponseBody());
+            exchange.setStreams(null, body);
+            try {
+                chain.doFilter(exchange);
+            } finally {
+                metrics.recordRequest(System.nanoTime() - started, body.count);
+            }
+        }
+
+        @Override
+        public String description() {
+            return "MCTelemetry self metrics";
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
     private final class HealthHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
@@ -0,0 +1,324 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.PlayerDelta;
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.TickStats;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Append-only binary journal of published telemetry, written through memory-mapped segment files.
+ * <p>
+ * Each publish appends the player joins and leaves since the previous publish followed by one fixed-width
+ * {@link #TYPE_TICK tick} record. Appends are plain stores into a mapped buffer: the page cache owns the bytes as soon
+ * as they are written, so a JVM crash loses nothing that was appended. A record's type byte is stored last, so a record
+ * torn by a crash reads as the zeroed end of the segment. Segments are pre-sized and rotated only between publishes,
+ * never inside one; every segment starts with a {@link #TYPE_RESET} and the full player list, so it can be read on
+ * its own. Retired segments are unmapped right away and the oldest are deleted once the journal exceeds its size cap;
+ * a segment that cannot be deleted yet is retried at the next rotation.
+ * <p>
+ * Layout (big-endian). Segment header: {@code "MCTJ"}, {@code u16 version}, {@code u16 reserved},
+ * {@code i64 createdMillis}. Every record starts with {@code u8 type}, {@code u8 flags}, {@code u16 length}
+ * (including this header) and {@code i64 timeMillis}, followed by:
+ * <ul>
+ *     <li>{@link #TYPE_TICK}: {@code f32 mspt}, {@code f32 tps}, {@code i32 players}, {@code i32 tickSamples},
+ *     {@code f32 p50}, {@code f32 p95}, {@code f32 p99}, {@code f32 max}, {@code i32 overBudget}; missing values
+ *     are {@code NaN} or {@code -1}</li>
+ *     <li>{@link #TYPE_JOIN}: {@code u8 uuidLength}, UUID, {@code u8 nameLength}, UTF-8 name</li>
+ *     <li>{@link #TYPE_LEAVE}: {@code u8 uuidLength}, UUID</li>
+ *     <li>{@link #TYPE_RESET}: no body; the joins that follow are the complete online list</li>
+ * </ul>
+ * Only the publisher thread appends; instances are not thread-safe.
+ */
+public final class TelemetryJournal implements AutoCloseable {
+    public static final long DEFAULT_SEGMENT_BYTES = 16L << 20;
+    public static final long DEFAULT_MAX_BYTES = 128L << 20;
+
+    static final int MAGIC = 0x4D43544A;
+    static final short FORMAT_VERSION = 1;
+    static final int SEGMENT_HEADER_BYTES = 16;
+    static final int RECORD_HEADER_BYTES = 12;
+    static final int TICK_RECORD_BYTES = RECORD_HEADER_BYTES + 36;
+    static final String SEGMENT_PREFIX = "telemetry-";
+    static final String SEGMENT_SUFFIX = ".mctj";
+
+    public static final byte TYPE_TICK = 1;
+    public static final byte TYPE_JOIN = 2;
+    public static final byte TYPE_LEAVE = 3;
+    public static final byte TYPE_RESET = 4;
+
+    private static final int MAX_STRING_BYTES = 255;
+    private static final MethodHandle INVOKE_CLEANER = cleaner();
+
+    private final Logger logger;
+    private final Path directory;
+    private final long segmentBytes;
+    private final long maxBytes;
+
+    private MappedByteBuffer segment;
+    private int segmentSequence;
+    private long registryEpoch = Long.MIN_VALUE;
+    private long registryVersion = -1L;
+
+    /**
+     * @param segmentBytes size of each pre-allocated segment file
+     * @param maxBytes     total size the journal may occupy; the oldest segments are deleted beyond it
+     */
+    public TelemetryJournal(Logger logger, Path directory, long segmentBytes, long maxBytes) {
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.directory = Objects.requireNonNull(directory, "directory");
+        this.segmentBytes = Math.max(4096L, Math.min(segmentBytes, Integer.MAX_VALUE));
+        this.maxBytes = Math.max(this.segmentBytes, maxBytes);
+    }
+
+    /**
+     * Creates the directory and maps a fresh segment. Existing segments are left untouched for the reader.
+     */
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        rotate();
+    }
+
+    /**
+     * Appends the tick metrics of {@code snapshot} and the player changes recorded in {@code registry} since the
+     * previous append.
+     */
+    public void append(long timeMillis, TelemetrySnapshot snapshot, PlayerRegistry registry) throws IOException {
+        if (segment == null) {
+            return;
+        }
+
+        PlayerDelta delta = registry == null ? null : registry.changesSince(registryEpoch, registryVersion);
+        if (segment.remaining() < groupBytes(delta)) {
+            rotate();
+            // The new segment must be readable on its own, so it starts with the full player list.
+            delta = registry == null ? null : registry.changesSince(registryEpoch, registryVersion);
+            int bytes = groupBytes(delta);
+            if (segment.remaining() < bytes) {
+                throw new IOException("A publish needs " + bytes + " bytes, more than a journal segment of " + segmentBytes + " holds");
+            }
+        }
+
+        if (delta != null) {
+            if (delta.full()) {
+                appendHeaderOnly(TYPE_RESET, timeMillis);
+            }
+            for (PlayerSnapshot player : delta.joined()) {
+                appendPlayer(TYPE_JOIN, timeMillis, player.uuid(), player.name());
+            }
+            for (String uuid : delta.left()) {
+                appendPlayer(TYPE_LEAVE, timeMillis, uuid, null);
+            }
+            registryEpoch = delta.epoch();
+            registryVersion = delta.version();
+        }
+        appendTick(timeMillis, snapshot);
+    }
+
+    @Override
+    public void close() {
+        if (segment != null) {
+            segment.force();
+            unmap(segment);
+            segment = null;
+        }
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    private void appendTick(long timeMillis, TelemetrySnapshot snapshot) {
+        int start = segment.position();
+        TickStats tickStats = snapshot.tickStats();
+        segment.position(start + 1);
+        segment.put((byte) 0)
+                .putShort((short) TICK_RECORD_BYTES)
+                .putLong(timeMillis)
+                .putFloat(toFloat(snapshot.mspt()))
+                .putFloat(toFloat(snapshot.tps()))
+                .putInt(snapshot.players().size());
+        if (tickStats == null) {
+            segment.putInt(0)
+                    .putFloat(Float.NaN)
+                    .putFloat(Float.NaN)
+                    .putFloat(Float.NaN)
+                    .putFloat(Float.NaN)
+                    .putInt(-1);
+        } else {
+            segment.putInt((int) Math.min(Integer.MAX_VALUE, tickStats.samples()))
+                    .putFloat((float) tickStats.p50Ms())
+                    .putFloat((float) tickStats.p95Ms())
+                    .putFloat((float) tickStats.p99Ms())
+                    .putFloat((float) tickStats.maxMs())
+                    .putInt((int) Math.min(Integer.MAX_VALUE, tickStats.overBudget()));
+        }
+        commit(start, TYPE_TICK);
+    }
+
+    private void appendHeaderOnly(byte type, long timeMillis) {
+        int start = segment.position();
+        segment.position(start + 1);
+        segment.put((byte) 0).putShort((short) RECORD_HEADER_BYTES).putLong(timeMillis);
+        commit(start, type);
+    }
+
+    private void appendPlayer(byte type, long timeMillis, String uuid, String name) {
+        byte[] uuidBytes = truncate(uuid.getBytes(StandardCharsets.UTF_8));
+        byte[] nameBytes = name == null ? null : truncate(name.getBytes(StandardCharsets.UTF_8));
+        int length = RECORD_HEADER_BYTES + 1 + uuidBytes.length + (nameBytes == null ? 0 : 1 + nameBytes.length);
+        int start = segment.position();
+        segment.position(start + 1);
+        segment.put((byte) 0).putShort((short) length).putLong(timeMillis);
+        segment.put((byte) uuidBytes.length).put(uuidBytes);
+        if (nameBytes != null) {
+            segment.put((byte) nameBytes.length).put(nameBytes);
+        }
+        commit(start, type);
+    }
+
+    /**
+     * @return the bytes one publish appends: its player records, if any, and its tick record
+     */
+    private static int groupBytes(PlayerDelta delta) {
+        int bytes = TICK_RECORD_BYTES;
+        if (delta == null) {
+            return bytes;
+        }
+
+        if (delta.full()) {
+            bytes += RECORD_HEADER_BYTES;
+        }
+        for (PlayerSnapshot player : delta.joined()) {
+            bytes += RECORD_HEADER_BYTES + 1 + utf8Length(player.uuid());
+            if (player.name() != null) {
+                bytes += 1 + utf8Length(player.name());
+            }
+        }
+        for (String uuid : delta.left()) {
+            bytes += RECORD_HEADER_BYTES + 1 + utf8Length(uuid);
+        }
+        return bytes;
+    }
+
+    /**
+     * Publishes a fully written record by storing its type byte last.
+     */
+    private void commit(int start, byte type) {
+        int end = segment.position();
+        segment.put(start, type);
+        segment.position(end);
+    }
+
+    private void rotate() throws IOException {
+        if (segment != null) {
+            segment.force();
+            unmap(segment);
+            segment = null;
+        }
+
+        long createdMillis = System.currentTimeMillis();
+        Path file = directory.resolve(String.format("%s%013d-%06d%s", SEGMENT_PREFIX, createdMillis, segmentSequence++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+
+        segment.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) 0).putLong(createdMillis);
+        // Forget the registry position so the next append restates the full player list.
+        registryEpoch = Long.MIN_VALUE;
+        registryVersion = -1L;
+        enforceSizeCap();
+    }
+
+    /**
+     * Deletes the oldest segments beyond the size cap. A segment that cannot be deleted, for instance because a reader
+     * still maps it on Windows, is skipped and retried at the next rotation rather than failing the journal.
+     */
+    private void enforceSizeCap() {
+        List<Path> segments;
+        long[] sizes;
+        long total = 0;
+        try {
+            segments = TelemetryJournalReader.segments(directory);
+            sizes = new long[segments.size()];
+            for (int i = 0; i < sizes.length; i++) {
+                sizes[i] = Files.size(segments.get(i));
+                total += sizes[i];
+            }
+        } catch (IOException e) {
+            logger.debug("Could not measure the telemetry journal; retrying at the next rotation", e);
+            return;
+        }
+
+        for (int i = 0; i < segments.size() - 1 && total > maxBytes; i++) {
+            Path oldest = segments.get(i);
+            try {
+                Files.deleteIfExists(oldest);
+                total -= sizes[i];
+                logger.debug("Deleted telemetry journal segment {} to stay under {} bytes", oldest.getFileName(), maxBytes);
+            } catch (IOException e) {
+                logger.debug("Could not delete telemetry journal segment {}; retrying at the next rotation", oldest.getFileName(), e);
+            }
+        }
+    }
+
+    /**
+     * Releases a retired segment's mapping now instead of whenever the buffer is collected; Windows refuses to delete
+     * a file that is still mapped. The buffer must not be touched afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+
+        try {
+            INVOKE_CLEANER.invoke(buffer);
+        } catch (Throwable ignored) {
+            // The mapping is released when the buffer is collected instead.
+        }
+    }
+
+    /**
+     * Looks up {@code Unsafe.invokeCleaner} reflectively; without it mappings are released by the garbage collector.
+     */
+    private static MethodHandle cleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException unavailable) {
+            return null;
+        }
+    }
+
+    private static int utf8Length(String value) {
+        return Math.min(MAX_STRING_BYTES, value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static byte[] truncate(byte[] bytes) {
+        return bytes.length <= MAX_STRING_BYTES ? bytes : Arrays.copyOf(bytes, MAX_STRING_BYTES);
+    }
+
+    private static float toFloat(Double value) {
+        return value == null ? Float.NaN : value.floatValue();
+    }
+}
@@ -0,0 +1,403 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.Utf8JsonWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Offline reader for {@link TelemetryJournal} segments.
+ * <p>
+ * Segments are mapped read-only and decoded into a single reused {@link Record}, so scanning is bounded by memory
+ * bandwidth rather than allocation. Run it against a journal directory or a single segment:
+ * <pre>
+ * java -cp mctelemetry-common.jar net.sprocketgames.mctelemetry.common.server.TelemetryJournalReader \
+ *     mctelemetry/journal [--from millis] [--to millis] [--type tick|player|all] [--format csv|jsonl|summary]
+ * </pre>
+ */
+public final class TelemetryJournalReader {
+    private TelemetryJournalReader() {
+    }
+
+    /**
+     * Receives every decoded record. The record instance is reused; copy what you need before returning.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(Record record) throws IOException;
+    }
+
+    /**
+     * Flyweight view of the record currently being visited.
+     */
+    public static final class Record {
+        private byte type;
+        private long timeMillis;
+        private float mspt;
+        private float tps;
+        private int players;
+        private int tickSamples;
+        private float p50;
+        private float p95;
+        private float p99;
+        private float max;
+        private int overBudget;
+        private String uuid;
+        private String name;
+
+        public byte type() {
+            return type;
+        }
+
+        public boolean isTick() {
+            return type == TelemetryJournal.TYPE_TICK;
+        }
+
+        public long timeMillis() {
+            return timeMillis;
+        }
+
+        public float mspt() {
+            return mspt;
+        }
+
+        public float tps() {
+            return tps;
+        }
+
+        public int players() {
+            return players;
+        }
+
+        public int tickSamples() {
+            return tickSamples;
+        }
+
+        public float p50() {
+            return p50;
+        }
+
+        public float p95() {
+            return p95;
+        }
+
+        public float p99() {
+            return p99;
+        }
+
+        public float max() {
+            return max;
+        }
+
+        /**
+         * @return ticks over budget, or {@code -1} when no tick statistics were recorded
+         */
+        public int overBudget() {
+            return overBudget;
+        }
+
+        /**
+         * @return the player's UUID for join and leave records, otherwise {@code null}
+         */
+        public String uuid() {
+            return uuid;
+        }
+
+        /**
+         * @return the player's name for join records, otherwise {@code null}
+         */
+        public String name() {
+            return name;
+        }
+
+        public String typeName() {
+            return switch (type) {
+                case TelemetryJournal.TYPE_TICK -> "tick";
+                case TelemetryJournal.TYPE_JOIN -> "join";
+                case TelemetryJournal.TYPE_LEAVE -> "leave";
+                case TelemetryJournal.TYPE_RESET -> "reset";
+                default -> "unknown";
+            };
+        }
+    }
+
+    /**
+     * @return the segment files under {@code path} in write order, or {@code path} itself when it is a file
+     */
+    public static List<Path> segments(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Files.exists(path) ? List.of(path) : List.of();
+        }
+
+        try (Stream<Path> files = Files.list(path)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(TelemetryJournal.SEGMENT_PREFIX) && name.endsWith(TelemetryJournal.SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Visits every record in time-ordered segments under {@code path}.
+     *
+     * @return the number of records visited
+     */
+    public static long scan(Path path, Visitor visitor) throws IOException {
+        long count = 0;
+        Record record = new Record();
+        for (Path segment : segments(path)) {
+            count += scanSegment(segment, record, visitor);
+        }
+        return count;
+    }
+
+    private static long scanSegment(Path file, Record record, Visitor visitor) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < TelemetryJournal.SEGMENT_HEADER_BYTES) {
+                return 0;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != TelemetryJournal.MAGIC || buffer.getShort() != TelemetryJournal.FORMAT_VERSION) {
+            throw new IOException("Not a version " + TelemetryJournal.FORMAT_VERSION + " telemetry journal segment: " + file);
+        }
+        buffer.position(TelemetryJournal.SEGMENT_HEADER_BYTES);
+
+        long count = 0;
+        try {
+            while (buffer.remaining() >= TelemetryJournal.RECORD_HEADER_BYTES) {
+                int start = buffer.position();
+                byte type = buffer.get();
+                if (type == 0) {
+                    break;
+                }
+
+                buffer.get();
+                int length = buffer.getShort() & 0xFFFF;
+                if (length < TelemetryJournal.RECORD_HEADER_BYTES || length > buffer.remaining() + 4) {
+                    break;
+                }
+
+                decode(buffer, type, record);
+                buffer.position(start + length);
+                visitor.visit(record);
+                count++;
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // A record cut short at the end of the mapping; everything before it was visited.
+        }
+        return count;
+    }
+
+    private static void decode(MappedByteBuffer buffer, byte type, Record record) {
+        record.type = type;
+        record.timeMillis = buffer.getLong();
+        record.uuid = null;
+        record.name = null;
+        if (type == TelemetryJournal.TYPE_TICK) {
+            record.mspt = buffer.getFloat();
+            record.tps = buffer.getFloat();
+            record.players = buffer.getInt();
+            record.tickSamples = buffer.getInt();
+            record.p50 = buffer.getFloat();
+            record.p95 = buffer.getFloat();
+            record.p99 = buffer.getFloat();
+            record.max = buffer.getFloat();
+            record.overBudget = buffer.getInt();
+            return;
+        }
+
+        if (type == TelemetryJournal.TYPE_JOIN || type == TelemetryJournal.TYPE_LEAVE) {
+            record.uuid = readString(buffer);
+            if (type == TelemetryJournal.TYPE_JOIN) {
+                record.name = readString(buffer);
+            }
+        }
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.get() & 0xFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path path = null;
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        String type = "all";
+        String format = "csv";
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--from" -> from = Long.parseLong(args[++i]);
+                    case "--to" -> to = Long.parseLong(args[++i]);
+                    case "--type" -> type = args[++i].toLowerCase(Locale.ROOT);
+                    case "--format" -> format = args[++i].toLowerCase(Locale.ROOT);
+                    default -> path = Paths.get(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            path = null;
+        }
+
+        if (path == null || !List.of("tick", "player", "all").contains(type) || !List.of("csv", "jsonl", "summary").contains(format)) {
+            System.err.println("Usage: TelemetryJournalReader <journal dir|segment> [--from millis] [--to millis]"
+                    + " [--type tick|player|all] [--format csv|jsonl|summary]");
+            System.exit(2);
+            return;
+        }
+
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false, StandardCharsets.UTF_8);
+        long started = System.nanoTime();
+        Export export = new Export(out, format, type, from, to);
+        long scanned = scan(path, export::accept);
+        export.finish(scanned, System.nanoTime() - started);
+        out.flush();
+    }
+
+    /**
+     * Filters records and writes them in one of the export formats.
+     */
+    static final class Export {
+        private final PrintStream out;
+        private final String format;
+        private final String type;
+        private final long from;
+        private final long to;
+        private final Utf8JsonWriter json = new Utf8JsonWriter(256);
+        private final List<String> segmentsSeen = new ArrayList<>();
+        private long matched;
+        private long firstMillis = Long.MAX_VALUE;
+        private long lastMillis = Long.MIN_VALUE;
+        private float worstMspt = Float.NaN;
+        private float worstP99 = Float.NaN;
+        private long overBudget;
+
+        Export(PrintStream out, String format, String type, long from, long to) {
+            this.out = out;
+            this.format = format;
+            this.type = type;
+            this.from = from;
+            this.to = to;
+            if (format.equals("csv")) {
+                out.println("time,type,mspt,tps,players,tickSamples,p50,p95,p99,max,overBudget,uuid,name");
+            }
+        }
+
+        void accept(Record record) throws IOException {
+            if (record.timeMillis() < from || record.timeMillis() > to) {
+                return;
+            }
+            if (type.equals("tick") && !record.isTick() || type.equals("player") && record.isTick()) {
+                return;
+            }
+
+            matched++;
+            firstMillis = Math.min(firstMillis, record.timeMillis());
+            lastMillis = Math.max(lastMillis, record.timeMillis());
+            switch (format) {
+                case "csv" -> writeCsv(record);
+                case "jsonl" -> writeJson(record);
+                default -> summarize(record);
+            }
+        }
+
+        void finish(long scanned, long elapsedNanos) {
+            if (!format.equals("summary")) {
+                return;
+            }
+
+            out.printf(Locale.ROOT, "records scanned: %d (%.1f ms)%n", scanned, elapsedNanos / 1_000_000.0);
+            out.printf(Locale.ROOT, "records matched: %d%n", matched);
+            if (matched > 0) {
+                out.printf(Locale.ROOT, "time range: %d .. %d%n", firstMillis, lastMillis);
+                out.printf(Locale.ROOT, "worst mspt: %s, worst tick p99: %s ms, ticks over budget: %d%n", worstMspt, worstP99, overBudget);
+            }
+        }
+
+        private void summarize(Record record) {
+            if (!record.isTick()) {
+                return;
+            }
+            if (!(record.mspt() <= worstMspt)) {
+                worstMspt = Float.isNaN(worstMspt) ? record.mspt() : Math.max(worstMspt, record.mspt());
+            }
+            if (!(record.p99() <= worstP99)) {
+                worstP99 = Float.isNaN(worstP99) ? record.p99() : Math.max(worstP99, record.p99());
+            }
+            overBudget += Math.max(0, record.overBudget());
+        }
+
+        private void writeCsv(Record record) {
+            StringBuilder line = new StringBuilder(96).append(record.timeMillis()).append(',').append(record.typeName());
+            if (record.isTick()) {
+                line.append(',').append(csv(record.mspt()))
+                        .append(',').append(csv(record.tps()))
+                        .append(',').append(record.players())
+                        .append(',').append(record.tickSamples())
+                        .append(',').append(csv(record.p50()))
+                        .append(',').append(csv(record.p95()))
+                        .append(',').append(csv(record.p99()))
+                        .append(',').append(csv(record.max()))
+                        .append(',').append(record.overBudget() < 0 ? "" : Integer.toString(record.overBudget()))
+                        .append(",,");
+            } else {
+                line.append(",,,,,,,,,,")
+                        .append(',').append(record.uuid() == null ? "" : record.uuid())
+                        .append(',').append(record.name() == null ? "" : record.name().replace(",", ""));
+            }
+            out.println(line);
+        }
+
+        private void writeJson(Record record) throws IOException {
+            json.reset().beginObject()
+                    .name("t").value(record.timeMillis())
+                    .name("type").value(record.typeName());
+            if (record.isTick()) {
+                json.name("mspt").value(json(record.mspt()))
+                        .name("tps").value(json(record.tps()))
+                        .name("players").value(record.players())
+                        .name("tickSamples").value(record.tickSamples())
+                        .name("p50").value(json(record.p50()))
+                        .name("p95").value(json(record.p95()))
+                        .name("p99").value(json(record.p99()))
+                        .name("max").value(json(record.max()))
+                        .name("overBudget").value(record.overBudget() < 0 ? null : (double) record.overBudget());
+            } else if (record.uuid() != null) {
+                json.name("uuid").value(record.uuid());
+                if (record.name() != null) {
+                    json.name("name").value(record.name());
+                }
+            }
+            json.endObject();
+            json.writeTo(out);
+            out.write('\n');
+        }
+
+        private static String csv(float value) {
+            return Float.isNaN(value) ? "" : Float.toString(value);
+        }
+
+        private static Double json(float value) {
+            return Float.isNaN(value) ? null : Double.valueOf(Float.toString(value));
+        }
+    }
+}
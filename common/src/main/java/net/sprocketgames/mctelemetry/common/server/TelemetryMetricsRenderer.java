@@ -0,0 +1,197 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.CensusSnapshot;
+import net.sprocketgames.mctelemetry.common.DimensionSnapshot;
+import net.sprocketgames.mctelemetry.common.JvmSnapshot;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.TickStats;
+
+import java.util.List;
+
+/**
+ * Renders a published snapshot as Prometheus metrics.
+ * <p>
+ * Runs once per publish on the publisher thread, which also lets it keep running totals so per-window values such as
+ * over-budget ticks can be exposed as counters. Not thread-safe.
+ */
+final class TelemetryMetricsRenderer {
+    private static final String PREFIX = "mctelemetry_";
+
+    private final PrometheusTextWriter writer = new PrometheusTextWriter();
+    private long ticksTotal;
+    private long ticksOverBudgetTotal;
+    private long publishesTotal;
+
+    byte[] render(TelemetrySnapshot snapshot, long coalescedCaptures, long skippedRefreshes) {
+        return render(snapshot, coalescedCaptures, skippedRefreshes, null);
+    }
+
+    /**
+     * @param export push exporter figures, or {@code null} when no exporter is configured
+     */
+    byte[] render(TelemetrySnapshot snapshot, long coalescedCaptures, long skippedRefreshes, ExportPipeline.Stats export) {
+        publishesTotal++;
+        TickStats tickStats = snapshot.tickStats();
+        if (tickStats != null) {
+            ticksTotal += tickStats.samples();
+            ticksOverBudgetTotal += tickStats.overBudget();
+        }
+
+        writer.reset();
+        writer.family(PREFIX + "info", "gauge", "Minecraft version and mod loader of this server.")
+                .sample(PREFIX + "info", 1, "mc", snapshot.minecraftVersion(), "loader", snapshot.loader());
+        writer.gauge(PREFIX + "mspt", "Average milliseconds per tick as reported by the server.", snapshot.mspt());
+        writer.gauge(PREFIX + "tps", "Ticks per second derived from the average tick time.", snapshot.tps());
+        writer.gauge(PREFIX + "players_online", "Number of players online.", (double) snapshot.players().size());
+
+        if (tickStats != null) {
+            // Window percentiles are plain gauges: a summary's quantiles would need a matching cumulative _sum/_count.
+            String name = PREFIX + "tick_time_seconds";
+            writer.family(name, "gauge", "Tick duration percentiles and maximum over the last refresh window, in seconds.")
+                    .sample(name, seconds(tickStats.p50Ms()), "stat", "p50")
+                    .sample(name, seconds(tickStats.p95Ms()), "stat", "p95")
+                    .sample(name, seconds(tickStats.p99Ms()), "stat", "p99")
+                    .sample(name, seconds(tickStats.maxMs()), "stat", "max");
+        }
+
+        if (!snapshot.dimensions().isEmpty()) {
+            writeDimensions(snapshot);
+        }
+
+        if (snapshot.census() != null) {
+            writeTypeCounts(PREFIX + "census_entities", "Entities by type in the latest completed census.", snapshot.census().entities());
+            writeTypeCounts(PREFIX + "census_block_entities", "Block entities by type in the latest completed census.",
+                    snapshot.census().blockEntities());
+        }
+
+        if (snapshot.jvm() != null) {
+            writeJvm(snapshot.jvm());
+        }
+
+        writer.family(PREFIX + "ticks_total", "counter", "Ticks recorded by the tick time histogram.")
+                .sample(PREFIX + "ticks_total", ticksTotal);
+        writer.family(PREFIX + "ticks_over_budget_total", "counter", "Ticks that exceeded the tick budget.")
+                .sample(PREFIX + "ticks_over_budget_total", ticksOverBudgetTotal);
+        writer.family(PREFIX + "publishes_total", "counter", "Telemetry snapshots published.")
+                .sample(PREFIX + "publishes_total", publishesTotal);
+        writer.family(PREFIX + "captures_coalesced_total", "counter", "Captures replaced before the publisher picked them up.")
+                .sample(PREFIX + "captures_coalesced_total", coalescedCaptures);
+        writer.family(PREFIX + "refreshes_skipped_total", "counter", "Refreshes the adaptive refresh mode skipped because nobody was polling.")
+                .sample(PREFIX + "refreshes_skipped_total", skippedRefreshes);
+
+        if (export != null) {
+            writeExport(export);
+        }
+
+        return writer.toByteArray();
+    }
+
+    private void writeExport(ExportPipeline.Stats export) {
+        writer.gauge(PREFIX + "export_queued", "Samples waiting for the push exporter thread.", (double) export.queued());
+        writer.family(PREFIX + "export_dropped_total", "counter", "Samples dropped because the push exporter queue was full.")
+                .sample(PREFIX + "export_dropped_total", export.dropped());
+
+        String batches = PREFIX + "export_batches_total";
+        writer.family(batches, "counter", "Batches handed to each push exporter.");
+        for (ExportPipeline.SinkStats sink : export.sinks()) {
+            writer.sample(batches, sink.batches(), "sink", sink.sink());
+        }
+
+        String samples = PREFIX + "export_samples_total";
+        writer.family(samples, "counter", "Samples each push exporter delivered successfully.");
+        for (ExportPipeline.SinkStats sink : export.sinks()) {
+            writer.sample(samples, sink.samples(), "sink", sink.sink());
+        }
+
+        String failures = PREFIX + "export_failures_total";
+        writer.family(failures, "counter", "Batches each push exporter failed to deliver.");
+        for (ExportPipeline.SinkStats sink : export.sinks()) {
+            writer.sample(failures, sink.failures(), "sink", sink.sink());
+        }
+
+        String latency = PREFIX + "export_latency_ms";
+        writer.family(latency, "gauge", "Duration of the latest and the slowest export call of each push exporter, in milliseconds.");
+        for (ExportPipeline.SinkStats sink : export.sinks()) {
+            if (!Double.isNaN(sink.lastLatencyMs())) {
+                writer.sample(latency, sink.lastLatencyMs(), "sink", sink.sink(), "stat", "last");
+            }
+            writer.sample(latency, sink.maxLatencyMs(), "sink", sink.sink(), "stat", "max");
+        }
+    }
+
+    private void writeJvm(JvmSnapshot jvm) {
+        writer.gauge(PREFIX + "jvm_heap_used_bytes", "Heap memory in use.", (double) jvm.heapUsedBytes());
+        writer.gauge(PREFIX + "jvm_heap_committed_bytes", "Heap memory committed by the JVM.", (double) jvm.heapCommittedBytes());
+        if (jvm.heapMaxBytes() >= 0) {
+            writer.gauge(PREFIX + "jvm_heap_max_bytes", "Maximum heap size.", (double) jvm.heapMaxBytes());
+        }
+        if (jvm.oldGenAfterGcBytes() >= 0) {
+            writer.gauge(PREFIX + "jvm_old_gen_after_gc_bytes", "Old generation occupancy after the latest collection.",
+                    (double) jvm.oldGenAfterGcBytes());
+        }
+        writer.gauge(PREFIX + "jvm_old_gen_growth_bytes_per_minute", "Trend of the old generation occupancy after recent collections.",
+                jvm.oldGenGrowthBytesPerMinute());
+        writer.gauge(PREFIX + "jvm_allocated_bytes_per_tick", "Average bytes allocated by the server thread per tick over the last refresh window.",
+                jvm.allocatedBytesPerTick());
+
+        JvmSnapshot.GcPauses pauses = jvm.gcPauses();
+        String pause = PREFIX + "jvm_gc_pause_ms";
+        writer.family(pause, "histogram", "Stop-the-world garbage collection pauses, in milliseconds.");
+        for (int i = 0; i < pauses.buckets().size(); i++) {
+            writer.sample(pause + "_bucket", pauses.buckets().get(i), "le", JvmSnapshot.PAUSE_BUCKETS_MS.get(i).toString());
+        }
+        writer.sample(pause + "_bucket", pauses.count(), "le", "+Inf")
+                .sample(pause + "_sum", pauses.totalMs())
+                .sample(pause + "_count", pauses.count());
+
+        String byCause = PREFIX + "jvm_gc_collections_total";
+        writer.family(byCause, "counter", "Garbage collections by cause.");
+        for (JvmSnapshot.CauseCount cause : pauses.causes()) {
+            writer.sample(byCause, cause.count(), "cause", cause.cause());
+        }
+    }
+
+    private void writeTypeCounts(String name, String help, List<CensusSnapshot.TypeCount> counts) {
+        writer.family(name, "gauge", help);
+        for (CensusSnapshot.TypeCount count : counts) {
+            writer.sample(name, count.count(), "type", count.type());
+        }
+    }
+
+    private void writeDimensions(TelemetrySnapshot snapshot) {
+        String mspt = PREFIX + "dimension_mspt";
+        writer.family(mspt, "gauge", "Average milliseconds per tick spent ticking each dimension.");
+        for (DimensionSnapshot dimension : snapshot.dimensions()) {
+            if (dimension.mspt() != null) {
+                writer.sample(mspt, dimension.mspt(), "dimension", dimension.id());
+            }
+        }
+
+        String chunks = PREFIX + "dimension_loaded_chunks";
+        writer.family(chunks, "gauge", "Chunks loaded in each dimension.");
+        for (DimensionSnapshot dimension : snapshot.dimensions()) {
+            writer.sample(chunks, dimension.loadedChunks(), "dimension", dimension.id());
+        }
+
+        String entities = PREFIX + "dimension_entities";
+        writer.family(entities, "gauge", "Entities loaded in each dimension.");
+        for (DimensionSnapshot dimension : snapshot.dimensions()) {
+            if (dimension.entities() >= 0) {
+                writer.sample(entities, dimension.entities(), "dimension", dimension.id());
+            }
+        }
+
+        String players = PREFIX + "dimension_players";
+        writer.family(players, "gauge", "Players in each dimension.");
+        for (DimensionSnapshot dimension : snapshot.dimensions()) {
+            writer.sample(players, dimension.players(), "dimension", dimension.id());
+        }
+    }
+
+    /**
+     * Converts milliseconds rounded to a tenth into seconds without picking up binary rounding noise.
+     */
+    static double seconds(double millis) {
+        return Math.round(millis * 10.0) / 10_000.0;
+    }
+}
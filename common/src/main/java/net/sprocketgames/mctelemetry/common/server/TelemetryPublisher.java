@@ -0,0 +1,110 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import org.slf4j.Logger;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Hands captures from the server thread to a background worker that serializes and publishes them.
+ * <p>
+ * Three capture buffers rotate between the producer, a shared exchange slot and the worker, so the server thread never
+ * waits on the worker. A capture still sitting in the exchange slot when the next one is submitted is simply replaced,
+ * which coalesces refreshes when the worker falls behind.
+ */
+final class TelemetryPublisher {
+    private static final String THREAD_NAME = "MCTelemetry-Publisher";
+    private static final long STOP_TIMEOUT_MILLIS = 1000L;
+
+    private final Logger logger;
+    private final Consumer<TelemetryCapture> sink;
+    private final AtomicReference<TelemetryCapture> exchange;
+    private final AtomicLong coalescedCaptures = new AtomicLong();
+
+    private TelemetryCapture producing;
+    private TelemetryCapture consuming;
+    private volatile boolean running;
+    private Thread worker;
+
+    TelemetryPublisher(Logger logger, int playerCapacity, Consumer<TelemetryCapture> sink) {
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.sink = Objects.requireNonNull(sink, "sink");
+        this.producing = new TelemetryCapture(playerCapacity);
+        this.consuming = new TelemetryCapture(playerCapacity);
+        this.exchange = new AtomicReference<>(new TelemetryCapture(playerCapacity));
+    }
+
+    void start() {
+        if (worker != null) {
+            return;
+        }
+
+        running = true;
+        worker = new Thread(this::run, THREAD_NAME);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    void stop() {
+        Thread thread = worker;
+        if (thread == null) {
+            return;
+        }
+
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        worker = null;
+    }
+
+    /**
+     * Returns the buffer owned by the calling (server) thread. It stays valid until the next {@link #submit()}.
+     */
+    TelemetryCapture claim() {
+        return producing;
+    }
+
+    /**
+     * Publishes the claimed buffer to the worker without blocking.
+     */
+    void submit() {
+        producing.setFresh(true);
+        TelemetryCapture previous = exchange.getAndSet(producing);
+        if (previous.fresh()) {
+            coalescedCaptures.incrementAndGet();
+        }
+
+        producing = previous;
+        LockSupport.unpark(worker);
+    }
+
+    long coalescedCaptures() {
+        return coalescedCaptures.get();
+    }
+
+    private void run() {
+        while (running) {
+            consuming.setFresh(false);
+            consuming = exchange.getAndSet(consuming);
+            if (!consuming.fresh()) {
+                LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+                continue;
+            }
+
+            try {
+                sink.accept(consuming);
+            } catch (RuntimeException e) {
+                logger.warn("Telemetry publisher failed to process capture", e);
+            }
+        }
+    }
+}
@@ -2,40 +2,225 @@ package net.sprocketgames.mctelemetry.common.server;
 
 import net.sprocketgames.mctelemetry.common.TelemetryPayload;
 import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.Utf8JsonWriter;
 import org.slf4j.Logger;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 
 /**
  * Loader-agnostic helper that owns the lifecycle of the telemetry HTTP server and cached payload.
+ * <p>
+ * The server thread only captures raw values in {@link #tick}; serialization and publishing run on a background
+ * {@link TelemetryPublisher}.
  */
 public class TelemetryService<S> {
+    private static final int INITIAL_PLAYER_CAPACITY = 256;
+    private static final long MILLIS_PER_TICK = 50L;
+    /**
+     * How long a command waits for its on-demand refresh to be published before settling for the previous payload.
+     */
+    private static final long COMMAND_PUBLISH_TIMEOUT_MILLIS = 500L;
+    static final String REFRESH_MODE_PROPERTY = "MCTELEMETRY_REFRESH_MODE";
+    /**
+     * How long after a request the adaptive refresh keeps treating the endpoint as actively polled.
+     */
+    static final long DEMAND_WINDOW_NANOS = 60_000_000_000L;
+
     private final String loaderId;
     private final Logger logger;
     private final Function<S, TelemetryCollector.TelemetrySource> telemetrySourceFactory;
+    private final Utf8JsonWriter publishWriter = new Utf8JsonWriter();
+    private final TickTimeHistogram tickTimes = new TickTimeHistogram();
+    private final PlayerRegistry playerRegistry = new PlayerRegistry();
+    private final ConnectionTracker connections = new ConnectionTracker();
+    private final LevelTickTimer levelTickTimes = new LevelTickTimer();
+    private final TelemetryHistory history = new TelemetryHistory();
+    private final TelemetryMetricsRenderer metricsRenderer = new TelemetryMetricsRenderer();
+    private final TelemetrySnapshotCache snapshots = new TelemetrySnapshotCache();
+    private final SelfMetrics selfMetrics = new SelfMetrics();
+    private final StackProfiler profiler;
+    private final LongSupplier clock;
+    private final Object published = new Object();
 
     private TelemetryHttpServer httpServer;
+    private TelemetryPublisher publisher;
+    private TelemetryJournal journal;
+    private EntityCensus census;
+    private List<TelemetryExporter> exporters = List.of();
+    private volatile ExportPipeline exportPipeline;
+    private boolean jvmMetricsEnabled;
+    private boolean profilerHttpControl;
+    private JvmMetrics jvmMetrics;
+    private Path journalDirectory;
+    private long journalMaxBytes = TelemetryJournal.DEFAULT_MAX_BYTES;
     private int refreshIntervalTicks;
-    private int ticksUntilRefresh;
-    private String minecraftVersion;
+    private int ticksSinceRefresh;
+    private boolean adaptiveRefresh;
+    private int activeRefreshTicks;
+    private int maxStaleTicks;
+    private volatile long skippedRefreshes;
+    private long tickStartNanos;
+    private long tickBudgetNanos;
+    private long dimensionCostNanos;
+    private long submittedCaptures;
+    private long publishedCapture;
+    private volatile String minecraftVersion;
+    private volatile Thread serverThread;
 
     public TelemetryService(String loaderId, Logger logger, Function<S, TelemetryCollector.TelemetrySource> telemetrySourceFactory) {
+        this(loaderId, logger, telemetrySourceFactory, System::nanoTime);
+    }
+
+    /**
+     * @param clock nanosecond time source for tick durations, self-metric costs and the tick budget
+     */
+    TelemetryService(String loaderId, Logger logger, Function<S, TelemetryCollector.TelemetrySource> telemetrySourceFactory,
+            LongSupplier clock) {
+        this.clock = Objects.requireNonNull(clock, "clock");
         this.loaderId = Objects.requireNonNull(loaderId, "loaderId");
         this.logger = Objects.requireNonNull(logger, "logger");
         this.telemetrySourceFactory = Objects.requireNonNull(telemetrySourceFactory, "telemetrySourceFactory");
+        this.profiler = new StackProfiler(logger, () -> serverThread);
+    }
+
+    /**
+     * Enables the on-disk {@link TelemetryJournal} for the next {@link #start}. A {@code null} directory disables it.
+     */
+    public void configureJournal(Path directory, long maxBytes) {
+        journalDirectory = directory;
+        journalMaxBytes = maxBytes;
+    }
+
+    /**
+     * Enables the {@link EntityCensus} over {@code source}, spending at most {@code budgetNanos} per tick. A
+     * {@code null} source or a budget of zero disables it.
+     */
+    public void configureCensus(EntityCensus.Source source, long budgetNanos) {
+        census = source == null || budgetNanos <= 0 ? null : new EntityCensus(source, budgetNanos);
+    }
+
+    /**
+     * @return the entities the most recent complete census counted in {@code dimension}, or {@code -1} when the census
+     * is disabled or has not visited it yet
+     */
+    public int censusEntities(String dimension) {
+        EntityCensus census = this.census;
+        return census == null ? -1 : census.entities(dimension);
+    }
+
+    /**
+     * Enables heap, GC pause and server-thread allocation metrics for the next {@link #start}.
+     */
+    public void configureJvmMetrics(boolean enabled) {
+        jvmMetricsEnabled = enabled;
+    }
+
+    /**
+     * Lets loopback clients start and stop the profiler over HTTP from the next {@link #start}. Off by default, since a
+     * profile pauses the server thread for every sample; reading the last profile is always allowed.
+     */
+    public void configureProfilerHttpControl(boolean enabled) {
+        profilerHttpControl = enabled;
+    }
+
+    /**
+     * Caps the time the service spends on the server thread per tick. Capturing players and tick time always runs;
+     * when the budget would be exceeded, per-dimension load is left out of that refresh and the census slice is
+     * deferred to a later tick. Zero disables the budget.
+     */
+    public void configureTickBudget(long budgetNanos) {
+        tickBudgetNanos = Math.max(0L, budgetNanos);
+        selfMetrics.tickBudgetNanos(tickBudgetNanos);
+    }
+
+    /**
+     * Sets the push exporters fed with every published snapshot from the next {@link #start}. An empty list disables
+     * the export pipeline.
+     */
+    public void configureExporters(List<TelemetryExporter> exporters) {
+        this.exporters = List.copyOf(exporters);
+    }
+
+    /**
+     * Configures the built-in push exporters from their config values; blank values leave an exporter off and invalid
+     * ones are logged and skipped.
+     *
+     * @param statsdAddress {@code host:port} of a StatsD daemon
+     * @param otlpEndpoint  base URL of an OTLP/HTTP collector, e.g. {@code http://localhost:4318}
+     */
+    public void configureExport(String statsdAddress, String otlpEndpoint) {
+        List<TelemetryExporter> configured = new ArrayList<>(2);
+        if (statsdAddress != null && !statsdAddress.isBlank()) {
+            try {
+                configured.add(new StatsdExporter(StatsdExporter.parseAddress(statsdAddress.trim()), null));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring StatsD export address: {}", e.getMessage());
+            }
+        }
+        if (otlpEndpoint != null && !otlpEndpoint.isBlank()) {
+            try {
+                URI endpoint = URI.create(otlpEndpoint.trim());
+                if (endpoint.getScheme() == null || endpoint.getHost() == null) {
+                    throw new IllegalArgumentException("Expected an http(s) URL but got '" + otlpEndpoint + "'");
+                }
+                configured.add(new OtlpHttpExporter(endpoint, OtlpHttpExporter.DEFAULT_TIMEOUT));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring OTLP export endpoint: {}", e.getMessage());
+            }
+        }
+        configureExporters(configured);
+    }
+
+    /**
+     * Selects the refresh mode for the next {@link #start}. In {@code "fixed"} mode (the default) telemetry is captured
+     * every {@code telemetryRefreshTicks}. In {@code "adaptive"} mode it is captured every {@code activeRefreshTicks}
+     * while a consumer has fetched data within the last minute or holds an event stream open, or while push exporters
+     * are configured, since they consume every published snapshot; otherwise only once the payload is
+     * {@code maxStaleTicks} old. System property {@value #REFRESH_MODE_PROPERTY} overrides the mode.
+     */
+    public void configureRefresh(String configuredMode, int activeRefreshTicks, int maxStaleTicks) {
+        String property = System.getProperty(REFRESH_MODE_PROPERTY);
+        String mode = property == null || property.isBlank() ? configuredMode : property;
+        adaptiveRefresh = mode != null && mode.trim().equalsIgnoreCase("adaptive");
+        this.activeRefreshTicks = Math.max(1, activeRefreshTicks);
+        this.maxStaleTicks = Math.max(1, maxStaleTicks);
     }
 
     public boolean start(S server, String minecraftVersion, boolean detailedLogging, int configuredRefreshTicks, int configuredPort, String configuredBindAddress) {
+        return start(server, minecraftVersion, detailedLogging, configuredRefreshTicks, configuredPort, configuredBindAddress, null);
+    }
+
+    /**
+     * @param configuredHttpEngine {@code "jdk"} or {@code "nio"}; see {@link TelemetryHttpServer.Engine#resolve}
+     */
+    public boolean start(S server, String minecraftVersion, boolean detailedLogging, int configuredRefreshTicks, int configuredPort, String configuredBindAddress, String configuredHttpEngine) {
         this.minecraftVersion = Objects.requireNonNull(minecraftVersion, "minecraftVersion");
         refreshIntervalTicks = Math.max(1, configuredRefreshTicks);
-        ticksUntilRefresh = refreshIntervalTicks;
+        activeRefreshTicks = Math.min(Math.max(1, activeRefreshTicks), refreshIntervalTicks);
+        maxStaleTicks = Math.max(maxStaleTicks, refreshIntervalTicks);
+        ticksSinceRefresh = 0;
+        tickTimes.reset();
+        tickStartNanos = 0L;
 
-        String initialPayload = buildPayload(server, detailedLogging);
+        TelemetrySnapshot initialSnapshot = collectSnapshot(server, minecraftVersion, detailedLogging);
+        TelemetrySnapshotCache.Entry initial = snapshots.publish(initialSnapshot, serialize(initialSnapshot, new Utf8JsonWriter()),
+                System.currentTimeMillis());
         int port = TelemetryHttpServer.resolvePort(configuredPort);
         try {
-            httpServer = new TelemetryHttpServer(logger, initialPayload, port, configuredBindAddress);
+            httpServer = new TelemetryHttpServer(logger, initial.json(), port, configuredBindAddress, playerRegistry, history, TelemetryHttpServer.Engine.resolve(configuredHttpEngine));
+            httpServer.enableProfiler(profiler, profilerHttpControl);
+            httpServer.enableSelfMetrics(selfMetrics);
+            httpServer.updateTelemetry(initial);
+            httpServer.updateMetrics(metricsRenderer.render(initialSnapshot, 0, skippedRefreshes));
             if (!httpServer.start()) {
                 httpServer = null;
                 return false;
@@ -46,53 +231,424 @@ public class TelemetryService<S> {
             return false;
         }
 
+        journal = openJournal();
+        jvmMetrics = startJvmMetrics();
+        exportPipeline = startExportPipeline();
+        publisher = new TelemetryPublisher(logger, INITIAL_PLAYER_CAPACITY, this::publish);
+        publisher.start();
+
         logger.info(
-                "MCTelemetry HTTP endpoint active on {}:{} (interval: {} ticks)",
+                "MCTelemetry HTTP endpoint active on {}:{} (interval: {} ticks{}, engine: {})",
                 httpServer.bindAddress(),
                 port,
-                refreshIntervalTicks);
+                refreshIntervalTicks,
+                adaptiveRefresh ? ", adaptive: " + activeRefreshTicks + " ticks when polled, " + maxStaleTicks + " ticks max staleness" : "",
+                httpServer.engine());
         return true;
     }
 
     public void stop() {
+        if (publisher != null) {
+            publisher.stop();
+            publisher = null;
+        }
+
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+
+        if (exportPipeline != null) {
+            exportPipeline.stop();
+            exportPipeline = null;
+        }
+
+        levelTickTimes.clear();
+        profiler.stop();
+        serverThread = null;
+
+        if (jvmMetrics != null) {
+            jvmMetrics.stop();
+            jvmMetrics = null;
+        }
+
         if (httpServer != null) {
             httpServer.stop();
             httpServer = null;
         }
     }
 
+    /**
+     * Event-driven online player list. Loaders feed it from their login/logout events; it is tracked even while the
+     * HTTP endpoint is not running so sources can read from it.
+     */
+    public PlayerRegistry playerRegistry() {
+        return playerRegistry;
+    }
+
+    /**
+     * Latest published snapshot and payload, shared by the HTTP endpoint and the loaders' commands.
+     */
+    public TelemetrySnapshotCache snapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Returns the cached snapshot when it was captured within the refresh interval, otherwise collects one now. See
+     * {@link #snapshot(Object, String, long, boolean)}.
+     */
+    public TelemetrySnapshotCache.Entry snapshot(S server, String minecraftVersion, boolean detailedLogging) {
+        return snapshot(server, minecraftVersion, refreshIntervalTicks * MILLIS_PER_TICK, detailedLogging);
+    }
+
+    /**
+     * Returns the cached snapshot when it was captured within {@code maxAgeMillis}. Otherwise runs a regular refresh on
+     * the calling thread, which must be the server thread, and waits briefly for the publisher to publish it to the
+     * cache and the HTTP endpoint, so the caller sees exactly what every other consumer sees. Before the service has
+     * started, a snapshot is collected for the caller alone and nothing is published.
+     *
+     * @param minecraftVersion used when the service has not been started
+     */
+    public TelemetrySnapshotCache.Entry snapshot(S server, String minecraftVersion, long maxAgeMillis, boolean detailedLogging) {
+        TelemetrySnapshotCache.Entry cached = snapshots.latest();
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.capturedWithin(maxAgeMillis, now)) {
+            return cached;
+        }
+
+        if (publisher == null) {
+            String version = this.minecraftVersion == null ? minecraftVersion : this.minecraftVersion;
+            TelemetrySnapshot snapshot = collectSnapshot(server, version, detailedLogging);
+            return TelemetrySnapshotCache.unpublished(snapshot, serialize(snapshot, new Utf8JsonWriter()), now);
+        }
+
+        long sequence = refresh(server, detailedLogging, jvmMetrics, clock.getAsLong());
+        ticksSinceRefresh = 0;
+        awaitPublished(sequence);
+        return snapshots.latest();
+    }
+
+    /**
+     * Per-player network counters. Loaders open them from their login event and record into them from their network
+     * handlers; their rates are attached to the captured player list as each refresh is published.
+     */
+    public ConnectionTracker connections() {
+        return connections;
+    }
+
+    /**
+     * Per-level tick durations. Loaders feed it from their level tick start/end events and drain it when their
+     * {@link TelemetryCollector.TelemetrySource} reports {@linkplain TelemetryCollector.TelemetrySource#appendDimensions
+     * dimensions}.
+     */
+    public LevelTickTimer levelTickTimes() {
+        return levelTickTimes;
+    }
+
+    /**
+     * Sampling profiler of the server thread, available once the first tick has run. Loaders start and stop it from
+     * their command; it is also exposed at {@code /telemetry/profile} on the JDK HTTP engine.
+     */
+    public StackProfiler profiler() {
+        return profiler;
+    }
+
+    /**
+     * Marks the start of a server tick. Loaders call this from their tick-start event so {@link #tick} can record the
+     * tick's duration.
+     */
+    public void tickStarted() {
+        tickStartNanos = clock.getAsLong();
+    }
+
+    /**
+     * Called at the end of every server tick on the server thread.
+     */
     public void tick(S server, boolean detailedLogging) {
         if (httpServer == null) {
             return;
         }
 
-        if (--ticksUntilRefresh > 0) {
+        long workStart = clock.getAsLong();
+        if (serverThread == null) {
+            serverThread = Thread.currentThread();
+        }
+        if (tickStartNanos != 0L) {
+            tickTimes.record(workStart - tickStartNanos);
+            tickStartNanos = 0L;
+        }
+        JvmMetrics jvm = jvmMetrics;
+        if (jvm != null) {
+            jvm.tickEnded();
+        }
+
+        boolean idle = adaptiveRefresh && exportPipeline == null && !httpServer.demandedWithin(DEMAND_WINDOW_NANOS);
+        if (refreshDue(++ticksSinceRefresh, idle)) {
+            ticksSinceRefresh = 0;
+            refresh(server, detailedLogging, jvm, workStart);
+        }
+
+        // The census is optional work, so it runs last and only gets what the refresh left of the budget.
+        if (!idle) {
+            tickCensus(workStart);
+        }
+        selfMetrics.recordTick(clock.getAsLong() - workStart);
+    }
+
+    /**
+     * @return the sequence number of the submitted capture
+     */
+    private long refresh(S server, boolean detailedLogging, JvmMetrics jvm, long workStart) {
+        long started = clock.getAsLong();
+        long allocatedBefore = selfMetrics.allocatedBytes();
+        TelemetryCapture capture = publisher.claim();
+        try {
+            TelemetryCollector.TelemetrySource source = telemetrySourceFactory.apply(server);
+            TelemetryCollector.capture(source, capture, false, detailedLogging, logger);
+            captureDimensions(source, capture, workStart);
+        } catch (Exception e) {
+            logger.warn("Failed to capture telemetry; publishing fallback payload", e);
+            capture.markFailed();
+        }
+        tickTimes.transferTo(capture.tickTimes());
+        capture.setCensus(census == null ? null : census.latest());
+        if (jvm != null) {
+            capture.setAllocatedBytesPerTick(jvm.drainAllocatedBytesPerTick());
+        }
+        recordCost(selfMetrics.capture(), started, allocatedBefore);
+
+        long sequence = ++submittedCaptures;
+        capture.setSequence(sequence);
+        publisher.submit();
+        return sequence;
+    }
+
+    private void awaitPublished(long sequence) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COMMAND_PUBLISH_TIMEOUT_MILLIS);
+        synchronized (published) {
+            long remaining;
+            while (publishedCapture < sequence && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(published, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds per-dimension load unless its expected cost would push this tick over the budget.
+     */
+    private void captureDimensions(TelemetryCollector.TelemetrySource source, TelemetryCapture capture, long workStart) {
+        long now = clock.getAsLong();
+        if (tickBudgetNanos > 0 && now - workStart + dimensionCostNanos > tickBudgetNanos) {
+            // Halve the estimate so one slow capture does not leave dimensions out for good.
+            dimensionCostNanos /= 2;
+            selfMetrics.dimensionsSkipped();
+            return;
+        }
+
+        TelemetryCollector.captureDimensions(source, capture, logger);
+        dimensionCostNanos = clock.getAsLong() - now;
+    }
+
+    private void recordCost(SelfMetrics.Cost cost, long startedNanos, long allocatedBefore) {
+        long elapsed = clock.getAsLong() - startedNanos;
+        cost.record(elapsed, allocatedBefore < 0 ? -1L : selfMetrics.allocatedBytes() - allocatedBefore);
+    }
+
+    private boolean refreshDue(int ticks, boolean idle) {
+        if (!adaptiveRefresh) {
+            return ticks >= refreshIntervalTicks;
+        }
+
+        if (ticks >= maxStaleTicks || !idle && ticks >= activeRefreshTicks) {
+            return true;
+        }
+
+        if (ticks % refreshIntervalTicks == 0) {
+            // Single writer: only the server thread updates the count.
+            skippedRefreshes++;
+        }
+        return false;
+    }
+
+    /**
+     * Refreshes the adaptive mode skipped that the fixed {@code telemetryRefreshTicks} cadence would have made.
+     */
+    long skippedRefreshes() {
+        return skippedRefreshes;
+    }
+
+    SelfMetrics selfMetrics() {
+        return selfMetrics;
+    }
+
+    TelemetryHttpServer httpServer() {
+        return httpServer;
+    }
+
+    private void tickCensus(long workStart) {
+        if (census == null) {
             return;
         }
 
-        ticksUntilRefresh = refreshIntervalTicks;
+        long remaining = Long.MAX_VALUE;
+        if (tickBudgetNanos > 0) {
+            remaining = tickBudgetNanos - (clock.getAsLong() - workStart);
+            if (remaining <= 0) {
+                selfMetrics.censusDeferred();
+                return;
+            }
+        }
 
-        String payload = buildPayload(server, detailedLogging);
-        httpServer.updateTelemetry(payload);
-        logCachedUpdate(detailedLogging, payload);
+        try {
+            census.tick(remaining);
+        } catch (Exception e) {
+            logger.warn("Entity census failed; disabling it until restart", e);
+            census = null;
+        }
     }
 
-    private String buildPayload(S server, boolean detailedLogging) {
+    private TelemetrySnapshot collectSnapshot(S server, String minecraftVersion, boolean detailedLogging) {
         try {
-            TelemetrySnapshot snapshot = TelemetryCollector.collect(telemetrySourceFactory.apply(server), detailedLogging, logger, minecraftVersion, loaderId);
-            return TelemetryPayload.build(snapshot);
+            return TelemetryCollector.collect(telemetrySourceFactory.apply(server), detailedLogging, logger, minecraftVersion, loaderId);
         } catch (Exception e) {
             logger.warn("Failed to refresh telemetry payload; using fallback", e);
-            return TelemetryPayload.build(minecraftVersion, loaderId, Collections.emptyList());
+            return TelemetrySnapshot.of(minecraftVersion, loaderId, Collections.emptyList(), null, null);
         }
     }
 
-    private void logCachedUpdate(boolean detailedLogging, String payload) {
+    /**
+     * Runs on the publisher thread: rounds, records history, serializes and hands the capture to the HTTP server.
+     */
+    private void publish(TelemetryCapture capture) {
+        long started = clock.getAsLong();
+        long allocatedBefore = selfMetrics.allocatedBytes();
+        TelemetrySnapshot snapshot = fallbackSnapshot();
+        long now = System.currentTimeMillis();
+        if (!capture.failed()) {
+            try {
+                // Rates are sampled here rather than on the server thread, which only captured the list reference.
+                capture.usePlayers(connections.attach(capture.players(), System.nanoTime()));
+                JvmMetrics jvm = jvmMetrics;
+                snapshot = TelemetryCollector.toSnapshot(capture, jvm == null ? null : jvm.snapshot(capture.allocatedBytesPerTick()), logger,
+                        minecraftVersion, loaderId);
+                history.record(now, snapshot);
+                appendJournal(now, snapshot);
+                ExportPipeline pipeline = exportPipeline;
+                if (pipeline != null) {
+                    pipeline.offer(now, snapshot);
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to build telemetry snapshot; using fallback", e);
+            }
+        }
+
+        TelemetrySnapshotCache.Entry entry = snapshots.publish(snapshot, serialize(snapshot, publishWriter), now);
+        ExportPipeline pipeline = exportPipeline;
+        byte[] metrics = metricsRenderer.render(snapshot, publisher == null ? 0 : publisher.coalescedCaptures(), skippedRefreshes,
+                pipeline == null ? null : pipeline.stats());
+
+        TelemetryHttpServer server = httpServer;
+        if (server != null) {
+            server.updateTelemetry(entry);
+            server.updateMetrics(metrics);
+        }
+
+        recordCost(selfMetrics.publish(), started, allocatedBefore);
+        logCachedUpdate(capture.detailedLogging(), entry.json());
+        synchronized (published) {
+            publishedCapture = Math.max(publishedCapture, capture.sequence());
+            published.notifyAll();
+        }
+    }
+
+    private TelemetryJournal openJournal() {
+        if (journalDirectory == null) {
+            return null;
+        }
+
+        TelemetryJournal opened = new TelemetryJournal(logger, journalDirectory, TelemetryJournal.DEFAULT_SEGMENT_BYTES, journalMaxBytes);
+        try {
+            opened.open();
+            logger.info("Telemetry journal writing to {}", journalDirectory);
+            return opened;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to open telemetry journal at {}; continuing without it", journalDirectory, e);
+            return null;
+        }
+    }
+
+    private JvmMetrics startJvmMetrics() {
+        if (!jvmMetricsEnabled) {
+            return null;
+        }
+
+        try {
+            JvmMetrics started = new JvmMetrics(logger);
+            started.start();
+            return started;
+        } catch (RuntimeException | LinkageError e) {
+            logger.warn("Failed to start JVM metrics; continuing without them", e);
+            return null;
+        }
+    }
+
+    private ExportPipeline startExportPipeline() {
+        if (exporters.isEmpty()) {
+            return null;
+        }
+
+        ExportPipeline started = new ExportPipeline(logger, exporters, ExportPipeline.DEFAULT_CAPACITY, ExportPipeline.DEFAULT_BATCH_SIZE,
+                ExportPipeline.DEFAULT_LINGER_MILLIS);
+        started.start();
+        List<String> names = new ArrayList<>(exporters.size());
+        for (TelemetryExporter exporter : exporters) {
+            names.add(exporter.name());
+        }
+        logger.info("Telemetry push export enabled: {}", String.join(", ", names));
+        return started;
+    }
+
+    private void appendJournal(long timeMillis, TelemetrySnapshot snapshot) {
+        TelemetryJournal current = journal;
+        if (current == null) {
+            return;
+        }
+
+        try {
+            current.append(timeMillis, snapshot, playerRegistry);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to append to telemetry journal; disabling it until restart", e);
+            current.close();
+            journal = null;
+        }
+    }
+
+    private byte[] serialize(TelemetrySnapshot snapshot, Utf8JsonWriter writer) {
+        try {
+            TelemetryPayload.write(writer, snapshot);
+        } catch (Exception e) {
+            logger.warn("Failed to serialize telemetry payload; using fallback", e);
+            TelemetryPayload.write(writer, fallbackSnapshot());
+        }
+
+        return writer.toByteArray();
+    }
+
+    private TelemetrySnapshot fallbackSnapshot() {
+        return TelemetrySnapshot.of(minecraftVersion, loaderId, Collections.emptyList(), null, null);
+    }
+
+    private void logCachedUpdate(boolean detailedLogging, byte[] payload) {
         if (!detailedLogging) {
             return;
         }
 
-        int length = payload == null ? 0 : payload.length();
-        logger.info("Cached telemetry JSON refreshed ({} chars)", length);
+        int length = payload == null ? 0 : payload.length;
+        logger.info("Cached telemetry JSON refreshed ({} bytes, {} capture(s) coalesced so far)", length, publisher == null ? 0 : publisher.coalescedCaptures());
     }
 }
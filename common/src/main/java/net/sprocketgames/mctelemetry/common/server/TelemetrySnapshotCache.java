@@ -0,0 +1,113 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Latest published snapshot with its serialized payload, shared by the HTTP endpoint, the {@code /telemetry json}
+ * command and any other consumer.
+ * <p>
+ * Every publish with a different payload gets the next version; republishing identical bytes keeps the version and
+ * only moves the capture time forward, so consumers can drop duplicates by version. Versions keep increasing across
+ * service restarts. Reads are a single volatile load.
+ */
+public final class TelemetrySnapshotCache {
+    private volatile Entry latest;
+
+    /**
+     * @return the latest entry, or {@code null} before the first publish
+     */
+    public Entry latest() {
+        return latest;
+    }
+
+    /**
+     * @param json full serialization of {@code snapshot}; served as-is and must not be modified afterwards
+     */
+    synchronized Entry publish(TelemetrySnapshot snapshot, byte[] json, long capturedAtMillis) {
+        Objects.requireNonNull(snapshot, "snapshot");
+        Objects.requireNonNull(json, "json");
+        Entry current = latest;
+        Entry next;
+        if (current == null) {
+            next = new Entry(1L, capturedAtMillis, snapshot, json);
+        } else if (Arrays.equals(current.json, json)) {
+            next = new Entry(current.version, Math.max(current.capturedAtMillis, capturedAtMillis), snapshot, current.json);
+        } else {
+            next = new Entry(current.version + 1, capturedAtMillis, snapshot, json);
+        }
+        latest = next;
+        return next;
+    }
+
+    /**
+     * Wraps a snapshot that is not published, for a caller that needs one before the service has started. Its version
+     * is {@code 0}, outside the published sequence.
+     */
+    static Entry unpublished(TelemetrySnapshot snapshot, byte[] json, long capturedAtMillis) {
+        return new Entry(0L, capturedAtMillis, Objects.requireNonNull(snapshot, "snapshot"), Objects.requireNonNull(json, "json"));
+    }
+
+    /**
+     * One published snapshot. Immutable.
+     */
+    public static final class Entry {
+        private final long version;
+        private final long capturedAtMillis;
+        private final TelemetrySnapshot snapshot;
+        private final byte[] json;
+        private volatile String taggedJson;
+
+        private Entry(long version, long capturedAtMillis, TelemetrySnapshot snapshot, byte[] json) {
+            this.version = version;
+            this.capturedAtMillis = capturedAtMillis;
+            this.snapshot = snapshot;
+            this.json = json;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Wall-clock time the snapshot was captured.
+         */
+        public long capturedAtMillis() {
+            return capturedAtMillis;
+        }
+
+        public TelemetrySnapshot snapshot() {
+            return snapshot;
+        }
+
+        /**
+         * The full payload. Shared; must not be modified.
+         */
+        byte[] json() {
+            return json;
+        }
+
+        public boolean capturedWithin(long maxAgeMillis, long nowMillis) {
+            return nowMillis - capturedAtMillis <= maxAgeMillis;
+        }
+
+        /**
+         * The full payload with {@code snapshotVersion} and {@code capturedAt} prepended as its first fields, built
+         * once per entry.
+         */
+        public String taggedJson() {
+            String tagged = taggedJson;
+            if (tagged == null) {
+                String payload = new String(json, StandardCharsets.UTF_8);
+                // The payload is always an object; splice the tags in after its opening brace.
+                tagged = "{\"snapshotVersion\":" + version + ",\"capturedAt\":" + capturedAtMillis
+                        + (payload.length() > 2 ? "," : "") + payload.substring(1);
+                taggedJson = tagged;
+            }
+            return tagged;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.TelemetryBinaryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.Utf8JsonWriter;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Projections of one published snapshot for {@code /telemetry?view=} and {@code /telemetry?fields=}.
+ * <p>
+ * The named views and the {@link TelemetryBinaryPayload binary} encoding of the full payload are encoded on the
+ * publisher thread when the snapshot is published. Ad-hoc field projections are
+ * encoded on first request and cached until the next publish, so repeated polls with the same {@code fields} never
+ * re-serialize. At most {@link #MAX_CACHED_PROJECTIONS} distinct projections are cached per snapshot; further ones are
+ * encoded per request.
+ */
+final class TelemetryViews {
+    static final int MAX_CACHED_PROJECTIONS = 16;
+
+    private final TelemetrySnapshot snapshot;
+    private final EncodedPayload full;
+    private final EncodedPayload summary;
+    private final EncodedPayload binary;
+    private final Map<Integer, EncodedPayload> projections = new ConcurrentHashMap<>();
+
+    private TelemetryViews(TelemetrySnapshot snapshot, EncodedPayload full, EncodedPayload summary, EncodedPayload binary) {
+        this.snapshot = snapshot;
+        this.full = full;
+        this.summary = summary;
+        this.binary = binary;
+    }
+
+    /**
+     * @param snapshot the published snapshot, or {@code null} when only the encoded payload is known, in which case
+     *                 every view, including the binary one, resolves to {@code full}
+     */
+    static TelemetryViews of(TelemetrySnapshot snapshot, EncodedPayload full) {
+        if (snapshot == null) {
+            return new TelemetryViews(null, full, full, full);
+        }
+        return new TelemetryViews(snapshot, full, encode(snapshot, full.version(), TelemetryPayload.SUMMARY_FIELDS),
+                EncodedPayload.encode(full.version(), TelemetryBinaryPayload.encode(snapshot), TelemetryBinaryPayload.CONTENT_TYPE));
+    }
+
+    /**
+     * @return the named view ({@code full} or {@code summary}), or {@code null} when the name is unknown
+     */
+    EncodedPayload view(String name) {
+        return switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "full" -> full;
+            case "summary" -> summary;
+            default -> null;
+        };
+    }
+
+    /**
+     * @param fields a mask of {@link TelemetryPayload.Field#bit()}s
+     */
+    EncodedPayload project(int fields) {
+        if (snapshot == null || fields == TelemetryPayload.FULL_FIELDS) {
+            return full;
+        }
+        if (fields == TelemetryPayload.SUMMARY_FIELDS) {
+            return summary;
+        }
+
+        EncodedPayload cached = projections.get(fields);
+        if (cached != null) {
+            return cached;
+        }
+
+        EncodedPayload encoded = encode(snapshot, full.version(), fields);
+        if (projections.size() < MAX_CACHED_PROJECTIONS) {
+            EncodedPayload raced = projections.putIfAbsent(fields, encoded);
+            return raced == null ? encoded : raced;
+        }
+        return encoded;
+    }
+
+    boolean hasSnapshot() {
+        return snapshot != null;
+    }
+
+    EncodedPayload full() {
+        return full;
+    }
+
+    /**
+     * @return the binary encoding of the full payload, or the JSON one when no snapshot is held
+     */
+    EncodedPayload binary() {
+        return binary;
+    }
+
+    private static EncodedPayload encode(TelemetrySnapshot snapshot, long version, int fields) {
+        byte[] json = TelemetryPayload.write(new Utf8JsonWriter(256), snapshot, fields).toByteArray();
+        return EncodedPayload.encode(version, json, TelemetryHttpServer.JSON_CONTENT_TYPE);
+    }
+}
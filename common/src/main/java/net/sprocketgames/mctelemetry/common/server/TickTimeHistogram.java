@@ -0,0 +1,147 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.TickStats;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size, log-linear histogram of tick durations with microsecond resolution.
+ * <p>
+ * Values are bucketed HDR-style: each power of two is split into 16 linear sub-buckets, giving roughly 6% relative
+ * precision from 1&nbsp;&micro;s up to about a minute in 384 {@code long} counters. Recording is a handful of arithmetic
+ * operations and never allocates, so it can run on the server thread for every tick. Instances are not thread-safe;
+ * the server thread records and periodically {@linkplain #transferTo(TickTimeHistogram) transfers} the window into a
+ * capture buffer that another thread reads.
+ */
+public final class TickTimeHistogram {
+    public static final long DEFAULT_TICK_BUDGET_NANOS = 50_000_000L;
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 26;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private final long budgetNanos;
+    private long samples;
+    private long maxNanos;
+    private long overBudget;
+
+    public TickTimeHistogram() {
+        this(DEFAULT_TICK_BUDGET_NANOS);
+    }
+
+    public TickTimeHistogram(long budgetNanos) {
+        this.budgetNanos = budgetNanos > 0 ? budgetNanos : DEFAULT_TICK_BUDGET_NANOS;
+    }
+
+    public void record(long durationNanos) {
+        if (durationNanos < 0) {
+            return;
+        }
+
+        counts[bucketIndex(durationNanos / 1000L)]++;
+        samples++;
+        if (durationNanos > maxNanos) {
+            maxNanos = durationNanos;
+        }
+        if (durationNanos > budgetNanos) {
+            overBudget++;
+        }
+    }
+
+    /**
+     * Copies the current window into {@code target} and starts a new, empty window.
+     */
+    public void transferTo(TickTimeHistogram target) {
+        System.arraycopy(counts, 0, target.counts, 0, BUCKET_COUNT);
+        target.samples = samples;
+        target.maxNanos = maxNanos;
+        target.overBudget = overBudget;
+        reset();
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        samples = 0;
+        maxNanos = 0;
+        overBudget = 0;
+    }
+
+    public long samples() {
+        return samples;
+    }
+
+    public long maxNanos() {
+        return maxNanos;
+    }
+
+    public long overBudget() {
+        return overBudget;
+    }
+
+    /**
+     * @return the highest value equivalent to the given percentile (0-100], capped at the recorded maximum
+     */
+    public long valueAtPercentileNanos(double percentile) {
+        if (samples == 0) {
+            return 0L;
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * samples));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(maxNanos, bucketUpperBoundMicros(i) * 1000L + 999L);
+            }
+        }
+
+        return maxNanos;
+    }
+
+    /**
+     * Summarizes the window in milliseconds, or returns {@code null} when nothing was recorded.
+     */
+    public TickStats toStats() {
+        if (samples == 0) {
+            return null;
+        }
+
+        return new TickStats(
+                samples,
+                toMillis(valueAtPercentileNanos(50.0)),
+                toMillis(valueAtPercentileNanos(95.0)),
+                toMillis(valueAtPercentileNanos(99.0)),
+                toMillis(maxNanos),
+                overBudget);
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) Math.max(0L, micros);
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBoundMicros(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lower = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+}
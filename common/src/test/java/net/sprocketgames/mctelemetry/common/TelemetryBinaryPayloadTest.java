@@ -0,0 +1,93 @@
+package net.sprocketgames.mctelemetry.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetryBinaryPayloadTest {
+    @Test
+    void roundTripsEveryField() {
+        CensusSnapshot census = new CensusSnapshot(1_700_000_000_000L, 12, 2.5, 441,
+                List.of(new CensusSnapshot.TypeCount("minecraft:item", 900), new CensusSnapshot.TypeCount("minecraft:cow", 12)),
+                List.of(new CensusSnapshot.TypeCount("minecraft:hopper", 64)));
+        TelemetrySnapshot snapshot = new TelemetrySnapshot("1.20.1", "forge", List.of(
+                new PlayerSnapshot("Steve", "0123456789abcdef0123456789abcdef"),
+                new PlayerSnapshot("Alex", "ffffffffffffffff0000000000000001", new PlayerSnapshot.Connection(42, 20.5, 35.0, 812.3, 40960.0)),
+                new PlayerSnapshot("Bötchen", "not-a-uuid", new PlayerSnapshot.Connection(0, 0.0, 0.1, 0.0, 1.5))),
+                12.3, 20.0, new TickStats(200, 11.9, 30.2, 48.0, 212.5, 3),
+                List.of(new DimensionSnapshot("minecraft:overworld", 4.2, 625, 1480, 3), new DimensionSnapshot("minecraft:the_end", null, 0, -1, 0)),
+                census, new JvmSnapshot(512L << 20, 1L << 30, -1L, 200L << 20, 1_048_576.0, 48_000.0,
+                        new JvmSnapshot.GcPauses(7, 84.0, 31.0, List.of(2L, 5L, 6L, 7L, 7L, 7L, 7L, 7L, 7L),
+                                List.of(new JvmSnapshot.CauseCount("G1 Evacuation Pause", 7)))));
+
+        assertEquals(snapshot, TelemetryBinaryPayload.decode(TelemetryBinaryPayload.encode(snapshot)));
+    }
+
+    @Test
+    void roundTripsMissingOptionalFields() {
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.21.1", "neoforge", List.of(), null, null);
+
+        assertEquals(snapshot, TelemetryBinaryPayload.decode(TelemetryBinaryPayload.encode(snapshot)));
+    }
+
+    @Test
+    void isSmallerThanJsonForPlayerLists() {
+        List<PlayerSnapshot> players = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            players.add(new PlayerSnapshot("Player_" + i, String.format("%032x", i * 7919L)));
+        }
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge", players, 12.3, 20.0);
+
+        int binary = TelemetryBinaryPayload.encode(snapshot).length;
+        int json = TelemetryPayload.build(snapshot).getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(binary * 2 < json, "binary " + binary + " bytes vs JSON " + json + " bytes");
+    }
+
+    @Test
+    void rejectsTruncatedOrForeignPayloads() {
+        byte[] encoded = TelemetryBinaryPayload.encode(TelemetrySnapshot.of("1.20.1", "forge",
+                List.of(new PlayerSnapshot("Steve", "0123456789abcdef0123456789abcdef")), 12.3, 20.0));
+
+        assertThrows(IllegalArgumentException.class, () -> TelemetryBinaryPayload.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> TelemetryBinaryPayload.decode("{\"mc\":\"1.20.1\"}".getBytes(StandardCharsets.UTF_8)));
+
+        byte[] futureVersion = encoded.clone();
+        futureVersion[4] = TelemetryBinaryPayload.VERSION + 1;
+        assertThrows(IllegalArgumentException.class, () -> TelemetryBinaryPayload.decode(futureVersion));
+    }
+
+    @Test
+    void rejectsPayloadsOfTheFirstVersionAndUnknownFlags() {
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge",
+                List.of(new PlayerSnapshot("Steve", "0123456789abcdef0123456789abcdef")), 12.3, 20.0);
+        byte[] encoded = TelemetryBinaryPayload.encode(snapshot);
+        assertEquals(2, encoded[4], "The jvm block and connection flag are format version 2");
+        assertEquals(snapshot, TelemetryBinaryPayload.decode(encoded));
+
+        byte[] firstVersion = encoded.clone();
+        firstVersion[4] = 1;
+        assertThrows(IllegalArgumentException.class, () -> TelemetryBinaryPayload.decode(firstVersion));
+
+        // The flags byte follows the magic, the version and the two short strings.
+        int flagsOffset = 5 + 1 + "1.20.1".length() + 1 + "forge".length();
+        assertEquals(0x03, encoded[flagsOffset]);
+        byte[] unknownFlag = encoded.clone();
+        unknownFlag[flagsOffset] |= 0x20;
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class, () -> TelemetryBinaryPayload.decode(unknownFlag));
+        assertTrue(rejected.getMessage().contains("flags"), rejected.getMessage());
+
+        // The player's flags byte follows the player count and name at the end of the payload.
+        int playerFlagsOffset = encoded.length - 16 - 1;
+        assertEquals(0x00, encoded[playerFlagsOffset]);
+        byte[] unknownPlayerFlag = encoded.clone();
+        unknownPlayerFlag[playerFlagsOffset] = (byte) 0x80;
+        assertThrows(IllegalArgumentException.class, () -> TelemetryBinaryPayload.decode(unknownPlayerFlag));
+    }
+}
@@ -1,17 +1,25 @@
 package net.sprocketgames.mctelemetry.common;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TelemetryPayloadTest {
     private static final Gson GSON = new Gson();
+    private static final Gson REFERENCE_GSON = new GsonBuilder().serializeNulls().create();
 
     @Test
     void payloadIncludesNullMsptAndTpsWhenUnavailable() {
@@ -44,4 +52,166 @@ class TelemetryPayloadTest {
         assertTrue(root.get("mspt").isJsonNull(), "mspt should null out NaN values");
         assertTrue(root.get("tps").isJsonNull(), "tps should null out infinite values");
     }
+
+    @Test
+    void streamingPayloadMatchesGsonTreeByteForByte() {
+        List<PlayerSnapshot> players = List.of(
+                new PlayerSnapshot("Steve", "00000000000000000000000000000000"),
+                new PlayerSnapshot("quote\"back\\slash", "tab\tnew\nline\rcr\bbs\fff\u0001\u001f"),
+                new PlayerSnapshot("<script>&='x'</script>", "\u2028\u2029\u007f"),
+                new PlayerSnapshot("Ünïcødé ☃ 日本", "\uD83D\uDE00 emoji"),
+                new PlayerSnapshot("lone \uD83D high", "lone \uDE00 low \uD83D"));
+
+        Double[][] metrics = {
+                {null, null},
+                {12.3, 20.0},
+                {0.0, -0.0},
+                {-4.5, 1234567.8},
+                {0.001, 1.0E-7},
+                {Double.MAX_VALUE, Double.MIN_VALUE},
+                {1.0 / 3.0, 123456.789},
+                {Double.NaN, Double.NEGATIVE_INFINITY}
+        };
+
+        for (Double[] metric : metrics) {
+            String expected = legacyGsonPayload("1.20.1", "forge", players, metric[0], metric[1]);
+            String actual = TelemetryPayload.build("1.20.1", "forge", players, metric[0], metric[1]);
+            assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8),
+                    "Payload bytes should match Gson for mspt=" + metric[0] + ", tps=" + metric[1]);
+        }
+    }
+
+    @Test
+    void writerReuseProducesIdenticalBytes() {
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "neoforge",
+                List.of(new PlayerSnapshot("Alex", "0123456789abcdef0123456789abcdef")), 49.9, 20.0);
+        Utf8JsonWriter writer = new Utf8JsonWriter(16);
+
+        byte[] first = TelemetryPayload.write(writer, snapshot).toByteArray();
+        byte[] second = TelemetryPayload.write(writer, snapshot).toByteArray();
+
+        assertArrayEquals(first, second);
+        assertArrayEquals(TelemetryPayload.build(snapshot).getBytes(StandardCharsets.UTF_8), first);
+    }
+
+    @Test
+    void payloadIncludesTickPercentilesWhenRecorded() {
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge", Collections.emptyList(), 12.3, 20.0,
+                new TickStats(200, 11.9, 30.2, 48.0, 212.5, 3));
+
+        JsonObject tickTime = GSON.fromJson(TelemetryPayload.build(snapshot), JsonObject.class).getAsJsonObject("tickTime");
+        assertEquals(200, tickTime.get("samples").getAsLong());
+        assertEquals(11.9, tickTime.get("p50").getAsDouble());
+        assertEquals(30.2, tickTime.get("p95").getAsDouble());
+        assertEquals(48.0, tickTime.get("p99").getAsDouble());
+        assertEquals(212.5, tickTime.get("max").getAsDouble());
+        assertEquals(3, tickTime.get("overBudget").getAsLong());
+    }
+
+    @Test
+    void payloadListsDimensions() {
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge", Collections.emptyList(), 12.3, 20.0, null, List.of(
+                new DimensionSnapshot("minecraft:overworld", 4.2, 625, 1480, 3),
+                new DimensionSnapshot("minecraft:the_nether", null, 0, -1, 0)));
+
+        JsonArray dimensions = GSON.fromJson(TelemetryPayload.build(snapshot), JsonObject.class).getAsJsonArray("dimensions");
+        assertEquals(2, dimensions.size());
+
+        JsonObject overworld = dimensions.get(0).getAsJsonObject();
+        assertEquals("minecraft:overworld", overworld.get("id").getAsString());
+        assertEquals(4.2, overworld.get("mspt").getAsDouble());
+        assertEquals(625, overworld.get("loadedChunks").getAsInt());
+        assertEquals(1480, overworld.get("entities").getAsInt());
+        assertEquals(3, overworld.get("players").getAsInt());
+        assertTrue(dimensions.get(1).getAsJsonObject().get("mspt").isJsonNull(), "Levels without recorded ticks report null mspt");
+        assertTrue(dimensions.get(1).getAsJsonObject().get("entities").isJsonNull(), "Levels the census has not counted report null entities");
+    }
+
+    @Test
+    void payloadIncludesCompletedCensus() {
+        CensusSnapshot census = new CensusSnapshot(1_700_000_000_000L, 12, 2.5, 441,
+                List.of(new CensusSnapshot.TypeCount("minecraft:item", 900), new CensusSnapshot.TypeCount("minecraft:cow", 12)),
+                List.of(new CensusSnapshot.TypeCount("minecraft:hopper", 64)));
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge", Collections.emptyList(), 12.3, 20.0, null, List.of(), census);
+
+        JsonObject json = GSON.fromJson(TelemetryPayload.build(snapshot), JsonObject.class).getAsJsonObject("census");
+        assertEquals(441, json.get("chunks").getAsInt());
+        assertEquals(12, json.get("ticks").getAsInt());
+        assertEquals(900, json.getAsJsonObject("entities").get("minecraft:item").getAsInt());
+        assertEquals(64, json.getAsJsonObject("blockEntities").get("minecraft:hopper").getAsInt());
+    }
+
+    @Test
+    void playersCarryConnectionOnlyWhenTracked() {
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge", List.of(
+                new PlayerSnapshot("Steve", "00000000000000000000000000000000"),
+                new PlayerSnapshot("Alex", "0123456789abcdef0123456789abcdef", new PlayerSnapshot.Connection(42, 20.5, 35.0, 812.3, 40960.0))),
+                12.3, 20.0);
+
+        JsonArray players = GSON.fromJson(TelemetryPayload.build(snapshot), JsonObject.class).getAsJsonArray("players");
+        assertTrue(!players.get(0).getAsJsonObject().has("connection"), "Untracked players have no connection object");
+        JsonObject connection = players.get(1).getAsJsonObject().getAsJsonObject("connection");
+        assertEquals(42, connection.get("latencyMs").getAsInt());
+        assertEquals(20.5, connection.get("packetsInPerSecond").getAsDouble());
+        assertEquals(35.0, connection.get("packetsOutPerSecond").getAsDouble());
+        assertEquals(812.3, connection.get("bytesInPerSecond").getAsDouble());
+        assertEquals(40960.0, connection.get("bytesOutPerSecond").getAsDouble());
+    }
+
+    @Test
+    void projectionWritesOnlyRequestedFieldsInPayloadOrder() {
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge", List.of(
+                new PlayerSnapshot("Steve", "00000000000000000000000000000000")), 12.3, 20.0);
+
+        int mask = TelemetryPayload.Field.parseMask("players, tps,mspt");
+        assertEquals("{\"mspt\":12.3,\"tps\":20.0,\"players\":[{\"name\":\"Steve\",\"uuid\":\"00000000000000000000000000000000\"}]}",
+                TelemetryPayload.write(new Utf8JsonWriter(), snapshot, mask).toString());
+        assertEquals("{\"mc\":\"1.20.1\",\"loader\":\"forge\",\"mspt\":12.3,\"tps\":20.0,\"tickTime\":null,\"playerCount\":1}",
+                TelemetryPayload.write(new Utf8JsonWriter(), snapshot, TelemetryPayload.SUMMARY_FIELDS).toString());
+        assertEquals(TelemetryPayload.build(snapshot),
+                TelemetryPayload.write(new Utf8JsonWriter(), snapshot, TelemetryPayload.FULL_FIELDS).toString());
+    }
+
+    @Test
+    void fieldMaskRejectsUnknownOrEmptyLists() {
+        assertEquals(-1, TelemetryPayload.Field.parseMask("mspt,nope"));
+        assertEquals(-1, TelemetryPayload.Field.parseMask(" , "));
+        assertEquals(-1, TelemetryPayload.Field.parseMask(null));
+        assertEquals(TelemetryPayload.Field.PLAYER_COUNT.bit(), TelemetryPayload.Field.parseMask("playerCount"));
+    }
+
+    /**
+     * Reference implementation mirroring the original Gson tree builder, extended with the fields added since.
+     */
+    private static String legacyGsonPayload(String minecraftVersion, String loader, Collection<PlayerSnapshot> players, Double mspt, Double tps) {
+        JsonObject root = new JsonObject();
+        root.addProperty("mc", minecraftVersion);
+        root.addProperty("loader", loader);
+        addNullableNumber(root, "mspt", mspt);
+        addNullableNumber(root, "tps", tps);
+        root.add("tickTime", JsonNull.INSTANCE);
+        root.add("dimensions", new JsonArray());
+        root.add("census", JsonNull.INSTANCE);
+        root.add("jvm", JsonNull.INSTANCE);
+
+        JsonArray playersArray = new JsonArray();
+        for (PlayerSnapshot player : players) {
+            JsonObject playerObj = new JsonObject();
+            playerObj.addProperty("name", player.name());
+            playerObj.addProperty("uuid", player.uuid());
+            playersArray.add(playerObj);
+        }
+
+        root.add("players", playersArray);
+        return REFERENCE_GSON.toJson(root);
+    }
+
+    private static void addNullableNumber(JsonObject root, String key, Double value) {
+        if (value == null || value.isNaN() || value.isInfinite()) {
+            root.add(key, JsonNull.INSTANCE);
+            return;
+        }
+
+        root.addProperty(key, value);
+    }
 }
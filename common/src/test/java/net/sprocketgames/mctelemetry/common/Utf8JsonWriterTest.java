@@ -0,0 +1,35 @@
+package net.sprocketgames.mctelemetry.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class Utf8JsonWriterTest {
+    @Test
+    void tenthsFastPathMatchesDoubleToString() {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        for (long tenths = -2_000_000; tenths <= 2_000_000; tenths += 7) {
+            double value = tenths / 10.0;
+            writer.reset().value(value);
+            assertEquals(Double.toString(value), writer.toString(), "Formatting differs for " + value);
+        }
+    }
+
+    @Test
+    void separatesNestedValuesWithCommas() {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.beginObject()
+                .name("a").beginArray().value(1).value(true).nullValue().beginObject().endObject().endArray()
+                .name("b").value(-9_223_372_036_854_775_808L)
+                .endObject();
+
+        assertEquals("{\"a\":[1,true,null,{}],\"b\":-9223372036854775808}", writer.toString());
+    }
+
+    @Test
+    void rejectsUnbalancedClose() {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        assertThrows(IllegalStateException.class, writer::endObject);
+    }
+}
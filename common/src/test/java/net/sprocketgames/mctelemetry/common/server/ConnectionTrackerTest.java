@@ -0,0 +1,58 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ConnectionTrackerTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void ratesCoverTheIntervalSinceThePreviousSample() {
+        AtomicInteger latency = new AtomicInteger(35);
+        ConnectionCounters counters = new ConnectionCounters(latency::get, 0L);
+        for (int i = 0; i < 40; i++) {
+            counters.packetReceived();
+            counters.bytesReceived(25);
+        }
+        counters.packetSent();
+        counters.bytesSent(1000);
+
+        assertEquals(new PlayerSnapshot.Connection(35, 20.0, 0.5, 500.0, 500.0), counters.sample(2 * SECOND));
+
+        latency.set(80);
+        counters.packetSent();
+        assertEquals(new PlayerSnapshot.Connection(80, 0.0, 0.3, 0.0, 0.0), counters.sample(5 * SECOND));
+    }
+
+    @Test
+    void attachesCountersToTrackedPlayersOnly() {
+        ConnectionTracker tracker = new ConnectionTracker();
+        tracker.open("aa", () -> 12).packetReceived();
+        tracker.open("gone", () -> 0);
+        tracker.close("gone");
+
+        List<PlayerSnapshot> captured = List.of(new PlayerSnapshot("Alex", "aa"), new PlayerSnapshot("Steve", "bb"));
+        List<PlayerSnapshot> players = tracker.attach(captured, System.nanoTime());
+
+        assertEquals(12, players.get(0).connection().latencyMs());
+        assertNull(players.get(1).connection());
+        assertNull(captured.get(0).connection(), "The captured list is shared and must not be modified");
+    }
+
+    @Test
+    void returnsTheSameListWhenNoPlayerIsTracked() {
+        ConnectionTracker tracker = new ConnectionTracker();
+        tracker.open("cc", () -> 0);
+        List<PlayerSnapshot> captured = List.of(new PlayerSnapshot("Alex", "aa"));
+
+        assertSame(captured, tracker.attach(captured, System.nanoTime()));
+        assertSame(captured, new ConnectionTracker().attach(captured, System.nanoTime()));
+    }
+}
@@ -0,0 +1,130 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.CensusSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class EntityCensusTest {
+    @Test
+    void spreadsPassOverTicksAndPublishesOnlyCompleteResults() {
+        FakeSource source = new FakeSource(5);
+        EntityCensus census = new EntityCensus(source, 0L);
+
+        for (int tick = 0; tick < 4; tick++) {
+            census.tick();
+            assertNull(census.latest(), "Partial passes must not be published");
+        }
+        census.tick();
+        CensusSnapshot snapshot = census.latest();
+
+        assertEquals(1, source.passes);
+        assertEquals(5, snapshot.ticks(), "A zero budget still counts one chunk per tick");
+        assertEquals(5, snapshot.chunks());
+        assertEquals(List.of(
+                new CensusSnapshot.TypeCount("entity:1", 15),
+                new CensusSnapshot.TypeCount("entity:7", 5)), snapshot.entities());
+        assertEquals(List.of(new CensusSnapshot.TypeCount("block:3", 10)), snapshot.blockEntities());
+
+        census.tick();
+        assertEquals(1, source.passes, "The next pass waits for the pass interval");
+        assertSame(snapshot, census.latest());
+    }
+
+    @Test
+    void generousBudgetFinishesInOneTick() {
+        FakeSource source = new FakeSource(1000);
+        EntityCensus census = new EntityCensus(source, 1_000_000_000L);
+
+        census.tick();
+
+        assertEquals(1, census.latest().ticks());
+        assertEquals(1000, census.latest().chunks());
+        assertEquals(3000, census.latest().entities().get(0).count());
+    }
+
+    @Test
+    void totalsEntitiesPerDimensionForCompletePassesOnly() {
+        FakeSource source = new FakeSource(4);
+        EntityCensus census = new EntityCensus(source, 0L);
+
+        for (int tick = 0; tick < 3; tick++) {
+            census.tick();
+        }
+        assertEquals(-1, census.entities("minecraft:overworld"), "Partial passes must not be published");
+
+        census.tick();
+        assertEquals(8, census.entities("minecraft:overworld"));
+        assertEquals(8, census.entities("minecraft:the_nether"));
+        assertEquals(-1, census.entities("minecraft:the_end"));
+    }
+
+    @Test
+    void countMapGrowsAndKeepsCounts() {
+        IntCountMap map = new IntCountMap(2);
+        for (int key = -50; key < 500; key++) {
+            for (int i = 0; i <= Math.floorMod(key, 3); i++) {
+                map.increment(key);
+            }
+        }
+
+        assertEquals(550, map.size());
+        assertEquals(Math.floorMod(-50, 3) + 1, map.get(-50));
+        assertEquals(3, map.get(497));
+        assertEquals(0, map.get(10_000));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(0, map.get(1));
+    }
+
+    private static final class FakeSource implements EntityCensus.Source {
+        private final int chunks;
+        private int remaining;
+        private int passes;
+
+        FakeSource(int chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public void begin() {
+            remaining = chunks;
+            passes++;
+        }
+
+        @Override
+        public boolean countNext(EntityCensus.Counts counts) {
+            if (remaining == 0) {
+                return false;
+            }
+
+            remaining--;
+            if (remaining == chunks - 1 || remaining == chunks / 2 - 1) {
+                counts.dimension(remaining < chunks / 2 ? "minecraft:the_nether" : "minecraft:overworld");
+            }
+            counts.chunk();
+            counts.entity(1);
+            counts.entity(1);
+            counts.entity(1);
+            counts.entity(7);
+            counts.blockEntity(3);
+            counts.blockEntity(3);
+            return remaining > 0;
+        }
+
+        @Override
+        public String entityTypeName(int typeId) {
+            return "entity:" + typeId;
+        }
+
+        @Override
+        public String blockEntityTypeName(int typeId) {
+            return "block:" + typeId;
+        }
+    }
+}
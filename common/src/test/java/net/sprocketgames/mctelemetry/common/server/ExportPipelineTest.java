@@ -0,0 +1,221 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import net.sprocketgames.mctelemetry.common.DimensionSnapshot;
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.TickStats;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportPipelineTest {
+    @Test
+    void ringDropsTheOldestSampleWhenFull() {
+        ExportPipeline.Ring ring = new ExportPipeline.Ring(3);
+        for (int i = 1; i <= 5; i++) {
+            ring.offer(new TelemetryExporter.Sample(i, snapshot(i)));
+        }
+
+        assertEquals(3, ring.size());
+        assertEquals(2, ring.dropped());
+        assertEquals(3, ring.poll().timeMillis());
+        assertEquals(4, ring.poll().timeMillis());
+        assertEquals(5, ring.poll().timeMillis());
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void stalledSinkNeverBlocksOfferAndFailuresAreCounted() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch entered = new CountDownLatch(1);
+        TelemetryExporter stalled = new TelemetryExporter() {
+            @Override
+            public String name() {
+                return "stalled";
+            }
+
+            @Override
+            public void export(List<Sample> batch) throws IOException {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("collector down");
+            }
+        };
+        ExportPipeline pipeline = new ExportPipeline(NOPLogger.NOP_LOGGER, List.of(stalled), 4, 1, 0L);
+        pipeline.start();
+        try {
+            pipeline.offer(0L, snapshot(1));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            long started = System.nanoTime();
+            for (int i = 0; i < 1_000; i++) {
+                pipeline.offer(i, snapshot(i));
+            }
+            assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1), "offer must not wait for the sink");
+
+            ExportPipeline.Stats stats = pipeline.stats();
+            assertEquals(4, stats.queued());
+            assertEquals(996, stats.dropped());
+
+            release.countDown();
+            waitFor(() -> pipeline.stats().sinks().get(0).failures() >= 1);
+            ExportPipeline.SinkStats sink = pipeline.stats().sinks().get(0);
+            assertEquals("stalled", sink.sink());
+            assertEquals(0, sink.samples());
+            assertTrue(sink.maxLatencyMs() > 0);
+        } finally {
+            release.countDown();
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    void statsdExporterSendsGaugesOverUdp() throws Exception {
+        try (DatagramSocket daemon = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            daemon.setSoTimeout(5_000);
+            StatsdExporter exporter = new StatsdExporter(new InetSocketAddress(InetAddress.getLoopbackAddress(), daemon.getLocalPort()), "mc");
+            ExportPipeline pipeline = new ExportPipeline(NOPLogger.NOP_LOGGER, List.of(exporter), 16, 1, 0L);
+            pipeline.start();
+            try {
+                pipeline.offer(1_000L, snapshot(42.5));
+
+                DatagramPacket packet = new DatagramPacket(new byte[StatsdExporter.MAX_DATAGRAM_BYTES], StatsdExporter.MAX_DATAGRAM_BYTES);
+                daemon.receive(packet);
+                List<String> lines = Arrays.asList(new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8).split("\n"));
+                assertTrue(lines.contains("mc.mspt:42.5|g"), lines.toString());
+                assertTrue(lines.contains("mc.players_online:1|g"), lines.toString());
+                assertTrue(lines.contains("mc.tick_time_seconds.p95:0.06|g"), lines.toString());
+                assertTrue(lines.contains("mc.dimension_entities.minecraft_overworld:7|g"), lines.toString());
+                assertTrue(lines.stream().noneMatch(line -> line.startsWith("mc.dimension_entities.minecraft_the_nether")), lines.toString());
+            } finally {
+                pipeline.stop();
+            }
+        }
+    }
+
+    @Test
+    void statsdExporterResolvesAHostThatWasUnresolvedAtStartup() throws Exception {
+        try (DatagramSocket daemon = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            daemon.setSoTimeout(5_000);
+            // As if DNS had failed when the exporter was configured.
+            StatsdExporter exporter = new StatsdExporter(InetSocketAddress.createUnresolved(
+                    InetAddress.getLoopbackAddress().getHostAddress(), daemon.getLocalPort()), "mc");
+            try {
+                exporter.export(List.of(new TelemetryExporter.Sample(1_000L, snapshot(42.5))));
+
+                DatagramPacket packet = new DatagramPacket(new byte[StatsdExporter.MAX_DATAGRAM_BYTES], StatsdExporter.MAX_DATAGRAM_BYTES);
+                daemon.receive(packet);
+                assertTrue(new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8).contains("mc.mspt:42.5|g"));
+            } finally {
+                exporter.close();
+            }
+        }
+    }
+
+    @Test
+    void otlpExporterPostsBatchedGauges() throws Exception {
+        BlockingQueue<String> bodies = new ArrayBlockingQueue<>(4);
+        HttpServer collector = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        collector.createContext(OtlpHttpExporter.METRICS_PATH, exchange -> {
+            bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        collector.start();
+        OtlpHttpExporter exporter = new OtlpHttpExporter(URI.create("http://127.0.0.1:" + collector.getAddress().getPort()), Duration.ofSeconds(2));
+        ExportPipeline pipeline = new ExportPipeline(NOPLogger.NOP_LOGGER, List.of(exporter), 16, 2, 60_000L);
+        try {
+            pipeline.offer(1_000L, snapshot(10.0));
+            pipeline.offer(2_000L, snapshot(20.0));
+            pipeline.start();
+
+            String body = bodies.poll(5, TimeUnit.SECONDS);
+            assertNotNull(body);
+            JsonObject resource = JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("resourceMetrics").get(0).getAsJsonObject();
+            assertEquals("service.name", resource.getAsJsonObject("resource").getAsJsonArray("attributes").get(0).getAsJsonObject()
+                    .get("key").getAsString());
+            JsonArray metrics = resource.getAsJsonArray("scopeMetrics").get(0).getAsJsonObject().getAsJsonArray("metrics");
+            JsonObject mspt = find(metrics, "mctelemetry.mspt");
+            assertEquals("ms", mspt.get("unit").getAsString());
+            JsonArray points = mspt.getAsJsonObject("gauge").getAsJsonArray("dataPoints");
+            assertEquals(2, points.size(), "Both samples of the batch go out in one request");
+            assertEquals("1000000000", points.get(0).getAsJsonObject().get("timeUnixNano").getAsString());
+            assertEquals(20.0, points.get(1).getAsJsonObject().get("asDouble").getAsDouble());
+
+            JsonObject stat = find(metrics, "mctelemetry.tick_time_seconds").getAsJsonObject("gauge").getAsJsonArray("dataPoints").get(0)
+                    .getAsJsonObject().getAsJsonArray("attributes").get(0).getAsJsonObject();
+            assertEquals("stat", stat.get("key").getAsString());
+
+            waitFor(() -> pipeline.stats().sinks().get(0).samples() == 2);
+        } finally {
+            pipeline.stop();
+            collector.stop(0);
+        }
+    }
+
+    @Test
+    void rendersExportMetrics() {
+        ExportPipeline.Stats stats = new ExportPipeline.Stats(3, 12, List.of(new ExportPipeline.SinkStats("otlp", 5, 40, 1, 2.5, 30.0)));
+        String metrics = new String(new TelemetryMetricsRenderer().render(snapshot(10.0), 0, 0, stats), StandardCharsets.UTF_8);
+
+        assertTrue(metrics.contains("mctelemetry_export_queued 3"), metrics);
+        assertTrue(metrics.contains("mctelemetry_export_dropped_total 12"), metrics);
+        assertTrue(metrics.contains("mctelemetry_export_failures_total{sink=\"otlp\"} 1"), metrics);
+        assertTrue(metrics.contains("mctelemetry_export_latency_ms{sink=\"otlp\",stat=\"max\"} 30"), metrics);
+    }
+
+    private static JsonObject find(JsonArray metrics, String name) {
+        for (int i = 0; i < metrics.size(); i++) {
+            JsonObject metric = metrics.get(i).getAsJsonObject();
+            if (metric.get("name").getAsString().equals(name)) {
+                return metric;
+            }
+        }
+        throw new AssertionError("No metric " + name + " in " + metrics);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the exporter thread");
+            Thread.sleep(10);
+        }
+    }
+
+    private static TelemetrySnapshot snapshot(double mspt) {
+        List<PlayerSnapshot> players = new ArrayList<>();
+        players.add(new PlayerSnapshot("Steve", "00000000000000000000000000000001"));
+        return new TelemetrySnapshot("1.20.1", "forge", players, mspt, 20.0, new TickStats(20, 40.0, 60.0, 70.0, 80.0, 0),
+                List.of(new DimensionSnapshot("minecraft:overworld", 1.5, 100, 7, 1),
+                        new DimensionSnapshot("minecraft:the_nether", null, 0, -1, 0)), null);
+    }
+}
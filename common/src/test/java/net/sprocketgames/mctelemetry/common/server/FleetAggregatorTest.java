@@ -0,0 +1,180 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import net.sprocketgames.mctelemetry.common.TelemetryBinaryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FleetAggregatorTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<TelemetryHttpServer> standIns = new ArrayList<>();
+    private FleetAggregator aggregator;
+
+    @AfterEach
+    void stop() {
+        if (aggregator != null) {
+            aggregator.stop();
+        }
+        standIns.forEach(TelemetryHttpServer::stop);
+    }
+
+    @Test
+    void ranksServersAndSearchesPlayersAcrossTheFleet() throws Exception {
+        TelemetryHttpServer lobby = standIn(snapshot(12.3, new PlayerSnapshot("Steve", "00000000000000000000000000000001"),
+                new PlayerSnapshot("alex", "00000000000000000000000000000002")));
+        TelemetryHttpServer survival = standIn(snapshot(48.0, new PlayerSnapshot("Stella", "00000000000000000000000000000003")));
+        aggregator = new FleetAggregator(NOPLogger.NOP_LOGGER, List.of(target("lobby", lobby), target("survival", survival),
+                new FleetAggregator.Target("offline", URI.create("http://127.0.0.1:" + freePort()), TIMEOUT)), Duration.ofHours(1));
+        aggregator.pollNow().join();
+        aggregator.start("127.0.0.1", 0);
+        URI base = URI.create("http://127.0.0.1:" + aggregator.port());
+
+        JsonObject fleet = getJson(base.resolve("/fleet"));
+        assertEquals(3, fleet.get("servers").getAsInt());
+        assertEquals(2, fleet.get("up").getAsInt());
+        assertEquals(3, fleet.get("players").getAsInt());
+        JsonArray ranking = fleet.getAsJsonArray("ranking");
+        assertEquals("survival", ranking.get(0).getAsJsonObject().get("name").getAsString(), "Worst MSPT ranks first");
+        assertEquals(48.0, ranking.get(0).getAsJsonObject().getAsJsonObject("telemetry").get("mspt").getAsDouble());
+        assertEquals("lobby", ranking.get(1).getAsJsonObject().get("name").getAsString());
+        JsonObject offline = ranking.get(2).getAsJsonObject();
+        assertFalse(offline.get("up").getAsBoolean());
+        assertTrue(offline.get("failures").getAsInt() >= 1);
+        assertTrue(offline.get("telemetry").isJsonNull());
+
+        JsonArray matches = getJson(base.resolve("/fleet/players?name=ST")).getAsJsonArray("players");
+        assertEquals(2, matches.size());
+        assertEquals("Stella", matches.get(0).getAsJsonObject().get("name").getAsString());
+        assertEquals("survival", matches.get(0).getAsJsonObject().get("server").getAsString());
+        assertEquals("Steve", matches.get(1).getAsJsonObject().get("name").getAsString());
+
+        JsonArray byUuid = getJson(base.resolve("/fleet/players?uuid=00000000000000000000000000000002")).getAsJsonArray("players");
+        assertEquals("lobby", byUuid.get(0).getAsJsonObject().get("server").getAsString());
+        assertEquals(3, getJson(base.resolve("/fleet/players")).getAsJsonArray("players").size());
+        assertEquals(400, client.send(HttpRequest.newBuilder(base.resolve("/fleet/players?name=")).build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+
+    @Test
+    void pollsConditionallyAndPicksUpChanges() throws Exception {
+        TelemetryHttpServer lobby = standIn(snapshot(12.3));
+        aggregator = new FleetAggregator(NOPLogger.NOP_LOGGER, List.of(target("lobby", lobby)), Duration.ofHours(1));
+
+        aggregator.pollNow().join();
+        aggregator.pollNow().join();
+        assertEquals(1, aggregator.notModifiedPolls(), "An unchanged server answers the second poll with 304");
+
+        TelemetrySnapshot lagging = snapshot(75.5);
+        lobby.updateTelemetry(TelemetryPayload.build(lagging).getBytes(StandardCharsets.UTF_8), lagging);
+        aggregator.pollNow().join();
+
+        JsonObject fleet = JsonParser.parseString(new String(aggregator.view().fleet().identity(), StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals(75.5, fleet.getAsJsonArray("ranking").get(0).getAsJsonObject().getAsJsonObject("telemetry").get("mspt").getAsDouble());
+        assertEquals(1, aggregator.notModifiedPolls());
+    }
+
+    @Test
+    void parsesTargetSpecs() {
+        FleetAggregator.Target named = FleetAggregator.Target.parse("hub=http://10.0.0.5:8765", TIMEOUT);
+        assertEquals("hub", named.name());
+        assertEquals(URI.create("http://10.0.0.5:8765/telemetry"), named.telemetryUri());
+
+        FleetAggregator.Target unnamed = FleetAggregator.Target.parse("http://10.0.0.6:8765/telemetry?view=full", TIMEOUT);
+        assertEquals("10.0.0.6:8765", unnamed.name());
+        assertEquals(URI.create("http://10.0.0.6:8765/telemetry?view=full"), unnamed.telemetryUri());
+
+        assertEquals("metrics.example.net:443", FleetAggregator.Target.parse("https://metrics.example.net", TIMEOUT).name());
+        assertEquals("10.0.0.7:80", FleetAggregator.Target.parse("http://10.0.0.7/telemetry", TIMEOUT).name());
+    }
+
+    @Test
+    void cancelsBodiesBeyondTheCapAndMarksTheTargetDown() throws Exception {
+        HttpServer flood = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        AtomicLong written = new AtomicLong();
+        flood.createContext("/telemetry", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", TelemetryBinaryPayload.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, 0);
+            byte[] chunk = new byte[16 * 1024];
+            try (OutputStream output = exchange.getResponseBody()) {
+                for (int i = 0; i < 4096; i++) {
+                    output.write(chunk);
+                    written.addAndGet(chunk.length);
+                }
+            } catch (IOException cancelled) {
+                // The aggregator hung up once the body passed its cap.
+            }
+        });
+        flood.start();
+
+        try {
+            aggregator = new FleetAggregator(NOPLogger.NOP_LOGGER, List.of(new FleetAggregator.Target("flood",
+                    URI.create("http://127.0.0.1:" + flood.getAddress().getPort()), TIMEOUT)), Duration.ofHours(1), 64 * 1024);
+            aggregator.pollNow().join();
+
+            JsonObject server = JsonParser.parseString(new String(aggregator.view().fleet().identity(), StandardCharsets.UTF_8))
+                    .getAsJsonObject().getAsJsonArray("ranking").get(0).getAsJsonObject();
+            assertFalse(server.get("up").getAsBoolean());
+            assertTrue(server.get("error").getAsString().contains("exceeds 65536 bytes"), server.get("error").getAsString());
+            assertTrue(written.get() < 64L * 1024 * 1024, "The transfer stopped early instead of draining the whole body");
+        } finally {
+            flood.stop(0);
+        }
+    }
+
+    private TelemetryHttpServer standIn(TelemetrySnapshot snapshot) throws IOException {
+        TelemetryHttpServer server = new TelemetryHttpServer(NOPLogger.NOP_LOGGER, TelemetryPayload.build(snapshot).getBytes(StandardCharsets.UTF_8),
+                freePort(), "127.0.0.1", null, null, TelemetryHttpServer.Engine.JDK);
+        server.updateTelemetry(TelemetryPayload.build(snapshot).getBytes(StandardCharsets.UTF_8), snapshot);
+        assertTrue(server.start());
+        standIns.add(server);
+        return server;
+    }
+
+    private static FleetAggregator.Target target(String name, TelemetryHttpServer server) {
+        return new FleetAggregator.Target(name, URI.create("http://127.0.0.1:" + server.port()), TIMEOUT);
+    }
+
+    private static TelemetrySnapshot snapshot(double mspt, PlayerSnapshot... players) {
+        return TelemetrySnapshot.of("1.20.1", "forge", List.of(players), mspt, Math.min(20.0, 1000.0 / mspt));
+    }
+
+    private JsonObject getJson(URI uri) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), uri.toString());
+        return JsonParser.parseString(response.body()).getAsJsonObject();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
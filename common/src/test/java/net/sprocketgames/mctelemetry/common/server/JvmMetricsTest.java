@@ -0,0 +1,83 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.JvmSnapshot;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class JvmMetricsTest {
+    private static byte[] sink;
+
+    @Test
+    void bucketsPausesAndCountsCauses() {
+        JvmMetrics metrics = new JvmMetrics(NOPLogger.NOP_LOGGER);
+        metrics.recordCollection("G1 Evacuation Pause", 3, -1L, 0L);
+        metrics.recordCollection("G1 Evacuation Pause", 40, -1L, 0L);
+        metrics.recordCollection("System.gc()", 1200, -1L, 0L);
+
+        JvmSnapshot.GcPauses pauses = metrics.snapshot(Double.NaN).gcPauses();
+        assertEquals(3, pauses.count());
+        assertEquals(1243.0, pauses.totalMs());
+        assertEquals(1200.0, pauses.maxMs());
+        assertEquals(List.of(0L, 1L, 1L, 1L, 2L, 2L, 2L, 2L, 2L), pauses.buckets());
+        assertEquals(new JvmSnapshot.CauseCount("G1 Evacuation Pause", 2), pauses.causes().get(0));
+        assertEquals(2, pauses.causes().size());
+    }
+
+    @Test
+    void countsOnlyStopTheWorldCollectionsAsPauses() {
+        assertTrue(JvmMetrics.isPause("G1 Young Generation", "end of minor GC"));
+        assertTrue(JvmMetrics.isPause("G1 Old Generation", "end of major GC"));
+        assertTrue(JvmMetrics.isPause("ZGC Pauses", "end of GC pause"));
+        assertFalse(JvmMetrics.isPause("ZGC Cycles", "end of GC cycle"));
+        assertFalse(JvmMetrics.isPause("Shenandoah Cycles", "end of GC cycle"));
+        assertFalse(JvmMetrics.isPause("G1 Concurrent GC", "end of concurrent GC pause"));
+        assertFalse(JvmMetrics.isPause("G1 Concurrent GC", "end of minor GC"));
+
+        JvmMetrics metrics = new JvmMetrics(NOPLogger.NOP_LOGGER);
+        metrics.recordNotification("ZGC Pauses", "end of GC pause", "Allocation Rate", 1, -1L, 0L);
+        metrics.recordNotification("ZGC Cycles", "end of GC cycle", "Allocation Rate", 480, 64_000_000L, 0L);
+
+        JvmSnapshot snapshot = metrics.snapshot(Double.NaN);
+        assertEquals(1, snapshot.gcPauses().count());
+        assertEquals(1.0, snapshot.gcPauses().maxMs(), "Concurrent cycle time is not a pause");
+        assertEquals(64_000_000L, snapshot.oldGenAfterGcBytes(), "The cycle still reports the occupancy it left");
+    }
+
+    @Test
+    void tracksOldGenGrowthAcrossCollections() {
+        JvmMetrics metrics = new JvmMetrics(NOPLogger.NOP_LOGGER);
+        metrics.recordCollection("G1 Evacuation Pause", 5, 100_000_000L, 0L);
+        assertNull(metrics.snapshot(Double.NaN).oldGenGrowthBytesPerMinute(), "One collection is not a trend");
+
+        for (int minute = 1; minute <= JvmMetrics.GROWTH_SAMPLES + 4; minute++) {
+            metrics.recordCollection("G1 Evacuation Pause", 5, 100_000_000L + minute * 2_000_000L, minute * 60_000L);
+        }
+
+        JvmSnapshot snapshot = metrics.snapshot(Double.NaN);
+        assertEquals(140_000_000L, snapshot.oldGenAfterGcBytes());
+        assertEquals(2_000_000.0, snapshot.oldGenGrowthBytesPerMinute());
+        assertNull(snapshot.allocatedBytesPerTick());
+        assertTrue(snapshot.heapUsedBytes() > 0);
+    }
+
+    @Test
+    void measuresServerThreadAllocationPerTick() {
+        JvmMetrics metrics = new JvmMetrics(NOPLogger.NOP_LOGGER);
+        metrics.tickEnded();
+        sink = new byte[1 << 20];
+        metrics.tickEnded();
+
+        double perTick = metrics.drainAllocatedBytesPerTick();
+        assumeTrue(!Double.isNaN(perTick), "JVM does not measure per-thread allocation");
+        assertTrue(perTick >= sink.length, "Allocated " + perTick + " bytes per tick");
+        assertTrue(Double.isNaN(metrics.drainAllocatedBytesPerTick()), "Draining starts a new window");
+    }
+}
@@ -0,0 +1,153 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.TelemetryBinaryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NioHttpEngineTest {
+    private static final byte[] PAYLOAD = ("{\"mc\":\"1.20.1\",\"loader\":\"forge\",\"players\":["
+            + "{\"name\":\"Steve\",\"uuid\":\"00000000000000000000000000000000\"},".repeat(20)
+            + "{\"name\":\"Alex\",\"uuid\":\"00000000000000000000000000000001\"}]}").getBytes(StandardCharsets.UTF_8);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private TelemetryHttpServer server;
+    private int port;
+    private URI telemetryUri;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        server = new TelemetryHttpServer(NOPLogger.NOP_LOGGER, PAYLOAD, port, "127.0.0.1", new PlayerRegistry(), null, TelemetryHttpServer.Engine.NIO);
+        assertTrue(server.start(), "NIO engine should start on a free loopback port");
+        telemetryUri = URI.create("http://127.0.0.1:" + port + "/telemetry");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void servesCachedPayloadWithValidatorsAndGzip() throws Exception {
+        HttpResponse<byte[]> identity = get(HttpRequest.newBuilder(telemetryUri));
+        assertEquals(200, identity.statusCode());
+        assertArrayEquals(PAYLOAD, identity.body());
+        String etag = identity.headers().firstValue("ETag").orElseThrow();
+
+        assertEquals(304, get(HttpRequest.newBuilder(telemetryUri).header("If-None-Match", etag)).statusCode());
+
+        HttpResponse<byte[]> gzip = get(HttpRequest.newBuilder(telemetryUri).header("Accept-Encoding", "gzip"));
+        assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElseThrow());
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+            assertArrayEquals(PAYLOAD, input.readAllBytes());
+        }
+
+        server.updateTelemetry("{\"changed\":true}".getBytes(StandardCharsets.UTF_8));
+        HttpResponse<byte[]> updated = get(HttpRequest.newBuilder(telemetryUri).header("If-None-Match", etag));
+        assertEquals(200, updated.statusCode());
+        assertEquals("{\"changed\":true}", new String(updated.body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void answersPipelinedRequestsInOrderOnOneConnection() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            OutputStream output = socket.getOutputStream();
+            output.write(("GET /health HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /missing HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "POST /telemetry HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\n\r\n"
+                    + "GET /health HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            output.flush();
+
+            String responses = new String(socket.getInputStream().readAllBytes(), StandardCharsets.ISO_8859_1);
+            // Bodies are not newline-terminated, so match status lines anywhere in the stream.
+            String[] statusLines = Pattern.compile("HTTP/1\\.1 \\d{3} [^\r]*").matcher(responses).results()
+                    .map(MatchResult::group)
+                    .toArray(String[]::new);
+
+            assertArrayEquals(new String[] {
+                    "HTTP/1.1 200 OK", "HTTP/1.1 404 Not Found", "HTTP/1.1 405 Method Not Allowed", "HTTP/1.1 200 OK"}, statusLines);
+        }
+    }
+
+    @Test
+    void rejectsRequestsWithBodies() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.getOutputStream().write("GET /telemetry HTTP/1.1\r\nContent-Length: 3\r\n\r\nabc".getBytes(StandardCharsets.ISO_8859_1));
+            InputStream input = socket.getInputStream();
+
+            assertTrue(new String(input.readAllBytes(), StandardCharsets.ISO_8859_1).startsWith("HTTP/1.1 400 Bad Request"));
+        }
+    }
+
+    @Test
+    void servesProjectionsAcrossPublishes() throws Exception {
+        TelemetrySnapshot first = TelemetrySnapshot.of("1.20.1", "forge", List.of(), 12.5, 20.0);
+        server.updateTelemetry(TelemetryPayload.build(first).getBytes(StandardCharsets.UTF_8), first);
+        URI projected = URI.create(telemetryUri + "?fields=mspt");
+        assertEquals("{\"mspt\":12.5}", new String(get(HttpRequest.newBuilder(projected)).body(), StandardCharsets.UTF_8));
+
+        TelemetrySnapshot second = TelemetrySnapshot.of("1.20.1", "forge", List.of(), 40.0, 20.0);
+        server.updateTelemetry(TelemetryPayload.build(second).getBytes(StandardCharsets.UTF_8), second);
+        assertEquals("{\"mspt\":40.0}", new String(get(HttpRequest.newBuilder(projected)).body(), StandardCharsets.UTF_8));
+        assertEquals(400, get(HttpRequest.newBuilder(URI.create(telemetryUri + "?view=nope"))).statusCode());
+
+        HttpResponse<byte[]> binary = get(HttpRequest.newBuilder(telemetryUri).header("Accept", TelemetryBinaryPayload.CONTENT_TYPE));
+        assertEquals(TelemetryBinaryPayload.CONTENT_TYPE, binary.headers().firstValue("Content-Type").orElseThrow());
+        assertEquals(second, TelemetryBinaryPayload.decode(binary.body()));
+    }
+
+    @Test
+    void parsesRequestHeads() {
+        NioHttpEngine.Request request = NioHttpEngine.Request.parse(
+                "\r\nGET /telemetry/players?since=3 HTTP/1.0\r\nConnection: Keep-Alive\r\nAccept-Encoding: gzip\r\nIf-None-Match: \"a\"");
+
+        assertEquals("GET", request.method);
+        assertEquals("/telemetry/players", request.path);
+        assertEquals("since=3", request.query);
+        assertTrue(request.keepAlive);
+        assertEquals("\"a\"", request.ifNoneMatch);
+        assertNull(NioHttpEngine.Request.parse("GET /telemetry"));
+    }
+
+    @Test
+    void findsEndOfRequestHead() {
+        ByteBuffer buffer = ByteBuffer.wrap("GET / HTTP/1.1\r\n\r\nGET".getBytes(StandardCharsets.ISO_8859_1));
+
+        assertEquals(14, NioHttpEngine.indexOfHeadEnd(buffer));
+        buffer.position(18);
+        assertEquals(-1, NioHttpEngine.indexOfHeadEnd(buffer));
+    }
+
+    private HttpResponse<byte[]> get(HttpRequest.Builder request) throws Exception {
+        return client.send(request.GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -0,0 +1,106 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.PlayerDelta;
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerRegistryTest {
+    private static final PlayerSnapshot STEVE = new PlayerSnapshot("Steve", "00000000000000000000000000000001");
+    private static final PlayerSnapshot ALEX = new PlayerSnapshot("Alex", "00000000000000000000000000000002");
+    private static final PlayerSnapshot HEROBRINE = new PlayerSnapshot("Herobrine", "00000000000000000000000000000003");
+
+    @Test
+    void versionsOnlyAdvanceOnMembershipChanges() {
+        PlayerRegistry registry = new PlayerRegistry();
+        registry.join(STEVE);
+        registry.join(ALEX);
+        registry.leave("unknown");
+
+        assertEquals(2, registry.version());
+        assertEquals(List.of(STEVE, ALEX), registry.players());
+    }
+
+    @Test
+    void deltaContainsNetJoinsAndLeavesSinceVersion() {
+        PlayerRegistry registry = new PlayerRegistry();
+        registry.join(STEVE);
+        registry.join(ALEX);
+        long since = registry.version();
+
+        registry.leave(STEVE.uuid());
+        registry.join(HEROBRINE);
+        registry.leave(HEROBRINE.uuid());
+        registry.join(HEROBRINE);
+
+        PlayerDelta delta = registry.changesSince(registry.epoch(), since);
+
+        assertFalse(delta.full());
+        assertEquals(registry.version(), delta.version());
+        assertEquals(List.of(HEROBRINE), delta.joined());
+        assertEquals(List.of(STEVE.uuid()), delta.left());
+    }
+
+    @Test
+    void fallsBackToFullListWhenVersionIsUnknown() {
+        PlayerRegistry registry = new PlayerRegistry(2);
+        registry.join(STEVE);
+        registry.join(ALEX);
+        registry.join(HEROBRINE);
+
+        assertTrue(registry.changesSince(registry.epoch(), 0).full(), "Version older than the change log");
+        assertTrue(registry.changesSince(registry.epoch(), 99).full(), "Version from the future");
+        assertTrue(registry.changesSince(registry.epoch() + 1, 2).full(), "Version from another epoch");
+
+        PlayerDelta full = registry.changesSince(registry.epoch(), -1);
+        assertSame(registry.players(), full.joined());
+    }
+
+    @Test
+    void clearRecordsLeavesForEveryone() {
+        PlayerRegistry registry = new PlayerRegistry();
+        registry.join(STEVE);
+        registry.join(ALEX);
+        long since = registry.version();
+
+        registry.clear();
+
+        assertTrue(registry.players().isEmpty());
+        assertEquals(List.of(STEVE.uuid(), ALEX.uuid()), registry.changesSince(registry.epoch(), since).left());
+    }
+
+    @Test
+    void sessionSnapshotIsBuiltOnceAndReplacedOnRename() {
+        PlayerRegistry registry = new PlayerRegistry();
+        UUID id = UUID.fromString("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+
+        PlayerSnapshot joined = registry.join(id, "Steve");
+        List<PlayerSnapshot> players = registry.players();
+        long version = registry.version();
+
+        assertEquals(id.toString().replace("-", ""), joined.uuid());
+        assertSame(joined, registry.join(id, "Steve"), "Rejoining under the same name reuses the session snapshot");
+        assertSame(players, registry.players(), "Unchanged membership keeps the published list");
+        assertEquals(version, registry.version());
+
+        PlayerSnapshot renamed = registry.join(id, "Stevie");
+        assertEquals("Stevie", renamed.name());
+        assertSame(joined.uuid(), renamed.uuid(), "The hex UUID is rendered once per session");
+        assertNotSame(players, registry.players());
+        assertEquals(List.of(renamed), registry.players());
+
+        assertSame(renamed, registry.leave(id));
+        assertTrue(registry.players().isEmpty());
+        assertNull(registry.leave(id));
+        assertNotSame(renamed, registry.join(id, "Stevie"), "A new session builds a new snapshot");
+    }
+}
@@ -0,0 +1,77 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestLimiterTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void allowsBurstThenAsksClientsToRetryUntilTokensRefill() throws Exception {
+        AtomicLong now = new AtomicLong();
+        RequestLimiter limiter = new RequestLimiter(4, 2.0, 3, now::get);
+        InetAddress client = InetAddress.getByName("10.0.0.1");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0L, limiter.tryConsume(client));
+        }
+        assertEquals(1L, limiter.tryConsume(client));
+
+        now.addAndGet(SECOND / 2);
+        assertEquals(0L, limiter.tryConsume(client));
+        assertEquals(1L, limiter.tryConsume(client));
+    }
+
+    @Test
+    void tracksEachRemoteAddressSeparately() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(4, 1.0, 1, () -> 0L);
+
+        assertEquals(0L, limiter.tryConsume(InetAddress.getByName("10.0.0.1")));
+        assertEquals(1L, limiter.tryConsume(InetAddress.getByName("10.0.0.1")));
+        assertEquals(0L, limiter.tryConsume(InetAddress.getByName("10.0.0.2")));
+    }
+
+    @Test
+    void reportsLongerWaitsForSlowRates() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(4, 0.1, 1, () -> 0L);
+        InetAddress client = InetAddress.getByName("10.0.0.1");
+
+        limiter.tryConsume(client);
+
+        assertEquals(10L, limiter.tryConsume(client));
+    }
+
+    @Test
+    void zeroRateDisablesLimiting() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(4, 0.0, 1, () -> 0L);
+        InetAddress client = InetAddress.getByName("10.0.0.1");
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0L, limiter.tryConsume(client));
+        }
+    }
+
+    @Test
+    void boundsTrackedClientsUnderAnAddressScanAndKeepsActiveOnes() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(4, 1.0, 1, () -> 0L);
+        InetAddress active = InetAddress.getByName("10.0.0.1");
+        assertEquals(0L, limiter.tryConsume(active));
+
+        byte[] address = {(byte) 172, 16, 0, 0};
+        for (int i = 0; i < 50_000; i++) {
+            address[2] = (byte) (i >>> 8);
+            address[3] = (byte) i;
+            assertEquals(0L, limiter.tryConsume(InetAddress.getByAddress(address)), "Every scanned address is new");
+            if (i % 500 == 0) {
+                assertTrue(limiter.tryConsume(active) > 0, "The active client keeps its exhausted bucket");
+            }
+        }
+
+        assertEquals(RequestLimiter.MAX_TRACKED_CLIENTS, limiter.trackedClients());
+    }
+}
@@ -0,0 +1,91 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StackProfilerTest {
+    @Test
+    void foldsStacksIntoCollapsedLines() {
+        ProfileTrie trie = new ProfileTrie(64);
+        StackTraceElement main = frame("Server", "run", 10);
+        StackTraceElement tick = frame("Server", "tick", 20);
+        StackTraceElement io = frame("Level", "save", 30);
+
+        trie.record(new StackTraceElement[]{tick, main});
+        trie.record(new StackTraceElement[]{frame("Server", "tick", 21), main});
+        trie.record(new StackTraceElement[]{io, tick, main});
+
+        assertEquals("Server.run;Server.tick 2\nServer.run;Server.tick;Level.save 1\n",
+                new String(trie.collapsed(), StandardCharsets.UTF_8));
+        assertEquals(4, trie.size(), "Lines of the same method share a node");
+    }
+
+    @Test
+    void capsNodesAndChargesTruncatedSamplesToDeepestFrame() {
+        ProfileTrie trie = new ProfileTrie(3);
+        StackTraceElement main = frame("Server", "run", 1);
+        StackTraceElement tick = frame("Server", "tick", 2);
+
+        trie.record(new StackTraceElement[]{tick, main});
+        trie.record(new StackTraceElement[]{frame("Level", "save", 3), tick, main});
+
+        assertEquals(3, trie.size());
+        assertEquals(1, trie.truncatedSamples());
+        assertEquals("Server.run;Server.tick 2\n", new String(trie.collapsed(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void samplesTargetThreadUntilStopped() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        Thread busy = new Thread(() -> {
+            while (done.getCount() > 0) {
+                spin();
+            }
+        }, "busy");
+        busy.setDaemon(true);
+        busy.start();
+
+        StackProfiler profiler = new StackProfiler(NOPLogger.NOP_LOGGER, () -> busy);
+        try {
+            assertTrue(profiler.start(StackProfiler.MAX_RATE_HZ, 10));
+            assertFalse(profiler.start(StackProfiler.MAX_RATE_HZ, 10), "Only one profile runs at a time");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (profiler.status().samples() < 20 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            profiler.stop();
+            done.countDown();
+        }
+
+        StackProfiler.Status status = profiler.status();
+        assertFalse(status.running());
+        assertTrue(status.samples() >= 20, "Collected " + status.samples() + " samples");
+        assertTrue(new String(profiler.collapsed(), StandardCharsets.UTF_8).contains("StackProfilerTest.spin"));
+    }
+
+    @Test
+    void refusesToStartWithoutTarget() {
+        assertFalse(new StackProfiler(NOPLogger.NOP_LOGGER, () -> null).start(100, 1));
+    }
+
+    private static double sink;
+
+    private static void spin() {
+        for (int i = 0; i < 10_000; i++) {
+            sink += Math.sqrt(i);
+        }
+    }
+
+    private static StackTraceElement frame(String className, String method, int line) {
+        return new StackTraceElement(className, method, className + ".java", line);
+    }
+}
@@ -0,0 +1,40 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.List;
+import java.util.OptionalDouble;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TelemetryCollectorTest {
+    @Test
+    void sharedPlayerListIsCapturedAndPublishedByReference() {
+        PlayerRegistry registry = new PlayerRegistry();
+        registry.join(new PlayerSnapshot("Steve", "00000000000000000000000000000001"));
+        TelemetryCollector.TelemetrySource source = new TelemetryCollector.TelemetrySource() {
+            @Override
+            public OptionalDouble averageTickTimeMs() {
+                return OptionalDouble.of(10.0);
+            }
+
+            @Override
+            public List<PlayerSnapshot> onlinePlayers() {
+                throw new AssertionError("The shared list must be captured instead of copied");
+            }
+
+            @Override
+            public List<PlayerSnapshot> sharedOnlinePlayers() {
+                return registry.players();
+            }
+        };
+
+        TelemetryCapture capture = new TelemetryCapture(0);
+        TelemetryCollector.capture(source, capture, false, NOPLogger.NOP_LOGGER);
+
+        assertSame(registry.players(), capture.players());
+        assertSame(registry.players(), TelemetryCollector.toSnapshot(capture, NOPLogger.NOP_LOGGER, "1.20.1", "forge").players());
+    }
+}
@@ -0,0 +1,132 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetryEventStreamTest {
+    @Test
+    void framesPayloadAsSingleEvent() {
+        byte[] frame = TelemetryEventStream.frame(42L, "{\"tps\":20.0}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("id: 42\nevent: telemetry\ndata: {\"tps\":20.0}\n\n", new String(frame, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void evictsSubscribersWhoseBufferIsFull() {
+        TelemetryEventStream stream = new TelemetryEventStream(NOPLogger.NOP_LOGGER, 4, 2);
+        stream.publish(1L, json(1));
+        TelemetryEventStream.Subscriber stalled = stream.subscribe(-1L);
+        assertEquals(1, stalled.pending(), "A fresh subscriber starts with the latest snapshot");
+
+        stream.publish(2L, json(2));
+        assertFalse(stalled.closed());
+        stream.publish(3L, json(3));
+
+        assertTrue(stalled.closed());
+        assertEquals(0, stream.subscriberCount());
+        assertEquals(1, stream.evictions());
+    }
+
+    @Test
+    void evictionReleasesAHandlerBlockedOnAClientThatStoppedReading() throws Exception {
+        TelemetryEventStream stream = new TelemetryEventStream(NOPLogger.NOP_LOGGER, 4, 2);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        server.createContext("/telemetry/stream", stream);
+        server.setExecutor(executor);
+        server.start();
+        try (Socket client = new Socket()) {
+            client.setReceiveBufferSize(4096);
+            client.connect(server.getAddress());
+            client.getOutputStream().write("GET /telemetry/stream HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            client.setSoTimeout(10_000);
+            InputStream input = client.getInputStream();
+            readUntil(input, "retry: 5000");
+
+            // Frames far larger than the socket buffers block the handler in write until the queue overflows.
+            byte[] large = new byte[4 * 1024 * 1024];
+            Arrays.fill(large, (byte) 'x');
+            for (long id = 1; stream.evictions() == 0; id++) {
+                assertTrue(id < 100, "The stalled subscriber was never evicted");
+                stream.publish(id, large);
+                Thread.sleep(20);
+            }
+
+            // Without the interrupt the handler would stay blocked and, once drained, keep the connection open.
+            byte[] buffer = new byte[64 * 1024];
+            try {
+                while (input.read(buffer) >= 0) {
+                    // Drain until the server closes the connection.
+                }
+            } catch (SocketTimeoutException e) {
+                throw new AssertionError("The evicted subscriber's connection was left open", e);
+            } catch (SocketException e) {
+                // A reset also means the server closed the channel.
+            }
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void resumesFromLastEventIdWithinTheReplayWindow() {
+        TelemetryEventStream stream = new TelemetryEventStream(NOPLogger.NOP_LOGGER, 4, 3);
+        for (long id = 1; id <= 5; id++) {
+            stream.publish(id, json(id));
+        }
+
+        assertEquals(2, stream.subscribe(3L).pending(), "Events 4 and 5 were missed");
+        assertEquals(0, stream.subscribe(5L).pending(), "Up-to-date clients get nothing replayed");
+        assertEquals(1, stream.subscribe(1L).pending(), "Clients behind the window only get the latest snapshot");
+        assertEquals(1, stream.subscribe(99L).pending(), "Ids from a previous run are treated as a fresh connection");
+    }
+
+    @Test
+    void rejectsSubscribersBeyondTheLimitAndAfterClose() {
+        TelemetryEventStream stream = new TelemetryEventStream(NOPLogger.NOP_LOGGER, 1, 2);
+        TelemetryEventStream.Subscriber first = stream.subscribe(-1L);
+
+        assertNull(stream.subscribe(-1L));
+
+        stream.close();
+        assertTrue(first.closed());
+        assertNull(stream.subscribe(-1L));
+    }
+
+    /**
+     * Reads byte by byte until {@code marker} arrives, so nothing past it is consumed.
+     */
+    private static void readUntil(InputStream input, String marker) throws IOException {
+        StringBuilder seen = new StringBuilder();
+        while (seen.indexOf(marker) < 0) {
+            int next = input.read();
+            assertTrue(next >= 0, "Connection closed before " + marker);
+            seen.append((char) next);
+        }
+    }
+
+        private static byte[] json(long value) {
+        return ("{\"v\":" + value + "}").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,121 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.Utf8JsonWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TelemetryHistoryTest {
+    private static final long SECOND = 1000L;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long START = 1_700_000_000_000L - Math.floorMod(1_700_000_000_000L, 10 * MINUTE);
+
+    @Test
+    void rawQueriesReturnEverySample() {
+        TelemetryHistory history = new TelemetryHistory();
+        for (int i = 0; i < 6; i++) {
+            history.record(START + i * 10 * SECOND, snapshot(10.0 + i));
+        }
+
+        TelemetryHistory.Range range = history.query(TelemetryHistory.Metric.MSPT, START, START + MINUTE, 0L);
+
+        assertEquals(0L, range.resolutionMillis());
+        assertEquals(6, range.size());
+        assertEquals(START + 50 * SECOND, range.time(5));
+        assertEquals(15.0, range.max(5));
+    }
+
+    @Test
+    void mergesBucketsIntoRequestedStep() {
+        TelemetryHistory history = new TelemetryHistory();
+        for (int i = 0; i < 12; i++) {
+            history.record(START + i * 10 * SECOND, snapshot(i < 6 ? 10.0 : 30.0));
+        }
+
+        TelemetryHistory.Range range = history.query(TelemetryHistory.Metric.MSPT, START, START + 2 * MINUTE, MINUTE);
+
+        assertEquals(MINUTE, range.resolutionMillis(), "The 1 minute tier matches the step exactly");
+        assertEquals(2, range.size());
+        assertEquals(10.0, range.avg(0));
+        assertEquals(6L, range.samples(0));
+        assertEquals(30.0, range.min(1));
+
+        TelemetryHistory.Range merged = history.query(TelemetryHistory.Metric.MSPT, START, START + 2 * MINUTE, 2 * MINUTE);
+        assertEquals(1, merged.size());
+        assertEquals(20.0, merged.avg(0));
+        assertEquals(10.0, merged.min(0));
+        assertEquals(30.0, merged.max(0));
+        assertEquals(12L, merged.samples(0));
+    }
+
+    @Test
+    void fallsBackToCoarserTiersOnceFinerOnesWrap() {
+        TelemetryHistory history = new TelemetryHistory();
+        long end = START + 3 * 60 * MINUTE;
+        for (long time = START; time < end; time += 5 * SECOND) {
+            history.record(time, snapshot(20.0));
+        }
+
+        TelemetryHistory.Range recent = history.query(TelemetryHistory.Metric.MSPT, end - 30 * MINUTE, end, 10 * SECOND);
+        assertEquals(10 * SECOND, recent.resolutionMillis());
+
+        TelemetryHistory.Range old = history.query(TelemetryHistory.Metric.MSPT, START, end, 10 * SECOND);
+        assertEquals(MINUTE, old.resolutionMillis(), "The 10 s tier only holds an hour");
+        assertEquals(180, old.size());
+    }
+
+    @Test
+    void computesBucketP99FromSamples() {
+        TelemetryHistory history = new TelemetryHistory();
+        for (int i = 1; i <= 100; i++) {
+            history.record(START + i * 90L, snapshot(i));
+        }
+
+        TelemetryHistory.Range range = history.query(TelemetryHistory.Metric.MSPT, START, START + 10 * SECOND, 10 * SECOND);
+
+        assertEquals(1, range.size());
+        assertEquals(99.0, range.p99(0));
+        assertEquals(50.5, range.avg(0));
+    }
+
+    @Test
+    void streamsJsonInChunks() throws Exception {
+        TelemetryHistory history = new TelemetryHistory();
+        for (int i = 0; i < 2000; i++) {
+            history.record(START + i * SECOND, snapshot(12.345));
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Utf8JsonWriter writer = new Utf8JsonWriter(64);
+        history.query(TelemetryHistory.Metric.MSPT, START, START + 2000 * SECOND, 0L).write(writer, output);
+
+        JsonObject json = JsonParser.parseString(output.toString(StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals("mspt", json.get("metric").getAsString());
+        assertEquals(2000, json.getAsJsonArray("points").size());
+        assertEquals(12.35, json.getAsJsonArray("points").get(0).getAsJsonObject().get("avg").getAsDouble());
+    }
+
+    @Test
+    void parsesStepsAndMetricKeys() {
+        assertEquals(30 * SECOND, TelemetryHistory.parseStepMillis("30", 0L));
+        assertEquals(5 * MINUTE, TelemetryHistory.parseStepMillis("5m", 0L));
+        assertEquals(60 * MINUTE, TelemetryHistory.parseStepMillis("1h", 0L));
+        assertEquals(250L, TelemetryHistory.parseStepMillis("250ms", 0L));
+        assertEquals(7L, TelemetryHistory.parseStepMillis("soon", 7L));
+        assertSame(TelemetryHistory.Metric.TICK_P99, TelemetryHistory.Metric.byKey("tickp99"));
+        assertNull(TelemetryHistory.Metric.byKey("bogus"));
+    }
+
+    private static TelemetrySnapshot snapshot(double mspt) {
+        return TelemetrySnapshot.of("1.20.1", "forge", Collections.emptyList(), mspt, 20.0);
+    }
+}
@@ -0,0 +1,72 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetryHttpExecutorTest {
+    @Test
+    void exchangesBeyondTheQueueAreShedOffTheDispatcherWith503() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RequestLimiter limiter = new RequestLimiter(16, 0.0, 1, System::nanoTime);
+        ThreadPoolExecutor executor = TelemetryHttpExecutor.platform(1, 1);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/slow", exchange -> {
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        }).getFilters().add(limiter.filter(true));
+        server.setExecutor(executor);
+        server.start();
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/slow"))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        try {
+            CompletableFuture<HttpResponse<Void>> running = client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            CompletableFuture<HttpResponse<Void>> queued = client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (executor.getQueue().isEmpty()) {
+                assertTrue(System.nanoTime() < deadline, "The second exchange was never queued");
+                Thread.sleep(10);
+            }
+
+            HttpResponse<Void> rejected = client.send(request, HttpResponse.BodyHandlers.discarding());
+            assertEquals(503, rejected.statusCode());
+            assertEquals("1", rejected.headers().firstValue("Retry-After").orElse(null));
+            assertFalse(running.isDone(), "The overflow never ran on the busy worker");
+
+            release.countDown();
+            assertEquals(204, running.get(5, TimeUnit.SECONDS).statusCode());
+            assertEquals(204, queued.get(5, TimeUnit.SECONDS).statusCode());
+            assertEquals(1L, limiter.shedRequests());
+        } finally {
+            release.countDown();
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
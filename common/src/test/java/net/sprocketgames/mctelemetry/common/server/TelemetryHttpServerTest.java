@@ -0,0 +1,317 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import net.sprocketgames.mctelemetry.common.TelemetryBinaryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetryPayload;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetryHttpServerTest {
+    private static final byte[] PAYLOAD = ("{\"mc\":\"1.20.1\",\"loader\":\"forge\",\"mspt\":null,\"tps\":null,\"players\":["
+            + "{\"name\":\"Steve\",\"uuid\":\"00000000000000000000000000000000\"},".repeat(20)
+            + "{\"name\":\"Alex\",\"uuid\":\"00000000000000000000000000000001\"}]}").getBytes(StandardCharsets.UTF_8);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final PlayerRegistry playerRegistry = new PlayerRegistry();
+    private final TelemetryHistory history = new TelemetryHistory();
+    private TelemetryHttpServer server;
+    private URI telemetryUri;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        server = new TelemetryHttpServer(NOPLogger.NOP_LOGGER, PAYLOAD, port, "127.0.0.1", playerRegistry, history, TelemetryHttpServer.Engine.JDK);
+        assertTrue(server.start(), "Server should start on a free loopback port");
+        telemetryUri = URI.create("http://127.0.0.1:" + port + "/telemetry");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void servesIdentityBytesWithStrongEtag() throws Exception {
+        HttpResponse<byte[]> response = get(HttpRequest.newBuilder(telemetryUri));
+
+        assertEquals(200, response.statusCode());
+        assertArrayEquals(PAYLOAD, response.body());
+        String etag = response.headers().firstValue("ETag").orElseThrow();
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""), "ETag should be strong: " + etag);
+        assertFalse(response.headers().firstValue("Content-Encoding").isPresent());
+    }
+
+    @Test
+    void dataRequestsMarkDemandButHealthChecksDoNot() throws Exception {
+        assertFalse(server.demandedWithin(TelemetryService.DEMAND_WINDOW_NANOS));
+
+        get(HttpRequest.newBuilder(telemetryUri.resolve("/health")));
+        assertFalse(server.demandedWithin(TelemetryService.DEMAND_WINDOW_NANOS), "Liveness probes must not keep the server refreshing");
+
+        get(HttpRequest.newBuilder(telemetryUri));
+        assertTrue(server.demandedWithin(TelemetryService.DEMAND_WINDOW_NANOS));
+    }
+
+    @Test
+    void answersMatchingIfNoneMatchWithBodylessNotModified() throws Exception {
+        String etag = get(HttpRequest.newBuilder(telemetryUri)).headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<byte[]> response = get(HttpRequest.newBuilder(telemetryUri).header("If-None-Match", etag));
+
+        assertEquals(304, response.statusCode());
+        assertEquals(0, response.body().length);
+        assertEquals(etag, response.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    void servesCachedGzipVariantWhenAccepted() throws Exception {
+        HttpResponse<byte[]> response = get(HttpRequest.newBuilder(telemetryUri).header("Accept-Encoding", "br, gzip;q=0.8"));
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElseThrow());
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertArrayEquals(PAYLOAD, input.readAllBytes());
+        }
+    }
+
+    @Test
+    void newContentChangesVersionAndEtagButIdenticalContentDoesNot() throws Exception {
+        String before = get(HttpRequest.newBuilder(telemetryUri)).headers().firstValue("ETag").orElseThrow();
+        long version = server.telemetryVersion();
+
+        server.updateTelemetry(PAYLOAD.clone());
+        assertEquals(version, server.telemetryVersion());
+
+        server.updateTelemetry("{\"changed\":true}".getBytes(StandardCharsets.UTF_8));
+        String after = get(HttpRequest.newBuilder(telemetryUri)).headers().firstValue("ETag").orElseThrow();
+
+        assertEquals(version + 1, server.telemetryVersion());
+        assertNotEquals(before, after);
+        assertEquals(200, get(HttpRequest.newBuilder(telemetryUri).header("If-None-Match", before)).statusCode());
+    }
+
+    @Test
+    void playersEndpointServesFullListThenDeltas() throws Exception {
+        playerRegistry.join(new PlayerSnapshot("Steve", "00000000000000000000000000000001"));
+        URI players = telemetryUri.resolve("/telemetry/players");
+
+        JsonObject full = JsonParser.parseString(getString(players)).getAsJsonObject();
+        assertTrue(full.get("full").getAsBoolean());
+        assertEquals(1, full.getAsJsonArray("players").size());
+        long version = full.get("version").getAsLong();
+        long epoch = full.get("epoch").getAsLong();
+
+        playerRegistry.join(new PlayerSnapshot("Alex", "00000000000000000000000000000002"));
+        playerRegistry.leave("00000000000000000000000000000001");
+
+        JsonObject delta = JsonParser.parseString(getString(URI.create(players + "?since=" + version + "&epoch=" + epoch))).getAsJsonObject();
+        assertFalse(delta.get("full").getAsBoolean());
+        assertEquals(version + 2, delta.get("version").getAsLong());
+        assertEquals("Alex", delta.getAsJsonArray("joined").get(0).getAsJsonObject().get("name").getAsString());
+        assertEquals("00000000000000000000000000000001", delta.getAsJsonArray("left").get(0).getAsString());
+    }
+
+    @Test
+    void metricsEndpointServesLatestExposition() throws Exception {
+        byte[] exposition = "# TYPE mctelemetry_tps gauge\nmctelemetry_tps 20\n".getBytes(StandardCharsets.UTF_8);
+        server.updateMetrics(exposition);
+
+        HttpResponse<byte[]> response = get(HttpRequest.newBuilder(telemetryUri.resolve("/metrics")));
+
+        assertEquals(200, response.statusCode());
+        assertArrayEquals(exposition, response.body());
+        assertEquals(PrometheusTextWriter.CONTENT_TYPE, response.headers().firstValue("Content-Type").orElseThrow());
+    }
+
+    @Test
+    void streamPushesCurrentSnapshotThenUpdates() throws Exception {
+        HttpResponse<InputStream> response = client.send(
+                HttpRequest.newBuilder(telemetryUri.resolve("/telemetry/stream")).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals(200, response.statusCode());
+        assertEquals(TelemetryEventStream.CONTENT_TYPE, response.headers().firstValue("Content-Type").orElseThrow());
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            assertEquals("data: " + new String(PAYLOAD, StandardCharsets.UTF_8), nextData(reader));
+
+            server.updateTelemetry("{\"changed\":true}".getBytes(StandardCharsets.UTF_8));
+            assertEquals("data: {\"changed\":true}", nextData(reader));
+        }
+    }
+
+    @Test
+    void historyEndpointStreamsRequestedRange() throws Exception {
+        long now = System.currentTimeMillis();
+        history.record(now - 20_000L, TelemetrySnapshot.of("1.20.1", "forge", List.of(), 12.0, 20.0));
+        history.record(now - 10_000L, TelemetrySnapshot.of("1.20.1", "forge", List.of(), 14.0, 20.0));
+
+        JsonObject json = JsonParser.parseString(getString(URI.create(telemetryUri + "/history?metric=mspt&from=" + (now - 60_000L) + "&to=" + now)))
+                .getAsJsonObject();
+        assertEquals("mspt", json.get("metric").getAsString());
+        assertEquals(2, json.getAsJsonArray("points").size());
+        assertEquals(14.0, json.getAsJsonArray("points").get(1).getAsJsonObject().get("max").getAsDouble());
+
+        assertEquals(400, get(HttpRequest.newBuilder(URI.create(telemetryUri + "/history?metric=nope"))).statusCode());
+    }
+
+    @Test
+    void servesNamedViewsAndFieldProjections() throws Exception {
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge",
+                List.of(new PlayerSnapshot("Steve", "00000000000000000000000000000000")), 12.5, 20.0);
+        server.updateTelemetry(TelemetryPayload.build(snapshot).getBytes(StandardCharsets.UTF_8), snapshot);
+
+        JsonObject summary = JsonParser.parseString(getString(URI.create(telemetryUri + "?view=summary"))).getAsJsonObject();
+        assertEquals(1, summary.get("playerCount").getAsInt());
+        assertFalse(summary.has("players"), "Summary view omits the player list");
+
+        assertEquals("{\"mspt\":12.5,\"tps\":20.0}", getString(URI.create(telemetryUri + "?fields=mspt,tps")));
+        assertEquals(TelemetryPayload.build(snapshot), getString(URI.create(telemetryUri + "?view=full")));
+        assertEquals(400, get(HttpRequest.newBuilder(URI.create(telemetryUri + "?fields=mspt,nope"))).statusCode());
+        assertEquals(400, get(HttpRequest.newBuilder(URI.create(telemetryUri + "?view=compact"))).statusCode());
+    }
+
+    @Test
+    void negotiatesBinaryPayloadThroughAccept() throws Exception {
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge",
+                List.of(new PlayerSnapshot("Steve", "00000000000000000000000000000000")), 12.5, 20.0);
+        server.updateTelemetry(TelemetryPayload.build(snapshot).getBytes(StandardCharsets.UTF_8), snapshot);
+
+        HttpResponse<byte[]> binary = get(HttpRequest.newBuilder(telemetryUri).header("Accept", TelemetryBinaryPayload.CONTENT_TYPE));
+        assertEquals(TelemetryBinaryPayload.CONTENT_TYPE, binary.headers().firstValue("Content-Type").orElseThrow());
+        assertEquals("Accept, Accept-Encoding", binary.headers().firstValue("Vary").orElseThrow());
+        assertEquals(snapshot, TelemetryBinaryPayload.decode(binary.body()));
+
+        HttpResponse<byte[]> json = get(HttpRequest.newBuilder(telemetryUri).header("Accept", "*/*"));
+        assertEquals(TelemetryHttpServer.JSON_CONTENT_TYPE, json.headers().firstValue("Content-Type").orElseThrow());
+        assertNotEquals(binary.headers().firstValue("ETag").orElseThrow(), json.headers().firstValue("ETag").orElseThrow());
+
+        HttpResponse<byte[]> projected = get(HttpRequest.newBuilder(URI.create(telemetryUri + "?fields=mspt"))
+                .header("Accept", TelemetryBinaryPayload.CONTENT_TYPE));
+        assertEquals("{\"mspt\":12.5}", new String(projected.body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void parsesAcceptForBinaryPayload() {
+        assertTrue(TelemetryHttpServer.acceptsBinary(List.of("application/json;q=0.5, " + TelemetryBinaryPayload.CONTENT_TYPE)));
+        assertFalse(TelemetryHttpServer.acceptsBinary(List.of(TelemetryBinaryPayload.CONTENT_TYPE + ";q=0")));
+        assertFalse(TelemetryHttpServer.acceptsBinary(List.of("*/*")));
+        assertFalse(TelemetryHttpServer.acceptsBinary(null));
+    }
+
+    @Test
+    void startsServesAndStopsProfiles() throws Exception {
+        server.stop();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread busy = new Thread(() -> {
+            while (done.getCount() > 0) {
+                Thread.onSpinWait();
+            }
+        }, "busy");
+        busy.setDaemon(true);
+        busy.start();
+        server = new TelemetryHttpServer(NOPLogger.NOP_LOGGER, PAYLOAD, telemetryUri.getPort(), "127.0.0.1", playerRegistry, history,
+                TelemetryHttpServer.Engine.JDK);
+        server.enableProfiler(new StackProfiler(NOPLogger.NOP_LOGGER, () -> busy), true);
+        assertTrue(server.start());
+        URI profileUri = URI.create(telemetryUri + "/profile");
+
+        try {
+            HttpResponse<byte[]> started = client.send(HttpRequest.newBuilder(URI.create(profileUri + "?rate=500&seconds=10"))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(202, started.statusCode());
+            assertTrue(JsonParser.parseString(new String(started.body(), StandardCharsets.UTF_8)).getAsJsonObject().get("running").getAsBoolean());
+            assertEquals(409, client.send(HttpRequest.newBuilder(profileUri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode());
+
+            Thread.sleep(100);
+            HttpResponse<byte[]> stopped = client.send(HttpRequest.newBuilder(profileUri).DELETE().build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, stopped.statusCode());
+            assertFalse(JsonParser.parseString(new String(stopped.body(), StandardCharsets.UTF_8)).getAsJsonObject().get("running").getAsBoolean());
+        } finally {
+            done.countDown();
+        }
+
+        HttpResponse<byte[]> profile = get(HttpRequest.newBuilder(profileUri));
+        assertEquals(200, profile.statusCode());
+        assertEquals("false", profile.headers().firstValue("X-Profile-Running").orElseThrow());
+        assertTrue(Long.parseLong(profile.headers().firstValue("X-Profile-Samples").orElseThrow()) > 0);
+        assertTrue(new String(profile.body(), StandardCharsets.UTF_8).contains("java.lang.Thread.run"));
+    }
+
+    @Test
+    void refusesProfileControlUnlessEnabled() throws Exception {
+        server.stop();
+        StackProfiler profiler = new StackProfiler(NOPLogger.NOP_LOGGER, Thread::currentThread);
+        server = new TelemetryHttpServer(NOPLogger.NOP_LOGGER, PAYLOAD, telemetryUri.getPort(), "127.0.0.1", playerRegistry, history,
+                TelemetryHttpServer.Engine.JDK);
+        server.enableProfiler(profiler, false);
+        assertTrue(server.start());
+        URI profileUri = URI.create(telemetryUri + "/profile");
+
+        // The JDK server may close a connection right after a bodyless response, so neither request reuses one.
+        assertEquals(403, HttpClient.newHttpClient().send(HttpRequest.newBuilder(profileUri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(403, HttpClient.newHttpClient().send(HttpRequest.newBuilder(profileUri).DELETE().build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertFalse(profiler.running());
+        assertEquals(200, get(HttpRequest.newBuilder(profileUri)).statusCode());
+    }
+
+    @Test
+    void parsesAcceptEncodingQualities() {
+        assertTrue(TelemetryHttpServer.acceptsGzip(List.of("gzip")));
+        assertTrue(TelemetryHttpServer.acceptsGzip(List.of("deflate, GZIP;q=0.5")));
+        assertTrue(TelemetryHttpServer.acceptsGzip(List.of("*")));
+        assertFalse(TelemetryHttpServer.acceptsGzip(List.of("gzip;q=0")));
+        assertFalse(TelemetryHttpServer.acceptsGzip(List.of("identity")));
+        assertFalse(TelemetryHttpServer.acceptsGzip(null));
+    }
+
+    private static String nextData(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("data: ")) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private String getString(URI uri) throws Exception {
+        return new String(get(HttpRequest.newBuilder(uri)).body(), StandardCharsets.UTF_8);
+    }
+
+    private HttpResponse<byte[]> get(HttpRequest.Builder request) throws Exception {
+        return client.send(request.GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -0,0 +1,179 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.TickStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetryJournalTest {
+    private static final long START = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsTicksAndPlayerChanges() throws IOException {
+        PlayerRegistry registry = new PlayerRegistry();
+        registry.join(new PlayerSnapshot("Alex", "uuid-a"));
+        registry.join(new PlayerSnapshot("Steve", "uuid-s"));
+
+        try (TelemetryJournal journal = new TelemetryJournal(NOPLogger.NOP_LOGGER, directory, 1 << 16, 1 << 20)) {
+            journal.open();
+            journal.append(START, snapshot(12.5, new TickStats(200, 11.0, 20.0, 40.0, 55.0, 3)), registry);
+            registry.leave("uuid-s");
+            journal.append(START + 10_000, snapshot(14.0, null), registry);
+            journal.append(START + 20_000, snapshot(15.0, null), registry);
+        }
+
+        List<String> records = read(directory);
+
+        assertEquals(List.of(
+                "reset@" + START,
+                "join@" + START + " uuid-a Alex",
+                "join@" + START + " uuid-s Steve",
+                "tick@" + START + " mspt=12.5 p99=40.0 over=3",
+                "leave@" + (START + 10_000) + " uuid-s",
+                "tick@" + (START + 10_000) + " mspt=14.0 p99=NaN over=-1",
+                "tick@" + (START + 20_000) + " mspt=15.0 p99=NaN over=-1"), records);
+    }
+
+    @Test
+    void rotatesSegmentsAndDeletesTheOldestBeyondTheCap() throws IOException {
+        PlayerRegistry registry = new PlayerRegistry();
+        registry.join(new PlayerSnapshot("Alex", "uuid-a"));
+
+        try (TelemetryJournal journal = new TelemetryJournal(NOPLogger.NOP_LOGGER, directory, 4096, 3 * 4096)) {
+            journal.open();
+            for (int i = 0; i < 1000; i++) {
+                journal.append(START + i * 1000L, snapshot(10.0, null), registry);
+            }
+        }
+
+        List<Path> segments = TelemetryJournalReader.segments(directory);
+        assertEquals(3, segments.size());
+
+        for (Path segment : segments) {
+            List<String> head = read(segment).subList(0, 3);
+            assertTrue(head.get(0).startsWith("reset@"), "Each segment restates the player list: " + head);
+            assertTrue(head.get(1).endsWith("uuid-a Alex"));
+            assertTrue(head.get(2).startsWith("tick@"));
+        }
+
+        List<Long> times = new ArrayList<>();
+        TelemetryJournalReader.scan(directory, record -> {
+            if (record.isTick()) {
+                times.add(record.timeMillis());
+            }
+        });
+        assertEquals(START + 999_000L, times.get(times.size() - 1));
+        for (int i = 1; i < times.size(); i++) {
+            assertEquals(times.get(i - 1) + 1000L, times.get(i), "Surviving segments are contiguous and ordered");
+        }
+    }
+
+    @Test
+    void neverSplitsAPublishAcrossSegments() throws IOException {
+        PlayerRegistry registry = new PlayerRegistry();
+        for (int i = 0; i < 40; i++) {
+            registry.join(new PlayerSnapshot("Player" + i, "uuid-" + i));
+        }
+
+        try (TelemetryJournal journal = new TelemetryJournal(NOPLogger.NOP_LOGGER, directory, 4096, 1 << 20)) {
+            journal.open();
+            for (int i = 0; i < 100; i++) {
+                registry.leave("uuid-" + (i % 40));
+                registry.join(new PlayerSnapshot("Player" + (i % 40), "uuid-" + (i % 40)));
+                journal.append(START + i * 1000L, snapshot(10.0, null), registry);
+            }
+        }
+
+        List<Path> segments = TelemetryJournalReader.segments(directory);
+        assertTrue(segments.size() > 2, "The test must rotate more than once");
+        int ticks = 0;
+        for (Path segment : segments) {
+            List<String> records = read(segment);
+            assertTrue(records.get(0).startsWith("reset@"), "Each segment starts with a reset: " + records.get(0));
+            long roster = records.stream().takeWhile(record -> !record.startsWith("tick@")).filter(record -> record.startsWith("join@")).count();
+            assertEquals(40, roster, "Each segment starts with the full player list");
+            assertTrue(records.get(records.size() - 1).startsWith("tick@"), "A segment ends on a complete publish");
+            ticks += (int) records.stream().filter(record -> record.startsWith("tick@")).count();
+        }
+        assertEquals(100, ticks);
+    }
+
+    @Test
+    void keepsAppendingWhenTheOldestSegmentCannotBeDeleted() throws IOException {
+        // A non-empty directory named like the oldest segment stands in for a file Windows refuses to delete.
+        Path stuck = Files.createDirectory(directory.resolve("telemetry-0000000000000-000000.mctj"));
+        Files.writeString(stuck.resolve("held"), "open elsewhere");
+
+        try (TelemetryJournal journal = new TelemetryJournal(NOPLogger.NOP_LOGGER, directory, 4096, 3 * 4096)) {
+            journal.open();
+            for (int i = 0; i < 1000; i++) {
+                journal.append(START + i * 1000L, snapshot(10.0, null), null);
+            }
+        }
+
+        List<Path> segments = TelemetryJournalReader.segments(directory);
+        assertTrue(Files.isDirectory(stuck));
+        assertEquals(stuck, segments.get(0));
+        assertTrue(segments.size() <= 4, "Newer segments are still deleted around the stuck one: " + segments);
+        List<String> last = read(segments.get(segments.size() - 1));
+        assertEquals("tick@" + (START + 999_000L), last.get(last.size() - 1).split(" ")[0]);
+    }
+
+    @Test
+    void stopsAtTornAndTruncatedRecords() throws IOException {
+        try (TelemetryJournal journal = new TelemetryJournal(NOPLogger.NOP_LOGGER, directory, 4096, 4096)) {
+            journal.open();
+            for (int i = 0; i < 3; i++) {
+                journal.append(START + i, snapshot(10.0, null), null);
+            }
+        }
+        Path segment = TelemetryJournalReader.segments(directory).get(0);
+
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // A crash after the body but before the type byte leaves the third record uncommitted.
+            file.seek(TelemetryJournal.SEGMENT_HEADER_BYTES + 2L * TelemetryJournal.TICK_RECORD_BYTES);
+            file.write(0);
+        }
+        assertEquals(2, read(segment).size());
+
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(TelemetryJournal.SEGMENT_HEADER_BYTES + TelemetryJournal.TICK_RECORD_BYTES + 20L);
+        }
+        assertEquals(1, read(segment).size());
+        assertEquals(1, TelemetryJournalReader.segments(directory).size());
+    }
+
+    private static List<String> read(Path path) throws IOException {
+        List<String> records = new ArrayList<>();
+        TelemetryJournalReader.scan(path, record -> {
+            String line = record.typeName() + "@" + record.timeMillis();
+            if (record.isTick()) {
+                line += " mspt=" + record.mspt() + " p99=" + record.p99() + " over=" + record.overBudget();
+            } else if (record.uuid() != null) {
+                line += " " + record.uuid() + (record.name() == null ? "" : " " + record.name());
+            }
+            records.add(line);
+        });
+        return records;
+    }
+
+    private static TelemetrySnapshot snapshot(double mspt, TickStats tickStats) {
+        return TelemetrySnapshot.of("1.20.1", "forge", Collections.emptyList(), mspt, 20.0, tickStats);
+    }
+}
@@ -0,0 +1,93 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.DimensionSnapshot;
+import net.sprocketgames.mctelemetry.common.JvmSnapshot;
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import net.sprocketgames.mctelemetry.common.TickStats;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetryMetricsRendererTest {
+    @Test
+    void rendersGaugesAndAccumulatesCounters() {
+        TelemetryMetricsRenderer renderer = new TelemetryMetricsRenderer();
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge",
+                List.of(new PlayerSnapshot("Steve", "00000000000000000000000000000001")), 12.3, 20.0,
+                new TickStats(200, 11.9, 30.2, 48.0, 212.5, 3));
+
+        renderer.render(snapshot, 0, 0);
+        String text = new String(renderer.render(snapshot, 1, 4), StandardCharsets.UTF_8);
+
+        assertTrue(text.contains("# TYPE mctelemetry_mspt gauge\nmctelemetry_mspt 12.3\n"), text);
+        assertTrue(text.contains("mctelemetry_tps 20\n"), text);
+        assertTrue(text.contains("mctelemetry_players_online 1\n"), text);
+        assertTrue(text.contains("mctelemetry_info{mc=\"1.20.1\",loader=\"forge\"} 1\n"), text);
+        assertTrue(text.contains("# TYPE mctelemetry_tick_time_seconds gauge\n"), text);
+        assertTrue(text.contains("mctelemetry_tick_time_seconds{stat=\"p50\"} 0.0119\n"), text);
+        assertTrue(text.contains("mctelemetry_tick_time_seconds{stat=\"p99\"} 0.048\n"), text);
+        assertFalse(text.contains("quantile="), text);
+        assertTrue(text.contains("mctelemetry_ticks_total 400\n"), text);
+        assertTrue(text.contains("mctelemetry_ticks_over_budget_total 6\n"), text);
+        assertTrue(text.contains("mctelemetry_captures_coalesced_total 1\n"), text);
+        assertTrue(text.contains("mctelemetry_refreshes_skipped_total 4\n"), text);
+        assertTrue(text.endsWith("\n"));
+    }
+
+    @Test
+    void rendersJvmGaugesAndPauseHistogram() {
+        TelemetryMetricsRenderer renderer = new TelemetryMetricsRenderer();
+        JvmSnapshot jvm = new JvmSnapshot(512L << 20, 1L << 30, -1L, 200L << 20, null, 48_000.0,
+                new JvmSnapshot.GcPauses(7, 84.0, 31.0, List.of(2L, 5L, 6L, 7L, 7L, 7L, 7L, 7L, 7L),
+                        List.of(new JvmSnapshot.CauseCount("G1 Evacuation Pause", 7))));
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge", Collections.emptyList(), 12.3, 20.0, null, List.of(), null, jvm);
+
+        String text = new String(renderer.render(snapshot, 0, 0), StandardCharsets.UTF_8);
+
+        assertTrue(text.contains("mctelemetry_jvm_heap_used_bytes 536870912\n"), text);
+        assertTrue(text.contains("mctelemetry_jvm_old_gen_after_gc_bytes 209715200\n"), text);
+        assertTrue(text.contains("mctelemetry_jvm_allocated_bytes_per_tick 48000\n"), text);
+        assertTrue(text.contains("# TYPE mctelemetry_jvm_gc_pause_ms histogram\n"), text);
+        assertTrue(text.contains("mctelemetry_jvm_gc_pause_ms_bucket{le=\"5\"} 5\n"), text);
+        assertTrue(text.contains("mctelemetry_jvm_gc_pause_ms_bucket{le=\"+Inf\"} 7\n"), text);
+        assertTrue(text.contains("mctelemetry_jvm_gc_pause_ms_sum 84\n"), text);
+        assertTrue(text.contains("mctelemetry_jvm_gc_collections_total{cause=\"G1 Evacuation Pause\"} 7\n"), text);
+        assertFalse(text.contains("jvm_heap_max_bytes"), "Undefined maximum heap is omitted");
+        assertFalse(text.contains("jvm_old_gen_growth"), "Missing trend is omitted");
+    }
+
+    @Test
+    void omitsUnavailableGaugesAndEscapesLabels() {
+        TelemetryMetricsRenderer renderer = new TelemetryMetricsRenderer();
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20\"1\\", "forge", Collections.emptyList(), null, null);
+
+        String text = new String(renderer.render(snapshot, 0, 0), StandardCharsets.UTF_8);
+
+        assertFalse(text.contains("mctelemetry_mspt"), text);
+        assertFalse(text.contains("mctelemetry_tick_time_seconds"), text);
+        assertTrue(text.contains("mc=\"1.20\\\"1\\\\\""), text);
+    }
+
+    @Test
+    void rendersPerDimensionGauges() {
+        TelemetryMetricsRenderer renderer = new TelemetryMetricsRenderer();
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge", Collections.emptyList(), 12.3, 20.0, null, List.of(
+                new DimensionSnapshot("minecraft:overworld", 4.2, 625, 1480, 3),
+                new DimensionSnapshot("minecraft:the_end", null, 0, -1, 0)));
+
+        String text = new String(renderer.render(snapshot, 0, 0), StandardCharsets.UTF_8);
+
+        assertTrue(text.contains("mctelemetry_dimension_mspt{dimension=\"minecraft:overworld\"} 4.2\n"), text);
+        assertFalse(text.contains("mctelemetry_dimension_mspt{dimension=\"minecraft:the_end\"}"), text);
+        assertTrue(text.contains("mctelemetry_dimension_loaded_chunks{dimension=\"minecraft:overworld\"} 625\n"), text);
+        assertTrue(text.contains("mctelemetry_dimension_entities{dimension=\"minecraft:overworld\"} 1480\n"), text);
+        assertFalse(text.contains("mctelemetry_dimension_entities{dimension=\"minecraft:the_end\"}"), text);
+        assertTrue(text.contains("mctelemetry_dimension_players{dimension=\"minecraft:the_end\"} 0\n"), text);
+    }
+}
@@ -0,0 +1,52 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetryPublisherTest {
+    @Test
+    void coalescesCapturesSubmittedBeforeTheWorkerCatchesUp() throws InterruptedException {
+        CountDownLatch published = new CountDownLatch(1);
+        AtomicReference<Double> lastMspt = new AtomicReference<>();
+        TelemetryPublisher publisher = new TelemetryPublisher(NOPLogger.NOP_LOGGER, 4, capture -> {
+            lastMspt.set(capture.averageTickTimeMs());
+            published.countDown();
+        });
+
+        for (int i = 1; i <= 3; i++) {
+            TelemetryCapture capture = publisher.claim();
+            capture.reset(false);
+            capture.setAverageTickTimeMs(i);
+            publisher.submit();
+        }
+
+        assertEquals(2, publisher.coalescedCaptures(), "Only the most recent pending capture should survive");
+
+        publisher.start();
+        try {
+            assertTrue(published.await(5, TimeUnit.SECONDS), "Worker should publish the pending capture");
+            assertEquals(3.0, lastMspt.get());
+        } finally {
+            publisher.stop();
+        }
+    }
+
+    @Test
+    void claimHandsOutADifferentBufferAfterSubmit() {
+        TelemetryPublisher publisher = new TelemetryPublisher(NOPLogger.NOP_LOGGER, 4, capture -> {
+        });
+
+        TelemetryCapture first = publisher.claim();
+        publisher.submit();
+
+        assertNotSame(first, publisher.claim(), "Submitted buffer must not be reused by the producer while pending");
+    }
+}
@@ -0,0 +1,266 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.sprocketgames.mctelemetry.common.DimensionSnapshot;
+import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetryServiceTest {
+    private final AtomicInteger collections = new AtomicInteger();
+    private final AtomicInteger dimensionCaptures = new AtomicInteger();
+    private final AtomicLong nanos = new AtomicLong();
+    private long dimensionCostNanos;
+    private int port;
+    private final TelemetryService<String> service = new TelemetryService<>("forge", NOPLogger.NOP_LOGGER, server -> {
+        int collection = collections.incrementAndGet();
+        return new TelemetryCollector.TelemetrySource() {
+            @Override
+            public OptionalDouble averageTickTimeMs() {
+                return OptionalDouble.of(collection);
+            }
+
+            @Override
+            public List<PlayerSnapshot> onlinePlayers() {
+                return List.of();
+            }
+
+            @Override
+            public void appendDimensions(List<DimensionSnapshot> sink) {
+                dimensionCaptures.incrementAndGet();
+                nanos.addAndGet(dimensionCostNanos);
+                int entities = TelemetryServiceTest.this.service.censusEntities("minecraft:overworld");
+                sink.add(new DimensionSnapshot("minecraft:overworld", 1.0, 10, entities, 0));
+            }
+        };
+    }, nanos::get);
+
+    @AfterEach
+    void stopService() {
+        service.stop();
+    }
+
+    @Test
+    void fixedModeRefreshesOnEveryInterval() throws IOException {
+        start("fixed");
+
+        tick(59);
+        assertEquals(3, collections.get(), "Initial payload plus two refreshes");
+        assertEquals(0L, service.skippedRefreshes());
+    }
+
+    @Test
+    void adaptiveModeIdlesUntilMaxStalenessAndSpeedsUpWhenPolled() throws IOException {
+        start("adaptive");
+
+        tick(99);
+        assertEquals(1, collections.get(), "Nobody polled, so only the initial payload was collected");
+        assertEquals(4L, service.skippedRefreshes());
+
+        tick(1);
+        assertEquals(2, collections.get(), "The payload is refreshed once it reaches the staleness bound");
+
+        service.httpServer().markDemand();
+        tick(15);
+        assertEquals(5, collections.get(), "A polled endpoint refreshes every active interval");
+        assertEquals(4L, service.skippedRefreshes());
+    }
+
+    @Test
+    void adaptiveModeKeepsRefreshingForPushExporters() throws IOException {
+        service.configureExporters(List.of(new TelemetryExporter() {
+            @Override
+            public String name() {
+                return "test";
+            }
+
+            @Override
+            public void export(List<Sample> batch) {
+            }
+        }));
+        start("adaptive");
+
+        tick(20);
+        assertEquals(5, collections.get(), "Exporters consume every snapshot, so nobody polling is not idle");
+        assertEquals(0L, service.skippedRefreshes());
+    }
+
+    @Test
+    void commandSnapshotsComeFromTheSharedCacheUntilStale() throws Exception {
+        start("fixed");
+        TelemetrySnapshotCache.Entry initial = service.snapshots().latest();
+        assertEquals(1, collections.get());
+
+        assertSame(initial, service.snapshot("server", "1.20.1", false), "Fresher than the refresh interval");
+        assertSame(initial, service.snapshot("server", "1.20.1", 60_000L, false));
+        assertEquals(1, collections.get());
+
+        Thread.sleep(5);
+        TelemetrySnapshotCache.Entry recollected = service.snapshot("server", "1.20.1", 0L, false);
+        assertEquals(2, collections.get());
+        assertEquals(initial.version() + 1, recollected.version());
+        assertEquals(recollected.version(), service.httpServer().telemetryVersion(), "The HTTP endpoint serves the same version");
+        assertEquals(1, recollected.snapshot().dimensions().size(), "A command refresh is a full refresh, not a reduced collection");
+
+        JsonObject line = JsonParser.parseString(recollected.taggedJson()).getAsJsonObject();
+        assertEquals(recollected.version(), line.get("snapshotVersion").getAsLong());
+        assertEquals(recollected.capturedAtMillis(), line.get("capturedAt").getAsLong());
+        assertEquals(2.0, line.get("mspt").getAsDouble());
+        assertEquals("1.20.1", line.get("mc").getAsString());
+    }
+
+    @Test
+    void tickBudgetDefersOptionalCollectors() throws IOException {
+        service.configureTickBudget(1_000_000L);
+        service.configureCensus(new EndlessCensus(), 250_000L);
+        start("fixed");
+        dimensionCostNanos = 3_000_000L;
+
+        tick(40);
+        assertEquals(2, dimensionCaptures.get(), "The initial payload and the first refresh include dimensions");
+        assertEquals(1L, service.selfMetrics().dimensionSkips(), "The second refresh would exceed the budget");
+        assertEquals(1L, service.selfMetrics().censusDeferrals(), "The census waits after an expensive refresh");
+
+        dimensionCostNanos = 0L;
+        tick(40);
+        assertEquals(2L, service.selfMetrics().dimensionSkips(), "The halved estimate still exceeds the budget once");
+        assertEquals(3, dimensionCaptures.get(), "Dimensions come back once the estimate fits");
+    }
+
+    @Test
+    void dimensionEntitiesAreUnknownWithoutACensus() throws IOException {
+        start("fixed");
+        tick(20);
+
+        TelemetrySnapshotCache.Entry entry = service.snapshot("server", "1.20.1", 0L, false);
+        assertEquals(-1, entry.snapshot().dimensions().get(0).entities());
+        JsonObject dimension = JsonParser.parseString(entry.taggedJson()).getAsJsonObject().getAsJsonArray("dimensions").get(0).getAsJsonObject();
+        assertTrue(dimension.get("entities").isJsonNull(), "No census total means no entity count, not a walk over every entity");
+    }
+
+    @Test
+    void dimensionEntitiesComeFromTheCensus() throws IOException {
+        service.configureCensus(new OneChunkCensus(), 250_000L);
+        start("fixed");
+        tick(20);
+
+        TelemetrySnapshotCache.Entry entry = service.snapshot("server", "1.20.1", 0L, false);
+        assertEquals(3, entry.snapshot().dimensions().get(0).entities());
+    }
+
+    @Test
+    void servesItsOwnCostAtSelfEndpoint() throws Exception {
+        service.configureTickBudget(1_000_000L);
+        start("fixed");
+        tick(20);
+        HttpClient client = HttpClient.newHttpClient();
+        URI base = URI.create("http://127.0.0.1:" + port);
+        client.send(HttpRequest.newBuilder(base.resolve("/telemetry")).build(), HttpResponse.BodyHandlers.discarding());
+        // The filter records the request after the handler returns, which can be after the client read the response.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.selfMetrics().requests() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(base.resolve("/telemetry/self")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        JsonObject self = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals(1000, self.getAsJsonObject("budget").get("tickMicros").getAsLong());
+        assertEquals(20, self.getAsJsonObject("serverTick").get("count").getAsLong());
+        assertEquals(1, self.getAsJsonObject("capture").get("count").getAsLong());
+        JsonObject http = self.getAsJsonObject("http");
+        assertEquals(1, http.get("requests").getAsLong(), "Counted once the /telemetry response completed");
+        assertTrue(http.get("bytesServed").getAsLong() > 0);
+        assertEquals(1, http.getAsJsonObject("latencyMs").getAsJsonArray("buckets").get(SelfMetrics.LATENCY_BUCKETS_MS.size())
+                .getAsJsonObject().get("count").getAsLong());
+    }
+
+    private void start(String mode) throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        service.configureRefresh(mode, 5, 100);
+        assertTrue(service.start("server", "1.20.1", false, 20, port, "127.0.0.1", "jdk"));
+    }
+
+    /**
+     * A world so large that a census pass never ends.
+     */
+    private static final class EndlessCensus implements EntityCensus.Source {
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public boolean countNext(EntityCensus.Counts counts) {
+            counts.chunk();
+            return true;
+        }
+
+        @Override
+        public String entityTypeName(int typeId) {
+            return "minecraft:pig";
+        }
+
+        @Override
+        public String blockEntityTypeName(int typeId) {
+            return "minecraft:chest";
+        }
+    }
+
+    /**
+     * An overworld with one chunk holding three entities.
+     */
+    private static final class OneChunkCensus implements EntityCensus.Source {
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public boolean countNext(EntityCensus.Counts counts) {
+            counts.dimension("minecraft:overworld");
+            counts.chunk();
+            counts.entity(0);
+            counts.entity(0);
+            counts.entity(0);
+            return false;
+        }
+
+        @Override
+        public String entityTypeName(int typeId) {
+            return "minecraft:pig";
+        }
+
+        @Override
+        public String blockEntityTypeName(int typeId) {
+            return "minecraft:chest";
+        }
+    }
+
+    private void tick(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            service.tickStarted();
+            service.tick("server", false);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetrySnapshotCacheTest {
+    @Test
+    void cacheKeepsTheVersionOfIdenticalPayloads() {
+        TelemetrySnapshotCache cache = new TelemetrySnapshotCache();
+        TelemetrySnapshot snapshot = TelemetrySnapshot.of("1.20.1", "forge", List.of(), 10.0, 20.0);
+
+        TelemetrySnapshotCache.Entry first = cache.publish(snapshot, "{\"a\":1}".getBytes(StandardCharsets.UTF_8), 1_000L);
+        TelemetrySnapshotCache.Entry repeat = cache.publish(snapshot, "{\"a\":1}".getBytes(StandardCharsets.UTF_8), 2_000L);
+        TelemetrySnapshotCache.Entry changed = cache.publish(snapshot, "{\"a\":2}".getBytes(StandardCharsets.UTF_8), 3_000L);
+
+        assertEquals(1L, first.version());
+        assertEquals(1L, repeat.version());
+        assertEquals(2_000L, repeat.capturedAtMillis());
+        assertEquals(2L, changed.version());
+        assertEquals("{\"snapshotVersion\":2,\"capturedAt\":3000,\"a\":2}", changed.taggedJson());
+        assertTrue(changed.capturedWithin(500L, 3_400L));
+    }
+}
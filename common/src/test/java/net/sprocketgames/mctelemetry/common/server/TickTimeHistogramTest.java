@@ -0,0 +1,52 @@
+package net.sprocketgames.mctelemetry.common.server;
+
+import net.sprocketgames.mctelemetry.common.TickStats;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickTimeHistogramTest {
+    @Test
+    void bucketsCoverTheirUpperBounds() {
+        for (long micros = 0; micros < 5_000_000; micros += 37) {
+            int index = TickTimeHistogram.bucketIndex(micros);
+            long upper = TickTimeHistogram.bucketUpperBoundMicros(index);
+            assertTrue(upper >= micros, "Upper bound " + upper + " below value " + micros);
+            assertTrue(upper - micros <= Math.max(1, micros / 16), "Bucket too wide for " + micros);
+        }
+    }
+
+    @Test
+    void reportsPercentilesMaxAndOverBudgetTicks() {
+        TickTimeHistogram histogram = new TickTimeHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(10_000_000L);
+        }
+        histogram.record(60_000_000L);
+        histogram.record(200_000_000L);
+
+        TickStats stats = histogram.toStats();
+
+        assertEquals(100, stats.samples());
+        assertEquals(10.0, stats.p50Ms(), 0.7);
+        assertEquals(10.0, stats.p95Ms(), 0.7);
+        assertEquals(60.0, stats.p99Ms(), 4.0);
+        assertEquals(200.0, stats.maxMs());
+        assertEquals(2, stats.overBudget());
+    }
+
+    @Test
+    void transferStartsANewWindow() {
+        TickTimeHistogram live = new TickTimeHistogram();
+        TickTimeHistogram window = new TickTimeHistogram();
+        live.record(5_000_000L);
+
+        live.transferTo(window);
+
+        assertEquals(1, window.samples());
+        assertEquals(0, live.samples());
+        assertNull(live.toStats());
+    }
+}
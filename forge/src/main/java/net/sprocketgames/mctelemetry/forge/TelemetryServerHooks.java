@@ -2,20 +2,27 @@ package net.sprocketgames.mctelemetry.forge;
 
 import net.minecraft.SharedConstants;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.level.ChunkEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.LogicalSide;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.event.server.ServerStartedEvent;
 import net.minecraftforge.event.server.ServerStoppingEvent;
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.sprocketgames.mctelemetry.common.DimensionSnapshot;
 import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import net.sprocketgames.mctelemetry.common.server.ConnectionCounters;
+import net.sprocketgames.mctelemetry.common.server.StackProfiler;
 import net.sprocketgames.mctelemetry.common.server.TelemetryCollector;
+import net.sprocketgames.mctelemetry.common.server.TelemetrySnapshotCache;
 import net.sprocketgames.mctelemetry.common.server.TelemetryService;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.OptionalDouble;
-import java.util.stream.Collectors;
 
 @Mod.EventBusSubscriber(modid = MCTelemetryForge.MOD_ID, bus = Mod.EventBusSubscriber.Bus.FORGE)
 public class TelemetryServerHooks {
@@ -23,6 +30,7 @@ public class TelemetryServerHooks {
             MCTelemetryForge.LOADER,
             MCTelemetryForge.LOGGER,
             TelemetryServerHooks::asTelemetrySource);
+    private static final TelemetryCensusSource CENSUS_SOURCE = new TelemetryCensusSource();
 
     @SubscribeEvent
     public static void onServerStarted(ServerStartedEvent event) {
@@ -32,6 +40,16 @@ public class TelemetryServerHooks {
             return;
         }
 
+        TELEMETRY_SERVICE.configureJournal(
+                TelemetryConfig.journalEnabled() ? FMLPaths.GAMEDIR.get().resolve("mctelemetry").resolve("journal") : null,
+                TelemetryConfig.journalMaxMegabytes() * 1024L * 1024L);
+        TELEMETRY_SERVICE.configureCensus(CENSUS_SOURCE, TelemetryConfig.censusBudgetNanos());
+        TELEMETRY_SERVICE.configureTickBudget(TelemetryConfig.tickBudgetMicros() * 1_000L);
+        TELEMETRY_SERVICE.configureJvmMetrics(TelemetryConfig.jvmMetricsEnabled());
+        TELEMETRY_SERVICE.configureProfilerHttpControl(TelemetryConfig.profilerHttpControl());
+        TELEMETRY_SERVICE.configureExport(TelemetryConfig.exportStatsdAddress(), TelemetryConfig.exportOtlpEndpoint());
+        TELEMETRY_SERVICE.configureRefresh(TelemetryConfig.refreshMode(), TelemetryConfig.adaptiveActiveRefreshTicks(), TelemetryConfig.adaptiveMaxStaleTicks());
+
         boolean detailedLogging = TelemetryConfig.detailedLoggingEnabled();
         TELEMETRY_SERVICE.start(
                 server,
@@ -39,21 +57,87 @@ public class TelemetryServerHooks {
                 detailedLogging,
                 TelemetryConfig.telemetryRefreshTicks(),
                 TelemetryConfig.httpPort(),
-                TelemetryConfig.httpBindAddress());
+                TelemetryConfig.httpBindAddress(),
+                TelemetryConfig.httpEngine());
     }
 
     @SubscribeEvent
     public static void onServerStopping(ServerStoppingEvent event) {
         TELEMETRY_SERVICE.stop();
+        TELEMETRY_SERVICE.playerRegistry().clear();
+        TELEMETRY_SERVICE.connections().clear();
+        CENSUS_SOURCE.clear();
+    }
+
+    @SubscribeEvent
+    public static void onChunkLoad(ChunkEvent.Load event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            CENSUS_SOURCE.chunkLoaded(level, event.getChunk().getPos().toLong());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onChunkUnload(ChunkEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            CENSUS_SOURCE.chunkUnloaded(level, event.getChunk().getPos().toLong());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            var profile = player.getGameProfile();
+            PlayerSnapshot snapshot = TELEMETRY_SERVICE.playerRegistry().join(profile.getId(), profile.getName());
+            if (TelemetryConfig.connectionMetricsEnabled()) {
+                trackConnection(player, snapshot.uuid());
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            PlayerSnapshot left = TELEMETRY_SERVICE.playerRegistry().leave(player.getGameProfile().getId());
+            if (left != null) {
+                TELEMETRY_SERVICE.connections().close(left.uuid());
+            }
+        }
     }
 
     @SubscribeEvent
     public static void onServerTick(TickEvent.ServerTickEvent event) {
-        if (event.phase == TickEvent.Phase.END) {
+        if (event.phase == TickEvent.Phase.START) {
+            TELEMETRY_SERVICE.tickStarted();
+        } else if (event.phase == TickEvent.Phase.END) {
             TELEMETRY_SERVICE.tick(event.getServer(), TelemetryConfig.detailedLoggingEnabled());
         }
     }
 
+    @SubscribeEvent
+    public static void onLevelTick(TickEvent.LevelTickEvent event) {
+        if (event.side != LogicalSide.SERVER) {
+            return;
+        }
+
+        if (event.phase == TickEvent.Phase.START) {
+            TELEMETRY_SERVICE.levelTickTimes().started(event.level);
+        } else if (event.phase == TickEvent.Phase.END) {
+            TELEMETRY_SERVICE.levelTickTimes().ended(event.level);
+        }
+    }
+
+    static StackProfiler profiler() {
+        return TELEMETRY_SERVICE.profiler();
+    }
+
+    static TelemetrySnapshotCache.Entry snapshot(MinecraftServer server, String minecraftVersion, boolean detailedLogging) {
+        return TELEMETRY_SERVICE.snapshot(server, minecraftVersion, detailedLogging);
+    }
+
+    static TelemetrySnapshotCache.Entry snapshot(MinecraftServer server, String minecraftVersion, long maxAgeMillis, boolean detailedLogging) {
+        return TELEMETRY_SERVICE.snapshot(server, minecraftVersion, maxAgeMillis, detailedLogging);
+    }
+
     static TelemetryCollector.TelemetrySource asTelemetrySource(MinecraftServer server) {
         return new TelemetryCollector.TelemetrySource() {
             @Override
@@ -69,40 +153,37 @@ public class TelemetryServerHooks {
 
             @Override
             public List<PlayerSnapshot> onlinePlayers() {
-                try {
-                    return server.getPlayerList().getPlayers().stream()
-                            .map(TelemetryServerHooks::snapshotForPlayer)
-                            .collect(Collectors.toList());
-                } catch (Exception e) {
-                    MCTelemetryForge.LOGGER.debug("Failed to gather online players", e);
-                    return Collections.emptyList();
+                return TELEMETRY_SERVICE.playerRegistry().players();
+            }
+
+            @Override
+            public List<PlayerSnapshot> sharedOnlinePlayers() {
+                return TELEMETRY_SERVICE.playerRegistry().players();
+            }
+
+            @Override
+            public void appendDimensions(List<DimensionSnapshot> sink) {
+                for (ServerLevel level : server.getAllLevels()) {
+                    OptionalDouble mspt = TELEMETRY_SERVICE.levelTickTimes().drainAverageMs(level);
+                    String id = level.dimension().location().toString();
+                    sink.add(new DimensionSnapshot(
+                            id,
+                            mspt.isPresent() ? mspt.getAsDouble() : null,
+                            level.getChunkSource().getLoadedChunksCount(),
+                            TELEMETRY_SERVICE.censusEntities(id),
+                            level.players().size()));
                 }
             }
         };
     }
 
-    private static PlayerSnapshot snapshotForPlayer(ServerPlayer player) {
+    private static void trackConnection(ServerPlayer player, String uuid) {
         try {
-            String name = player.getGameProfile().getName();
-            String uuid = player.getGameProfile().getId().toString().replace("-", "");
-            return new PlayerSnapshot(name, uuid);
+            ConnectionCounters counters = TELEMETRY_SERVICE.connections().open(uuid, () -> player.latency);
+            ConnectionTrafficHandlers.install(player.connection.connection.channel(), counters);
         } catch (Exception e) {
-            MCTelemetryForge.LOGGER.debug("Failed to snapshot player {}", player, e);
-            String fallbackName;
-            String fallbackUuid;
-            try {
-                fallbackName = player.getGameProfile().getName();
-            } catch (Exception ignored) {
-                fallbackName = "unknown";
-            }
-
-            try {
-                fallbackUuid = player.getGameProfile().getId() == null ? "" : player.getGameProfile().getId().toString().replace("-", "");
-            } catch (Exception ignored) {
-                fallbackUuid = "";
-            }
-
-            return new PlayerSnapshot(fallbackName, fallbackUuid);
+            TELEMETRY_SERVICE.connections().close(uuid);
+            MCTelemetryForge.LOGGER.debug("Failed to track connection of {}", player, e);
         }
     }
 }
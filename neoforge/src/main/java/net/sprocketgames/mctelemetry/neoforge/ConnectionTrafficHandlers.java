@@ -0,0 +1,88 @@
+package net.sprocketgames.mctelemetry.neoforge;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import net.sprocketgames.mctelemetry.common.server.ConnectionCounters;
+
+/**
+ * Netty handlers that feed a player's {@link ConnectionCounters}. The byte counter sits at the head of the pipeline,
+ * so it sees wire bytes after compression and encryption; the packet counter sits just before vanilla's packet
+ * handler, so it sees decoded packets. Both only add to the counters and pass every message on unchanged.
+ */
+final class ConnectionTrafficHandlers {
+    private static final String BYTES = "mctelemetry_bytes";
+    private static final String PACKETS = "mctelemetry_packets";
+    private static final String PACKET_HANDLER = "packet_handler";
+
+    private ConnectionTrafficHandlers() {
+    }
+
+    static void install(Channel channel, ConnectionCounters counters) {
+        ChannelPipeline pipeline = channel.pipeline();
+        if (pipeline.get(BYTES) != null) {
+            pipeline.remove(BYTES);
+        }
+        if (pipeline.get(PACKETS) != null) {
+            pipeline.remove(PACKETS);
+        }
+
+        pipeline.addFirst(BYTES, new ByteCounter(counters));
+        if (pipeline.get(PACKET_HANDLER) != null) {
+            pipeline.addBefore(PACKET_HANDLER, PACKETS, new PacketCounter(counters));
+        } else {
+            MCTelemetryNeoForge.LOGGER.debug("No '{}' in connection pipeline; packet rates will stay at zero", PACKET_HANDLER);
+        }
+    }
+
+    private static final class ByteCounter extends ChannelDuplexHandler {
+        private final ConnectionCounters counters;
+
+        private ByteCounter(ConnectionCounters counters) {
+            this.counters = counters;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            counters.bytesReceived(readableBytes(msg));
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            counters.bytesSent(readableBytes(msg));
+            ctx.write(msg, promise);
+        }
+
+        private static int readableBytes(Object msg) {
+            if (msg instanceof ByteBuf buf) {
+                return buf.readableBytes();
+            }
+            return msg instanceof ByteBufHolder holder ? holder.content().readableBytes() : 0;
+        }
+    }
+
+    private static final class PacketCounter extends ChannelDuplexHandler {
+        private final ConnectionCounters counters;
+
+        private PacketCounter(ConnectionCounters counters) {
+            this.counters = counters;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            counters.packetReceived();
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            counters.packetSent();
+            ctx.write(msg, promise);
+        }
+    }
+}
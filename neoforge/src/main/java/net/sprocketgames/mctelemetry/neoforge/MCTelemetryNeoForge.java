@@ -23,7 +23,14 @@ public class MCTelemetryNeoForge {
         NeoForge.EVENT_BUS.addListener(TelemetryCommandNeoForge::registerCommands);
         NeoForge.EVENT_BUS.addListener(TelemetryServerHooks::onServerStarted);
         NeoForge.EVENT_BUS.addListener(TelemetryServerHooks::onServerStopping);
+        NeoForge.EVENT_BUS.addListener(TelemetryServerHooks::onPlayerLoggedIn);
+        NeoForge.EVENT_BUS.addListener(TelemetryServerHooks::onPlayerLoggedOut);
+        NeoForge.EVENT_BUS.addListener(TelemetryServerHooks::onServerTickStart);
         NeoForge.EVENT_BUS.addListener(TelemetryServerHooks::onServerTick);
+        NeoForge.EVENT_BUS.addListener(TelemetryServerHooks::onLevelTickStart);
+        NeoForge.EVENT_BUS.addListener(TelemetryServerHooks::onLevelTick);
+        NeoForge.EVENT_BUS.addListener(TelemetryServerHooks::onChunkLoad);
+        NeoForge.EVENT_BUS.addListener(TelemetryServerHooks::onChunkUnload);
     }
 
     private static void registerConfig() {
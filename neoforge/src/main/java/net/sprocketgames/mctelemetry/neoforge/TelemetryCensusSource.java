@@ -0,0 +1,133 @@
+package net.sprocketgames.mctelemetry.neoforge;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.phys.AABB;
+import net.sprocketgames.mctelemetry.common.server.EntityCensus;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Walks the chunks loaded in every server level for the {@link EntityCensus}.
+ * <p>
+ * Loaded chunk positions are tracked from chunk load/unload events, so starting a pass only copies each level's
+ * position set instead of enumerating the chunk map. Counting uses registry ids; names are resolved once per pass.
+ * Entities are also totalled per dimension, which refreshes report instead of walking every entity. Server thread only.
+ */
+final class TelemetryCensusSource implements EntityCensus.Source, Consumer<Entity> {
+    private final Map<ServerLevel, LongOpenHashSet> loadedChunks = new IdentityHashMap<>();
+    private final List<ServerLevel> passLevels = new ArrayList<>();
+    private final List<long[]> passChunks = new ArrayList<>();
+    private int levelIndex;
+    private int chunkIndex;
+    private EntityCensus.Counts entityCounts;
+    private long entityChunk;
+
+    void chunkLoaded(ServerLevel level, long chunkPos) {
+        loadedChunks.computeIfAbsent(level, ignored -> new LongOpenHashSet()).add(chunkPos);
+    }
+
+    void chunkUnloaded(ServerLevel level, long chunkPos) {
+        LongOpenHashSet chunks = loadedChunks.get(level);
+        if (chunks != null) {
+            chunks.remove(chunkPos);
+        }
+    }
+
+    void clear() {
+        loadedChunks.clear();
+        passLevels.clear();
+        passChunks.clear();
+    }
+
+    @Override
+    public void begin() {
+        passLevels.clear();
+        passChunks.clear();
+        for (Map.Entry<ServerLevel, LongOpenHashSet> entry : loadedChunks.entrySet()) {
+            passLevels.add(entry.getKey());
+            passChunks.add(entry.getValue().toLongArray());
+        }
+        levelIndex = 0;
+        chunkIndex = 0;
+    }
+
+    @Override
+    public boolean countNext(EntityCensus.Counts counts) {
+        while (levelIndex < passLevels.size()) {
+            long[] chunks = passChunks.get(levelIndex);
+            if (chunkIndex < chunks.length) {
+                ServerLevel level = passLevels.get(levelIndex);
+                if (chunkIndex == 0) {
+                    counts.dimension(level.dimension().location().toString());
+                }
+                count(level, chunks[chunkIndex++], counts);
+                return true;
+            }
+
+            levelIndex++;
+            chunkIndex = 0;
+        }
+
+        passLevels.clear();
+        passChunks.clear();
+        return false;
+    }
+
+    @Override
+    public String entityTypeName(int typeId) {
+        ResourceLocation key = BuiltInRegistries.ENTITY_TYPE.getKey(BuiltInRegistries.ENTITY_TYPE.byId(typeId));
+        return key == null ? null : key.toString();
+    }
+
+    @Override
+    public String blockEntityTypeName(int typeId) {
+        ResourceLocation key = BuiltInRegistries.BLOCK_ENTITY_TYPE.getKey(BuiltInRegistries.BLOCK_ENTITY_TYPE.byId(typeId));
+        return key == null ? null : key.toString();
+    }
+
+    /**
+     * Counts entities whose position lies in the chunk being visited; entities overlapping it from a neighbour are
+     * counted with their own chunk.
+     */
+    @Override
+    public void accept(Entity entity) {
+        if (entity.chunkPosition().toLong() == entityChunk) {
+            entityCounts.entity(BuiltInRegistries.ENTITY_TYPE.getId(entity.getType()));
+        }
+    }
+
+    private void count(ServerLevel level, long chunkPos, EntityCensus.Counts counts) {
+        int chunkX = ChunkPos.getX(chunkPos);
+        int chunkZ = ChunkPos.getZ(chunkPos);
+        LevelChunk chunk = level.getChunkSource().getChunkNow(chunkX, chunkZ);
+        if (chunk == null) {
+            return;
+        }
+
+        counts.chunk();
+        for (BlockEntity blockEntity : chunk.getBlockEntities().values()) {
+            counts.blockEntity(BuiltInRegistries.BLOCK_ENTITY_TYPE.getId(blockEntity.getType()));
+        }
+
+        int minX = chunkX << 4;
+        int minZ = chunkZ << 4;
+        entityCounts = counts;
+        entityChunk = chunkPos;
+        try {
+            level.getEntities().get(new AABB(minX, level.getMinBuildHeight(), minZ, minX + 16, level.getMaxBuildHeight(), minZ + 16), this);
+        } finally {
+            entityCounts = null;
+        }
+    }
+}
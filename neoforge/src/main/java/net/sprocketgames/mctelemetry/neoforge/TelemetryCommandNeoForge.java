@@ -1,5 +1,6 @@
 package net.sprocketgames.mctelemetry.neoforge;
 
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.mojang.logging.LogUtils;
@@ -10,8 +11,8 @@ import net.minecraft.network.chat.Component;
 import net.neoforged.neoforge.event.RegisterCommandsEvent;
 import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
 import net.sprocketgames.mctelemetry.common.TelemetryPayload;
-import net.sprocketgames.mctelemetry.common.TelemetrySnapshot;
-import net.sprocketgames.mctelemetry.common.server.TelemetryCollector;
+import net.sprocketgames.mctelemetry.common.server.StackProfiler;
+import net.sprocketgames.mctelemetry.common.server.TelemetrySnapshotCache;
 import org.slf4j.Logger;
 
 import java.util.Collections;
@@ -32,33 +33,78 @@ public class TelemetryCommandNeoForge {
                 .requires(source -> source.hasPermission(2))
                 .then(Commands.literal("json")
                         .then(Commands.argument("nonce", StringArgumentType.word())
+                                .executes(context -> emitJson(context.getSource(), StringArgumentType.getString(context, "nonce"), null))
+                                .then(Commands.argument("maxAgeMs", IntegerArgumentType.integer(0))
+                                        .executes(context -> emitJson(context.getSource(), StringArgumentType.getString(context, "nonce"),
+                                                IntegerArgumentType.getInteger(context, "maxAgeMs"))))))
+                .then(Commands.literal("profile")
+                        .then(Commands.literal("start")
+                                .executes(context -> startProfile(context.getSource(), StackProfiler.DEFAULT_DURATION_SECONDS,
+                                        StackProfiler.DEFAULT_RATE_HZ))
+                                .then(Commands.argument("seconds", IntegerArgumentType.integer(1, StackProfiler.MAX_DURATION_SECONDS))
+                                        .executes(context -> startProfile(context.getSource(),
+                                                IntegerArgumentType.getInteger(context, "seconds"), StackProfiler.DEFAULT_RATE_HZ))
+                                        .then(Commands.argument("rate", IntegerArgumentType.integer(1, StackProfiler.MAX_RATE_HZ))
+                                                .executes(context -> startProfile(context.getSource(),
+                                                        IntegerArgumentType.getInteger(context, "seconds"),
+                                                        IntegerArgumentType.getInteger(context, "rate"))))))
+                        .then(Commands.literal("stop")
                                 .executes(context -> {
-                                    String nonce = StringArgumentType.getString(context, "nonce");
-                                    CommandSourceStack source = context.getSource();
-                                    boolean detailedLogging = TelemetryConfigNeoForge.detailedLoggingEnabled();
-
-                                    logDetailed(detailedLogging, "/telemetry json invoked with nonce '{}'", nonce);
-
-                                    try {
-                                        String json = buildJson(source, detailedLogging);
-                                        Component message = Component.literal(formatPayload(nonce, json));
-
-                                        broadcastPayload(source, message, detailedLogging);
-                                        logDetailed(detailedLogging, "Telemetry payload broadcast for nonce '{}'", nonce);
-                                        return 1;
-                                    } catch (Exception e) {
-                                        LOGGER.error("Telemetry command failed for nonce '{}'", nonce, e);
-                                        return 0;
-                                    }
+                                    TelemetryServerHooks.profiler().stop();
+                                    context.getSource().sendSuccess(() -> Component.literal(describeProfile()), false);
+                                    return 1;
+                                }))
+                        .then(Commands.literal("status")
+                                .executes(context -> {
+                                    context.getSource().sendSuccess(() -> Component.literal(describeProfile()), false);
+                                    return 1;
                                 })));
     }
 
+    /**
+     * @param maxAgeMillis how old the cached snapshot may be before it is recollected, or {@code null} for the
+     *                     refresh interval
+     */
+    private static int emitJson(CommandSourceStack source, String nonce, Integer maxAgeMillis) {
+        boolean detailedLogging = TelemetryConfigNeoForge.detailedLoggingEnabled();
+        logDetailed(detailedLogging, "/telemetry json invoked with nonce '{}'", nonce);
+
+        try {
+            String json = buildJson(source, maxAgeMillis, detailedLogging);
+            Component message = Component.literal(formatPayload(nonce, json));
+
+            broadcastPayload(source, message, detailedLogging);
+            logDetailed(detailedLogging, "Telemetry payload broadcast for nonce '{}'", nonce);
+            return 1;
+        } catch (Exception e) {
+            LOGGER.error("Telemetry command failed for nonce '{}'", nonce, e);
+            return 0;
+        }
+    }
+
+    private static int startProfile(CommandSourceStack source, int seconds, int rateHz) {
+        if (!TelemetryServerHooks.profiler().start(rateHz, seconds)) {
+            source.sendFailure(Component.literal("Profiler is already running or the server thread is not known yet"));
+            return 0;
+        }
+
+        source.sendSuccess(() -> Component.literal("Profiling the server thread at " + rateHz + " Hz for " + seconds
+                + " s; collapsed stacks at /telemetry/profile"), false);
+        return 1;
+    }
+
+    private static String describeProfile() {
+        StackProfiler.Status status = TelemetryServerHooks.profiler().status();
+        return (status.running() ? "Profiler running: " : "Profiler stopped: ") + status.samples() + " samples, "
+                + status.nodes() + " nodes, " + status.truncated() + " truncated";
+    }
+
     private static void broadcastPayload(CommandSourceStack source, Component message, boolean detailedLogging) {
         source.getServer().sendSystemMessage(message);
         logDetailed(detailedLogging, "Payload broadcast to console: {}", message.getString());
     }
 
-    private static String buildJson(CommandSourceStack source, boolean detailedLogging) {
+    private static String buildJson(CommandSourceStack source, Integer maxAgeMillis, boolean detailedLogging) {
         String mcVersion = "unknown";
         List<PlayerSnapshot> emptyPlayers = Collections.emptyList();
 
@@ -69,22 +115,19 @@ public class TelemetryCommandNeoForge {
         }
 
         try {
-            TelemetrySnapshot snapshot = TelemetryCollector.collect(
-                    TelemetryServerHooks.asTelemetrySource(source.getServer()),
-                    detailedLogging,
-                    LOGGER,
-                    mcVersion,
-                    MCTelemetryNeoForge.LOADER);
-            return emitPayload(snapshot, detailedLogging);
+            TelemetrySnapshotCache.Entry entry = maxAgeMillis == null
+                    ? TelemetryServerHooks.snapshot(source.getServer(), mcVersion, detailedLogging)
+                    : TelemetryServerHooks.snapshot(source.getServer(), mcVersion, maxAgeMillis, detailedLogging);
+            return emitPayload(entry, detailedLogging);
         } catch (Exception e) {
             LOGGER.error("Failed while assembling telemetry JSON; returning fallback payload", e);
             return TelemetryPayload.build(mcVersion, MCTelemetryNeoForge.LOADER, emptyPlayers);
         }
     }
 
-    private static String emitPayload(TelemetrySnapshot snapshot, boolean detailedLogging) {
-        String payload = TelemetryPayload.build(snapshot);
-        logDetailed(detailedLogging, "Telemetry JSON payload built: {}", payload);
+    private static String emitPayload(TelemetrySnapshotCache.Entry entry, boolean detailedLogging) {
+        String payload = entry.taggedJson();
+        logDetailed(detailedLogging, "Telemetry JSON payload version {} ready: {}", entry.version(), payload);
         return payload;
     }
 
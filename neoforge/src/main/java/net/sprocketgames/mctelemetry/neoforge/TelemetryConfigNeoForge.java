@@ -7,6 +7,13 @@ public class TelemetryConfigNeoForge {
     private static final int DEFAULT_HTTP_PORT = 8765;
     private static final String DEFAULT_HTTP_BIND_ADDRESS = "127.0.0.1";
     private static final int DEFAULT_REFRESH_TICKS = 200;
+    private static final String DEFAULT_HTTP_ENGINE = "jdk";
+    private static final String DEFAULT_REFRESH_MODE = "fixed";
+    private static final int DEFAULT_ADAPTIVE_ACTIVE_REFRESH_TICKS = 20;
+    private static final int DEFAULT_ADAPTIVE_MAX_STALE_TICKS = 6000;
+    private static final int DEFAULT_JOURNAL_MAX_MEGABYTES = 128;
+    private static final int DEFAULT_CENSUS_BUDGET_NANOS = 250_000;
+    private static final int DEFAULT_TICK_BUDGET_MICROS = 1000;
     private static boolean detailedLoggingFallbackLogged = false;
 
     public static final ModConfigSpec.BooleanValue DETAILED_LOGGING = BUILDER
@@ -30,6 +37,83 @@ public class TelemetryConfigNeoForge {
             .comment("Number of server ticks between telemetry JSON refreshes that back the HTTP endpoint.")
             .defineInRange("telemetryRefreshTicks", DEFAULT_REFRESH_TICKS, 1, 12000);
 
+    public static final ModConfigSpec.ConfigValue<String> REFRESH_MODE = BUILDER
+            .comment(
+                    "\"fixed\" (default) captures telemetry every telemetryRefreshTicks. \"adaptive\" captures only while",
+                    "the endpoint is being polled or a push exporter is configured (every adaptiveActiveRefreshTicks)",
+                    "or once the payload is adaptiveMaxStaleTicks old, so idle servers spend nothing on collection.",
+                    "Can also be overridden via system property MCTELEMETRY_REFRESH_MODE.")
+            .define("refreshMode", DEFAULT_REFRESH_MODE);
+
+    public static final ModConfigSpec.IntValue ADAPTIVE_ACTIVE_REFRESH_TICKS = BUILDER
+            .comment("Ticks between refreshes in adaptive mode while a consumer fetched data within the last minute.")
+            .defineInRange("adaptiveActiveRefreshTicks", DEFAULT_ADAPTIVE_ACTIVE_REFRESH_TICKS, 1, 12000);
+
+    public static final ModConfigSpec.IntValue ADAPTIVE_MAX_STALE_TICKS = BUILDER
+            .comment("Ticks after which adaptive mode refreshes even when nobody is polling.")
+            .defineInRange("adaptiveMaxStaleTicks", DEFAULT_ADAPTIVE_MAX_STALE_TICKS, 1, 72000);
+
+    public static final ModConfigSpec.ConfigValue<String> HTTP_ENGINE = BUILDER
+            .comment(
+                    "HTTP engine for the telemetry endpoint: \"jdk\" (default, serves every endpoint) or \"nio\"",
+                    "(single selector thread with keep-alive and pipelining; does not serve /telemetry/stream).",
+                    "Can also be overridden via system property MCTELEMETRY_HTTP_ENGINE.")
+            .define("httpEngine", DEFAULT_HTTP_ENGINE);
+
+    public static final ModConfigSpec.BooleanValue JOURNAL_ENABLED = BUILDER
+            .comment(
+                    "Append every published telemetry sample and player join/leave to a binary journal under",
+                    "mctelemetry/journal in the game directory. Read it offline with TelemetryJournalReader.")
+            .define("journalEnabled", false);
+
+    public static final ModConfigSpec.IntValue JOURNAL_MAX_MEGABYTES = BUILDER
+            .comment("Disk space the telemetry journal may use; the oldest segments are deleted beyond it.")
+            .defineInRange("journalMaxMegabytes", DEFAULT_JOURNAL_MAX_MEGABYTES, 16, 65536);
+
+    public static final ModConfigSpec.IntValue CENSUS_BUDGET_NANOS = BUILDER
+            .comment(
+                    "Nanoseconds per server tick the entity/block-entity census may spend walking loaded chunks.",
+                    "A full census is spread over as many ticks as it needs; 0 disables it.")
+            .defineInRange("censusBudgetNanos", DEFAULT_CENSUS_BUDGET_NANOS, 0, 10_000_000);
+
+    public static final ModConfigSpec.IntValue TICK_BUDGET_MICROS = BUILDER
+            .comment(
+                    "Microseconds per server tick the telemetry mod may spend on the server thread in total.",
+                    "Players and tick time are always captured; beyond the budget, per-dimension load is left out",
+                    "of that refresh and the census waits for a later tick. 0 disables the budget.",
+                    "The mod's measured cost is served at /telemetry/self.")
+            .defineInRange("tickBudgetMicros", DEFAULT_TICK_BUDGET_MICROS, 0, 50_000);
+
+    public static final ModConfigSpec.BooleanValue JVM_METRICS_ENABLED = BUILDER
+            .comment(
+                    "Report heap usage, GC pauses (from GC notifications) and server-thread allocation per tick.",
+                    "Sampled off the server thread except for one allocation counter read per tick.")
+            .define("jvmMetricsEnabled", true);
+
+    public static final ModConfigSpec.BooleanValue PROFILER_HTTP_CONTROL = BUILDER
+            .comment(
+                    "Allow POST/DELETE on /telemetry/profile to start and stop the stack profiler, from loopback clients only.",
+                    "Profiling pauses the server thread for every sample, so this is off by default; the command always works.")
+            .define("profilerHttpControl", false);
+
+    public static final ModConfigSpec.BooleanValue CONNECTION_METRICS_ENABLED = BUILDER
+            .comment(
+                    "Report each player's latency and packets/bytes in and out per second.",
+                    "Counted by two lightweight handlers added to each player's network pipeline.")
+            .define("connectionMetricsEnabled", true);
+
+    public static final ModConfigSpec.ConfigValue<String> EXPORT_STATSD_ADDRESS = BUILDER
+            .comment(
+                    "host:port of a StatsD daemon to push gauges to over UDP after every refresh; empty disables it.",
+                    "Sent from a background thread; an unreachable daemon never slows the server.")
+            .define("exportStatsdAddress", "");
+
+    public static final ModConfigSpec.ConfigValue<String> EXPORT_OTLP_ENDPOINT = BUILDER
+            .comment(
+                    "Base URL of an OpenTelemetry collector (OTLP/HTTP JSON), e.g. http://localhost:4318, to push",
+                    "gauges to in batches from a background thread; empty disables it.")
+            .define("exportOtlpEndpoint", "");
+
     static final ModConfigSpec SPEC = BUILDER.build();
 
     private TelemetryConfigNeoForge() {
@@ -65,6 +149,15 @@ public class TelemetryConfigNeoForge {
         }
     }
 
+    public static String httpEngine() {
+        try {
+            return HTTP_ENGINE.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("HTTP engine config not yet loaded; defaulting to {}", DEFAULT_HTTP_ENGINE);
+            return DEFAULT_HTTP_ENGINE;
+        }
+    }
+
     public static int telemetryRefreshTicks() {
         try {
             return TELEMETRY_REFRESH_TICKS.get();
@@ -73,4 +166,112 @@ public class TelemetryConfigNeoForge {
             return DEFAULT_REFRESH_TICKS;
         }
     }
+
+    public static boolean journalEnabled() {
+        try {
+            return JOURNAL_ENABLED.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("Journal config not yet loaded; defaulting to disabled");
+            return false;
+        }
+    }
+
+    public static int journalMaxMegabytes() {
+        try {
+            return JOURNAL_MAX_MEGABYTES.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("Journal size config not yet loaded; defaulting to {} MiB", DEFAULT_JOURNAL_MAX_MEGABYTES);
+            return DEFAULT_JOURNAL_MAX_MEGABYTES;
+        }
+    }
+
+    public static int censusBudgetNanos() {
+        try {
+            return CENSUS_BUDGET_NANOS.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("Census budget config not yet loaded; defaulting to {} ns", DEFAULT_CENSUS_BUDGET_NANOS);
+            return DEFAULT_CENSUS_BUDGET_NANOS;
+        }
+    }
+
+    public static int tickBudgetMicros() {
+        try {
+            return TICK_BUDGET_MICROS.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("Tick budget config not yet loaded; defaulting to {} µs", DEFAULT_TICK_BUDGET_MICROS);
+            return DEFAULT_TICK_BUDGET_MICROS;
+        }
+    }
+
+    public static boolean jvmMetricsEnabled() {
+        try {
+            return JVM_METRICS_ENABLED.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("JVM metrics config not yet loaded; defaulting to enabled");
+            return true;
+        }
+    }
+
+    public static boolean profilerHttpControl() {
+        try {
+            return PROFILER_HTTP_CONTROL.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("Profiler HTTP control config not yet loaded; defaulting to disabled");
+            return false;
+        }
+    }
+
+    public static boolean connectionMetricsEnabled() {
+        try {
+            return CONNECTION_METRICS_ENABLED.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("Connection metrics config not yet loaded; defaulting to enabled");
+            return true;
+        }
+    }
+
+    public static String exportStatsdAddress() {
+        try {
+            return EXPORT_STATSD_ADDRESS.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("StatsD export config not yet loaded; defaulting to disabled");
+            return "";
+        }
+    }
+
+    public static String exportOtlpEndpoint() {
+        try {
+            return EXPORT_OTLP_ENDPOINT.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("OTLP export config not yet loaded; defaulting to disabled");
+            return "";
+        }
+    }
+
+    public static String refreshMode() {
+        try {
+            return REFRESH_MODE.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("Refresh mode config not yet loaded; defaulting to {}", DEFAULT_REFRESH_MODE);
+            return DEFAULT_REFRESH_MODE;
+        }
+    }
+
+    public static int adaptiveActiveRefreshTicks() {
+        try {
+            return ADAPTIVE_ACTIVE_REFRESH_TICKS.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("Adaptive refresh config not yet loaded; defaulting to {} ticks", DEFAULT_ADAPTIVE_ACTIVE_REFRESH_TICKS);
+            return DEFAULT_ADAPTIVE_ACTIVE_REFRESH_TICKS;
+        }
+    }
+
+    public static int adaptiveMaxStaleTicks() {
+        try {
+            return ADAPTIVE_MAX_STALE_TICKS.get();
+        } catch (IllegalStateException e) {
+            MCTelemetryNeoForge.LOGGER.debug("Adaptive staleness config not yet loaded; defaulting to {} ticks", DEFAULT_ADAPTIVE_MAX_STALE_TICKS);
+            return DEFAULT_ADAPTIVE_MAX_STALE_TICKS;
+        }
+    }
 }
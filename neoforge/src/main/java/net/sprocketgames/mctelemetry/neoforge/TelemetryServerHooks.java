@@ -2,24 +2,33 @@ package net.sprocketgames.mctelemetry.neoforge;
 
 import net.minecraft.SharedConstants;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
+import net.neoforged.neoforge.event.level.ChunkEvent;
+import net.neoforged.neoforge.event.tick.LevelTickEvent;
 import net.neoforged.neoforge.event.tick.ServerTickEvent.Post;
+import net.neoforged.neoforge.event.tick.ServerTickEvent.Pre;
 import net.neoforged.neoforge.event.server.ServerStartedEvent;
 import net.neoforged.neoforge.event.server.ServerStoppingEvent;
+import net.neoforged.fml.loading.FMLPaths;
+import net.sprocketgames.mctelemetry.common.DimensionSnapshot;
 import net.sprocketgames.mctelemetry.common.PlayerSnapshot;
+import net.sprocketgames.mctelemetry.common.server.ConnectionCounters;
+import net.sprocketgames.mctelemetry.common.server.StackProfiler;
 import net.sprocketgames.mctelemetry.common.server.TelemetryCollector;
+import net.sprocketgames.mctelemetry.common.server.TelemetrySnapshotCache;
 import net.sprocketgames.mctelemetry.common.server.TelemetryService;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.OptionalDouble;
-import java.util.stream.Collectors;
 
 public class TelemetryServerHooks {
     private static final TelemetryService<MinecraftServer> TELEMETRY_SERVICE = new TelemetryService<>(
             MCTelemetryNeoForge.LOADER,
             MCTelemetryNeoForge.LOGGER,
             TelemetryServerHooks::asTelemetrySource);
+    private static final TelemetryCensusSource CENSUS_SOURCE = new TelemetryCensusSource();
 
     public static void onServerStarted(ServerStartedEvent event) {
         MinecraftServer server = event.getServer();
@@ -28,6 +37,16 @@ public class TelemetryServerHooks {
             return;
         }
 
+        TELEMETRY_SERVICE.configureJournal(
+                TelemetryConfigNeoForge.journalEnabled() ? FMLPaths.GAMEDIR.get().resolve("mctelemetry").resolve("journal") : null,
+                TelemetryConfigNeoForge.journalMaxMegabytes() * 1024L * 1024L);
+        TELEMETRY_SERVICE.configureCensus(CENSUS_SOURCE, TelemetryConfigNeoForge.censusBudgetNanos());
+        TELEMETRY_SERVICE.configureTickBudget(TelemetryConfigNeoForge.tickBudgetMicros() * 1_000L);
+        TELEMETRY_SERVICE.configureJvmMetrics(TelemetryConfigNeoForge.jvmMetricsEnabled());
+        TELEMETRY_SERVICE.configureProfilerHttpControl(TelemetryConfigNeoForge.profilerHttpControl());
+        TELEMETRY_SERVICE.configureExport(TelemetryConfigNeoForge.exportStatsdAddress(), TelemetryConfigNeoForge.exportOtlpEndpoint());
+        TELEMETRY_SERVICE.configureRefresh(TelemetryConfigNeoForge.refreshMode(), TelemetryConfigNeoForge.adaptiveActiveRefreshTicks(), TelemetryConfigNeoForge.adaptiveMaxStaleTicks());
+
         boolean detailedLogging = TelemetryConfigNeoForge.detailedLoggingEnabled();
         TELEMETRY_SERVICE.start(
                 server,
@@ -35,17 +54,80 @@ public class TelemetryServerHooks {
                 detailedLogging,
                 TelemetryConfigNeoForge.telemetryRefreshTicks(),
                 TelemetryConfigNeoForge.httpPort(),
-                TelemetryConfigNeoForge.httpBindAddress());
+                TelemetryConfigNeoForge.httpBindAddress(),
+                TelemetryConfigNeoForge.httpEngine());
     }
 
     public static void onServerStopping(ServerStoppingEvent event) {
         TELEMETRY_SERVICE.stop();
+        TELEMETRY_SERVICE.playerRegistry().clear();
+        TELEMETRY_SERVICE.connections().clear();
+        CENSUS_SOURCE.clear();
+    }
+
+    public static void onChunkLoad(ChunkEvent.Load event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            CENSUS_SOURCE.chunkLoaded(level, event.getChunk().getPos().toLong());
+        }
+    }
+
+    public static void onChunkUnload(ChunkEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            CENSUS_SOURCE.chunkUnloaded(level, event.getChunk().getPos().toLong());
+        }
+    }
+
+    public static void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            var profile = player.getGameProfile();
+            PlayerSnapshot snapshot = TELEMETRY_SERVICE.playerRegistry().join(profile.getId(), profile.getName());
+            if (TelemetryConfigNeoForge.connectionMetricsEnabled()) {
+                trackConnection(player, snapshot.uuid());
+            }
+        }
+    }
+
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            PlayerSnapshot left = TELEMETRY_SERVICE.playerRegistry().leave(player.getGameProfile().getId());
+            if (left != null) {
+                TELEMETRY_SERVICE.connections().close(left.uuid());
+            }
+        }
+    }
+
+    public static void onServerTickStart(Pre event) {
+        TELEMETRY_SERVICE.tickStarted();
     }
 
     public static void onServerTick(Post event) {
         TELEMETRY_SERVICE.tick(event.getServer(), TelemetryConfigNeoForge.detailedLoggingEnabled());
     }
 
+    public static void onLevelTickStart(LevelTickEvent.Pre event) {
+        if (!event.getLevel().isClientSide()) {
+            TELEMETRY_SERVICE.levelTickTimes().started(event.getLevel());
+        }
+    }
+
+    public static void onLevelTick(LevelTickEvent.Post event) {
+        if (!event.getLevel().isClientSide()) {
+            TELEMETRY_SERVICE.levelTickTimes().ended(event.getLevel());
+        }
+    }
+
+    static StackProfiler profiler() {
+        return TELEMETRY_SERVICE.profiler();
+    }
+
+    static TelemetrySnapshotCache.Entry snapshot(MinecraftServer server, String minecraftVersion, boolean detailedLogging) {
+        return TELEMETRY_SERVICE.snapshot(server, minecraftVersion, detailedLogging);
+    }
+
+    static TelemetrySnapshotCache.Entry snapshot(MinecraftServer server, String minecraftVersion, long maxAgeMillis, boolean detailedLogging) {
+        return TELEMETRY_SERVICE.snapshot(server, minecraftVersion, maxAgeMillis, detailedLogging);
+    }
+
     static TelemetryCollector.TelemetrySource asTelemetrySource(MinecraftServer server) {
         return new TelemetryCollector.TelemetrySource() {
             @Override
@@ -55,40 +137,37 @@ public class TelemetryServerHooks {
 
             @Override
             public List<PlayerSnapshot> onlinePlayers() {
-                try {
-                    return server.getPlayerList().getPlayers().stream()
-                            .map(TelemetryServerHooks::snapshotForPlayer)
-                            .collect(Collectors.toList());
-                } catch (Exception e) {
-                    MCTelemetryNeoForge.LOGGER.debug("Failed to gather online players", e);
-                    return Collections.emptyList();
+                return TELEMETRY_SERVICE.playerRegistry().players();
+            }
+
+            @Override
+            public List<PlayerSnapshot> sharedOnlinePlayers() {
+                return TELEMETRY_SERVICE.playerRegistry().players();
+            }
+
+            @Override
+            public void appendDimensions(List<DimensionSnapshot> sink) {
+                for (ServerLevel level : server.getAllLevels()) {
+                    OptionalDouble mspt = TELEMETRY_SERVICE.levelTickTimes().drainAverageMs(level);
+                    String id = level.dimension().location().toString();
+                    sink.add(new DimensionSnapshot(
+                            id,
+                            mspt.isPresent() ? mspt.getAsDouble() : null,
+                            level.getChunkSource().getLoadedChunksCount(),
+                            TELEMETRY_SERVICE.censusEntities(id),
+                            level.players().size()));
                 }
             }
         };
     }
 
-    private static PlayerSnapshot snapshotForPlayer(ServerPlayer player) {
+    private static void trackConnection(ServerPlayer player, String uuid) {
         try {
-            String name = player.getGameProfile().getName();
-            String uuid = player.getGameProfile().getId().toString().replace("-", "");
-            return new PlayerSnapshot(name, uuid);
+            ConnectionCounters counters = TELEMETRY_SERVICE.connections().open(uuid, player.connection::latency);
+            ConnectionTrafficHandlers.install(player.connection.getConnection().channel(), counters);
         } catch (Exception e) {
-            MCTelemetryNeoForge.LOGGER.debug("Failed to snapshot player {}", player, e);
-            String fallbackName;
-            String fallbackUuid;
-            try {
-                fallbackName = player.getGameProfile().getName();
-            } catch (Exception ignored) {
-                fallbackName = "unknown";
-            }
-
-            try {
-                fallbackUuid = player.getGameProfile().getId() == null ? "" : player.getGameProfile().getId().toString().replace("-", "");
-            } catch (Exception ignored) {
-                fallbackUuid = "";
-            }
-
-            return new PlayerSnapshot(fallbackName, fallbackUuid);
+            TELEMETRY_SERVICE.connections().close(uuid);
+            MCTelemetryNeoForge.LOGGER.debug("Failed to track connection of {}", player, e);
         }
     }
 